@@ -9,7 +9,7 @@
 package com.foilen.smalltools.net.commander;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.foilen.smalltools.crypt.spongycastle.cert.RSACertificate;
 import com.foilen.smalltools.crypt.spongycastle.cert.RSATrustedCertificates;
@@ -23,6 +23,8 @@ import com.foilen.smalltools.net.commander.connectionpool.ConnectionPool;
 import com.foilen.smalltools.net.commander.connectionpool.SimpleConnectionPool;
 import com.foilen.smalltools.net.netty.NettyBuilder;
 import com.foilen.smalltools.net.netty.NettyClient;
+import com.foilen.smalltools.tools.ExecutorsTools;
+import com.foilen.smalltools.tools.thread.RejectionPolicy;
 
 /**
  * The client side of the commander system. See {@link CommanderServer} for all the details and sample usage.
@@ -35,6 +37,8 @@ import com.foilen.smalltools.net.netty.NettyClient;
  */
 public class CommanderClient {
 
+    private static final AtomicInteger nextId = new AtomicInteger();
+
     private RSATrustedCertificates serverTrustedCertificates;
     private RSACertificate clientCertificate;
 
@@ -43,13 +47,17 @@ public class CommanderClient {
 
     private ConnectionPool connectionPool = new SimpleConnectionPool();
 
-    private ExecutorService executorService = Executors.newCachedThreadPool();
+    private ExecutorService executorService;
+    private boolean ownExecutorService;
 
     /**
-     * Close all the connections.
+     * Close all the connections and shutdown the executor if it was created by this client.
      */
     public void closeAllConnections() {
         connectionPool.closeAllConnections();
+        synchronized (this) {
+            shutdownOwnExecutorService();
+        }
     }
 
     /**
@@ -79,7 +87,7 @@ public class CommanderClient {
         nettyBuilder.setCertificate(clientCertificate);
         nettyBuilder.setTrustedCertificates(serverTrustedCertificates);
         nettyBuilder.addChannelHandler(CommanderDecoder.class);
-        nettyBuilder.addChannelHandler(CommanderExecutionChannel.class, configureSpring, this, executorService);
+        nettyBuilder.addChannelHandler(CommanderExecutionChannel.class, configureSpring, this, getExecutorService());
         nettyBuilder.addChannelHandler(CommanderEncoder.class);
 
         NettyClient nettyClient = nettyBuilder.buildClient(host, port);
@@ -145,7 +153,20 @@ public class CommanderClient {
         return connectionPool.getConnectionsCount();
     }
 
-    public ExecutorService getExecutorService() {
+    /**
+     * Get the executor that runs the received commands. If none was set, one is created and it is shutdown when closing all the connections.
+     *
+     * @return the executor
+     */
+    public synchronized ExecutorService getExecutorService() {
+        if (executorService == null) {
+            executorService = ExecutorsTools.builder("CommanderClient-" + nextId.getAndIncrement()) //
+                    .setMaxThreads(200) //
+                    .setQueueSize(0) //
+                    .setRejectionPolicy(RejectionPolicy.CALLER_RUNS) //
+                    .build();
+            ownExecutorService = true;
+        }
         return executorService;
     }
 
@@ -202,7 +223,14 @@ public class CommanderClient {
         return this;
     }
 
-    public void setExecutorService(ExecutorService executorService) {
+    /**
+     * Set the executor that runs the received commands. It is not shutdown when closing all the connections.
+     *
+     * @param executorService
+     *            the executor
+     */
+    public synchronized void setExecutorService(ExecutorService executorService) {
+        shutdownOwnExecutorService();
         this.executorService = executorService;
     }
 
@@ -218,4 +246,12 @@ public class CommanderClient {
         return this;
     }
 
+    private void shutdownOwnExecutorService() {
+        if (ownExecutorService) {
+            executorService.shutdown();
+            executorService = null;
+            ownExecutorService = false;
+        }
+    }
+
 }
@@ -9,7 +9,7 @@
 package com.foilen.smalltools.net.commander;
 
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.foilen.smalltools.crypt.spongycastle.cert.RSACertificate;
 import com.foilen.smalltools.crypt.spongycastle.cert.RSATrustedCertificates;
@@ -24,6 +24,8 @@ import com.foilen.smalltools.net.netty.NettyBuilder;
 import com.foilen.smalltools.net.netty.NettyServer;
 import com.foilen.smalltools.tools.AssertTools;
 import com.foilen.smalltools.tools.CloseableTools;
+import com.foilen.smalltools.tools.ExecutorsTools;
+import com.foilen.smalltools.tools.thread.RejectionPolicy;
 
 /**
  * This is a server/client system using Netty to easily create a TCP service that can be encrypted and authenticated (both ways) using TSL/SSL. Once connected, it is possible to send
@@ -105,6 +107,8 @@ import com.foilen.smalltools.tools.CloseableTools;
  */
 public class CommanderServer {
 
+    private static final AtomicInteger nextId = new AtomicInteger();
+
     private RSATrustedCertificates clientTrustedCertificates;
     private RSACertificate serverCertificate;
 
@@ -115,7 +119,8 @@ public class CommanderServer {
 
     private int port;
 
-    private ExecutorService executorService = Executors.newCachedThreadPool();
+    private ExecutorService executorService;
+    private boolean ownExecutorService;
 
     /**
      * Get the certificates that are trusted to receive connections from.
@@ -135,7 +140,20 @@ public class CommanderServer {
         return commanderClient;
     }
 
-    public ExecutorService getExecutorService() {
+    /**
+     * Get the executor that runs the received commands. If none was set, one is created and it is shutdown when stopping.
+     *
+     * @return the executor
+     */
+    public synchronized ExecutorService getExecutorService() {
+        if (executorService == null) {
+            executorService = ExecutorsTools.builder("CommanderServer-" + nextId.getAndIncrement()) //
+                    .setMaxThreads(200) //
+                    .setQueueSize(0) //
+                    .setRejectionPolicy(RejectionPolicy.CALLER_RUNS) //
+                    .build();
+            ownExecutorService = true;
+        }
         return executorService;
     }
 
@@ -212,7 +230,14 @@ public class CommanderServer {
         return this;
     }
 
-    public void setExecutorService(ExecutorService executorService) {
+    /**
+     * Set the executor that runs the received commands. It is not shutdown when stopping.
+     *
+     * @param executorService
+     *            the executor
+     */
+    public synchronized void setExecutorService(ExecutorService executorService) {
+        shutdownOwnExecutorService();
         this.executorService = executorService;
     }
 
@@ -253,7 +278,7 @@ public class CommanderServer {
         nettyBuilder.setCertificate(serverCertificate);
         nettyBuilder.setTrustedCertificates(clientTrustedCertificates);
         nettyBuilder.addChannelHandler(CommanderDecoder.class);
-        nettyBuilder.addChannelHandler(CommanderExecutionChannel.class, configureSpring, commanderClient, executorService);
+        nettyBuilder.addChannelHandler(CommanderExecutionChannel.class, configureSpring, commanderClient, getExecutorService());
         nettyBuilder.addChannelHandler(CommanderEncoder.class);
 
         nettyServer = nettyBuilder.buildServer(port);
@@ -267,5 +292,16 @@ public class CommanderServer {
      */
     public void stop() {
         CloseableTools.close(nettyServer);
+        synchronized (this) {
+            shutdownOwnExecutorService();
+        }
+    }
+
+    private void shutdownOwnExecutorService() {
+        if (ownExecutorService) {
+            executorService.shutdown();
+            executorService = null;
+            ownExecutorService = false;
+        }
     }
 }
@@ -13,6 +13,7 @@ import java.util.concurrent.ExecutorService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.foilen.smalltools.metrics.MetricsRegistry;
 import com.foilen.smalltools.net.commander.CommanderClient;
 import com.foilen.smalltools.net.commander.command.CommandImplementation;
 import com.foilen.smalltools.net.commander.command.CommandImplementationConnectionAware;
@@ -26,6 +27,9 @@ import io.netty.channel.ChannelHandlerContext;
 /**
  * A channel that takes a {@link CommandImplementation} and executes it in an executor.
  *
+ * The time waiting in the executor and the execution time are published in {@link MetricsRegistry#getDefault()} in the "commander.{CommandSimpleName}.queueWaitUs" and
+ * "commander.{CommandSimpleName}.executionUs" histograms. The commands that throw an exception are counted in "commander.{CommandSimpleName}.failed".
+ *
  * <pre>
  * Dependencies:
  * compile 'io.netty:netty-all:5.0.0.Alpha2'
@@ -79,7 +83,21 @@ public class CommanderExecutionChannel extends ChannelHandlerAdapter {
             }
 
             // Execute
-            executorService.execute(commandImplementation);
+            MetricsRegistry registry = MetricsRegistry.getDefault();
+            String prefix = "commander." + commandImplementation.getClass().getSimpleName() + ".";
+            long submittedNs = System.nanoTime();
+            executorService.execute(() -> {
+                long startNs = System.nanoTime();
+                registry.histogram(prefix + "queueWaitUs").record((startNs - submittedNs) / 1000);
+                try {
+                    commandImplementation.run();
+                } catch (RuntimeException e) {
+                    registry.counter(prefix + "failed").increment();
+                    throw e;
+                } finally {
+                    registry.histogram(prefix + "executionUs").recordMicrosSince(startNs);
+                }
+            });
         } catch (Exception e) {
             logger.error("Problem configuring the command", e);
         }
@@ -25,6 +25,9 @@ import com.foilen.smalltools.crypt.spongycastle.cert.RSACertificate;
 import com.foilen.smalltools.crypt.spongycastle.cert.RSATools;
 import com.foilen.smalltools.crypt.spongycastle.cert.RSATrustedCertificates;
 import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.metrics.Counter;
+import com.foilen.smalltools.metrics.Histogram;
+import com.foilen.smalltools.metrics.MetricsRegistry;
 import com.foilen.smalltools.reflection.ReflectionTools;
 import com.foilen.smalltools.tools.AssertTools;
 
@@ -47,6 +50,11 @@ public class NettyClient implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(NettyClient.class);
 
+    private static final Counter connectionsCounter = MetricsRegistry.getDefault().counter("netty.client.connections");
+    private static final Histogram connectUs = MetricsRegistry.getDefault().histogram("netty.client.connectUs");
+    private static final Counter messagesSentCounter = MetricsRegistry.getDefault().counter("netty.client.messagesSent");
+    private static final Histogram writeFlushWaitUs = MetricsRegistry.getDefault().histogram("netty.client.writeFlushWaitUs");
+
     protected Channel channel;
 
     public NettyClient() {
@@ -101,7 +109,10 @@ public class NettyClient implements Closeable {
             });
 
             logger.info("Connecting to {}:{}", hostname, port);
+            long startNs = System.nanoTime();
             channel = bootstrap.connect(hostname, port).sync().channel();
+            connectUs.recordMicrosSince(startNs);
+            connectionsCounter.increment();
         } catch (InterruptedException e) {
             logger.info("Connection to {}:{} was interrupted while being created", hostname, port);
             throw new SmallToolsException("Connection was interrupted");
@@ -177,6 +188,7 @@ public class NettyClient implements Closeable {
     public void writeFlush(Object msg) {
         AssertTools.assertNotNull(channel, "Client is not connected");
         channel.writeAndFlush(msg);
+        messagesSentCounter.increment();
     }
 
     /**
@@ -187,8 +199,11 @@ public class NettyClient implements Closeable {
      */
     public void writeFlushWait(Object msg) {
         AssertTools.assertNotNull(channel, "Client is not connected");
+        long startNs = System.nanoTime();
         try {
             channel.writeAndFlush(msg).sync();
+            messagesSentCounter.increment();
+            writeFlushWaitUs.recordMicrosSince(startNs);
         } catch (InterruptedException e) {
             throw new SmallToolsException("Sending data was interrupted");
         }
@@ -25,6 +25,8 @@ import org.slf4j.LoggerFactory;
 import com.foilen.smalltools.crypt.spongycastle.cert.RSACertificate;
 import com.foilen.smalltools.crypt.spongycastle.cert.RSATools;
 import com.foilen.smalltools.crypt.spongycastle.cert.RSATrustedCertificates;
+import com.foilen.smalltools.metrics.Counter;
+import com.foilen.smalltools.metrics.MetricsRegistry;
 import com.foilen.smalltools.reflection.ReflectionTools;
 import com.foilen.smalltools.tools.AssertTools;
 
@@ -47,6 +49,8 @@ public class NettyServer implements Closeable {
 
     private static final Logger logger = LoggerFactory.getLogger(NettyServer.class);
 
+    private static final Counter connectionsCounter = MetricsRegistry.getDefault().counter("netty.server.connections");
+
     private Thread thread;
 
     private int bindedPort;
@@ -113,6 +117,7 @@ public class NettyServer implements Closeable {
 
                         InetSocketAddress remoteAddress = socketChannel.remoteAddress();
                         logger.info("Got a connection from {}:{}", remoteAddress.getHostName(), remoteAddress.getPort());
+                        connectionsCounter.increment();
 
                         // Add sslCtx if needed
                         if (trustedCertificates != null || certificate != null) {
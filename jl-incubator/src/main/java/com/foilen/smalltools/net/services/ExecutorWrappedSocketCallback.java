@@ -8,19 +8,24 @@
  */
 package com.foilen.smalltools.net.services;
 
+import java.io.Closeable;
 import java.net.Socket;
-import java.util.concurrent.Executor;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.foilen.smalltools.tools.ExecutorsTools;
 
 /**
  * When a new socket is accepted in {@link TCPServerService}, it is sent right away to the {@link SocketCallback}. If you want to use different threads for every incoming connections, use this
  * wrapper.
  *
  * Usage: new TCPServerService(new ExecutorWrappedSocketCallback(yourCallBack)}
+ *
+ * Call {@link #close()} when done to stop the threads.
  */
-public class ExecutorWrappedSocketCallback implements SocketCallback {
+public class ExecutorWrappedSocketCallback implements SocketCallback, Closeable {
+
+    private static final AtomicInteger nextId = new AtomicInteger();
 
     private class DelayedCallback implements Runnable {
 
@@ -37,7 +42,7 @@ public class ExecutorWrappedSocketCallback implements SocketCallback {
 
     }
 
-    private Executor executor = new ThreadPoolExecutor(0, 1000, 1, TimeUnit.MINUTES, new SynchronousQueue<Runnable>());
+    private ExecutorService executorService;
     private SocketCallback socketCallback;
 
     public ExecutorWrappedSocketCallback() {
@@ -47,9 +52,27 @@ public class ExecutorWrappedSocketCallback implements SocketCallback {
         this.socketCallback = socketCallback;
     }
 
+    @Override
+    public synchronized void close() {
+        if (executorService != null) {
+            executorService.shutdown();
+            executorService = null;
+        }
+    }
+
     @Override
     public void newClient(Socket socket) {
-        executor.execute(new DelayedCallback(socket));
+        ExecutorService executorService;
+        synchronized (this) {
+            if (this.executorService == null) {
+                this.executorService = ExecutorsTools.builder("ExecutorWrappedSocketCallback-" + nextId.getAndIncrement()) //
+                        .setMaxThreads(1000) //
+                        .setQueueSize(0) //
+                        .build();
+            }
+            executorService = this.executorService;
+        }
+        executorService.execute(new DelayedCallback(socket));
     }
 
     public void setSocketCallback(SocketCallback socketCallback) {
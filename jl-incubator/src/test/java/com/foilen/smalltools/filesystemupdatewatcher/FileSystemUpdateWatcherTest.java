@@ -0,0 +1,129 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.filesystemupdatewatcher;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.tools.DirectoryTools;
+import com.foilen.smalltools.tools.FileTools;
+import com.foilen.smalltools.tools.ThreadTools;
+
+public class FileSystemUpdateWatcherTest {
+
+    private static class CollectingHandler implements FileSystemUpdateHandler {
+
+        private Set<String> events = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void created(File file) {
+            events.add("created " + file.getName());
+        }
+
+        @Override
+        public void deleted(File file) {
+            events.add("deleted " + file.getName());
+        }
+
+        @Override
+        public void modified(File file) {
+            events.add("modified " + file.getName());
+        }
+
+        public void waitFor(String event) {
+            while (!events.contains(event)) {
+                ThreadTools.sleep(100);
+            }
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testPolling() throws Exception {
+
+        File root = Files.createTempDirectory("junit").toFile();
+        try {
+            DirectoryTools.createPath(new File(root, "d1/s1"));
+            FileTools.writeFile("hello", new File(root, "d1/s1/existing.txt"));
+
+            CollectingHandler handler = new CollectingHandler();
+            FileSystemUpdateWatcher watcher = new FileSystemUpdateWatcher(root) //
+                    .setRecursive(true) //
+                    .setPollingIntervalMs(100) //
+                    .addHandler(handler) //
+                    .init();
+            try {
+                Assert.assertEquals(3, watcher.getLastScanEntriesCount());
+
+                FileTools.writeFile("hello world", new File(root, "d1/s1/existing.txt"));
+                handler.waitFor("modified existing.txt");
+
+                FileTools.writeFile("hello", new File(root, "d1/new.txt"));
+                handler.waitFor("created new.txt");
+
+                DirectoryTools.deleteFolder(new File(root, "d1/s1"));
+                handler.waitFor("deleted s1");
+                handler.waitFor("deleted existing.txt");
+
+                Assert.assertTrue(watcher.getScanTimeMs().getCount() > 1);
+            } finally {
+                watcher.close();
+            }
+        } finally {
+            DirectoryTools.deleteFolder(root);
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testRecursiveAndCoalescing() throws Exception {
+
+        File root = Files.createTempDirectory("junit").toFile();
+        try {
+            for (int i = 0; i < 10; ++i) {
+                for (int j = 0; j < 10; ++j) {
+                    DirectoryTools.createPath(new File(root, "d" + i + "/s" + j));
+                }
+            }
+
+            CollectingHandler handler = new CollectingHandler();
+            FileSystemUpdateWatcher watcher = new FileSystemUpdateWatcher(root) //
+                    .setRecursive(true) //
+                    .setCoalescing(true) //
+                    .setRegistrationThreads(4) //
+                    .addHandler(handler) //
+                    .init();
+            try {
+                Assert.assertEquals(111, watcher.getRegisteredDirectoriesCount());
+
+                // Existing sub-directory
+                FileTools.writeFile("hello", new File(root, "d5/s5/existing.txt"));
+                handler.waitFor("created existing.txt");
+
+                // New sub-directory
+                File newDir = new File(root, "d1/new");
+                DirectoryTools.createPath(newDir);
+                handler.waitFor("created new");
+                while (watcher.getRegisteredDirectoriesCount() != 112) {
+                    ThreadTools.sleep(100);
+                }
+                FileTools.writeFile("hello", new File(newDir, "inNew.txt"));
+                handler.waitFor("created inNew.txt");
+            } finally {
+                watcher.close();
+            }
+        } finally {
+            DirectoryTools.deleteFolder(root);
+        }
+    }
+
+}
@@ -8,18 +8,15 @@
  */
 package com.foilen.smalltools;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-
-import com.foilen.smalltools.tools.ThreadTools;
+import com.foilen.smalltools.timer.TimingWheel;
+import com.foilen.smalltools.timer.TimingWheel.Timeout;
 
 /**
- * To run a command after a certain amount of time unless it is cancelled.
+ * To run a command after a certain amount of time unless it is cancelled. It does not use any thread while waiting; it is scheduled on a {@link TimingWheel} (the shared one by default).
  */
-public class DelayedEvent extends Thread {
+public class DelayedEvent {
 
-    private long delayInMilliseconds;
-    private Runnable event;
-    private AtomicBoolean canceled = new AtomicBoolean(false);
+    private Timeout timeout;
 
     /**
      * Create the delayed event. It starts counting right now.
@@ -30,37 +27,37 @@ public class DelayedEvent extends Thread {
      *            the runnable to execute if not cancelled
      */
     public DelayedEvent(long delayInMilliseconds, Runnable event) {
-        this.delayInMilliseconds = delayInMilliseconds;
-        this.event = event;
+        this(TimingWheel.getDefault(), delayInMilliseconds, event);
+    }
 
-        start();
+    /**
+     * Create the delayed event. It starts counting right now.
+     *
+     * @param timingWheel
+     *            the timing wheel to use
+     * @param delayInMilliseconds
+     *            the time to wait before executing
+     * @param event
+     *            the runnable to execute if not cancelled
+     */
+    public DelayedEvent(TimingWheel timingWheel, long delayInMilliseconds, Runnable event) {
+        timeout = timingWheel.schedule(event, delayInMilliseconds);
     }
 
     /**
      * Request cancellation of the task.
      */
     public void cancel() {
-        canceled.set(true);
+        timeout.cancel();
     }
 
-    @Override
-    public void run() {
-        long endTime = System.currentTimeMillis() + delayInMilliseconds;
-        // Wait the delay
-        long delta = endTime - System.currentTimeMillis();
-        while (!canceled.get() && delta > 0) {
-
-            // Wait a bit
-            long wait = Math.min(1000, delta);
-            ThreadTools.sleep(wait);
-
-            // Recalculate
-            delta = endTime - System.currentTimeMillis();
-        }
-
-        // Execute if not cancelled
-        if (!canceled.get()) {
-            event.run();
-        }
+    /**
+     * Tells if the task was cancelled.
+     *
+     * @return true if cancelled before its execution
+     */
+    public boolean isCancelled() {
+        return timeout.isCancelled();
     }
+
 }
@@ -8,10 +8,20 @@
  */
 package com.foilen.smalltools;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.foilen.smalltools.timer.TimingWheel;
+import com.foilen.smalltools.timer.TimingWheel.Timeout;
+import com.foilen.smalltools.tools.ExecutorsTools;
+
 /**
  * When you need to execute something and wrap it in a timeout, you can simply put that in a {@link Runnable} and give it to this object. Warning: it won't stop the execution of the thread, so your
  * runnable needs to check handle the stop call.
  *
+ * The runnable is executed on a pooled thread and the timeout is armed on a {@link TimingWheel} (the shared one by default), so no thread is sleeping until the deadline.
+ *
  * @param <T>
  *            the returned type of the call
  */
@@ -42,6 +52,9 @@ public class TimeoutHandler<T> {
     private long timeoutInMilliseconds;
     private TimeoutHandlerRunnable<T> runnable;
 
+    private TimingWheel timingWheel = TimingWheel.getDefault();
+    private Executor executor = ExecutorsTools.getCachedDaemonThreadPool();
+
     public TimeoutHandler(long timeoutInMilliseconds, TimeoutHandlerRunnable<T> runnable) {
         this.timeoutInMilliseconds = timeoutInMilliseconds;
         this.runnable = runnable;
@@ -57,13 +70,49 @@ public class TimeoutHandler<T> {
      */
     public T call() throws InterruptedException {
 
-        Thread callThread = new Thread(runnable, "TimeoutHandler");
-        callThread.start();
+        CountDownLatch completed = new CountDownLatch(1);
+        AtomicBoolean finished = new AtomicBoolean();
+        AtomicBoolean timedOut = new AtomicBoolean();
+        Object runningThreadLock = new Object();
+        Thread[] runningThread = new Thread[1];
+
+        executor.execute(() -> {
+            synchronized (runningThreadLock) {
+                runningThread[0] = Thread.currentThread();
+            }
+            try {
+                runnable.run();
+            } finally {
+                synchronized (runningThreadLock) {
+                    runningThread[0] = null;
+                }
+                // Clear any interruption that came too late
+                Thread.interrupted();
+                if (finished.compareAndSet(false, true)) {
+                    completed.countDown();
+                }
+            }
+        });
 
-        callThread.join(timeoutInMilliseconds);
-        if (callThread.isAlive()) {
+        Timeout timeout = timingWheel.schedule(() -> {
+            if (finished.compareAndSet(false, true)) {
+                timedOut.set(true);
+                completed.countDown();
+            }
+        }, timeoutInMilliseconds);
+
+        try {
+            completed.await();
+        } finally {
+            timeout.cancel();
+        }
+        if (timedOut.get()) {
             runnable.stopRequested();
-            callThread.interrupt();
+            synchronized (runningThreadLock) {
+                if (runningThread[0] != null) {
+                    runningThread[0].interrupt();
+                }
+            }
             throw new InterruptedException("The call is still running and the timeout passed");
         }
 
@@ -71,4 +120,28 @@ public class TimeoutHandler<T> {
 
     }
 
+    /**
+     * Change the executor that runs the runnable.
+     *
+     * @param executor
+     *            the executor
+     * @return this
+     */
+    public TimeoutHandler<T> setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Change the timing wheel used for the timeout.
+     *
+     * @param timingWheel
+     *            the timing wheel
+     * @return this
+     */
+    public TimeoutHandler<T> setTimingWheel(TimingWheel timingWheel) {
+        this.timingWheel = timingWheel;
+        return this;
+    }
+
 }
@@ -0,0 +1,304 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.assemblyline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.foilen.smalltools.tools.AssertTools;
+import com.foilen.smalltools.tools.ExecutorsTools;
+
+/**
+ * Process many items through the actions of an {@link AssemblyLine} where each action is a stage with its own workers. The stages are linked by bounded queues, so a slow IO action and a CPU heavy
+ * action work at the same time on different items.
+ *
+ * The output is given to the consumer in the calling thread, in the same order as the input when ordered (the default) or as soon as ready otherwise. The dropped items (null returned by an action)
+ * are not given.
+ *
+ * The same pipeline can process many streams at the same time: each call to {@link #process(Iterator, Consumer)} has its own queues, workers and failure.
+ *
+ * Usage:
+ *
+ * <pre>
+ * AssemblyLinePipeline&lt;MyItem&gt; pipeline = new AssemblyLinePipeline&lt;&gt;(assemblyLine) //
+ *         .setStageWorkers(0, 4) // 4 threads for the first action
+ *         .setQueueSize(100);
+ * pipeline.process(items.stream(), item -&gt; save(item));
+ * pipeline.getStageStats().forEach(System.out::println);
+ * </pre>
+ *
+ * @param <I>
+ *            the type of item
+ */
+public class AssemblyLinePipeline<I> extends AbstractBasics {
+
+    private static class Envelope<I> {
+        private long sequence;
+        private I item;
+
+        public Envelope(long sequence, I item) {
+            this.sequence = sequence;
+            this.item = item;
+        }
+    }
+
+    private List<AssemblyLineAction<I>> actions;
+    private Map<Integer, Integer> workersByStage = new HashMap<>();
+    private int queueSize = 100;
+    private boolean ordered = true;
+
+    private volatile List<AssemblyLineStageStats> stageStats = Collections.emptyList();
+
+    /**
+     * Use the actions of an {@link AssemblyLine}.
+     *
+     * @param assemblyLine
+     *            the assembly line
+     */
+    public AssemblyLinePipeline(AssemblyLine<?, I> assemblyLine) {
+        this(assemblyLine.getActions());
+    }
+
+    /**
+     * Use the actions.
+     *
+     * @param actions
+     *            the actions in order
+     */
+    public AssemblyLinePipeline(List<AssemblyLineAction<I>> actions) {
+        this.actions = new ArrayList<>(actions);
+    }
+
+    /**
+     * Get the statistics of each stage of the current or last processing. When processing concurrently, these are the ones of the last call that started.
+     *
+     * @return the statistics in the order of the actions
+     */
+    public List<AssemblyLineStageStats> getStageStats() {
+        return stageStats;
+    }
+
+    private int getStageWorkers(int stage) {
+        return workersByStage.getOrDefault(stage, 1);
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Process all the items and wait until they are all completed.
+     *
+     * @param items
+     *            the items to process
+     * @param output
+     *            what to do with the final items. Called in the calling thread
+     */
+    public void process(Iterator<I> items, Consumer<I> output) {
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        int stageCount = actions.size();
+
+        // Create the queues and the stats
+        List<BlockingQueue<Envelope<I>>> queues = new ArrayList<>();
+        for (int i = 0; i <= stageCount; ++i) {
+            queues.add(new ArrayBlockingQueue<>(queueSize));
+        }
+        List<AssemblyLineStageStats> currentStageStats = new ArrayList<>();
+        for (int i = 0; i < stageCount; ++i) {
+            currentStageStats.add(new AssemblyLineStageStats(actions.get(i).getClass().getSimpleName(), getStageWorkers(i), queues.get(i)));
+        }
+        stageStats = Collections.unmodifiableList(currentStageStats);
+
+        // Limit the items in the pipeline (including the ones waiting to be reordered)
+        Semaphore inFlight = new Semaphore(queueSize * (stageCount + 1));
+        long[] fedCount = new long[] { -1 };
+
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+
+            // Start the workers
+            for (int i = 0; i < stageCount; ++i) {
+                AssemblyLineAction<I> action = actions.get(i);
+                AssemblyLineStageStats stats = currentStageStats.get(i);
+                BlockingQueue<Envelope<I>> input = queues.get(i);
+                BlockingQueue<Envelope<I>> nextQueue = queues.get(i + 1);
+                for (int w = 0; w < stats.getWorkers(); ++w) {
+                    futures.add(ExecutorsTools.getCachedDaemonThreadPool().submit(() -> runStage(action, stats, input, nextQueue, failure)));
+                }
+            }
+
+            // Start the feeder
+            futures.add(ExecutorsTools.getCachedDaemonThreadPool().submit(() -> {
+                long sequence = 0;
+                try {
+                    while (items.hasNext()) {
+                        while (!inFlight.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+                            if (failure.get() != null) {
+                                return;
+                            }
+                        }
+                        put(queues.get(0), new Envelope<>(sequence++, items.next()), failure);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                    return;
+                }
+                synchronized (fedCount) {
+                    fedCount[0] = sequence;
+                }
+            }));
+
+            // Collect
+            BlockingQueue<Envelope<I>> outputQueue = queues.get(stageCount);
+            Map<Long, Envelope<I>> waitingBySequence = new HashMap<>();
+            long received = 0;
+            long nextSequence = 0;
+            while (true) {
+                if (failure.get() != null) {
+                    throw new SmallToolsException("Problem while processing the items", failure.get());
+                }
+                synchronized (fedCount) {
+                    if (fedCount[0] == received) {
+                        break;
+                    }
+                }
+
+                Envelope<I> envelope = outputQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (envelope == null) {
+                    continue;
+                }
+                ++received;
+
+                if (ordered) {
+                    waitingBySequence.put(envelope.sequence, envelope);
+                    while ((envelope = waitingBySequence.remove(nextSequence)) != null) {
+                        ++nextSequence;
+                        inFlight.release();
+                        if (envelope.item != null) {
+                            output.accept(envelope.item);
+                        }
+                    }
+                } else {
+                    inFlight.release();
+                    if (envelope.item != null) {
+                        output.accept(envelope.item);
+                    }
+                }
+            }
+
+        } catch (InterruptedException e) {
+            throw new SmallToolsException("Interrupted while processing the items", e);
+        } finally {
+            futures.forEach(it -> it.cancel(true));
+            currentStageStats.forEach(AssemblyLineStageStats::end);
+        }
+
+    }
+
+    /**
+     * Process all the items and wait until they are all completed.
+     *
+     * @param items
+     *            the items to process
+     * @param output
+     *            what to do with the final items. Called in the calling thread
+     */
+    public void process(Stream<I> items, Consumer<I> output) {
+        process(items.iterator(), output);
+    }
+
+    private void put(BlockingQueue<Envelope<I>> queue, Envelope<I> envelope, AtomicReference<Throwable> failure) throws InterruptedException {
+        while (!queue.offer(envelope, 100, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                throw new InterruptedException("The pipeline failed");
+            }
+        }
+    }
+
+    private void runStage(AssemblyLineAction<I> action, AssemblyLineStageStats stats, BlockingQueue<Envelope<I>> input, BlockingQueue<Envelope<I>> output, AtomicReference<Throwable> failure) {
+        try {
+            while (true) {
+                Envelope<I> envelope = input.take();
+
+                // Dropped items continue to keep the order
+                if (envelope.item != null) {
+                    long start = System.nanoTime();
+                    envelope.item = action.executeAction(envelope.item);
+                    stats.addProcessed(envelope.item == null, System.nanoTime() - start);
+                }
+
+                put(output, envelope, failure);
+            }
+        } catch (InterruptedException e) {
+            // Completed
+        } catch (Throwable e) {
+            failure.compareAndSet(null, e);
+            logger.error("Problem executing the action {}", stats.getName(), e);
+        }
+    }
+
+    /**
+     * Choose to keep the order of the input or not. Default: true.
+     *
+     * @param ordered
+     *            true to get the output in the same order as the input
+     * @return this
+     */
+    public AssemblyLinePipeline<I> setOrdered(boolean ordered) {
+        this.ordered = ordered;
+        return this;
+    }
+
+    /**
+     * Set the size of each queue between the stages. Default: 100.
+     *
+     * @param queueSize
+     *            the size
+     * @return this
+     */
+    public AssemblyLinePipeline<I> setQueueSize(int queueSize) {
+        AssertTools.assertTrue(queueSize > 0, "queueSize must be 1 or bigger");
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    /**
+     * Set the amount of threads executing an action. Default: 1.
+     *
+     * @param stage
+     *            the index of the action
+     * @param workers
+     *            the amount of threads
+     * @return this
+     */
+    public AssemblyLinePipeline<I> setStageWorkers(int stage, int workers) {
+        AssertTools.assertTrue(stage >= 0 && stage < actions.size(), "There is no action at that index");
+        AssertTools.assertTrue(workers > 0, "workers must be 1 or bigger");
+        workersByStage.put(stage, workers);
+        return this;
+    }
+
+}
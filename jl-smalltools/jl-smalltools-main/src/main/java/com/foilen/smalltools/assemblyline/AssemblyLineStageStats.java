@@ -0,0 +1,122 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.assemblyline;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The statistics of one stage of an {@link AssemblyLinePipeline}. The values are updated while the pipeline is running.
+ */
+public class AssemblyLineStageStats {
+
+    private String name;
+    private int workers;
+
+    private BlockingQueue<?> inputQueue;
+    private long startedAt;
+    private volatile long endedAt;
+
+    private LongAdder processed = new LongAdder();
+    private LongAdder dropped = new LongAdder();
+    private LongAdder busyNanos = new LongAdder();
+
+    AssemblyLineStageStats(String name, int workers, BlockingQueue<?> inputQueue) {
+        this.name = name;
+        this.workers = workers;
+        this.inputQueue = inputQueue;
+        this.startedAt = System.nanoTime();
+    }
+
+    void addProcessed(boolean wasDropped, long nanos) {
+        processed.increment();
+        if (wasDropped) {
+            dropped.increment();
+        }
+        busyNanos.add(nanos);
+    }
+
+    void end() {
+        endedAt = System.nanoTime();
+    }
+
+    /**
+     * The time the workers spent executing the action.
+     *
+     * @return the time in ms
+     */
+    public long getBusyMs() {
+        return TimeUnit.NANOSECONDS.toMillis(busyNanos.sum());
+    }
+
+    /**
+     * The amount of items that the action dropped.
+     *
+     * @return the amount of items
+     */
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The amount of items that the action executed on.
+     *
+     * @return the amount of items
+     */
+    public long getProcessed() {
+        return processed.sum();
+    }
+
+    /**
+     * The amount of items waiting for this stage.
+     *
+     * @return the amount of items
+     */
+    public int getQueueDepth() {
+        return inputQueue.size();
+    }
+
+    /**
+     * The amount of items processed per second since the start of the pipeline.
+     *
+     * @return the throughput
+     */
+    public double getThroughputPerSecond() {
+        long end = endedAt == 0 ? System.nanoTime() : endedAt;
+        long elapsedNanos = Math.max(1, end - startedAt);
+        return processed.sum() * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * The part of the time the workers were busy (1 means that all the workers were always busy). A stage close to 1 is the bottleneck.
+     *
+     * @return the utilization between 0 and 1
+     */
+    public double getUtilization() {
+        long end = endedAt == 0 ? System.nanoTime() : endedAt;
+        long elapsedNanos = Math.max(1, end - startedAt);
+        return Math.min(1.0, (double) busyNanos.sum() / elapsedNanos / workers);
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: workers=%d processed=%d dropped=%d queueDepth=%d throughput=%.1f/s utilization=%.0f%%", name, workers, getProcessed(), getDropped(), getQueueDepth(),
+                getThroughputPerSecond(), getUtilization() * 100);
+    }
+
+}
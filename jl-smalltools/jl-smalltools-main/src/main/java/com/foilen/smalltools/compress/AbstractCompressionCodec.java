@@ -0,0 +1,109 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Takes care of the {@link ByteBuffer} methods by working on the backing arrays (or on a copy for direct buffers).
+ */
+public abstract class AbstractCompressionCodec implements CompressionCodec {
+
+    /**
+     * Compress in arrays.
+     *
+     * @param source
+     *            the uncompressed bytes
+     * @param sourceOffset
+     *            the position of the first byte in the source
+     * @param sourceLength
+     *            the amount of bytes in the source
+     * @param destination
+     *            where to put the compressed bytes
+     * @param destinationOffset
+     *            the position of the first byte to write
+     * @param destinationLength
+     *            the maximum amount of bytes that can be written
+     * @return the amount of bytes written in the destination
+     */
+    public abstract int compress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength);
+
+    @Override
+    public void compress(ByteBuffer source, ByteBuffer destination) {
+        process(source, destination, true);
+    }
+
+    /**
+     * Decompress in arrays.
+     *
+     * @param source
+     *            the compressed bytes
+     * @param sourceOffset
+     *            the position of the first byte in the source
+     * @param sourceLength
+     *            the amount of bytes in the source
+     * @param destination
+     *            where to put the uncompressed bytes
+     * @param destinationOffset
+     *            the position of the first byte to write
+     * @param destinationLength
+     *            the maximum amount of bytes that can be written
+     * @return the amount of bytes written in the destination
+     */
+    public abstract int decompress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength);
+
+    @Override
+    public void decompress(ByteBuffer source, ByteBuffer destination) {
+        process(source, destination, false);
+    }
+
+    private void process(ByteBuffer source, ByteBuffer destination, boolean compress) {
+
+        // Source
+        byte[] sourceBytes;
+        int sourceOffset;
+        int sourceLength = source.remaining();
+        if (source.hasArray()) {
+            sourceBytes = source.array();
+            sourceOffset = source.arrayOffset() + source.position();
+        } else {
+            sourceBytes = new byte[sourceLength];
+            source.duplicate().get(sourceBytes);
+            sourceOffset = 0;
+        }
+
+        // Destination
+        byte[] destinationBytes;
+        int destinationOffset;
+        int destinationLength = destination.remaining();
+        boolean directDestination = !destination.hasArray();
+        if (directDestination) {
+            destinationBytes = new byte[destinationLength];
+            destinationOffset = 0;
+        } else {
+            destinationBytes = destination.array();
+            destinationOffset = destination.arrayOffset() + destination.position();
+        }
+
+        int written;
+        if (compress) {
+            written = compress(sourceBytes, sourceOffset, sourceLength, destinationBytes, destinationOffset, destinationLength);
+        } else {
+            written = decompress(sourceBytes, sourceOffset, sourceLength, destinationBytes, destinationOffset, destinationLength);
+        }
+
+        source.position(source.position() + sourceLength);
+        if (directDestination) {
+            destination.put(destinationBytes, 0, written);
+        } else {
+            destination.position(destination.position() + written);
+        }
+    }
+
+}
@@ -0,0 +1,69 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A compression format that can be used on streams and on buffers.
+ *
+ * The shared instances are available in {@link com.foilen.smalltools.tools.CompressionTools}.
+ */
+public interface CompressionCodec {
+
+    /**
+     * Compress all the remaining bytes of the source in the destination. The positions of both buffers are moved forward.
+     *
+     * @param source
+     *            the uncompressed bytes
+     * @param destination
+     *            where to put the compressed bytes. Use {@link #maxCompressedLength(int)} to know the size it needs to have
+     */
+    void compress(ByteBuffer source, ByteBuffer destination);
+
+    /**
+     * Decompress all the remaining bytes of the source (a single compressed payload) in the destination. The positions of both buffers are moved forward.
+     *
+     * @param source
+     *            the compressed bytes
+     * @param destination
+     *            where to put the uncompressed bytes. It must be big enough to contain everything
+     */
+    void decompress(ByteBuffer source, ByteBuffer destination);
+
+    /**
+     * Get the worst case size of the compressed data.
+     *
+     * @param uncompressedLength
+     *            the size of the uncompressed data
+     * @return the maximum size of the compressed data
+     */
+    int maxCompressedLength(int uncompressedLength);
+
+    /**
+     * Wrap a stream to decompress what is read from it. Closing the returned stream closes the wrapped one.
+     *
+     * @param compressed
+     *            the stream with compressed data
+     * @return the stream with uncompressed data
+     */
+    InputStream wrapInputStream(InputStream compressed);
+
+    /**
+     * Wrap a stream to compress what is written to it. Closing the returned stream finishes the compression and closes the wrapped one.
+     *
+     * @param destination
+     *            the stream that receives the compressed data
+     * @return the stream to write the uncompressed data to
+     */
+    OutputStream wrapOutputStream(OutputStream destination);
+
+}
@@ -0,0 +1,133 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+
+/**
+ * Raw deflate (RFC 1951) without any header or checksum. The {@link Deflater} and {@link Inflater} are taken from the shared pools.
+ */
+public class DeflateRawCompressionCodec extends AbstractCompressionCodec {
+
+    protected DeflaterPool deflaterPool;
+    protected InflaterPool inflaterPool;
+
+    /**
+     * Use the default compression level.
+     */
+    public DeflateRawCompressionCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Choose the compression level.
+     *
+     * @param level
+     *            the compression level (0-9 or {@link Deflater#DEFAULT_COMPRESSION})
+     */
+    public DeflateRawCompressionCodec(int level) {
+        this.deflaterPool = DeflaterPool.getInstance(level, true);
+        this.inflaterPool = InflaterPool.getInstance(true);
+    }
+
+    @Override
+    public int compress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+        return deflate(source, sourceOffset, sourceLength, destination, destinationOffset, destinationLength);
+    }
+
+    /**
+     * Deflate everything in one pass.
+     *
+     * @return the amount of bytes written in the destination
+     */
+    protected int deflate(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+        Deflater deflater = deflaterPool.borrow();
+        try {
+            deflater.setInput(source, sourceOffset, sourceLength);
+            deflater.finish();
+            int written = deflater.deflate(destination, destinationOffset, destinationLength);
+            if (!deflater.finished()) {
+                throw new SmallToolsException("The destination is too small");
+            }
+            return written;
+        } finally {
+            deflaterPool.release(deflater);
+        }
+    }
+
+    @Override
+    public int decompress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+        Inflater inflater = inflaterPool.borrow();
+        try {
+            return inflate(inflater, source, sourceOffset, sourceLength, destination, destinationOffset, destinationLength);
+        } finally {
+            inflaterPool.release(inflater);
+        }
+    }
+
+    /**
+     * Inflate everything in one pass. The inflater is left as is to be able to check {@link Inflater#getRemaining()}.
+     *
+     * @return the amount of bytes written in the destination
+     */
+    protected int inflate(Inflater inflater, byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+        try {
+            inflater.setInput(source, sourceOffset, sourceLength);
+            int written = 0;
+            while (!inflater.finished()) {
+                int count = inflater.inflate(destination, destinationOffset + written, destinationLength - written);
+                written += count;
+                if (count > 0 || inflater.finished()) {
+                    continue;
+                }
+                if (inflater.needsInput()) {
+                    throw new SmallToolsException("The compressed data is truncated");
+                }
+                if (inflater.needsDictionary()) {
+                    throw new SmallToolsException("The compressed data needs a dictionary");
+                }
+                if (written == destinationLength) {
+                    // Check if it is really full or just needs to read the end of the stream
+                    if (inflater.inflate(new byte[1]) > 0) {
+                        throw new SmallToolsException("The destination is too small");
+                    }
+                    if (!inflater.finished()) {
+                        throw new SmallToolsException("The compressed data is invalid");
+                    }
+                }
+            }
+            return written;
+        } catch (DataFormatException e) {
+            throw new SmallToolsException("The compressed data is invalid", e);
+        }
+    }
+
+    @Override
+    public int maxCompressedLength(int uncompressedLength) {
+        // Same as zlib's conservative deflateBound()
+        return uncompressedLength + ((uncompressedLength + 7) >> 3) + ((uncompressedLength + 63) >> 6) + 5;
+    }
+
+    @Override
+    public InputStream wrapInputStream(InputStream compressed) {
+        return new PooledInflaterInputStream(compressed, inflaterPool);
+    }
+
+    @Override
+    public OutputStream wrapOutputStream(OutputStream destination) {
+        return new PooledDeflaterOutputStream(destination, deflaterPool);
+    }
+
+}
@@ -0,0 +1,116 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+
+/**
+ * A pool of {@link Deflater} with the same level and wrapping. Creating a {@link Deflater} allocates native memory, so reusing them is much cheaper when compressing a lot of small payloads.
+ *
+ * Usage:
+ *
+ * <pre>
+ * DeflaterPool pool = DeflaterPool.getInstance(Deflater.DEFAULT_COMPRESSION, true);
+ * Deflater deflater = pool.borrow();
+ * try {
+ *     // Use it
+ * } finally {
+ *     pool.release(deflater);
+ * }
+ * </pre>
+ */
+public class DeflaterPool {
+
+    private static final int DEFAULT_MAX_IDLE = 64;
+
+    private static final Map<String, DeflaterPool> poolByKey = new ConcurrentHashMap<>();
+
+    /**
+     * Get the shared pool for that configuration.
+     *
+     * @param level
+     *            the compression level (0-9 or {@link Deflater#DEFAULT_COMPRESSION})
+     * @param nowrap
+     *            true to not have the ZLIB header and checksum (raw deflate as used in GZIP)
+     * @return the shared pool
+     */
+    public static DeflaterPool getInstance(int level, boolean nowrap) {
+        return poolByKey.computeIfAbsent(level + "-" + nowrap, k -> new DeflaterPool(level, nowrap, DEFAULT_MAX_IDLE));
+    }
+
+    private int level;
+    private boolean nowrap;
+    private int maxIdle;
+
+    private Queue<Deflater> idle = new ConcurrentLinkedQueue<>();
+    private AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * Create a pool.
+     *
+     * @param level
+     *            the compression level (0-9 or {@link Deflater#DEFAULT_COMPRESSION})
+     * @param nowrap
+     *            true to not have the ZLIB header and checksum (raw deflate as used in GZIP)
+     * @param maxIdle
+     *            the maximum amount of idle deflaters to keep. The other ones are ended when released
+     */
+    public DeflaterPool(int level, boolean nowrap, int maxIdle) {
+        this.level = level;
+        this.nowrap = nowrap;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Get a reset {@link Deflater} from the pool or create a new one if none is idle.
+     *
+     * @return the deflater
+     */
+    public Deflater borrow() {
+        Deflater deflater = idle.poll();
+        if (deflater == null) {
+            return new Deflater(level, nowrap);
+        }
+        idleCount.decrementAndGet();
+        return deflater;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public boolean isNowrap() {
+        return nowrap;
+    }
+
+    /**
+     * Give back a {@link Deflater} that was borrowed from this pool. It must not be used after.
+     *
+     * @param deflater
+     *            the deflater
+     */
+    public void release(Deflater deflater) {
+        if (deflater == null) {
+            return;
+        }
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        idle.add(deflater);
+    }
+
+}
@@ -0,0 +1,117 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+
+/**
+ * GZIP (RFC 1952). The {@link Deflater} and {@link Inflater} are taken from the shared pools, except when reading a stream where {@link GZIPInputStream} is used to support all the header options
+ * and concatenated members.
+ */
+public class GzipCompressionCodec extends DeflateRawCompressionCodec {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Use the default compression level.
+     */
+    public GzipCompressionCodec() {
+        super();
+    }
+
+    /**
+     * Choose the compression level.
+     *
+     * @param level
+     *            the compression level (0-9 or {@link Deflater#DEFAULT_COMPRESSION})
+     */
+    public GzipCompressionCodec(int level) {
+        super(level);
+    }
+
+    @Override
+    public int compress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+
+        int headerLength = GzipFormat.HEADER.length;
+        if (destinationLength < headerLength + GzipFormat.TRAILER_SIZE) {
+            throw new SmallToolsException("The destination is too small");
+        }
+
+        System.arraycopy(GzipFormat.HEADER, 0, destination, destinationOffset, headerLength);
+        int written = headerLength;
+        written += deflate(source, sourceOffset, sourceLength, destination, destinationOffset + written, destinationLength - written - GzipFormat.TRAILER_SIZE);
+
+        CRC32 crc = new CRC32();
+        crc.update(source, sourceOffset, sourceLength);
+        GzipFormat.writeTrailer(destination, destinationOffset + written, crc.getValue(), sourceLength);
+        return written + GzipFormat.TRAILER_SIZE;
+    }
+
+    @Override
+    public int decompress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+
+        int sourceEnd = sourceOffset + sourceLength;
+        int headerLength = GzipFormat.readHeaderLength(source, sourceOffset, sourceEnd);
+
+        Inflater inflater = inflaterPool.borrow();
+        try {
+            int written = inflate(inflater, source, sourceOffset + headerLength, sourceLength - headerLength, destination, destinationOffset, destinationLength);
+
+            // Check the trailer
+            int trailerOffset = sourceEnd - inflater.getRemaining();
+            if (sourceEnd - trailerOffset < GzipFormat.TRAILER_SIZE) {
+                throw new SmallToolsException("GZIP trailer is truncated");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(destination, destinationOffset, written);
+            if (GzipFormat.readUnsignedIntLE(source, trailerOffset) != crc.getValue()) {
+                throw new SmallToolsException("GZIP CRC is invalid");
+            }
+            if (GzipFormat.readUnsignedIntLE(source, trailerOffset + 4) != (written & 0xffffffffL)) {
+                throw new SmallToolsException("GZIP size is invalid");
+            }
+
+            return written;
+        } finally {
+            inflaterPool.release(inflater);
+        }
+    }
+
+    @Override
+    public int maxCompressedLength(int uncompressedLength) {
+        return super.maxCompressedLength(uncompressedLength) + GzipFormat.HEADER.length + GzipFormat.TRAILER_SIZE;
+    }
+
+    @Override
+    public InputStream wrapInputStream(InputStream compressed) {
+        try {
+            return new GZIPInputStream(compressed, BUFFER_SIZE);
+        } catch (IOException e) {
+            throw new SmallToolsException("Problem reading the GZIP header", e);
+        }
+    }
+
+    @Override
+    public OutputStream wrapOutputStream(OutputStream destination) {
+        try {
+            return new PooledGzipOutputStream(destination, deflaterPool);
+        } catch (IOException e) {
+            throw new SmallToolsException("Problem writing the GZIP header", e);
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+
+/**
+ * The GZIP header and trailer (RFC 1952) around a raw deflate stream.
+ */
+final class GzipFormat {
+
+    /**
+     * The header without any optional field.
+     */
+    static final byte[] HEADER = new byte[] { //
+            (byte) 0x1f, (byte) 0x8b, // Magic
+            8, // Deflate
+            0, // Flags
+            0, 0, 0, 0, // Modification time
+            0, // Extra flags
+            (byte) 0xff, // OS: unknown
+    };
+
+    static final int TRAILER_SIZE = 8;
+
+    private static final int FLAG_HCRC = 2;
+    private static final int FLAG_EXTRA = 4;
+    private static final int FLAG_NAME = 8;
+    private static final int FLAG_COMMENT = 16;
+
+    /**
+     * Validate the header and get its length.
+     *
+     * @param bytes
+     *            the bytes
+     * @param off
+     *            where the header starts
+     * @param end
+     *            the end (exclusive) of the available bytes
+     * @return the length of the header
+     */
+    static int readHeaderLength(byte[] bytes, int off, int end) {
+        if (end - off < HEADER.length) {
+            throw new SmallToolsException("GZIP header is truncated");
+        }
+        if ((bytes[off] & 0xff) != 0x1f || (bytes[off + 1] & 0xff) != 0x8b) {
+            throw new SmallToolsException("Not in GZIP format");
+        }
+        if (bytes[off + 2] != 8) {
+            throw new SmallToolsException("Unsupported GZIP compression method");
+        }
+        int flags = bytes[off + 3] & 0xff;
+        int pos = off + HEADER.length;
+        if ((flags & FLAG_EXTRA) != 0) {
+            if (end - pos < 2) {
+                throw new SmallToolsException("GZIP header is truncated");
+            }
+            pos += 2 + readUnsignedShortLE(bytes, pos);
+        }
+        if ((flags & FLAG_NAME) != 0) {
+            pos = skipZeroTerminated(bytes, pos, end);
+        }
+        if ((flags & FLAG_COMMENT) != 0) {
+            pos = skipZeroTerminated(bytes, pos, end);
+        }
+        if ((flags & FLAG_HCRC) != 0) {
+            pos += 2;
+        }
+        if (pos > end) {
+            throw new SmallToolsException("GZIP header is truncated");
+        }
+        return pos - off;
+    }
+
+    static long readUnsignedIntLE(byte[] bytes, int off) {
+        return (readUnsignedShortLE(bytes, off) | ((long) readUnsignedShortLE(bytes, off + 2) << 16));
+    }
+
+    static int readUnsignedShortLE(byte[] bytes, int off) {
+        return (bytes[off] & 0xff) | ((bytes[off + 1] & 0xff) << 8);
+    }
+
+    private static int skipZeroTerminated(byte[] bytes, int pos, int end) {
+        while (pos < end) {
+            if (bytes[pos++] == 0) {
+                return pos;
+            }
+        }
+        throw new SmallToolsException("GZIP header is truncated");
+    }
+
+    /**
+     * Write the trailer.
+     *
+     * @param bytes
+     *            the destination
+     * @param off
+     *            where to write
+     * @param crc
+     *            the CRC32 of the uncompressed data
+     * @param uncompressedSize
+     *            the size of the uncompressed data
+     */
+    static void writeTrailer(byte[] bytes, int off, long crc, long uncompressedSize) {
+        writeIntLE(bytes, off, crc);
+        writeIntLE(bytes, off + 4, uncompressedSize);
+    }
+
+    private static void writeIntLE(byte[] bytes, int off, long value) {
+        bytes[off] = (byte) value;
+        bytes[off + 1] = (byte) (value >> 8);
+        bytes[off + 2] = (byte) (value >> 16);
+        bytes[off + 3] = (byte) (value >> 24);
+    }
+
+    private GzipFormat() {
+    }
+
+}
@@ -0,0 +1,105 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Inflater;
+
+/**
+ * A pool of {@link Inflater} with the same wrapping. Creating an {@link Inflater} allocates native memory, so reusing them is much cheaper when decompressing a lot of small payloads.
+ *
+ * Usage:
+ *
+ * <pre>
+ * InflaterPool pool = InflaterPool.getInstance(true);
+ * Inflater inflater = pool.borrow();
+ * try {
+ *     // Use it
+ * } finally {
+ *     pool.release(inflater);
+ * }
+ * </pre>
+ */
+public class InflaterPool {
+
+    private static final int DEFAULT_MAX_IDLE = 64;
+
+    private static final InflaterPool wrapPool = new InflaterPool(false, DEFAULT_MAX_IDLE);
+    private static final InflaterPool nowrapPool = new InflaterPool(true, DEFAULT_MAX_IDLE);
+
+    /**
+     * Get the shared pool for that configuration.
+     *
+     * @param nowrap
+     *            true to not expect the ZLIB header and checksum (raw deflate as used in GZIP)
+     * @return the shared pool
+     */
+    public static InflaterPool getInstance(boolean nowrap) {
+        return nowrap ? nowrapPool : wrapPool;
+    }
+
+    private boolean nowrap;
+    private int maxIdle;
+
+    private Queue<Inflater> idle = new ConcurrentLinkedQueue<>();
+    private AtomicInteger idleCount = new AtomicInteger();
+
+    /**
+     * Create a pool.
+     *
+     * @param nowrap
+     *            true to not expect the ZLIB header and checksum (raw deflate as used in GZIP)
+     * @param maxIdle
+     *            the maximum amount of idle inflaters to keep. The other ones are ended when released
+     */
+    public InflaterPool(boolean nowrap, int maxIdle) {
+        this.nowrap = nowrap;
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Get a reset {@link Inflater} from the pool or create a new one if none is idle.
+     *
+     * @return the inflater
+     */
+    public Inflater borrow() {
+        Inflater inflater = idle.poll();
+        if (inflater == null) {
+            return new Inflater(nowrap);
+        }
+        idleCount.decrementAndGet();
+        return inflater;
+    }
+
+    public boolean isNowrap() {
+        return nowrap;
+    }
+
+    /**
+     * Give back an {@link Inflater} that was borrowed from this pool. It must not be used after.
+     *
+     * @param inflater
+     *            the inflater
+     */
+    public void release(Inflater inflater) {
+        if (inflater == null) {
+            return;
+        }
+        if (idleCount.incrementAndGet() > maxIdle) {
+            idleCount.decrementAndGet();
+            inflater.end();
+            return;
+        }
+        inflater.reset();
+        idle.add(inflater);
+    }
+
+}
@@ -0,0 +1,323 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.util.Arrays;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+
+/**
+ * A pure Java implementation of the LZ4 block format: sequences of literals and back-references found with a single hash lookup per position. It compresses less than deflate, but is many times
+ * faster in both directions.
+ *
+ * Each sequence is:
+ *
+ * <pre>
+ * token (4 bits literals length, 4 bits match length - 4)
+ * [more literals length bytes]
+ * literals
+ * offset (2 bytes little-endian)
+ * [more match length bytes]
+ * </pre>
+ *
+ * The last sequence only has literals.
+ */
+public final class LzFastBlock {
+
+    private static final int MIN_MATCH = 4;
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MIN_LENGTH = MF_LIMIT + 1;
+    private static final int MAX_DISTANCE = 65535;
+
+    private static final int HASH_LOG = 12;
+    private static final int HASH_TABLE_SIZE = 1 << HASH_LOG;
+    private static final int SKIP_STRENGTH = 6;
+
+    private static final int RUN_MASK = 0x0f;
+    private static final int ML_MASK = 0x0f;
+
+    private static final ThreadLocal<int[]> hashTables = ThreadLocal.withInitial(() -> new int[HASH_TABLE_SIZE]);
+
+    private static int commonBytes(byte[] bytes, int ref, int current, int limit) {
+        int count = 0;
+        while (current + count < limit && bytes[ref + count] == bytes[current + count]) {
+            ++count;
+        }
+        return count;
+    }
+
+    /**
+     * Compress a block.
+     *
+     * @param source
+     *            the uncompressed bytes
+     * @param sourceOffset
+     *            the position of the first byte in the source
+     * @param sourceLength
+     *            the amount of bytes in the source
+     * @param destination
+     *            where to put the compressed bytes
+     * @param destinationOffset
+     *            the position of the first byte to write
+     * @param destinationLength
+     *            the maximum amount of bytes that can be written
+     * @return the amount of bytes written in the destination
+     */
+    public static int compress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+
+        int sourceEnd = sourceOffset + sourceLength;
+        int destinationEnd = destinationOffset + destinationLength;
+        int dOff = destinationOffset;
+        int anchor = sourceOffset;
+
+        if (sourceLength >= MIN_LENGTH) {
+
+            int[] hashTable = hashTables.get();
+            Arrays.fill(hashTable, sourceOffset);
+
+            int mfLimit = sourceEnd - MF_LIMIT;
+            int matchLimit = sourceEnd - LAST_LITERALS;
+
+            int sOff = sourceOffset;
+            hashTable[hash(readInt(source, sOff))] = sOff;
+            ++sOff;
+
+            main: while (true) {
+
+                // Find a match
+                int ref;
+                int step = 1;
+                int attempts = 1 << SKIP_STRENGTH;
+                while (true) {
+                    if (sOff > mfLimit) {
+                        break main;
+                    }
+                    int h = hash(readInt(source, sOff));
+                    ref = hashTable[h];
+                    hashTable[h] = sOff;
+                    if (ref < sOff && sOff - ref <= MAX_DISTANCE && readInt(source, ref) == readInt(source, sOff)) {
+                        break;
+                    }
+                    sOff += step;
+                    step = attempts++ >>> SKIP_STRENGTH;
+                }
+
+                // Extend backward
+                while (sOff > anchor && ref > sourceOffset && source[sOff - 1] == source[ref - 1]) {
+                    --sOff;
+                    --ref;
+                }
+
+                // Literals
+                int literalsLength = sOff - anchor;
+                ensureCapacity(dOff, 1 + literalsLength / 255 + 1 + literalsLength + 2, destinationEnd);
+                int tokenOff = dOff++;
+                int token;
+                if (literalsLength >= RUN_MASK) {
+                    token = RUN_MASK << 4;
+                    dOff = writeLength(destination, dOff, literalsLength - RUN_MASK);
+                } else {
+                    token = literalsLength << 4;
+                }
+                System.arraycopy(source, anchor, destination, dOff, literalsLength);
+                dOff += literalsLength;
+
+                while (true) {
+
+                    // Offset
+                    int offset = sOff - ref;
+                    destination[dOff++] = (byte) offset;
+                    destination[dOff++] = (byte) (offset >>> 8);
+
+                    // Match length
+                    sOff += MIN_MATCH;
+                    int matchLength = commonBytes(source, ref + MIN_MATCH, sOff, matchLimit);
+                    sOff += matchLength;
+                    ensureCapacity(dOff, matchLength / 255 + 1, destinationEnd);
+                    if (matchLength >= ML_MASK) {
+                        token |= ML_MASK;
+                        dOff = writeLength(destination, dOff, matchLength - ML_MASK);
+                    } else {
+                        token |= matchLength;
+                    }
+                    destination[tokenOff] = (byte) token;
+
+                    anchor = sOff;
+                    if (sOff > mfLimit) {
+                        break main;
+                    }
+
+                    // Check if the next position directly matches
+                    hashTable[hash(readInt(source, sOff - 2))] = sOff - 2;
+                    int h = hash(readInt(source, sOff));
+                    ref = hashTable[h];
+                    hashTable[h] = sOff;
+                    if (ref < sOff && sOff - ref <= MAX_DISTANCE && readInt(source, ref) == readInt(source, sOff)) {
+                        ensureCapacity(dOff, 1 + 2, destinationEnd);
+                        tokenOff = dOff++;
+                        token = 0;
+                        continue;
+                    }
+
+                    ++sOff;
+                    break;
+                }
+            }
+        }
+
+        // Last literals
+        int literalsLength = sourceEnd - anchor;
+        ensureCapacity(dOff, 1 + literalsLength / 255 + 1 + literalsLength, destinationEnd);
+        if (literalsLength >= RUN_MASK) {
+            destination[dOff++] = (byte) (RUN_MASK << 4);
+            dOff = writeLength(destination, dOff, literalsLength - RUN_MASK);
+        } else {
+            destination[dOff++] = (byte) (literalsLength << 4);
+        }
+        System.arraycopy(source, anchor, destination, dOff, literalsLength);
+        dOff += literalsLength;
+
+        return dOff - destinationOffset;
+    }
+
+    /**
+     * Decompress a block.
+     *
+     * @param source
+     *            the compressed bytes
+     * @param sourceOffset
+     *            the position of the first byte in the source
+     * @param sourceLength
+     *            the amount of bytes in the source
+     * @param destination
+     *            where to put the uncompressed bytes
+     * @param destinationOffset
+     *            the position of the first byte to write
+     * @param destinationLength
+     *            the maximum amount of bytes that can be written
+     * @return the amount of bytes written in the destination
+     */
+    public static int decompress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+
+        int sourceEnd = sourceOffset + sourceLength;
+        int destinationEnd = destinationOffset + destinationLength;
+        int sOff = sourceOffset;
+        int dOff = destinationOffset;
+
+        while (sOff < sourceEnd) {
+
+            int token = source[sOff++] & 0xff;
+
+            // Literals
+            int literalsLength = token >>> 4;
+            if (literalsLength == RUN_MASK) {
+                int b;
+                do {
+                    if (sOff >= sourceEnd) {
+                        throw new SmallToolsException("The compressed data is truncated");
+                    }
+                    b = source[sOff++] & 0xff;
+                    literalsLength += b;
+                } while (b == 255);
+            }
+            if (literalsLength > sourceEnd - sOff) {
+                throw new SmallToolsException("The compressed data is truncated");
+            }
+            if (literalsLength > destinationEnd - dOff) {
+                throw new SmallToolsException("The destination is too small");
+            }
+            System.arraycopy(source, sOff, destination, dOff, literalsLength);
+            sOff += literalsLength;
+            dOff += literalsLength;
+
+            // The last sequence has no match
+            if (sOff == sourceEnd) {
+                break;
+            }
+
+            // Match
+            if (sourceEnd - sOff < 2) {
+                throw new SmallToolsException("The compressed data is truncated");
+            }
+            int offset = (source[sOff] & 0xff) | ((source[sOff + 1] & 0xff) << 8);
+            sOff += 2;
+            if (offset == 0 || offset > dOff - destinationOffset) {
+                throw new SmallToolsException("The compressed data is invalid");
+            }
+
+            int matchLength = token & ML_MASK;
+            if (matchLength == ML_MASK) {
+                int b;
+                do {
+                    if (sOff >= sourceEnd) {
+                        throw new SmallToolsException("The compressed data is truncated");
+                    }
+                    b = source[sOff++] & 0xff;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > destinationEnd - dOff) {
+                throw new SmallToolsException("The destination is too small");
+            }
+
+            int ref = dOff - offset;
+            if (offset >= matchLength) {
+                System.arraycopy(destination, ref, destination, dOff, matchLength);
+                dOff += matchLength;
+            } else {
+                // Overlapping copy (repeating pattern)
+                for (int i = 0; i < matchLength; ++i) {
+                    destination[dOff++] = destination[ref++];
+                }
+            }
+        }
+
+        return dOff - destinationOffset;
+    }
+
+    private static void ensureCapacity(int dOff, int needed, int destinationEnd) {
+        if (destinationEnd - dOff < needed) {
+            throw new SmallToolsException("The destination is too small");
+        }
+    }
+
+    private static int hash(int value) {
+        return (value * -1640531535) >>> (32 - HASH_LOG);
+    }
+
+    /**
+     * Get the worst case size of the compressed data.
+     *
+     * @param uncompressedLength
+     *            the size of the uncompressed data
+     * @return the maximum size of the compressed data
+     */
+    public static int maxCompressedLength(int uncompressedLength) {
+        return uncompressedLength + uncompressedLength / 255 + 16;
+    }
+
+    private static int readInt(byte[] bytes, int off) {
+        return (bytes[off] & 0xff) | ((bytes[off + 1] & 0xff) << 8) | ((bytes[off + 2] & 0xff) << 16) | ((bytes[off + 3] & 0xff) << 24);
+    }
+
+    private static int writeLength(byte[] destination, int dOff, int length) {
+        while (length >= 255) {
+            destination[dOff++] = (byte) 255;
+            length -= 255;
+        }
+        destination[dOff++] = (byte) length;
+        return dOff;
+    }
+
+    private LzFastBlock() {
+    }
+
+}
@@ -0,0 +1,44 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A fast codec using {@link LzFastBlock}. The buffers contain a single LZ4 block and the streams use {@link LzFastOutputStream} and {@link LzFastInputStream}.
+ */
+public class LzFastCompressionCodec extends AbstractCompressionCodec {
+
+    @Override
+    public int compress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+        return LzFastBlock.compress(source, sourceOffset, sourceLength, destination, destinationOffset, destinationLength);
+    }
+
+    @Override
+    public int decompress(byte[] source, int sourceOffset, int sourceLength, byte[] destination, int destinationOffset, int destinationLength) {
+        return LzFastBlock.decompress(source, sourceOffset, sourceLength, destination, destinationOffset, destinationLength);
+    }
+
+    @Override
+    public int maxCompressedLength(int uncompressedLength) {
+        return LzFastBlock.maxCompressedLength(uncompressedLength);
+    }
+
+    @Override
+    public InputStream wrapInputStream(InputStream compressed) {
+        return new LzFastInputStream(compressed);
+    }
+
+    @Override
+    public OutputStream wrapOutputStream(OutputStream destination) {
+        return new LzFastOutputStream(destination);
+    }
+
+}
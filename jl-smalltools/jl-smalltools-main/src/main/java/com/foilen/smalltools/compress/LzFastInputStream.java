@@ -0,0 +1,146 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+
+/**
+ * Decompress the data written by {@link LzFastOutputStream}.
+ */
+public class LzFastInputStream extends InputStream {
+
+    private static final int EOF = -1;
+
+    private InputStream in;
+    private byte[] header = new byte[8];
+    private byte[] compressed = new byte[0];
+    private byte[] buffer = new byte[0];
+    private int bufferPosition;
+    private int bufferLength;
+    private boolean magicRead;
+    private boolean ended;
+
+    /**
+     * Create the stream.
+     *
+     * @param in
+     *            the stream that provides the compressed data
+     */
+    public LzFastInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return bufferLength - bufferPosition;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private boolean fillBuffer() throws IOException {
+
+        while (bufferPosition == bufferLength) {
+            if (ended) {
+                return false;
+            }
+
+            if (!magicRead) {
+                readFully(header, 4);
+                if (!Arrays.equals(Arrays.copyOf(header, 4), LzFastOutputStream.MAGIC)) {
+                    throw new IOException("Not in the LZ fast format");
+                }
+                magicRead = true;
+            }
+
+            // End mark or block header
+            readFully(header, 4);
+            int compressedLength = readInt(header, 0);
+            if (compressedLength == 0) {
+                ended = true;
+                return false;
+            }
+            readFully(header, 4);
+            int uncompressedLength = readInt(header, 0);
+            boolean stored = (compressedLength & LzFastOutputStream.STORED_FLAG) != 0;
+            compressedLength &= ~LzFastOutputStream.STORED_FLAG;
+            if (uncompressedLength < 0 || (stored && compressedLength != uncompressedLength)) {
+                throw new IOException("The block header is invalid");
+            }
+
+            if (buffer.length < uncompressedLength) {
+                buffer = new byte[uncompressedLength];
+            }
+            if (stored) {
+                readFully(buffer, uncompressedLength);
+            } else {
+                if (compressed.length < compressedLength) {
+                    compressed = new byte[compressedLength];
+                }
+                readFully(compressed, compressedLength);
+                try {
+                    int decompressedLength = LzFastBlock.decompress(compressed, 0, compressedLength, buffer, 0, uncompressedLength);
+                    if (decompressedLength != uncompressedLength) {
+                        throw new IOException("The block size is invalid");
+                    }
+                } catch (SmallToolsException e) {
+                    throw new IOException("The block is invalid", e);
+                }
+            }
+            bufferPosition = 0;
+            bufferLength = uncompressedLength;
+        }
+
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fillBuffer()) {
+            return EOF;
+        }
+        return buffer[bufferPosition++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fillBuffer()) {
+            return EOF;
+        }
+        int count = Math.min(len, bufferLength - bufferPosition);
+        System.arraycopy(buffer, bufferPosition, b, off, count);
+        bufferPosition += count;
+        return count;
+    }
+
+    private void readFully(byte[] bytes, int length) throws IOException {
+        int position = 0;
+        while (position < length) {
+            int count = in.read(bytes, position, length - position);
+            if (count == EOF) {
+                throw new IOException("The compressed stream is truncated");
+            }
+            position += count;
+        }
+    }
+
+    private int readInt(byte[] bytes, int off) {
+        return ((bytes[off] & 0xff) << 24) | ((bytes[off + 1] & 0xff) << 16) | ((bytes[off + 2] & 0xff) << 8) | (bytes[off + 3] & 0xff);
+    }
+
+}
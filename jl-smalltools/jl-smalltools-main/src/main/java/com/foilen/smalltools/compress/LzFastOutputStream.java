@@ -0,0 +1,138 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Compress the data in blocks with {@link LzFastBlock}.
+ *
+ * Format:
+ *
+ * <pre>
+ * magic "FLZ1"
+ * blocks:
+ *   compressed length (4 bytes big-endian ; the highest bit is set if the block is stored uncompressed)
+ *   uncompressed length (4 bytes big-endian)
+ *   data
+ * end mark: compressed length of 0
+ * </pre>
+ */
+public class LzFastOutputStream extends OutputStream {
+
+    static final byte[] MAGIC = new byte[] { 'F', 'L', 'Z', '1' };
+    static final int STORED_FLAG = 0x80000000;
+    static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    private static void writeInt(byte[] bytes, int off, int value) {
+        bytes[off] = (byte) (value >>> 24);
+        bytes[off + 1] = (byte) (value >>> 16);
+        bytes[off + 2] = (byte) (value >>> 8);
+        bytes[off + 3] = (byte) value;
+    }
+
+    private OutputStream out;
+    private byte[] buffer;
+    private int bufferLength;
+    private byte[] compressed;
+    private boolean magicWritten;
+    private boolean closed;
+
+    /**
+     * Use blocks of 64 KiB.
+     *
+     * @param out
+     *            the stream that receives the compressed data
+     */
+    public LzFastOutputStream(OutputStream out) {
+        this(out, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Choose the block size.
+     *
+     * @param out
+     *            the stream that receives the compressed data
+     * @param blockSize
+     *            the amount of uncompressed bytes per block
+     */
+    public LzFastOutputStream(OutputStream out, int blockSize) {
+        this.out = out;
+        this.buffer = new byte[blockSize];
+        this.compressed = new byte[8 + LzFastBlock.maxCompressedLength(blockSize)];
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            writeBlock();
+            out.write(new byte[4]);
+            out.flush();
+        } finally {
+            closed = true;
+            out.close();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writeBlock();
+        out.flush();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed");
+        }
+        while (len > 0) {
+            int count = Math.min(len, buffer.length - bufferLength);
+            System.arraycopy(b, off, buffer, bufferLength, count);
+            bufferLength += count;
+            off += count;
+            len -= count;
+            if (bufferLength == buffer.length) {
+                writeBlock();
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    private void writeBlock() throws IOException {
+        if (!magicWritten) {
+            out.write(MAGIC);
+            magicWritten = true;
+        }
+        if (bufferLength == 0) {
+            return;
+        }
+
+        int compressedLength = LzFastBlock.compress(buffer, 0, bufferLength, compressed, 8, compressed.length - 8);
+        if (compressedLength >= bufferLength) {
+            writeInt(compressed, 0, bufferLength | STORED_FLAG);
+            writeInt(compressed, 4, bufferLength);
+            out.write(compressed, 0, 8);
+            out.write(buffer, 0, bufferLength);
+        } else {
+            writeInt(compressed, 0, compressedLength);
+            writeInt(compressed, 4, bufferLength);
+            out.write(compressed, 0, 8 + compressedLength);
+        }
+        bufferLength = 0;
+    }
+
+}
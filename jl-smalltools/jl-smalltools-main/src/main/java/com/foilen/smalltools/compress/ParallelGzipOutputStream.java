@@ -0,0 +1,218 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import com.foilen.smalltools.tools.ExecutorsTools;
+
+/**
+ * A GZIP {@link OutputStream} that compresses blocks in parallel (like pigz). The result is a standard single member GZIP file that any tool can read.
+ *
+ * Each block is compressed as raw deflate with the last 32 KiB of the previous block as dictionary and ends with a sync flush so that all the blocks can simply be concatenated. The CRC is computed
+ * while writing. The amount of blocks in memory is bounded by the amount of threads.
+ *
+ * Usage:
+ *
+ * <pre>
+ * try (OutputStream out = new ParallelGzipOutputStream(new FileOutputStream(target))) {
+ *     StreamsTools.flowStream(new FileInputStream(source), out);
+ * }
+ * </pre>
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+    public static final int DEFAULT_BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+    private static final int DEFLATE_BUFFER_SIZE = 64 * 1024;
+
+    private OutputStream out;
+    private ExecutorService executorService;
+    private DeflaterPool deflaterPool;
+    private int threads;
+    private int blockSize;
+
+    private CRC32 crc = new CRC32();
+    private long totalLength;
+
+    private byte[] buffer;
+    private int bufferLength;
+    private byte[] previousBlock;
+    private int previousBlockLength;
+
+    private Deque<Future<byte[]>> pendingBlocks = new ArrayDeque<>();
+    private boolean headerWritten;
+    private boolean closed;
+
+    /**
+     * Use the shared daemon thread pool with as many concurrent blocks as there are processors, blocks of 128 KiB and the default compression level.
+     *
+     * @param out
+     *            the stream that receives the GZIP data
+     */
+    public ParallelGzipOutputStream(OutputStream out) {
+        this(out, ExecutorsTools.getCachedDaemonThreadPool(), Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Choose all the settings.
+     *
+     * @param out
+     *            the stream that receives the GZIP data
+     * @param executorService
+     *            the executor that compresses the blocks
+     * @param threads
+     *            the maximum amount of blocks compressed at the same time
+     * @param blockSize
+     *            the amount of uncompressed bytes per block
+     * @param level
+     *            the compression level (0-9 or {@link Deflater#DEFAULT_COMPRESSION})
+     */
+    public ParallelGzipOutputStream(OutputStream out, ExecutorService executorService, int threads, int blockSize, int level) {
+        this.out = out;
+        this.executorService = executorService;
+        this.deflaterPool = DeflaterPool.getInstance(level, true);
+        this.threads = Math.max(1, threads);
+        this.blockSize = blockSize;
+        this.buffer = new byte[blockSize];
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            submitBlock(true);
+            writePendingBlocks(0);
+
+            byte[] trailer = new byte[GzipFormat.TRAILER_SIZE];
+            GzipFormat.writeTrailer(trailer, 0, crc.getValue(), totalLength);
+            out.write(trailer);
+            out.flush();
+        } finally {
+            closed = true;
+            for (Future<byte[]> pendingBlock : pendingBlocks) {
+                pendingBlock.cancel(false);
+            }
+            out.close();
+        }
+    }
+
+    private byte[] compressBlock(byte[] block, int length, byte[] dictionary, int dictionaryLength, boolean last) {
+        Deflater deflater = deflaterPool.borrow();
+        try {
+            if (dictionary != null) {
+                int usedLength = Math.min(DICTIONARY_SIZE, dictionaryLength);
+                deflater.setDictionary(dictionary, dictionaryLength - usedLength, usedLength);
+            }
+            deflater.setInput(block, 0, length);
+
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 64);
+            byte[] deflateBuffer = new byte[DEFLATE_BUFFER_SIZE];
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    int count = deflater.deflate(deflateBuffer);
+                    compressed.write(deflateBuffer, 0, count);
+                }
+            } else {
+                int count;
+                do {
+                    count = deflater.deflate(deflateBuffer, 0, deflateBuffer.length, Deflater.SYNC_FLUSH);
+                    compressed.write(deflateBuffer, 0, count);
+                } while (count == deflateBuffer.length);
+            }
+            return compressed.toByteArray();
+        } finally {
+            deflaterPool.release(deflater);
+        }
+    }
+
+    /**
+     * Compress the current partial block and wait for all the blocks to be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        if (bufferLength > 0) {
+            submitBlock(false);
+        }
+        writePendingBlocks(0);
+        out.flush();
+    }
+
+    private void submitBlock(boolean last) throws IOException {
+        if (!headerWritten) {
+            out.write(GzipFormat.HEADER);
+            headerWritten = true;
+        }
+
+        // Keep the amount of blocks in memory bounded
+        writePendingBlocks(threads - 1);
+
+        byte[] block = buffer;
+        int length = bufferLength;
+        byte[] dictionary = previousBlock;
+        int dictionaryLength = previousBlockLength;
+        pendingBlocks.add(executorService.submit(() -> compressBlock(block, length, dictionary, dictionaryLength, last)));
+
+        previousBlock = block;
+        previousBlockLength = length;
+        buffer = new byte[blockSize];
+        bufferLength = 0;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("The stream is closed");
+        }
+        crc.update(b, off, len);
+        totalLength += len;
+        while (len > 0) {
+            int count = Math.min(len, buffer.length - bufferLength);
+            System.arraycopy(b, off, buffer, bufferLength, count);
+            bufferLength += count;
+            off += count;
+            len -= count;
+            if (bufferLength == buffer.length) {
+                submitBlock(false);
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    private void writePendingBlocks(int maxPending) throws IOException {
+        while (pendingBlocks.size() > maxPending) {
+            try {
+                out.write(pendingBlocks.poll().get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while compressing", e);
+            } catch (ExecutionException e) {
+                throw new IOException("Problem compressing a block", e.getCause());
+            }
+        }
+    }
+
+}
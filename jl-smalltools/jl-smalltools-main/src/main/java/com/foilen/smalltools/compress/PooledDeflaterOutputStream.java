@@ -0,0 +1,57 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * A {@link DeflaterOutputStream} that takes its {@link java.util.zip.Deflater} from a {@link DeflaterPool} and gives it back when closed.
+ */
+public class PooledDeflaterOutputStream extends DeflaterOutputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private DeflaterPool deflaterPool;
+    private boolean released;
+
+    /**
+     * Create the stream.
+     *
+     * @param out
+     *            the stream that receives the compressed data
+     * @param deflaterPool
+     *            the pool to borrow the deflater from
+     */
+    public PooledDeflaterOutputStream(OutputStream out, DeflaterPool deflaterPool) {
+        super(out, deflaterPool.borrow(), BUFFER_SIZE, true);
+        this.deflaterPool = deflaterPool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Give back the deflater to the pool if not already done. The stream must not be used after.
+     */
+    protected void release() {
+        if (!released) {
+            released = true;
+            deflaterPool.release(def);
+        }
+    }
+
+}
@@ -0,0 +1,68 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+
+/**
+ * A GZIP {@link OutputStream} (like {@link java.util.zip.GZIPOutputStream}) that takes its {@link java.util.zip.Deflater} from a {@link DeflaterPool} and gives it back when closed.
+ */
+public class PooledGzipOutputStream extends PooledDeflaterOutputStream {
+
+    private static DeflaterPool checkNowrap(DeflaterPool deflaterPool) {
+        if (!deflaterPool.isNowrap()) {
+            throw new IllegalArgumentException("The deflater pool must be a nowrap one to generate GZIP");
+        }
+        return deflaterPool;
+    }
+
+    private CRC32 crc = new CRC32();
+    private boolean trailerWritten;
+
+    /**
+     * Create the stream and write the GZIP header.
+     *
+     * @param out
+     *            the stream that receives the compressed data
+     * @param deflaterPool
+     *            the pool to borrow the deflater from. Must be a "nowrap" pool
+     * @throws IOException
+     *             if the header cannot be written
+     */
+    public PooledGzipOutputStream(OutputStream out, DeflaterPool deflaterPool) throws IOException {
+        super(out, checkNowrap(deflaterPool));
+        try {
+            out.write(GzipFormat.HEADER);
+        } catch (IOException | RuntimeException e) {
+            release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (trailerWritten) {
+            return;
+        }
+        super.finish();
+        byte[] trailer = new byte[GzipFormat.TRAILER_SIZE];
+        GzipFormat.writeTrailer(trailer, 0, crc.getValue(), def.getBytesRead());
+        out.write(trailer);
+        trailerWritten = true;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        super.write(b, off, len);
+        crc.update(b, off, len);
+    }
+
+}
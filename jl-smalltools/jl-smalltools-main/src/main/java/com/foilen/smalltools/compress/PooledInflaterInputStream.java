@@ -0,0 +1,50 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.compress;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * An {@link InflaterInputStream} that takes its {@link java.util.zip.Inflater} from an {@link InflaterPool} and gives it back when closed.
+ */
+public class PooledInflaterInputStream extends InflaterInputStream {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private InflaterPool inflaterPool;
+    private boolean released;
+
+    /**
+     * Create the stream.
+     *
+     * @param in
+     *            the stream that provides the compressed data
+     * @param inflaterPool
+     *            the pool to borrow the inflater from
+     */
+    public PooledInflaterInputStream(InputStream in, InflaterPool inflaterPool) {
+        super(in, inflaterPool.borrow(), BUFFER_SIZE);
+        this.inflaterPool = inflaterPool;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            super.close();
+        } finally {
+            if (!released) {
+                released = true;
+                inflaterPool.release(inf);
+            }
+        }
+    }
+
+}
@@ -15,14 +15,22 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.event.Level;
 
-import com.foilen.smalltools.TimeoutHandler;
 import com.foilen.smalltools.iterable.FileLinesIterable;
-import com.foilen.smalltools.tools.StreamsTools;
+import com.foilen.smalltools.metrics.Counter;
+import com.foilen.smalltools.metrics.Histogram;
+import com.foilen.smalltools.metrics.MetricsRegistry;
+import com.foilen.smalltools.outputstream.LineConsumerOutputStream;
+import com.foilen.smalltools.outputstream.RingBufferOutputStream;
+import com.foilen.smalltools.timer.TimingWheel;
+import com.foilen.smalltools.timer.TimingWheel.Timeout;
+import com.foilen.smalltools.tools.CloseableTools;
 import com.foilen.smalltools.tuple.Tuple2;
 
 /**
@@ -50,6 +58,23 @@ import com.foilen.smalltools.tuple.Tuple2;
  * </pre>
  *
  * <pre>
+ *  Usage to process the output line by line while it is running.
+ *
+ *     ConsoleRunner runner = new ConsoleRunner();
+ *         runner.setCommand("tail");
+ *         runner.addArguments("-n", "1000", "/var/log/syslog");
+ *
+ *         int status = runner.executeWithLineConsumers(line -&gt; process(line), null);
+ * </pre>
+ *
+ * The output streams of all the processes are read by a single shared thread and the timeouts are managed by {@link TimingWheel#getDefault()}. That way, running a lot of short processes does not
+ * create threads for each of them. The outputs (and line consumers) are called on a pooled thread per stream, so a slow or failing one does not affect the other processes. When an output or line
+ * consumer throws an exception, the execution fails with a {@link com.foilen.smalltools.exception.SmallToolsException}.
+ *
+ * All the executions are counted in {@link MetricsRegistry#getDefault()}: "consoleRunner.executions", "consoleRunner.failed" (status code not 0), "consoleRunner.timedOut" and the
+ * "consoleRunner.executionUs" histogram.
+ *
+ * <pre>
  * Dependencies:
  * compile 'com.google.guava:guava:23.0'
  * compile 'org.slf4j:slf4j-api:1.7.25'
@@ -59,7 +84,15 @@ public class ConsoleRunner {
 
     private static final Logger logger = LoggerFactory.getLogger(ConsoleRunner.class);
 
+    private static final long FORCE_STOP_DELAY_MS = 5000;
+
+    private static final Counter executionsCounter = MetricsRegistry.getDefault().counter("consoleRunner.executions");
+    private static final Counter failedCounter = MetricsRegistry.getDefault().counter("consoleRunner.failed");
+    private static final Counter timedOutCounter = MetricsRegistry.getDefault().counter("consoleRunner.timedOut");
+    private static final Histogram executionUs = MetricsRegistry.getDefault().histogram("consoleRunner.executionUs");
+
     private Long timeoutInMilliseconds = null;
+    private Integer maxCaptureBytes = null;
 
     private String command;
     private String workingDirectory;
@@ -118,6 +151,13 @@ public class ConsoleRunner {
         return this;
     }
 
+    private OutputStream createCaptureStream() {
+        if (maxCaptureBytes == null) {
+            return new ByteArrayOutputStream();
+        }
+        return new RingBufferOutputStream(maxCaptureBytes);
+    }
+
     /**
      * Execute the command using all the configured console input/output/error.
      *
@@ -125,30 +165,50 @@ public class ConsoleRunner {
      */
     public int execute() {
 
-        cancelled = false;
-
-        consoleTimeoutHandlerRunnable = new ConsoleTimeoutHandlerRunnable(this);
-
-        if (timeoutInMilliseconds == null) {
-            // No timeout
-            consoleTimeoutHandlerRunnable.run();
-            statusCode = consoleTimeoutHandlerRunnable.result();
-        } else {
-            // With timeout
-            TimeoutHandler<Integer> handler = new TimeoutHandler<Integer>(timeoutInMilliseconds, consoleTimeoutHandlerRunnable);
-            try {
-                statusCode = handler.call();
-            } catch (InterruptedException e) {
-                logger.debug("The console timed out");
-                throw new ConsoleTimedoutException();
+        executionsCounter.increment();
+        long startNs = System.nanoTime();
+        try {
+            cancelled = false;
+
+            ConsoleTimeoutHandlerRunnable consoleTimeoutHandlerRunnable = new ConsoleTimeoutHandlerRunnable(this);
+            this.consoleTimeoutHandlerRunnable = consoleTimeoutHandlerRunnable;
+
+            if (timeoutInMilliseconds == null) {
+                // No timeout
+                consoleTimeoutHandlerRunnable.run();
+                statusCode = consoleTimeoutHandlerRunnable.result();
+            } else {
+                // With timeout: the process is stopped by the timer and killed if it is still running a bit later
+                TimingWheel timingWheel = TimingWheel.getDefault();
+                AtomicBoolean timedOut = new AtomicBoolean();
+                Timeout timeout = timingWheel.schedule(() -> {
+                    timedOut.set(true);
+                    consoleTimeoutHandlerRunnable.stopRequested();
+                    timingWheel.schedule(consoleTimeoutHandlerRunnable::forceStop, FORCE_STOP_DELAY_MS);
+                }, timeoutInMilliseconds);
+
+                consoleTimeoutHandlerRunnable.run();
+                timeout.cancel();
+                if (timedOut.get()) {
+                    logger.debug("The console timed out");
+                    timedOutCounter.increment();
+                    throw new ConsoleTimedoutException();
+                }
+                statusCode = consoleTimeoutHandlerRunnable.result();
             }
-        }
 
-        if (cancelled) {
-            throw new ConsoleKilledException();
-        }
+            if (statusCode != 0) {
+                failedCounter.increment();
+            }
 
-        return statusCode;
+            if (cancelled) {
+                throw new ConsoleKilledException();
+            }
+
+            return statusCode;
+        } finally {
+            executionUs.recordMicrosSince(startNs);
+        }
     }
 
     /**
@@ -173,14 +233,14 @@ public class ConsoleRunner {
      */
     public String executeForString() {
         // Configure the console output
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        consoleOutput = byteArrayOutputStream;
+        OutputStream captureStream = createCaptureStream();
+        consoleOutput = captureStream;
 
         // Execute
         execute();
 
         // Return String
-        return byteArrayOutputStream.toString();
+        return captureStream.toString();
     }
 
     /**
@@ -190,11 +250,11 @@ public class ConsoleRunner {
      */
     public Tuple2<String, String> executeForStrings() {
         // Configure the console output and error
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        consoleOutput = byteArrayOutputStream;
+        OutputStream captureOutputStream = createCaptureStream();
+        consoleOutput = captureOutputStream;
 
-        ByteArrayOutputStream byteArrayErrorStream = new ByteArrayOutputStream();
-        consoleError = byteArrayErrorStream;
+        OutputStream captureErrorStream = createCaptureStream();
+        consoleError = captureErrorStream;
 
         redirectErrorStream = false;
 
@@ -202,7 +262,36 @@ public class ConsoleRunner {
         execute();
 
         // Return String
-        return new Tuple2<>(byteArrayOutputStream.toString(), byteArrayErrorStream.toString());
+        return new Tuple2<>(captureOutputStream.toString(), captureErrorStream.toString());
+    }
+
+    /**
+     * Execute the command using all the configured console input and give the output and error line by line while the process is running. Nothing is kept in memory.
+     *
+     * @param outputLineConsumer
+     *            the consumer of the console output lines
+     * @param errorLineConsumer
+     *            the consumer of the console error lines or null to use the configured console error
+     * @return the status code
+     */
+    public int executeWithLineConsumers(Consumer<String> outputLineConsumer, Consumer<String> errorLineConsumer) {
+        // Configure the output and error
+        LineConsumerOutputStream outputStream = new LineConsumerOutputStream(outputLineConsumer);
+        consoleOutput = outputStream;
+        LineConsumerOutputStream errorStream = null;
+        if (errorLineConsumer != null) {
+            errorStream = new LineConsumerOutputStream(errorLineConsumer);
+            consoleError = errorStream;
+        }
+
+        // Execute
+        try {
+            return execute();
+        } finally {
+            // Send the last lines
+            CloseableTools.close(outputStream);
+            CloseableTools.close(errorStream);
+        }
     }
 
     /**
@@ -215,12 +304,25 @@ public class ConsoleRunner {
      * @return the status code
      */
     public int executeWithLogger(Logger outputLogger, Level level) {
-        // Configure the output
-        consoleOutput = StreamsTools.createLoggerOutputStream(outputLogger, level);
-        closeConsoleOutput = true;
-
-        // Execute
-        return execute();
+        return executeWithLineConsumers(line -> {
+            switch (level) {
+            case DEBUG:
+                outputLogger.debug(line);
+                break;
+            case ERROR:
+                outputLogger.error(line);
+                break;
+            case INFO:
+                outputLogger.info(line);
+                break;
+            case TRACE:
+                outputLogger.trace(line);
+                break;
+            case WARN:
+                outputLogger.warn(line);
+                break;
+            }
+        }, null);
     }
 
     public List<String> getArguments() {
@@ -247,6 +349,10 @@ public class ConsoleRunner {
         return environments;
     }
 
+    public Integer getMaxCaptureBytes() {
+        return maxCaptureBytes;
+    }
+
     public int getStatusCode() {
         return statusCode;
     }
@@ -371,6 +477,19 @@ public class ConsoleRunner {
         return this;
     }
 
+    /**
+     * Set the maximum amount of bytes kept by {@link #executeForString()}, {@link #executeForStrings()} and {@link #executeForLineIterator()}. When the output is bigger, only the end is kept.
+     * Default null (everything)
+     *
+     * @param maxCaptureBytes
+     *            the maximum amount of bytes per stream or null for no limit
+     * @return this
+     */
+    public ConsoleRunner setMaxCaptureBytes(Integer maxCaptureBytes) {
+        this.maxCaptureBytes = maxCaptureBytes;
+        return this;
+    }
+
     /**
      * Tells if the environments should be cleared before adding the one configured with {@link #addEnvironment(String, String)}.
      *
@@ -396,7 +515,7 @@ public class ConsoleRunner {
     }
 
     /**
-     * Set a timeout. Default null (none)
+     * Set a timeout. Default null (none). When the timeout is reached, the process is stopped and it is killed if it is still running 5 seconds later.
      *
      * @param timeoutInMilliseconds
      *            how many milliseconds or null for none
@@ -0,0 +1,191 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.consolerunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import com.foilen.smalltools.consolerunner.ConsoleRunnerBatchResult.Invocation;
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.tools.AssertTools;
+import com.foilen.smalltools.tools.ThreadTools;
+import com.foilen.smalltools.tuple.Tuple2;
+
+/**
+ * Execute a lot of {@link ConsoleRunner} with a limit on how many are running at the same time. A failing invocation does not stop the others; everything is in the result.
+ *
+ * <pre>
+ * Usage:
+ *
+ *     ConsoleRunnerBatch batch = new ConsoleRunnerBatch();
+ *     batch.setConcurrency(8);
+ *     batch.setCaptureOutputs(true);
+ *     for (String file : files) {
+ *         batch.add(new ConsoleRunner().setCommand("sha256sum").addArguments(file));
+ *     }
+ *
+ *     ConsoleRunnerBatchResult result = batch.execute();
+ *     for (Invocation invocation : result.getInvocations()) {
+ *         System.out.println(invocation.getOutput());
+ *     }
+ * </pre>
+ */
+public class ConsoleRunnerBatch {
+
+    private List<ConsoleRunner> consoleRunners = new ArrayList<>();
+
+    private int concurrency = Runtime.getRuntime().availableProcessors();
+    private ExecutorService executorService;
+    private boolean captureOutputs = false;
+
+    /**
+     * Add invocations to execute.
+     *
+     * @param consoleRunners
+     *            the configured runners
+     * @return this
+     */
+    public ConsoleRunnerBatch add(ConsoleRunner... consoleRunners) {
+        return addAll(Arrays.asList(consoleRunners));
+    }
+
+    /**
+     * Add invocations to execute.
+     *
+     * @param consoleRunners
+     *            the configured runners
+     * @return this
+     */
+    public ConsoleRunnerBatch addAll(List<ConsoleRunner> consoleRunners) {
+        this.consoleRunners.addAll(consoleRunners);
+        return this;
+    }
+
+    /**
+     * Execute all the invocations and wait for them to complete.
+     *
+     * @return the result of each invocation in the same order they were added
+     */
+    public ConsoleRunnerBatchResult execute() {
+
+        ExecutorService executorService = this.executorService;
+        boolean ownExecutor = executorService == null;
+        if (ownExecutor) {
+            executorService = Executors.newFixedThreadPool(Math.min(concurrency, Math.max(1, consoleRunners.size())),
+                    ThreadTools.daemonThreadFactory(thread -> thread.setName("ConsoleRunnerBatch-" + thread.getId())));
+        }
+
+        ConsoleRunnerBatchResult result = new ConsoleRunnerBatchResult();
+        Semaphore semaphore = new Semaphore(concurrency);
+        long startMs = System.currentTimeMillis();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (ConsoleRunner consoleRunner : consoleRunners) {
+                Invocation invocation = new Invocation(consoleRunner);
+                result.getInvocations().add(invocation);
+
+                semaphore.acquire();
+                futures.add(executorService.submit(() -> {
+                    try {
+                        execute(invocation);
+                    } finally {
+                        semaphore.release();
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (Exception e) {
+            throw new SmallToolsException("Problem while executing the batch", e);
+        } finally {
+            if (ownExecutor) {
+                executorService.shutdown();
+            }
+        }
+        result.setTotalMs(System.currentTimeMillis() - startMs);
+
+        return result;
+    }
+
+    private void execute(Invocation invocation) {
+        ConsoleRunner consoleRunner = invocation.getConsoleRunner();
+        long startNs = System.nanoTime();
+        invocation.setStartMs(System.currentTimeMillis());
+        try {
+            if (captureOutputs) {
+                Tuple2<String, String> outputs = consoleRunner.executeForStrings();
+                invocation.setOutput(outputs.getA());
+                invocation.setError(outputs.getB());
+            } else {
+                consoleRunner.execute();
+            }
+            invocation.setStatusCode(consoleRunner.getStatusCode());
+        } catch (RuntimeException e) {
+            invocation.setFailure(e);
+        }
+        invocation.setDurationMs((System.nanoTime() - startNs) / 1000000);
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public List<ConsoleRunner> getConsoleRunners() {
+        return consoleRunners;
+    }
+
+    public boolean isCaptureOutputs() {
+        return captureOutputs;
+    }
+
+    /**
+     * Execute with {@link ConsoleRunner#executeForStrings()} to keep the output and error of each invocation in the result. Default false (the streams configured on each runner are used)
+     *
+     * @param captureOutputs
+     *            true to capture
+     * @return this
+     */
+    public ConsoleRunnerBatch setCaptureOutputs(boolean captureOutputs) {
+        this.captureOutputs = captureOutputs;
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of processes running at the same time. Default: the amount of processors
+     *
+     * @param concurrency
+     *            the maximum
+     * @return this
+     */
+    public ConsoleRunnerBatch setConcurrency(int concurrency) {
+        AssertTools.assertTrue(concurrency > 0, "The concurrency must be at least 1");
+        this.concurrency = concurrency;
+        return this;
+    }
+
+    /**
+     * Use that executor instead of creating a fixed pool for each execution. The concurrency is still limited.
+     *
+     * @param executorService
+     *            the executor
+     * @return this
+     */
+    public ConsoleRunnerBatch setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+}
@@ -0,0 +1,191 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.consolerunner;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.foilen.smalltools.metrics.Histogram;
+
+/**
+ * What happened during an execution by {@link ConsoleRunnerBatch}.
+ */
+public class ConsoleRunnerBatchResult {
+
+    /**
+     * The result of one invocation.
+     */
+    public static class Invocation {
+
+        private ConsoleRunner consoleRunner;
+
+        private Integer statusCode;
+        private String output;
+        private String error;
+        private RuntimeException failure;
+
+        private long startMs;
+        private long durationMs;
+
+        public Invocation(ConsoleRunner consoleRunner) {
+            this.consoleRunner = consoleRunner;
+        }
+
+        public ConsoleRunner getConsoleRunner() {
+            return consoleRunner;
+        }
+
+        public long getDurationMs() {
+            return durationMs;
+        }
+
+        /**
+         * Get the console error when captured.
+         *
+         * @return the console error or null
+         */
+        public String getError() {
+            return error;
+        }
+
+        /**
+         * Get the exception if the process could not be executed or timed out.
+         *
+         * @return the exception or null
+         */
+        public RuntimeException getFailure() {
+            return failure;
+        }
+
+        /**
+         * Get the console output when captured.
+         *
+         * @return the console output or null
+         */
+        public String getOutput() {
+            return output;
+        }
+
+        public long getStartMs() {
+            return startMs;
+        }
+
+        /**
+         * Get the status code of the process.
+         *
+         * @return the status code or null if it failed
+         */
+        public Integer getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * Tells if the process completed with the status code 0.
+         *
+         * @return true if successful
+         */
+        public boolean isSuccess() {
+            return statusCode != null && statusCode == 0;
+        }
+
+        public void setDurationMs(long durationMs) {
+            this.durationMs = durationMs;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+
+        public void setFailure(RuntimeException failure) {
+            this.failure = failure;
+        }
+
+        public void setOutput(String output) {
+            this.output = output;
+        }
+
+        public void setStartMs(long startMs) {
+            this.startMs = startMs;
+        }
+
+        public void setStatusCode(Integer statusCode) {
+            this.statusCode = statusCode;
+        }
+
+    }
+
+    private List<Invocation> invocations = new ArrayList<>();
+    private long totalMs;
+
+    /**
+     * Get the durations of all the invocations.
+     *
+     * @return the histogram in milliseconds
+     */
+    public Histogram getDurationMs() {
+        Histogram histogram = new Histogram();
+        invocations.forEach(invocation -> histogram.record(invocation.getDurationMs()));
+        return histogram;
+    }
+
+    /**
+     * Get the amount of invocations that did not complete with the status code 0.
+     *
+     * @return the amount
+     */
+    public int getFailedCount() {
+        return invocations.size() - getSuccessCount();
+    }
+
+    /**
+     * Get the invocations in the same order they were added.
+     *
+     * @return the invocations
+     */
+    public List<Invocation> getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * Get the amount of invocations that completed with the status code 0.
+     *
+     * @return the amount
+     */
+    public int getSuccessCount() {
+        return (int) invocations.stream().filter(Invocation::isSuccess).count();
+    }
+
+    /**
+     * Get the time from the start of the first invocation to the end of the last one.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getTotalMs() {
+        return totalMs;
+    }
+
+    /**
+     * Tells if all the invocations completed with the status code 0.
+     *
+     * @return true if all successful
+     */
+    public boolean isAllSuccess() {
+        return getFailedCount() == 0;
+    }
+
+    public void setTotalMs(long totalMs) {
+        this.totalMs = totalMs;
+    }
+
+    @Override
+    public String toString() {
+        return "ConsoleRunnerBatchResult [invocations=" + invocations.size() + ", successCount=" + getSuccessCount() + ", totalMs=" + totalMs + "]";
+    }
+
+}
@@ -14,6 +14,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -23,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import com.foilen.smalltools.TimeoutHandler.TimeoutHandlerRunnable;
 import com.foilen.smalltools.exception.SmallToolsException;
 import com.foilen.smalltools.tools.CloseableTools;
+import com.foilen.smalltools.tools.ExecutorsTools;
 import com.foilen.smalltools.tools.StreamsTools;
 import com.google.common.base.Strings;
 
@@ -34,7 +36,8 @@ class ConsoleTimeoutHandlerRunnable implements TimeoutHandlerRunnable<Integer> {
 
     private ConsoleRunner consoleRunner;
 
-    private Process process;
+    private volatile Process process;
+    private volatile boolean stopRequested;
     private int statusCode;
     private RuntimeException exceptionThrown;
 
@@ -100,28 +103,43 @@ class ConsoleTimeoutHandlerRunnable implements TimeoutHandlerRunnable<Integer> {
                 }
                 subProcEnv.putAll(environments);
 
-                process = processBuilder.start();
+                processBuilder.redirectErrorStream(redirectErrorStream);
+                Process process = processBuilder.start();
+                this.process = process;
+                if (stopRequested) {
+                    // The timeout happened while starting
+                    process.destroy();
+                }
 
-                // Setup the streams
+                // Setup the streams (the outputs are all polled by the same thread)
                 List<Future<Void>> streamFutures = new ArrayList<>();
-                processBuilder.redirectErrorStream(redirectErrorStream);
                 if (consoleInput == null) {
                     CloseableTools.close(process.getOutputStream());
                 } else {
-                    streamFutures.add(StreamsTools.flowStreamNonBlocking(consoleInput, process.getOutputStream(), true, "stdin-" + runnerId).getFuture());
+                    OutputStream processInput = process.getOutputStream();
+                    streamFutures.add(CompletableFuture.runAsync(() -> {
+                        try {
+                            StreamsTools.flowStream(consoleInput, processInput);
+                        } catch (Exception e) {
+                            logger.debug("[{}] Problem while sending the input", runnerId, e);
+                        } finally {
+                            CloseableTools.close(processInput);
+                        }
+                    }, ExecutorsTools.getCachedDaemonThreadPool()));
                 }
 
+                ProcessStreamsPoller processStreamsPoller = ProcessStreamsPoller.getInstance();
                 if (consoleOutput == null) {
                     CloseableTools.close(process.getInputStream());
                 } else {
-                    streamFutures.add(StreamsTools.flowStreamNonBlocking(process.getInputStream(), consoleOutput, false, "stdout-" + runnerId).getFuture());
+                    streamFutures.add(processStreamsPoller.pump(process, process.getInputStream(), consoleOutput));
                 }
 
                 if (consoleError == null) {
                     CloseableTools.close(process.getErrorStream());
                 } else {
                     if (!redirectErrorStream) {
-                        streamFutures.add(StreamsTools.flowStreamNonBlocking(process.getErrorStream(), consoleError, false, "stderr-" + runnerId).getFuture());
+                        streamFutures.add(processStreamsPoller.pump(process, process.getErrorStream(), consoleError));
                     }
                 }
 
@@ -165,8 +183,21 @@ class ConsoleTimeoutHandlerRunnable implements TimeoutHandlerRunnable<Integer> {
         }
     }
 
+    /**
+     * Kill the process if it is still running after {@link #stopRequested()}.
+     */
+    public void forceStop() {
+        Process process = this.process;
+        if (process != null && process.isAlive()) {
+            logger.debug("The process did not stop. Killing it");
+            process.destroyForcibly();
+        }
+    }
+
     @Override
     public void stopRequested() {
+        stopRequested = true;
+        Process process = this.process;
         if (process != null) {
             process.destroy();
         }
@@ -0,0 +1,384 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.consolerunner;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.metrics.Histogram;
+import com.foilen.smalltools.timer.TimingWheel;
+import com.foilen.smalltools.timer.TimingWheel.Timeout;
+import com.foilen.smalltools.tools.AssertTools;
+import com.foilen.smalltools.tools.CloseableTools;
+import com.google.common.base.Strings;
+import com.google.common.io.ByteStreams;
+
+/**
+ * Keep some processes running to send them requests on their standard input and read the responses on their standard output. This is much faster than starting a process for each request when
+ * the command supports it (e.g. "git cat-file --batch-check", "bc", a script with a read loop).
+ *
+ * The request is sent as a line. The response is all the lines read until the end of response predicate returns true (the default is a response of one line). A worker that fails or times out is
+ * killed and a new one is started for the next request.
+ *
+ * <pre>
+ * Usage:
+ *
+ *     ConsoleRunner template = new ConsoleRunner().setCommand("git").addArguments("cat-file", "--batch-check").setWorkingDirectory(repoDirectory);
+ *     try (ConsoleWorkerPool pool = new ConsoleWorkerPool(template).setMaxWorkers(4)) {
+ *         String response = pool.request("HEAD");
+ *     }
+ * </pre>
+ */
+public class ConsoleWorkerPool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsoleWorkerPool.class);
+
+    private static class Worker {
+        private Process process;
+        private Writer input;
+        private BufferedReader output;
+        private long requestCount;
+    }
+
+    private ConsoleRunner template;
+
+    private int maxWorkers = Runtime.getRuntime().availableProcessors();
+    private long maxRequestsPerWorker = 0;
+    private Long requestTimeoutInMilliseconds = null;
+    private Predicate<String> endOfResponse = line -> true;
+    private Charset charset = Charset.defaultCharset();
+
+    private Semaphore semaphore;
+    private Queue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private volatile boolean closed;
+
+    private AtomicLong startedWorkersCount = new AtomicLong();
+    private Histogram requestTimeUs = new Histogram();
+
+    /**
+     * The constructor.
+     *
+     * @param template
+     *            the command, arguments, environments, working directory and console error to use for each worker
+     */
+    public ConsoleWorkerPool(ConsoleRunner template) {
+        AssertTools.assertNotNull(template, "The template cannot be null");
+        AssertTools.assertFalse(Strings.isNullOrEmpty(template.getCommand()), "No command is set");
+        this.template = template;
+    }
+
+    /**
+     * Kill all the workers. The requests that are in progress will fail.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            destroy(worker);
+        }
+    }
+
+    private void destroy(Worker worker) {
+        CloseableTools.close(worker.input);
+        worker.process.destroy();
+    }
+
+    public Charset getCharset() {
+        return charset;
+    }
+
+    /**
+     * Get the amount of workers that are waiting for a request.
+     *
+     * @return the amount
+     */
+    public int getIdleWorkersCount() {
+        return idleWorkers.size();
+    }
+
+    public int getMaxWorkers() {
+        return maxWorkers;
+    }
+
+    /**
+     * Get the durations of the requests.
+     *
+     * @return the histogram in microseconds
+     */
+    public Histogram getRequestTimeUs() {
+        return requestTimeUs;
+    }
+
+    /**
+     * Get the amount of processes started since the creation of this pool.
+     *
+     * @return the amount
+     */
+    public long getStartedWorkersCount() {
+        return startedWorkersCount.get();
+    }
+
+    private synchronized Semaphore getSemaphore() {
+        if (semaphore == null) {
+            semaphore = new Semaphore(maxWorkers);
+        }
+        return semaphore;
+    }
+
+    /**
+     * Read a line without blocking when nothing is available. A killed worker could have children that still keep its output open, so a blocking read would only stop when they end.
+     */
+    private String readLineWithTimeout(Worker worker, AtomicBoolean timedOut) throws IOException {
+        StringBuilder line = new StringBuilder();
+        long parkNs = 10000;
+        for (;;) {
+            // The flag is set before killing the worker
+            if (timedOut.get()) {
+                throw new ConsoleTimedoutException();
+            }
+            if (worker.output.ready() || !worker.process.isAlive()) {
+                int c = worker.output.read();
+                if (c == -1) {
+                    return line.length() == 0 ? null : line.toString();
+                }
+                if (c == '\n') {
+                    int len = line.length();
+                    if (len > 0 && line.charAt(len - 1) == '\r') {
+                        line.setLength(len - 1);
+                    }
+                    return line.toString();
+                }
+                line.append((char) c);
+                parkNs = 10000;
+            } else {
+                LockSupport.parkNanos(parkNs);
+                parkNs = Math.min(1000000, parkNs * 2);
+            }
+        }
+    }
+
+    /**
+     * Send a request to a worker and wait for the response.
+     *
+     * @param request
+     *            the request line (without the new line)
+     * @return the response lines joined with "\n"
+     * @throws ConsoleTimedoutException
+     *             if the request took longer than the request timeout
+     * @throws SmallToolsException
+     *             if the worker could not be started or ended
+     */
+    public String request(String request) {
+
+        if (closed) {
+            throw new SmallToolsException("The pool is closed");
+        }
+
+        Semaphore semaphore = getSemaphore();
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SmallToolsException("Interrupted while waiting for a worker", e);
+        }
+
+        long startNs = System.nanoTime();
+        Worker worker = null;
+        Timeout timeout = null;
+        AtomicBoolean timedOut = new AtomicBoolean();
+        try {
+            worker = idleWorkers.poll();
+            if (worker != null && !worker.process.isAlive()) {
+                destroy(worker);
+                worker = null;
+            }
+            if (worker == null) {
+                worker = startWorker();
+            }
+
+            if (requestTimeoutInMilliseconds != null) {
+                Process process = worker.process;
+                timeout = TimingWheel.getDefault().schedule(() -> {
+                    timedOut.set(true);
+                    process.destroyForcibly();
+                }, requestTimeoutInMilliseconds);
+            }
+
+            // Send the request
+            worker.input.write(request);
+            worker.input.write('\n');
+            worker.input.flush();
+
+            // Read the response
+            StringBuilder response = new StringBuilder();
+            String line;
+            for (;;) {
+                line = timeout == null ? worker.output.readLine() : readLineWithTimeout(worker, timedOut);
+                if (line == null) {
+                    throw new SmallToolsException("The worker ended before the end of the response");
+                }
+                response.append(line);
+                if (endOfResponse.test(line)) {
+                    break;
+                }
+                response.append('\n');
+            }
+            boolean timeoutFired = timeout != null && !timeout.cancel();
+
+            // Keep or retire the worker
+            ++worker.requestCount;
+            if (closed || timeoutFired || (maxRequestsPerWorker > 0 && worker.requestCount >= maxRequestsPerWorker)) {
+                destroy(worker);
+            } else {
+                idleWorkers.add(worker);
+            }
+            worker = null;
+
+            return response.toString();
+        } catch (Exception e) {
+            if (timedOut.get()) {
+                logger.debug("The request timed out");
+                throw new ConsoleTimedoutException();
+            }
+            if (e instanceof SmallToolsException) {
+                throw (SmallToolsException) e;
+            }
+            throw new SmallToolsException("Problem while sending the request", e);
+        } finally {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            if (worker != null) {
+                destroy(worker);
+            }
+            requestTimeUs.record((System.nanoTime() - startNs) / 1000);
+            semaphore.release();
+        }
+    }
+
+    /**
+     * Set the charset of the requests and responses. Default: the platform's charset
+     *
+     * @param charset
+     *            the charset
+     * @return this
+     */
+    public ConsoleWorkerPool setCharset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * Set how to know that the response is complete. Default: after the first line
+     *
+     * @param endOfResponse
+     *            returns true for the last line of the response (that line is part of the response)
+     * @return this
+     */
+    public ConsoleWorkerPool setEndOfResponse(Predicate<String> endOfResponse) {
+        this.endOfResponse = endOfResponse;
+        return this;
+    }
+
+    /**
+     * Replace a worker after that amount of requests. Default 0 (never)
+     *
+     * @param maxRequestsPerWorker
+     *            the amount of requests or 0 for no limit
+     * @return this
+     */
+    public ConsoleWorkerPool setMaxRequestsPerWorker(long maxRequestsPerWorker) {
+        this.maxRequestsPerWorker = maxRequestsPerWorker;
+        return this;
+    }
+
+    /**
+     * Set the maximum amount of processes running at the same time. Must be set before the first request. Default: the amount of processors
+     *
+     * @param maxWorkers
+     *            the maximum
+     * @return this
+     */
+    public ConsoleWorkerPool setMaxWorkers(int maxWorkers) {
+        AssertTools.assertTrue(maxWorkers > 0, "Must have at least 1 worker");
+        this.maxWorkers = maxWorkers;
+        return this;
+    }
+
+    /**
+     * Set a timeout for each request. The worker is killed when reached. Default null (none)
+     *
+     * @param requestTimeoutInMilliseconds
+     *            how many milliseconds or null for none
+     * @return this
+     */
+    public ConsoleWorkerPool setRequestTimeoutInMilliseconds(Long requestTimeoutInMilliseconds) {
+        this.requestTimeoutInMilliseconds = requestTimeoutInMilliseconds;
+        return this;
+    }
+
+    private Worker startWorker() throws IOException {
+
+        List<String> fullCommand = new ArrayList<>();
+        fullCommand.add(template.getCommand());
+        List<String> arguments = template.getArguments();
+        if (arguments != null) {
+            fullCommand.addAll(arguments);
+        }
+        logger.debug("Starting worker: {}", fullCommand);
+
+        ProcessBuilder processBuilder = new ProcessBuilder(fullCommand);
+        if (!Strings.isNullOrEmpty(template.getWorkingDirectory())) {
+            processBuilder.directory(new File(template.getWorkingDirectory()));
+        }
+        Map<String, String> subProcEnv = processBuilder.environment();
+        if (template.isOverrideEnvironment()) {
+            subProcEnv.clear();
+        }
+        subProcEnv.putAll(template.getEnvironments());
+
+        Worker worker = new Worker();
+        worker.process = processBuilder.start();
+        worker.input = new OutputStreamWriter(worker.process.getOutputStream(), charset);
+        worker.output = new BufferedReader(new InputStreamReader(worker.process.getInputStream(), charset));
+
+        // The error stream must be consumed to not block the worker
+        OutputStream consoleError = template.getConsoleError();
+        if (consoleError == null) {
+            consoleError = ByteStreams.nullOutputStream();
+        }
+        ProcessStreamsPoller.getInstance().pump(worker.process, worker.process.getErrorStream(), consoleError);
+
+        startedWorkersCount.incrementAndGet();
+        return worker;
+    }
+
+}
@@ -0,0 +1,255 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.consolerunner;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.foilen.smalltools.tools.CloseableTools;
+import com.foilen.smalltools.tools.ExecutorsTools;
+import com.foilen.smalltools.tools.StreamsTools;
+
+/**
+ * Reads the output streams of many processes with a single thread. It only reads what is available, so it never blocks on a process.
+ *
+ * The poller thread never calls the destinations (they can be user code like a line consumer). What is read is queued for each stream and written to its destination by a task on the cached pool (one
+ * at a time per stream, in order). A slow destination only slows down its own process: when too much is waiting for it, that stream is not read until the destination catches up. When a process
+ * ended, the end of its streams is also copied by that task since a child process could still keep them open.
+ *
+ * When there is no data, the polling interval goes up to {@link #MAX_POLL_INTERVAL_MS}.
+ */
+class ProcessStreamsPoller {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProcessStreamsPoller.class);
+
+    private static final long MAX_POLL_INTERVAL_MS = 10;
+    private static final long MAX_PENDING_BYTES = 1024 * 1024;
+
+    private static final ProcessStreamsPoller instance = new ProcessStreamsPoller();
+
+    public static ProcessStreamsPoller getInstance() {
+        return instance;
+    }
+
+    private static class Pump {
+        private Process process;
+        private InputStream source;
+        private OutputStream destination;
+        private CompletableFuture<Void> future = new CompletableFuture<>();
+
+        // Between the poller thread and the delivery task
+        private Queue<byte[]> chunks = new ConcurrentLinkedQueue<>();
+        private AtomicLong pendingBytes = new AtomicLong();
+        private AtomicBoolean delivering = new AtomicBoolean();
+        private volatile boolean ended;
+        private volatile boolean copyRest;
+    }
+
+    private Queue<Pump> added = new ConcurrentLinkedQueue<>();
+    private Thread thread;
+
+    // Managed by the poller thread
+    private List<Pump> pumps = new ArrayList<>();
+    private byte[] buffer = new byte[64 * 1024];
+
+    private ProcessStreamsPoller() {
+        thread = new Thread(this::run, "ProcessStreamsPoller");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void complete(Pump pump) {
+        CloseableTools.close(pump.source);
+        pump.future.complete(null);
+    }
+
+    /**
+     * Write what is queued to the destination. Runs on the cached pool, one task at a time per pump.
+     */
+    private void deliver(Pump pump) {
+        try {
+            writeChunks(pump);
+
+            if (pump.copyRest) {
+                writeChunks(pump);
+                if (!pump.future.isDone()) {
+                    StreamsTools.flowStream(pump.source, pump.destination);
+                    pump.destination.flush();
+                }
+                complete(pump);
+            } else if (pump.ended) {
+                writeChunks(pump);
+                complete(pump);
+            }
+        } catch (Throwable e) {
+            logger.debug("Problem while writing to the destination", e);
+            fail(pump, e);
+        } finally {
+            pump.delivering.set(false);
+        }
+
+        // More came in while finishing
+        if (!pump.chunks.isEmpty() || ((pump.ended || pump.copyRest) && !pump.future.isDone())) {
+            scheduleDelivery(pump);
+        }
+    }
+
+    /**
+     * The pump cannot continue. What the process still writes is read and dropped so it does not block.
+     */
+    private void fail(Pump pump, Throwable e) {
+        pump.future.completeExceptionally(e);
+        pump.chunks.clear();
+        pump.pendingBytes.set(0);
+    }
+
+    /**
+     * Copy the source to the destination until the end of the source.
+     *
+     * @param process
+     *            the process that writes to the source
+     * @param source
+     *            an output stream of the process
+     * @param destination
+     *            where to copy (not closed at the end)
+     * @return the future completed when the source is fully copied or completed exceptionally if the destination failed
+     */
+    public CompletableFuture<Void> pump(Process process, InputStream source, OutputStream destination) {
+        Pump pump = new Pump();
+        pump.process = process;
+        pump.source = source;
+        pump.destination = destination;
+        added.add(pump);
+        LockSupport.unpark(thread);
+        return pump.future;
+    }
+
+    /**
+     * Read what is available.
+     *
+     * @return true if some bytes were read
+     */
+    private boolean pumpAvailable(Pump pump, Iterator<Pump> it) {
+        try {
+            // Let the destination catch up
+            if (pump.pendingBytes.get() >= MAX_PENDING_BYTES) {
+                return false;
+            }
+
+            int available = pump.source.available();
+            if (available == 0) {
+                if (!pump.process.isAlive()) {
+                    // Copy the rest without blocking this thread
+                    it.remove();
+                    pump.copyRest = true;
+                    scheduleDelivery(pump);
+                }
+                return false;
+            }
+
+            int len = pump.source.read(buffer, 0, Math.min(available, buffer.length));
+            if (len < 0) {
+                it.remove();
+                pump.ended = true;
+                scheduleDelivery(pump);
+                return false;
+            }
+            if (!pump.future.isDone()) {
+                pump.pendingBytes.addAndGet(len);
+                pump.chunks.add(Arrays.copyOf(buffer, len));
+                scheduleDelivery(pump);
+            }
+            return true;
+        } catch (IOException e) {
+            // The stream was closed (e.g. the process was destroyed)
+            logger.debug("Problem while streaming", e);
+            it.remove();
+            pump.ended = true;
+            scheduleDelivery(pump);
+            return false;
+        } catch (Throwable e) {
+            logger.error("Problem while streaming", e);
+            it.remove();
+            fail(pump, e);
+            CloseableTools.close(pump.source);
+            return false;
+        }
+    }
+
+    private void run() {
+        long pollIntervalMs = 1;
+        for (;;) {
+            try {
+                Pump pump;
+                while ((pump = added.poll()) != null) {
+                    pumps.add(pump);
+                }
+
+                if (pumps.isEmpty()) {
+                    LockSupport.park(this);
+                    pollIntervalMs = 1;
+                    continue;
+                }
+
+                boolean copied = false;
+                Iterator<Pump> it = pumps.iterator();
+                while (it.hasNext()) {
+                    copied |= pumpAvailable(it.next(), it);
+                }
+
+                // Wait longer when nothing is happening
+                if (copied) {
+                    pollIntervalMs = 1;
+                } else {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(pollIntervalMs));
+                    pollIntervalMs = Math.min(MAX_POLL_INTERVAL_MS, pollIntervalMs * 2);
+                }
+            } catch (Throwable e) {
+                logger.error("Unexpected problem in the poller loop", e);
+            }
+        }
+    }
+
+    private void scheduleDelivery(Pump pump) {
+        if (pump.delivering.compareAndSet(false, true)) {
+            ExecutorsTools.getCachedDaemonThreadPool().execute(() -> deliver(pump));
+        }
+    }
+
+    private void writeChunks(Pump pump) throws IOException {
+        byte[] chunk;
+        boolean wrote = false;
+        while ((chunk = pump.chunks.poll()) != null) {
+            if (!pump.future.isDone()) {
+                pump.destination.write(chunk);
+                wrote = true;
+            }
+            pump.pendingBytes.addAndGet(-chunk.length);
+        }
+        if (wrote) {
+            pump.destination.flush();
+        }
+    }
+
+}
@@ -22,6 +22,9 @@ import java.util.stream.Stream;
 import javax.annotation.PostConstruct;
 
 import com.foilen.smalltools.hash.HashMd5sum;
+import com.foilen.smalltools.metrics.Counter;
+import com.foilen.smalltools.metrics.Histogram;
+import com.foilen.smalltools.metrics.MetricsRegistry;
 import com.foilen.smalltools.tools.AbstractBasics;
 import com.foilen.smalltools.tools.FileTools;
 import com.foilen.smalltools.tools.JsonTools;
@@ -144,13 +147,22 @@ public abstract class AbstractListSingleJsonFileDao<T, K> extends AbstractBasics
     private String previousMd5sum;
     private List<T> cachedEntities;
 
+    // Created on first use since the name depends on the sub-class
+    private Histogram loadUs;
+    private Histogram saveUs;
+    private Counter skippedSaves;
+    private volatile SmoothTrigger saveSmoothTrigger;
+
     protected Runnable saveToFile = () -> {
 
+        initMetrics();
+        long startNs = System.nanoTime();
         String cachedMd5sum = HashMd5sum.hashString(JsonTools.prettyPrint(cachedEntities));
 
         // Check if content is different
         if (StringTools.safeEquals(previousMd5sum, cachedMd5sum)) {
             logger.debug("Content didn't change. Skipping saving");
+            skippedSaves.increment();
             return;
         }
 
@@ -161,14 +173,13 @@ public abstract class AbstractListSingleJsonFileDao<T, K> extends AbstractBasics
         try {
             out.close();
             previousMd5sum = cachedMd5sum;
+            saveUs.recordMicrosSince(startNs);
         } catch (IOException e) {
             logger.error("Could not close the staging file {}", getStagingFile().getAbsolutePath(), e);
         }
 
     };
 
-    private SmoothTrigger saveSmoothTrigger = new SmoothTrigger(2000, 10000, false, saveToFile).start();
-
     /**
      * Add multiple entities. Could add an item with the same key as another.
      *
@@ -187,7 +198,7 @@ public abstract class AbstractListSingleJsonFileDao<T, K> extends AbstractBasics
      */
     public synchronized void add(T entity) {
         cachedEntities.add(JsonTools.clone(entity));
-        saveSmoothTrigger.request();
+        requestSave();
     }
 
     /**
@@ -230,7 +241,7 @@ public abstract class AbstractListSingleJsonFileDao<T, K> extends AbstractBasics
         }
 
         if (count > 0) {
-            saveSmoothTrigger.request();
+            requestSave();
         }
 
         return count;
@@ -312,6 +323,16 @@ public abstract class AbstractListSingleJsonFileDao<T, K> extends AbstractBasics
      */
     protected abstract File getFinalFile();
 
+    /**
+     * Tell the prefix of the metrics published in {@link MetricsRegistry#getDefault()}: the "{name}.loadUs" and "{name}.saveUs" histograms, the "{name}.skippedSaves" counter and the "{name}.save"
+     * {@link SmoothTrigger}. Override it when many DAOs use files with the same name.
+     *
+     * @return the name (by default, "jsonDao.{name of the final file}")
+     */
+    protected String getMetricsName() {
+        return "jsonDao." + getFinalFile().getName();
+    }
+
     /**
      * Tell which file will be used as a staging file and be renamed to {@link #getFinalFile()} once well written.
      *
@@ -336,6 +357,24 @@ public abstract class AbstractListSingleJsonFileDao<T, K> extends AbstractBasics
         }
     }
 
+    private void initMetrics() {
+        if (saveSmoothTrigger != null) {
+            return;
+        }
+        synchronized (this) {
+            if (saveSmoothTrigger != null) {
+                return;
+            }
+            String metricsName = getMetricsName();
+            loadUs = MetricsRegistry.getDefault().histogram(metricsName + ".loadUs");
+            saveUs = MetricsRegistry.getDefault().histogram(metricsName + ".saveUs");
+            skippedSaves = MetricsRegistry.getDefault().counter(metricsName + ".skippedSaves");
+            saveSmoothTrigger = new SmoothTrigger(2000, 10000, false, saveToFile) //
+                    .setMetricsName(metricsName + ".save") //
+                    .start();
+        }
+    }
+
     /**
      * Tell if an entity's key is the one specified.
      *
@@ -358,9 +397,12 @@ public abstract class AbstractListSingleJsonFileDao<T, K> extends AbstractBasics
         }
         if (getFinalFile().exists()) {
             logger.debug("Loading from file");
+            initMetrics();
+            long startNs = System.nanoTime();
             String json = FileTools.getFileAsString(getFinalFile());
             cachedEntities = JsonTools.readFromStringAsList(json, getType());
             previousMd5sum = HashMd5sum.hashString(json);
+            loadUs.recordMicrosSince(startNs);
         } else {
             logger.debug("New state");
             cachedEntities = new ArrayList<>();
@@ -368,6 +410,11 @@ public abstract class AbstractListSingleJsonFileDao<T, K> extends AbstractBasics
         return true;
     }
 
+    private void requestSave() {
+        initMetrics();
+        saveSmoothTrigger.request();
+    }
+
     /**
      * Remove all entities with the specified key and add the entity.
      *
@@ -16,6 +16,9 @@ import java.util.function.Consumer;
 import javax.annotation.PostConstruct;
 
 import com.foilen.smalltools.hash.HashMd5sum;
+import com.foilen.smalltools.metrics.Counter;
+import com.foilen.smalltools.metrics.Histogram;
+import com.foilen.smalltools.metrics.MetricsRegistry;
 import com.foilen.smalltools.reflection.ReflectionTools;
 import com.foilen.smalltools.streamwrapper.RenamingOnCloseOutputStreamWrapper;
 import com.foilen.smalltools.tools.AbstractBasics;
@@ -140,13 +143,22 @@ public abstract class AbstractSingleJsonFileDao<T> extends AbstractBasics {
 
     private ReentrantLock transactionLock = new ReentrantLock();
 
+    // Created on first use since the name depends on the sub-class
+    private Histogram loadUs;
+    private Histogram saveUs;
+    private Counter skippedSaves;
+    private volatile SmoothTrigger saveSmoothTrigger;
+
     protected Runnable saveToFile = () -> {
 
+        initMetrics();
+        long startNs = System.nanoTime();
         String cachedMd5sum = HashMd5sum.hashString(JsonTools.prettyPrint(cached));
 
         // Check if content is different
         if (StringTools.safeEquals(previousMd5sum, cachedMd5sum)) {
             logger.debug("Content didn't change. Skipping saving");
+            skippedSaves.increment();
             return;
         }
 
@@ -165,14 +177,13 @@ public abstract class AbstractSingleJsonFileDao<T> extends AbstractBasics {
             out.setDeleteOnClose(false);
             out.close();
             previousMd5sum = cachedMd5sum;
+            saveUs.recordMicrosSince(startNs);
         } catch (IOException e) {
             logger.error("Could not close the staging file {}", getStagingFile().getAbsolutePath(), e);
         }
 
     };
 
-    private SmoothTrigger saveSmoothTrigger = new SmoothTrigger(2000, 10000, false, saveToFile).start();
-
     /**
      * Save to the file now.
      */
@@ -187,6 +198,16 @@ public abstract class AbstractSingleJsonFileDao<T> extends AbstractBasics {
      */
     protected abstract File getFinalFile();
 
+    /**
+     * Tell the prefix of the metrics published in {@link MetricsRegistry#getDefault()}: the "{name}.loadUs" and "{name}.saveUs" histograms, the "{name}.skippedSaves" counter and the "{name}.save"
+     * {@link SmoothTrigger}. Override it when many DAOs use files with the same name.
+     *
+     * @return the name (by default, "jsonDao.{name of the final file}")
+     */
+    protected String getMetricsName() {
+        return "jsonDao." + getFinalFile().getName();
+    }
+
     /**
      * Tell which file will be used as a staging file and be renamed to {@link #getFinalFile()} once well written.
      *
@@ -209,6 +230,24 @@ public abstract class AbstractSingleJsonFileDao<T> extends AbstractBasics {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> flush()));
     }
 
+    private void initMetrics() {
+        if (saveSmoothTrigger != null) {
+            return;
+        }
+        synchronized (this) {
+            if (saveSmoothTrigger != null) {
+                return;
+            }
+            String metricsName = getMetricsName();
+            loadUs = MetricsRegistry.getDefault().histogram(metricsName + ".loadUs");
+            saveUs = MetricsRegistry.getDefault().histogram(metricsName + ".saveUs");
+            skippedSaves = MetricsRegistry.getDefault().counter(metricsName + ".skippedSaves");
+            saveSmoothTrigger = new SmoothTrigger(2000, 10000, false, saveToFile) //
+                    .setMetricsName(metricsName + ".save") //
+                    .start();
+        }
+    }
+
     /**
      * Get the last saved entity.
      *
@@ -223,6 +262,8 @@ public abstract class AbstractSingleJsonFileDao<T> extends AbstractBasics {
             }
             if (getFinalFile().exists()) {
                 logger.debug("Loading from file");
+                initMetrics();
+                long startNs = System.nanoTime();
                 String json = FileTools.getFileAsString(getFinalFile());
                 cached = JsonTools.readFromString(json, getType());
                 if (cached == null) {
@@ -230,6 +271,7 @@ public abstract class AbstractSingleJsonFileDao<T> extends AbstractBasics {
                     cached = ReflectionTools.instantiate(getType());
                 }
                 previousMd5sum = HashMd5sum.hashString(json);
+                loadUs.recordMicrosSince(startNs);
                 return JsonTools.clone(cached);
             } else {
                 logger.debug("New state");
@@ -261,6 +303,11 @@ public abstract class AbstractSingleJsonFileDao<T> extends AbstractBasics {
 
     }
 
+    private void requestSave() {
+        initMetrics();
+        saveSmoothTrigger.request();
+    }
+
     /**
      * Persist the entity.
      *
@@ -271,7 +318,7 @@ public abstract class AbstractSingleJsonFileDao<T> extends AbstractBasics {
         transactionLock.lock();
         try {
             cached = JsonTools.clone(entity);
-            saveSmoothTrigger.request();
+            requestSave();
         } finally {
             transactionLock.unlock();
         }
@@ -0,0 +1,284 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.event;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.foilen.smalltools.tools.AssertTools;
+import com.foilen.smalltools.tools.ExecutorsTools;
+
+/**
+ * A callback for an {@link EventList} that returns right away and delivers the events later on an executor. Each subscriber has its own ring buffer, so a slow one does not stall the dispatching
+ * thread or the other subscribers.
+ *
+ * The events are delivered in order, one delivery at a time. With {@link #batched(EventCallback, int, int)}, the callback receives all the waiting events (up to maxBatchSize) at once.
+ *
+ * A subscriber is marked as slow when its buffer is full or when a delivery takes more than slowThresholdMs. It is logged and visible with {@link #isSlow()}.
+ *
+ * Usage:
+ *
+ * <pre>
+ * EventList&lt;String&gt; eventList = new EventList&lt;&gt;();
+ * eventList.addCallback(AsyncEventSubscriber.of(param -&gt; slowWork(param), 1024));
+ * eventList.addCallback(AsyncEventSubscriber.batched(params -&gt; saveAll(params), 1024, 100));
+ * </pre>
+ *
+ * @param <T>
+ *            the type of the parameter passed
+ */
+public class AsyncEventSubscriber<T> extends AbstractBasics implements EventCallback<T> {
+
+    /**
+     * What to do when the buffer is full.
+     */
+    public static enum OverflowPolicy {
+        /**
+         * Wait for some space (the dispatching thread waits).
+         */
+        BLOCK, //
+        /**
+         * Skip the event (they are counted in {@link AsyncEventSubscriber#getDroppedCount()}).
+         */
+        DROP, //
+    }
+
+    /**
+     * Create a subscriber that gets the events in batches.
+     *
+     * @param callback
+     *            the callback that receives the batches
+     * @param bufferSize
+     *            the amount of events that can wait
+     * @param maxBatchSize
+     *            the max amount of events per batch
+     * @param <T>
+     *            the type of the parameter passed
+     * @return the subscriber
+     */
+    public static <T> AsyncEventSubscriber<T> batched(EventCallback<List<T>> callback, int bufferSize, int maxBatchSize) {
+        return new AsyncEventSubscriber<>(null, callback, bufferSize, maxBatchSize);
+    }
+
+    /**
+     * Create a subscriber that gets the events one by one.
+     *
+     * @param callback
+     *            the callback
+     * @param bufferSize
+     *            the amount of events that can wait
+     * @param <T>
+     *            the type of the parameter passed
+     * @return the subscriber
+     */
+    public static <T> AsyncEventSubscriber<T> of(EventCallback<T> callback, int bufferSize) {
+        return new AsyncEventSubscriber<>(callback, null, bufferSize, 64);
+    }
+
+    private EventCallback<T> callback;
+    private EventCallback<List<T>> batchCallback;
+    private int maxBatchSize;
+
+    private Executor executor = ExecutorsTools.getCachedDaemonThreadPool();
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    private long slowThresholdMs = 1000;
+
+    private EventRingBuffer<T> buffer;
+    private AtomicBoolean scheduled = new AtomicBoolean();
+    private volatile boolean slow;
+    private LongAdder deliveredCount = new LongAdder();
+    private LongAdder droppedCount = new LongAdder();
+
+    private AsyncEventSubscriber(EventCallback<T> callback, EventCallback<List<T>> batchCallback, int bufferSize, int maxBatchSize) {
+        AssertTools.assertTrue(bufferSize > 0, "bufferSize must be 1 or bigger");
+        AssertTools.assertTrue(maxBatchSize > 0, "maxBatchSize must be 1 or bigger");
+        this.callback = callback;
+        this.batchCallback = batchCallback;
+        this.maxBatchSize = maxBatchSize;
+        this.buffer = new EventRingBuffer<>(bufferSize);
+    }
+
+    /**
+     * Wait until all the events received so far are delivered.
+     *
+     * @param timeoutMs
+     *            the max time to wait
+     * @return true if all delivered ; false if the time ran out
+     */
+    public boolean awaitDelivered(long timeoutMs) {
+        long until = System.currentTimeMillis() + timeoutMs;
+        while (!buffer.isEmpty() || scheduled.get()) {
+            if (System.currentTimeMillis() >= until) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    private void deliver() {
+        try {
+            List<T> batch = new ArrayList<>();
+            while (true) {
+
+                // Take the waiting events
+                T event;
+                while (batch.size() < maxBatchSize && (event = buffer.poll()) != null) {
+                    batch.add(event);
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+
+                // Deliver
+                int size = batch.size();
+                long start = System.currentTimeMillis();
+                if (batchCallback == null) {
+                    for (T param : batch) {
+                        try {
+                            callback.handle(param);
+                        } catch (Exception e) {
+                            logger.error("Problem delivering an event", e);
+                        }
+                    }
+                } else {
+                    try {
+                        batchCallback.handle(batch);
+                    } catch (Exception e) {
+                        logger.error("Problem delivering a batch of {} events", size, e);
+                    }
+                }
+                if (batchCallback == null) {
+                    batch.clear();
+                } else {
+                    batch = new ArrayList<>();
+                }
+                deliveredCount.add(size);
+                long durationMs = System.currentTimeMillis() - start;
+
+                // Check if slow
+                if (durationMs > slowThresholdMs) {
+                    markSlow("The delivery took " + durationMs + " ms");
+                } else if (slow && buffer.size() < buffer.getCapacity() / 2) {
+                    logger.info("The subscriber caught up");
+                    slow = false;
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!buffer.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+
+    public long getDeliveredCount() {
+        return deliveredCount.sum();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+
+    /**
+     * Get the amount of events waiting to be delivered.
+     *
+     * @return the amount of events
+     */
+    public int getPendingCount() {
+        return buffer.size();
+    }
+
+    @Override
+    public void handle(T param) {
+        if (!buffer.offer(param)) {
+            markSlow("The buffer is full");
+            if (overflowPolicy == OverflowPolicy.DROP) {
+                droppedCount.increment();
+                return;
+            }
+            do {
+                schedule();
+                LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+            } while (!buffer.offer(param));
+        }
+        schedule();
+    }
+
+    /**
+     * Tell if the subscriber is not keeping up with the events.
+     *
+     * @return true if slow
+     */
+    public boolean isSlow() {
+        return slow;
+    }
+
+    private void markSlow(String reason) {
+        if (!slow) {
+            slow = true;
+            logger.warn("Slow subscriber: {}", reason);
+        }
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::deliver);
+            } catch (RuntimeException e) {
+                // Let the next event try again
+                scheduled.set(false);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Set where the deliveries are executed. Default: {@link ExecutorsTools#getCachedDaemonThreadPool()}.
+     *
+     * @param executor
+     *            the executor
+     * @return this
+     */
+    public AsyncEventSubscriber<T> setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Set what to do when the buffer is full. Default: {@link OverflowPolicy#BLOCK}.
+     *
+     * @param overflowPolicy
+     *            the policy
+     * @return this
+     */
+    public AsyncEventSubscriber<T> setOverflowPolicy(OverflowPolicy overflowPolicy) {
+        this.overflowPolicy = overflowPolicy;
+        return this;
+    }
+
+    /**
+     * Set the delivery time after which the subscriber is considered slow. Default: 1 second.
+     *
+     * @param slowThresholdMs
+     *            the time in ms
+     * @return this
+     */
+    public AsyncEventSubscriber<T> setSlowThresholdMs(long slowThresholdMs) {
+        this.slowThresholdMs = slowThresholdMs;
+        return this;
+    }
+
+}
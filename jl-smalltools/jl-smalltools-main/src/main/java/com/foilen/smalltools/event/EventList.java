@@ -8,18 +8,42 @@
  */
 package com.foilen.smalltools.event;
 
+import java.util.Arrays;
 import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * This is to easily register callbacks for event and to manage them.
  *
+ * The callbacks are kept in an array that is copied when changed, so dispatching does not lock or allocate. The callbacks are called in the dispatching thread; to not be stalled by a slow one,
+ * register it as an {@link AsyncEventSubscriber}.
+ *
  * @param <T>
  *            the type of the parameter passed
  */
 public class EventList<T> {
 
-    private Queue<EventCallback<T>> callbacks = new ConcurrentLinkedQueue<>();
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static <T> EventCallback<T>[] newArray(int size) {
+        return new EventCallback[size];
+    }
+
+    private Object lock = new Object();
+    private volatile EventCallback<T>[] callbacks = newArray(0);
+
+    /**
+     * Register a callback that is called in another thread.
+     *
+     * @param callback
+     *            the callback when the event is thrown
+     * @param bufferSize
+     *            the amount of events that can wait to be delivered
+     * @return the subscriber that was registered (to configure it or remove it)
+     */
+    public AsyncEventSubscriber<T> addAsyncCallback(EventCallback<T> callback, int bufferSize) {
+        AsyncEventSubscriber<T> subscriber = AsyncEventSubscriber.of(callback, bufferSize);
+        addCallback(subscriber);
+        return subscriber;
+    }
 
     /**
      * Register the callback in the list.
@@ -28,14 +52,20 @@ public class EventList<T> {
      *            the callback when the event is thrown
      */
     public void addCallback(EventCallback<T> callback) {
-        callbacks.add(callback);
+        synchronized (lock) {
+            EventCallback<T>[] next = Arrays.copyOf(callbacks, callbacks.length + 1);
+            next[callbacks.length] = callback;
+            callbacks = next;
+        }
     }
 
     /**
      * Remove all the registered callbacks.
      */
     public void clearCallbacks() {
-        callbacks.clear();
+        synchronized (lock) {
+            callbacks = newArray(0);
+        }
     }
 
     /**
@@ -57,17 +87,33 @@ public class EventList<T> {
      *            the callback when the event is thrown
      */
     public void removeCallback(EventCallback<T> callback) {
-        callbacks.remove(callback);
+        synchronized (lock) {
+            EventCallback<T>[] current = callbacks;
+            for (int i = 0; i < current.length; ++i) {
+                if (current[i].equals(callback)) {
+                    EventCallback<T>[] next = newArray(current.length - 1);
+                    System.arraycopy(current, 0, next, 0, i);
+                    System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                    callbacks = next;
+                    return;
+                }
+            }
+        }
     }
 
     /**
      * Set the list of callbacks. Useful when using a bean container.
      *
+     * The callbacks in the queue are copied: changing the queue afterward does not change the registered callbacks. Use {@link #addCallback(EventCallback)} and
+     * {@link #removeCallback(EventCallback)} for that.
+     *
      * @param callbacks
      *            the event callbacks
      */
     public void setCallbacks(Queue<EventCallback<T>> callbacks) {
-        this.callbacks = callbacks;
+        synchronized (lock) {
+            this.callbacks = callbacks.toArray(newArray(0));
+        }
     }
 
 }
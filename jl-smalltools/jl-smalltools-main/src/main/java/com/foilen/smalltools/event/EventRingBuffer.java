@@ -0,0 +1,103 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.event;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded lock-free ring buffer for many producers and a single consumer. Each slot has a sequence number that tells if it is free to write or ready to read, so the producers only compete on the
+ * tail position.
+ *
+ * @param <T>
+ *            the type of the items
+ */
+class EventRingBuffer<T> {
+
+    private int mask;
+    private AtomicReferenceArray<T> items;
+    private AtomicLongArray sequences;
+    private AtomicLong tail = new AtomicLong();
+    private AtomicLong head = new AtomicLong();
+
+    /**
+     * Create the buffer.
+     *
+     * @param capacity
+     *            the minimum capacity. Rounded up to a power of 2
+     */
+    public EventRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        mask = size - 1;
+        items = new AtomicReferenceArray<>(size);
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; ++i) {
+            sequences.set(i, i);
+        }
+    }
+
+    public int getCapacity() {
+        return mask + 1;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Add an item if there is some space.
+     *
+     * @param item
+     *            the item
+     * @return true if added ; false if full
+     */
+    public boolean offer(T item) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items.set(index, item);
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Take the next item. Must only be called by one thread at a time.
+     *
+     * @return the item or null if empty
+     */
+    public T poll() {
+        long position = head.get();
+        int index = (int) position & mask;
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        T item = items.get(index);
+        items.set(index, null);
+        sequences.set(index, position + mask + 1);
+        head.set(position + 1);
+        return item;
+    }
+
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+}
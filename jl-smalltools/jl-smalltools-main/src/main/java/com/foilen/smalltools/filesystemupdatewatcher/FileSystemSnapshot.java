@@ -0,0 +1,253 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.filesystemupdatewatcher;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+import com.foilen.smalltools.filesystemupdatewatcher.FileSystemUpdateCoalescer.FileState;
+
+/**
+ * A compact view of a tree (name, size and modification time of every entry) that can be rescanned to get the differences.
+ *
+ * The entries are kept per directory in sorted arrays. When rescanning, a directory whose modification time did not change is not listed again (adding, removing or renaming an entry changes it);
+ * only its entries are checked. Directories modified in the last {@link #RACY_DELAY_MS} are always listed since the modification time is not precise enough.
+ */
+class FileSystemSnapshot {
+
+    static final long RACY_DELAY_MS = 2000;
+
+    private static final long DIRECTORY_SIZE = -1;
+
+    private static class DirectorySnapshot {
+        private long mtime;
+        private String[] names;
+        private long[] sizes;
+        private long[] mtimes;
+
+        public DirectorySnapshot(long mtime, String[] names, long[] sizes, long[] mtimes) {
+            this.mtime = mtime;
+            this.names = names;
+            this.sizes = sizes;
+            this.mtimes = mtimes;
+        }
+
+    }
+
+    private class ScanAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private Path directory;
+        private long scanStartMs;
+        private BiConsumer<File, FileState> eventConsumer;
+
+        public ScanAction(Path directory, long scanStartMs, BiConsumer<File, FileState> eventConsumer) {
+            this.directory = directory;
+            this.scanStartMs = scanStartMs;
+            this.eventConsumer = eventConsumer;
+        }
+
+        @Override
+        protected void compute() {
+            List<ScanAction> actions = new ArrayList<>();
+            scanDirectory(directory, scanStartMs, eventConsumer, actions);
+            invokeAll(actions);
+        }
+
+    }
+
+    private Path basePath;
+    private boolean recursive;
+
+    private Map<Path, DirectorySnapshot> snapshotByDirectory = new ConcurrentHashMap<>();
+
+    private LongAdder entriesCount = new LongAdder();
+    private LongAdder listedDirectoriesCount = new LongAdder();
+
+    public FileSystemSnapshot(Path basePath, boolean recursive) {
+        this.basePath = basePath;
+        this.recursive = recursive;
+    }
+
+    private void emit(BiConsumer<File, FileState> eventConsumer, File file, FileState state) {
+        if (eventConsumer != null) {
+            eventConsumer.accept(file, state);
+        }
+    }
+
+    /**
+     * Get the amount of entries seen in the last scan.
+     *
+     * @return the amount of entries
+     */
+    public long getEntriesCount() {
+        return entriesCount.sum();
+    }
+
+    /**
+     * Get the amount of directories that had to be listed in the last scan.
+     *
+     * @return the amount of directories
+     */
+    public long getListedDirectoriesCount() {
+        return listedDirectoriesCount.sum();
+    }
+
+    private void removeDirectory(Path directory, BiConsumer<File, FileState> eventConsumer) {
+        DirectorySnapshot snapshot = snapshotByDirectory.remove(directory);
+        if (snapshot == null) {
+            return;
+        }
+        for (int i = 0; i < snapshot.names.length; ++i) {
+            Path path = directory.resolve(snapshot.names[i]);
+            if (snapshot.sizes[i] == DIRECTORY_SIZE) {
+                removeDirectory(path, eventConsumer);
+            }
+            emit(eventConsumer, path.toFile(), FileState.DELETED);
+        }
+    }
+
+    private void removeEntry(Path directory, DirectorySnapshot previous, int previousIdx, BiConsumer<File, FileState> eventConsumer) {
+        Path path = directory.resolve(previous.names[previousIdx]);
+        if (previous.sizes[previousIdx] == DIRECTORY_SIZE) {
+            removeDirectory(path, eventConsumer);
+        }
+        emit(eventConsumer, path.toFile(), FileState.DELETED);
+    }
+
+    /**
+     * Scan the tree and send the differences since the last scan.
+     *
+     * @param pool
+     *            the pool to scan the directories in parallel
+     * @param eventConsumer
+     *            (optional) the consumer of the differences. Must be thread-safe. When null, only the snapshot is updated
+     */
+    public void scan(ForkJoinPool pool, BiConsumer<File, FileState> eventConsumer) {
+        entriesCount.reset();
+        listedDirectoriesCount.reset();
+        pool.invoke(new ScanAction(basePath, System.currentTimeMillis(), eventConsumer));
+    }
+
+    private void scanDirectory(Path directory, long scanStartMs, BiConsumer<File, FileState> eventConsumer, List<ScanAction> subActions) {
+
+        DirectorySnapshot previous = snapshotByDirectory.get(directory);
+        File directoryFile = directory.toFile();
+        long directoryMtime = directoryFile.lastModified();
+        if (directoryMtime == 0) {
+            // Removed; the parent sends the events
+            return;
+        }
+
+        // Get the names
+        String[] names;
+        if (previous != null && previous.mtime == directoryMtime && scanStartMs - directoryMtime > RACY_DELAY_MS) {
+            names = previous.names;
+        } else {
+            names = directoryFile.list();
+            if (names == null) {
+                names = new String[0];
+            }
+            Arrays.sort(names);
+            listedDirectoriesCount.increment();
+        }
+
+        // Check all the entries
+        String[] previousNames = previous == null ? new String[0] : previous.names;
+        String[] keptNames = new String[names.length];
+        long[] sizes = new long[names.length];
+        long[] mtimes = new long[names.length];
+        int kept = 0;
+        int previousIdx = 0;
+        for (String name : names) {
+
+            // Deleted before this name
+            while (previousIdx < previousNames.length && previousNames[previousIdx].compareTo(name) < 0) {
+                removeEntry(directory, previous, previousIdx, eventConsumer);
+                ++previousIdx;
+            }
+            boolean existed = previousIdx < previousNames.length && previousNames[previousIdx].equals(name);
+
+            // Current state
+            Path path = directory.resolve(name);
+            BasicFileAttributes attributes;
+            try {
+                attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+            } catch (IOException e) {
+                attributes = null;
+            }
+
+            if (attributes == null) {
+                // Removed while scanning
+                if (existed) {
+                    removeEntry(directory, previous, previousIdx, eventConsumer);
+                    ++previousIdx;
+                }
+                continue;
+            }
+
+            boolean isDirectory = attributes.isDirectory();
+            long size = isDirectory ? DIRECTORY_SIZE : attributes.size();
+            long mtime = attributes.lastModifiedTime().toMillis();
+            keptNames[kept] = name;
+            sizes[kept] = size;
+            mtimes[kept] = mtime;
+            ++kept;
+
+            // Compare
+            if (existed) {
+                long previousSize = previous.sizes[previousIdx];
+                if (previousSize == DIRECTORY_SIZE && !isDirectory) {
+                    removeDirectory(path, eventConsumer);
+                    emit(eventConsumer, path.toFile(), FileState.MODIFIED);
+                } else if (!isDirectory && (previousSize != size || previous.mtimes[previousIdx] != mtime)) {
+                    emit(eventConsumer, path.toFile(), FileState.MODIFIED);
+                }
+                ++previousIdx;
+            } else {
+                emit(eventConsumer, path.toFile(), FileState.CREATED);
+            }
+
+            if (isDirectory && recursive) {
+                subActions.add(new ScanAction(path, scanStartMs, eventConsumer));
+            }
+        }
+
+        // Deleted at the end
+        while (previousIdx < previousNames.length) {
+            removeEntry(directory, previous, previousIdx, eventConsumer);
+            ++previousIdx;
+        }
+
+        // Keep
+        if (kept != names.length) {
+            keptNames = Arrays.copyOf(keptNames, kept);
+            sizes = Arrays.copyOf(sizes, kept);
+            mtimes = Arrays.copyOf(mtimes, kept);
+        }
+        snapshotByDirectory.put(directory, new DirectorySnapshot(directoryMtime, keptNames, sizes, mtimes));
+        entriesCount.add(kept);
+
+    }
+
+}
@@ -9,11 +9,11 @@
 package com.foilen.smalltools.filesystemupdatewatcher;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Collections;
 
-import com.foilen.smalltools.trigger.SmoothTrigger;
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.filesystemupdatewatcher.FileSystemUpdateCoalescer.FileState;
+import com.foilen.smalltools.trigger.SmoothBatchTrigger;
 
 /**
  * This is an handler that will get the notifications for a few seconds and then trigger back a summary (e.g if a file is changed 10 times in 1 second, you will be notified only once instead of 10
@@ -41,68 +41,37 @@ import com.foilen.smalltools.trigger.SmoothTrigger;
  */
 public class FileSystemUpdateBufferedHandler implements FileSystemUpdateHandler {
 
-    private static enum FileState {
-        CREATED, MODIFIED, DELETED
-    }
-
-    private static class FileStatus {
+    private static class FileEvent {
+        private File file;
         private boolean existed;
-        private FileState lastEvent;
+        private FileState event;
 
-        public FileStatus(boolean existed, FileState lastEvent) {
+        public FileEvent(File file, boolean existed, FileState event) {
+            this.file = file;
             this.existed = existed;
-            this.lastEvent = lastEvent;
+            this.event = event;
         }
 
     }
 
-    private static FileState[] matrixExisted = { FileState.MODIFIED, FileState.MODIFIED, FileState.DELETED };
-    private static FileState[] matrixNotExisted = { FileState.CREATED, FileState.CREATED, null };
-
     // Running state
-    private SmoothTrigger smoothTrigger;
-    private Object lock = new Object();
-    private Map<File, FileStatus> buffer = new HashMap<>();
+    private SmoothBatchTrigger<FileEvent> smoothBatchTrigger;
 
     public FileSystemUpdateBufferedHandler(FileSystemUpdateHandler wrappedHandler, long delayAfterLastEventMs, long maxDelayMs) {
 
-        smoothTrigger = new SmoothTrigger(() -> {
+        smoothBatchTrigger = new SmoothBatchTrigger<FileEvent>(fileEvents -> {
 
-            // Process
-            Map<File, FileStatus> toProcess;
-            synchronized (lock) {
-                toProcess = buffer;
-                buffer = new HashMap<>();
+            // Summarize
+            FileSystemUpdateCoalescer coalescer = new FileSystemUpdateCoalescer();
+            for (FileEvent fileEvent : fileEvents) {
+                coalescer.add(fileEvent.file, fileEvent.existed, fileEvent.event);
             }
 
-            for (Entry<File, FileStatus> entry : toProcess.entrySet()) {
-                File file = entry.getKey();
-                FileStatus fileStatus = entry.getValue();
-
-                // Compute the next
-                FileState fileState;
-                if (fileStatus.existed) {
-                    fileState = matrixExisted[fileStatus.lastEvent.ordinal()];
-                } else {
-                    fileState = matrixNotExisted[fileStatus.lastEvent.ordinal()];
-                }
-                if (fileState == null) {
-                    continue;
-                }
-
-                switch (fileState) {
-                case CREATED:
-                    wrappedHandler.created(file);
-                    break;
-                case DELETED:
-                    wrappedHandler.deleted(file);
-                    break;
-                case MODIFIED:
-                    wrappedHandler.modified(file);
-                    break;
-                default:
-                    break;
-                }
+            // Process
+            try {
+                FileSystemUpdateCoalescer.dispatch(coalescer.takeAll(0), Collections.singletonList(wrappedHandler));
+            } catch (InterruptedException e) {
+                throw new SmallToolsException(e);
             }
 
         }) //
@@ -113,23 +82,7 @@ public class FileSystemUpdateBufferedHandler implements FileSystemUpdateHandler
     }
 
     private void bufferEvent(File file, boolean existed, FileState lastEvent) {
-
-        synchronized (lock) {
-
-            // Get or create the state
-            FileStatus fileStatus = buffer.get(file);
-            if (fileStatus == null) {
-                fileStatus = new FileStatus(existed, lastEvent);
-                buffer.put(file, fileStatus);
-            }
-
-            // Set the lastEvent
-            fileStatus.lastEvent = lastEvent;
-
-            // Tell to eventually process
-            smoothTrigger.request();
-        }
-
+        smoothBatchTrigger.request(new FileEvent(file, existed, lastEvent));
     }
 
     @Override
@@ -0,0 +1,171 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.filesystemupdatewatcher;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Keeps the pending events per file and summarizes them. The summary about the same file:
+ * <ul>
+ * <li>Many times the same event = once that event</li>
+ * <li>1 Created + X Modified = 1 Created</li>
+ * <li>1 Created + X Modified + 1 Deleted = 0 event</li>
+ * <li>X Modified + 1 Deleted = 1 Deleted</li>
+ * <li>1 Deleted + 1 Created = 1 Modified</li>
+ * </ul>
+ */
+class FileSystemUpdateCoalescer {
+
+    static enum FileState {
+        CREATED, MODIFIED, DELETED
+    }
+
+    static class FileStatus {
+        private boolean existed;
+        private FileState lastEvent;
+
+        public FileStatus(boolean existed, FileState lastEvent) {
+            this.existed = existed;
+            this.lastEvent = lastEvent;
+        }
+
+    }
+
+    private static FileState[] matrixExisted = { FileState.MODIFIED, FileState.MODIFIED, FileState.DELETED };
+    private static FileState[] matrixNotExisted = { FileState.CREATED, FileState.CREATED, null };
+
+    /**
+     * Call the handlers with the summary of each file.
+     *
+     * @param statusByFile
+     *            the pending events
+     * @param handlers
+     *            the handlers to call
+     */
+    public static void dispatch(Map<File, FileStatus> statusByFile, Collection<FileSystemUpdateHandler> handlers) {
+        for (Entry<File, FileStatus> entry : statusByFile.entrySet()) {
+            File file = entry.getKey();
+            FileStatus fileStatus = entry.getValue();
+
+            // Compute the next
+            FileState fileState;
+            if (fileStatus.existed) {
+                fileState = matrixExisted[fileStatus.lastEvent.ordinal()];
+            } else {
+                fileState = matrixNotExisted[fileStatus.lastEvent.ordinal()];
+            }
+            if (fileState == null) {
+                continue;
+            }
+
+            for (FileSystemUpdateHandler handler : handlers) {
+                switch (fileState) {
+                case CREATED:
+                    handler.created(file);
+                    break;
+                case DELETED:
+                    handler.deleted(file);
+                    break;
+                case MODIFIED:
+                    handler.modified(file);
+                    break;
+                default:
+                    break;
+                }
+            }
+        }
+    }
+
+    private Map<File, FileStatus> pending = new LinkedHashMap<>();
+    private boolean closed;
+
+    /**
+     * Add an event.
+     *
+     * @param file
+     *            the file
+     * @param existed
+     *            true if the file existed before this event
+     * @param event
+     *            the event
+     */
+    public synchronized void add(File file, boolean existed, FileState event) {
+
+        if (closed) {
+            return;
+        }
+
+        // Get or create the state
+        FileStatus fileStatus = pending.get(file);
+        if (fileStatus == null) {
+            fileStatus = new FileStatus(existed, event);
+            pending.put(file, fileStatus);
+        }
+
+        // Set the lastEvent
+        fileStatus.lastEvent = event;
+
+        notifyAll();
+    }
+
+    /**
+     * Wait until there are less than the maximum files pending or until it is closed.
+     *
+     * @param maxPending
+     *            the maximum amount of files
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    public synchronized void awaitSpace(int maxPending) throws InterruptedException {
+        while (!closed && pending.size() >= maxPending) {
+            wait();
+        }
+    }
+
+    /**
+     * Drop the pending events, ignore the new ones and wake up all the waiting threads.
+     */
+    public synchronized void close() {
+        closed = true;
+        pending.clear();
+        notifyAll();
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * Take all the pending events.
+     *
+     * @param timeoutMs
+     *            the max time to wait for an event
+     * @return the pending events (empty if none came in time)
+     * @throws InterruptedException
+     *             if interrupted
+     */
+    public synchronized Map<File, FileStatus> takeAll(long timeoutMs) throws InterruptedException {
+        if (pending.isEmpty()) {
+            wait(timeoutMs);
+        }
+        if (pending.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Map<File, FileStatus> taken = pending;
+        pending = new LinkedHashMap<>();
+        notifyAll();
+        return taken;
+    }
+
+}
@@ -21,24 +21,62 @@ import java.nio.file.StandardWatchEventKinds;
 import java.nio.file.WatchEvent;
 import java.nio.file.WatchKey;
 import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.filesystemupdatewatcher.FileSystemUpdateCoalescer.FileState;
+import com.foilen.smalltools.filesystemupdatewatcher.FileSystemUpdateCoalescer.FileStatus;
+import com.foilen.smalltools.metrics.Histogram;
 import com.foilen.smalltools.tools.AssertTools;
 import com.foilen.smalltools.tools.CloseableTools;
 import com.foilen.smalltools.tools.ThreadTools;
+import com.foilen.smalltools.tuple.Tuple2;
 
 /**
  * This class is looking at any changes made to any file in the directory and their sub-directory if needed.
  *
  * On initialization, it creates a separate thread that will call the observers when new events are ready.
  *
+ * Big trees:
+ * <ul>
+ * <li>The sub-directories are registered in parallel (see {@link #setRegistrationThreads(int)}). The symbolic links to directories are not followed to avoid registering the same directory
+ * many times or looping forever.</li>
+ * <li>When the system drops events for a directory (OVERFLOW), that directory is rescanned: the new sub-directories are registered and all its entries are sent as modified (or created for new
+ * directories). The names of the entries of each watched directory are kept in memory to be able to send the ones that disappeared as deleted.</li>
+ * <li>When coalescing, the events are summarized per path (like {@link FileSystemUpdateBufferedHandler}, but without delay) and the handlers are called from a separate dispatch thread. At most
+ * maxPendingEvents paths are kept; when full, the watch thread waits which can make the system overflow and then rescan. It is not enabled by default since the handlers
+ * are then called from another thread and the events are summarized.</li>
+ * </ul>
+ *
+ * Polling: some file systems (network shares, some container mounts) do not send any events. In that case, set a polling interval with {@link #setPollingIntervalMs(long)}. A snapshot of the tree
+ * (name, size and modification time) is kept in memory and rescanned in parallel at each interval; the differences are sent to the handlers. Use {@link #getScanTimeMs()} and
+ * {@link #getLastScanEntriesCount()} to tune the interval.
+ *
  * Default:
  * <ul>
  * <li>recursive = false</li>
+ * <li>coalescing = false</li>
+ * <li>maxPendingEvents = 100000</li>
+ * <li>registrationThreads = the amount of processors</li>
+ * <li>pollingIntervalMs = 0 (use the events from the system)</li>
  * </ul>
  *
  * Usage:
@@ -63,6 +101,8 @@ import com.foilen.smalltools.tools.ThreadTools;
  */
 public class FileSystemUpdateWatcher implements Closeable {
 
+    private static final Logger logger = LoggerFactory.getLogger(FileSystemUpdateWatcher.class);
+
     public static void main(String[] args) {
 
         // Start
@@ -82,17 +122,90 @@ public class FileSystemUpdateWatcher implements Closeable {
         watcher.close();
     }
 
+    private class RegisterAction extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private Path path;
+        private boolean mustExist;
+
+        public RegisterAction(Path path, boolean mustExist) {
+            this.path = path;
+            this.mustExist = mustExist;
+        }
+
+        @Override
+        protected void compute() {
+
+            if (mustExist) {
+                register(path);
+            } else {
+                try {
+                    register(path);
+                } catch (Exception e) {
+                    // Removed while walking
+                    logger.debug("Could not register {}", path, e);
+                    return;
+                }
+            }
+
+            if (!recursive) {
+                return;
+            }
+
+            // Go through sub-folders (using the listing done while registering)
+            Set<String> children = childrenByDirectory.get(path);
+            if (children == null) {
+                return;
+            }
+            List<RegisterAction> actions = new ArrayList<>();
+            for (String name : children) {
+                Path subPath = path.resolve(name);
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(subPath, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                } catch (IOException e) {
+                    // Removed while walking
+                    continue;
+                }
+                if (attributes.isDirectory()) {
+                    actions.add(new RegisterAction(subPath, false));
+                }
+            }
+            invokeAll(actions);
+        }
+
+    }
+
     // Options
     private Path basePath;
 
     private boolean recursive = false;
+    private boolean coalescing = false;
+    private int maxPendingEvents = 100000;
+    private int registrationThreads = Runtime.getRuntime().availableProcessors();
+    private long pollingIntervalMs = 0;
+
     // Internals
-    private Thread thread;
+    private volatile boolean closed;
+    private volatile Thread thread;
+    private Thread dispatchThread;
     private WatchService fsWatchService;
+    private volatile ForkJoinPool registrationPool;
+    private FileSystemUpdateCoalescer coalescer;
 
     private List<FileSystemUpdateHandler> fileSystemUpdateHandlers = new ArrayList<>();
 
-    private Map<WatchKey, Path> pathByKey = new HashMap<WatchKey, Path>();
+    private Map<WatchKey, Path> pathByKey = new ConcurrentHashMap<>();
+    private Set<Path> registeredPaths = ConcurrentHashMap.newKeySet();
+    private Map<Path, Set<String>> childrenByDirectory = new ConcurrentHashMap<>();
+
+    private AtomicLong overflowCount = new AtomicLong();
+
+    private volatile FileSystemSnapshot snapshot;
+    private Histogram scanTimeMs = new Histogram();
+    private volatile long lastScanEntriesCount;
+    private volatile long lastScanListedDirectoriesCount;
 
     public FileSystemUpdateWatcher(File basePath) {
         this.basePath = basePath.toPath();
@@ -120,97 +233,193 @@ public class FileSystemUpdateWatcher implements Closeable {
 
     @Override
     public void close() {
+        closed = true;
+        Thread pollingThread = thread;
         thread = null;
+        if (pollingIntervalMs > 0 && pollingThread != null) {
+            pollingThread.interrupt();
+        }
         CloseableTools.close(fsWatchService);
+        if (coalescer != null) {
+            coalescer.close();
+        }
+        if (dispatchThread != null) {
+            dispatchThread.interrupt();
+            dispatchThread = null;
+        }
+        if (registrationPool != null) {
+            registrationPool.shutdown();
+            registrationPool = null;
+        }
+        pathByKey.clear();
+        registeredPaths.clear();
+        childrenByDirectory.clear();
+        snapshot = null;
+    }
+
+    private void dispatch(File file, boolean existed, FileState event) {
+        if (closed) {
+            return;
+        }
+        if (coalescer == null) {
+            for (FileSystemUpdateHandler handler : fileSystemUpdateHandlers) {
+                switch (event) {
+                case CREATED:
+                    handler.created(file);
+                    break;
+                case DELETED:
+                    handler.deleted(file);
+                    break;
+                case MODIFIED:
+                    handler.modified(file);
+                    break;
+                default:
+                    break;
+                }
+            }
+        } else {
+            try {
+                coalescer.awaitSpace(maxPendingEvents);
+            } catch (InterruptedException e) {
+                throw new SmallToolsException(e);
+            }
+            coalescer.add(file, existed, event);
+        }
     }
 
     /**
-     * Call after setting this object to make it work. Stop it with {@link #close()}.
+     * When polling, get the amount of entries in the tree during the last scan.
      *
-     * @return this
+     * @return the amount of entries
      */
-    public FileSystemUpdateWatcher init() {
+    public long getLastScanEntriesCount() {
+        return lastScanEntriesCount;
+    }
 
-        AssertTools.assertNull(thread, "Already initialized");
-        AssertTools.assertFalse(fileSystemUpdateHandlers.isEmpty(), "There are no handlers");
+    /**
+     * When polling, get the amount of directories that changed and had to be listed during the last scan.
+     *
+     * @return the amount of directories
+     */
+    public long getLastScanListedDirectoriesCount() {
+        return lastScanListedDirectoriesCount;
+    }
 
-        // Register the directories
-        try {
-            fsWatchService = FileSystems.getDefault().newWatchService();
-            registerRecursively(basePath);
-        } catch (IOException e) {
-            throw new SmallToolsException(e);
-        }
+    public int getMaxPendingEvents() {
+        return maxPendingEvents;
+    }
 
-        // Start the watch thread
-        thread = new Thread(() -> {
-            ThreadTools.nameThread().setSeparator("-").clear() //
-                    .appendObjectClassSimple(this) //
-                    .appendText("Started at") //
-                    .appendDate() //
-                    .appendObjectText("Folder") //
-                    .appendObjectText(basePath).change();
+    /**
+     * Get the amount of times the system dropped events and a directory had to be rescanned.
+     *
+     * @return the amount of overflows
+     */
+    public long getOverflowCount() {
+        return overflowCount.get();
+    }
 
-            for (;;) {
+    /**
+     * Get the amount of paths waiting to be sent to the handlers.
+     *
+     * @return the amount of pending paths
+     */
+    public int getPendingEventsCount() {
+        FileSystemUpdateCoalescer coalescer = this.coalescer;
+        return coalescer == null ? 0 : coalescer.size();
+    }
 
-                // Wait for the next event
-                WatchKey key;
-                try {
-                    key = fsWatchService.take();
-                } catch (ClosedWatchServiceException e) {
-                    break;
-                } catch (InterruptedException e) {
-                    throw new SmallToolsException(e);
-                }
+    public long getPollingIntervalMs() {
+        return pollingIntervalMs;
+    }
 
-                // Go through all the events
-                for (WatchEvent<?> event : key.pollEvents()) {
-                    @SuppressWarnings("unchecked")
-                    WatchEvent<Path> pathEvent = (WatchEvent<Path>) event;
+    public int getRegisteredDirectoriesCount() {
+        return registeredPaths.size();
+    }
 
-                    // Check the path
-                    Path completePath = pathByKey.get(key).resolve(pathEvent.context());
-                    File completeFile = completePath.toFile();
+    public int getRegistrationThreads() {
+        return registrationThreads;
+    }
 
-                    // Check the event
-                    WatchEvent.Kind<Path> kind = pathEvent.kind();
-                    if (StandardWatchEventKinds.OVERFLOW.equals(kind)) {
-                        continue;
-                    } else if (StandardWatchEventKinds.ENTRY_CREATE.equals(kind)) {
-                        // Check if is a directory and we want to register it
-                        if (recursive && Files.isDirectory(completePath, LinkOption.NOFOLLOW_LINKS)) {
-                            registerRecursively(completePath);
-                        }
+    /**
+     * When polling, get the time taken by each scan.
+     *
+     * @return the histogram in milliseconds
+     */
+    public Histogram getScanTimeMs() {
+        return scanTimeMs;
+    }
 
-                        for (FileSystemUpdateHandler handler : fileSystemUpdateHandlers) {
-                            handler.created(completeFile);
-                        }
-                    } else if (StandardWatchEventKinds.ENTRY_MODIFY.equals(kind)) {
-                        for (FileSystemUpdateHandler handler : fileSystemUpdateHandlers) {
-                            handler.modified(completeFile);
-                        }
-                    } else if (StandardWatchEventKinds.ENTRY_DELETE.equals(kind)) {
-                        for (FileSystemUpdateHandler handler : fileSystemUpdateHandlers) {
-                            handler.deleted(completeFile);
-                        }
-                    }
+    /**
+     * Call after setting this object to make it work. Stop it with {@link #close()}.
+     *
+     * @return this
+     */
+    public FileSystemUpdateWatcher init() {
 
-                }
+        AssertTools.assertNull(thread, "Already initialized");
+        AssertTools.assertFalse(fileSystemUpdateHandlers.isEmpty(), "There are no handlers");
 
-                // Reset
-                if (!key.reset()) {
-                    pathByKey.remove(key);
-                }
+        closed = false;
 
+        // Register the directories
+        registrationPool = new ForkJoinPool(registrationThreads);
+        if (pollingIntervalMs > 0) {
+            AssertTools.assertTrue(basePath.toFile().isDirectory(), "The path must be a directory. Path: " + basePath);
+            snapshot = new FileSystemSnapshot(basePath, recursive);
+            scan(null);
+        } else {
+            try {
+                fsWatchService = FileSystems.getDefault().newWatchService();
+                registrationPool.invoke(new RegisterAction(basePath, true));
+            } catch (IOException e) {
+                throw new SmallToolsException(e);
             }
+        }
 
-        });
-        thread.setDaemon(true);
-        thread.start();
+        // Start the dispatch thread
+        if (coalescing) {
+            FileSystemUpdateCoalescer coalescer = new FileSystemUpdateCoalescer();
+            this.coalescer = coalescer;
+            dispatchThread = new Thread(() -> {
+                ThreadTools.nameThread().setSeparator("-").clear() //
+                        .appendObjectClassSimple(this) //
+                        .appendText("Dispatch") //
+                        .appendObjectText("Folder") //
+                        .appendObjectText(basePath).change();
+
+                while (!Thread.currentThread().isInterrupted()) {
+                    Map<File, FileStatus> statusByFile;
+                    try {
+                        statusByFile = coalescer.takeAll(1000);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    try {
+                        FileSystemUpdateCoalescer.dispatch(statusByFile, fileSystemUpdateHandlers);
+                    } catch (Exception e) {
+                        logger.error("Problem while calling the handlers", e);
+                    }
+                }
+            });
+            dispatchThread.setDaemon(true);
+            dispatchThread.start();
+        } else {
+            coalescer = null;
+        }
+
+        if (pollingIntervalMs > 0) {
+            startPolling();
+        } else {
+            startWatching();
+        }
 
         return this;
     }
 
+    public boolean isCoalescing() {
+        return coalescing;
+    }
+
     /**
      * Tells if the watch is recursive.
      *
@@ -220,6 +429,14 @@ public class FileSystemUpdateWatcher implements Closeable {
         return recursive;
     }
 
+    private void poll() {
+        Queue<Tuple2<File, FileState>> events = new ConcurrentLinkedQueue<>();
+        scan((file, state) -> events.add(new Tuple2<>(file, state)));
+        for (Tuple2<File, FileState> event : events) {
+            dispatch(event.getA(), event.getB() != FileState.CREATED, event.getB());
+        }
+    }
+
     /**
      * Register a new path to check.
      *
@@ -233,6 +450,13 @@ public class FileSystemUpdateWatcher implements Closeable {
         try {
             WatchKey key = path.register(fsWatchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
             pathByKey.put(key, path);
+            registeredPaths.add(path);
+            Set<String> children = ConcurrentHashMap.newKeySet();
+            String[] names = directory.list();
+            if (names != null) {
+                Collections.addAll(children, names);
+            }
+            childrenByDirectory.put(path, children);
         } catch (IOException e) {
             throw new SmallToolsException(e);
         }
@@ -245,19 +469,116 @@ public class FileSystemUpdateWatcher implements Closeable {
      *            the path
      */
     private void registerRecursively(Path path) {
+        ForkJoinPool registrationPool = this.registrationPool;
+        if (closed || registrationPool == null) {
+            return;
+        }
+        try {
+            registrationPool.invoke(new RegisterAction(path, false));
+        } catch (RejectedExecutionException e) {
+            // Closed while registering
+            logger.debug("Could not register {}", path, e);
+        }
+    }
+
+    /**
+     * Go through a directory for which some events were lost. The new sub-directories are registered and sent as created, the entries that are not there anymore are sent as deleted and the rest is
+     * sent as modified.
+     *
+     * @param directoryPath
+     *            the directory
+     */
+    private void rescan(Path directoryPath) {
+        logger.info("Events were lost. Rescanning {}", directoryPath);
 
-        register(path);
+        File[] subs = directoryPath.toFile().listFiles();
+        if (subs == null) {
+            return;
+        }
+        Set<String> knownChildren = childrenByDirectory.get(directoryPath);
+        Set<String> currentChildren = ConcurrentHashMap.newKeySet();
+        for (File sub : subs) {
+            currentChildren.add(sub.getName());
+            Path subPath = sub.toPath();
+            if (recursive && Files.isDirectory(subPath, LinkOption.NOFOLLOW_LINKS) && !registeredPaths.contains(subPath)) {
+                registerRecursively(subPath);
+                dispatch(sub, false, FileState.CREATED);
+            } else if (knownChildren != null && !knownChildren.contains(sub.getName())) {
+                dispatch(sub, false, FileState.CREATED);
+            } else {
+                dispatch(sub, true, FileState.MODIFIED);
+            }
+        }
 
-        File file = path.toFile();
-        if (recursive && file.isDirectory()) {
-            // Go through sub-folders
-            for (File sub : file.listFiles()) {
-                if (sub.isDirectory()) {
-                    registerRecursively(sub.toPath());
+        // The ones that are gone
+        if (knownChildren != null) {
+            for (String name : knownChildren) {
+                if (!currentChildren.contains(name)) {
+                    Path subPath = directoryPath.resolve(name);
+                    unregisterRecursively(subPath);
+                    dispatch(subPath.toFile(), true, FileState.DELETED);
                 }
             }
+        }
+        childrenByDirectory.put(directoryPath, currentChildren);
+    }
 
+    private void scan(BiConsumer<File, FileState> eventConsumer) {
+
+        // Can be closed at any time
+        FileSystemSnapshot snapshot = this.snapshot;
+        ForkJoinPool registrationPool = this.registrationPool;
+        if (closed || snapshot == null || registrationPool == null) {
+            return;
+        }
+
+        long start = System.currentTimeMillis();
+        try {
+            snapshot.scan(registrationPool, eventConsumer);
+        } catch (RejectedExecutionException e) {
+            // Closed while scanning
+            logger.debug("Could not scan {}", basePath, e);
+            return;
         }
+        scanTimeMs.record(System.currentTimeMillis() - start);
+        lastScanEntriesCount = snapshot.getEntriesCount();
+        lastScanListedDirectoriesCount = snapshot.getListedDirectoriesCount();
+    }
+
+    /**
+     * Change the coalescing parameter.
+     *
+     * @param coalescing
+     *            true to summarize the events per path and call the handlers on a separate thread
+     * @return this
+     */
+    public FileSystemUpdateWatcher setCoalescing(boolean coalescing) {
+        this.coalescing = coalescing;
+        return this;
+    }
+
+    /**
+     * Change the maximum amount of paths waiting to be sent to the handlers when coalescing.
+     *
+     * @param maxPendingEvents
+     *            the maximum amount of paths
+     * @return this
+     */
+    public FileSystemUpdateWatcher setMaxPendingEvents(int maxPendingEvents) {
+        this.maxPendingEvents = maxPendingEvents;
+        return this;
+    }
+
+    /**
+     * Change the polling interval. When higher than 0, the tree is scanned at that interval instead of using the events from the system.
+     *
+     * @param pollingIntervalMs
+     *            the interval between the end of a scan and the start of the next one
+     * @return this
+     */
+    public FileSystemUpdateWatcher setPollingIntervalMs(long pollingIntervalMs) {
+        this.pollingIntervalMs = pollingIntervalMs;
+        return this;
     }
 
     /**
@@ -272,4 +593,151 @@ public class FileSystemUpdateWatcher implements Closeable {
         return this;
     }
 
+    /**
+     * Change the amount of threads used to register the directories.
+     *
+     * @param registrationThreads
+     *            the amount of threads
+     * @return this
+     */
+    public FileSystemUpdateWatcher setRegistrationThreads(int registrationThreads) {
+        this.registrationThreads = registrationThreads;
+        return this;
+    }
+
+    /**
+     * Forget a directory that was removed and all its sub-directories.
+     *
+     * @param path
+     *            the path
+     */
+    private void unregisterRecursively(Path path) {
+        Iterator<Entry<WatchKey, Path>> it = pathByKey.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<WatchKey, Path> entry = it.next();
+            if (entry.getValue().startsWith(path)) {
+                entry.getKey().cancel();
+                it.remove();
+            }
+        }
+        registeredPaths.removeIf(registeredPath -> registeredPath.startsWith(path));
+        childrenByDirectory.keySet().removeIf(registeredPath -> registeredPath.startsWith(path));
+    }
+
+    private void startPolling() {
+        thread = new Thread(() -> {
+            ThreadTools.nameThread().setSeparator("-").clear() //
+                    .appendObjectClassSimple(this) //
+                    .appendText("Polling") //
+                    .appendText("Started at") //
+                    .appendDate() //
+                    .appendObjectText("Folder") //
+                    .appendObjectText(basePath).change();
+
+            while (thread == Thread.currentThread()) {
+                try {
+                    Thread.sleep(pollingIntervalMs);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                try {
+                    poll();
+                } catch (Exception e) {
+                    logger.error("Problem while scanning {}", basePath, e);
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void startWatching() {
+
+        // Start the watch thread
+        thread = new Thread(() -> {
+            ThreadTools.nameThread().setSeparator("-").clear() //
+                    .appendObjectClassSimple(this) //
+                    .appendText("Started at") //
+                    .appendDate() //
+                    .appendObjectText("Folder") //
+                    .appendObjectText(basePath).change();
+
+            for (;;) {
+
+                // Wait for the next event
+                WatchKey key;
+                try {
+                    key = fsWatchService.take();
+                } catch (ClosedWatchServiceException e) {
+                    break;
+                } catch (InterruptedException e) {
+                    throw new SmallToolsException(e);
+                }
+
+                Path keyPath = pathByKey.get(key);
+                if (keyPath == null) {
+                    key.cancel();
+                    continue;
+                }
+
+                // Go through all the events
+                boolean overflow = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+
+                    // Check the event
+                    WatchEvent.Kind<?> kind = event.kind();
+                    if (StandardWatchEventKinds.OVERFLOW.equals(kind)) {
+                        overflow = true;
+                        continue;
+                    }
+
+                    // Check the path
+                    @SuppressWarnings("unchecked")
+                    WatchEvent<Path> pathEvent = (WatchEvent<Path>) event;
+                    Path completePath = keyPath.resolve(pathEvent.context());
+                    File completeFile = completePath.toFile();
+
+                    Set<String> knownChildren = childrenByDirectory.get(keyPath);
+                    if (StandardWatchEventKinds.ENTRY_CREATE.equals(kind)) {
+                        if (knownChildren != null) {
+                            knownChildren.add(pathEvent.context().toString());
+                        }
+
+                        // Check if is a directory and we want to register it
+                        if (recursive && Files.isDirectory(completePath, LinkOption.NOFOLLOW_LINKS)) {
+                            registerRecursively(completePath);
+                        }
+
+                        dispatch(completeFile, false, FileState.CREATED);
+                    } else if (StandardWatchEventKinds.ENTRY_MODIFY.equals(kind)) {
+                        dispatch(completeFile, true, FileState.MODIFIED);
+                    } else if (StandardWatchEventKinds.ENTRY_DELETE.equals(kind)) {
+                        if (knownChildren != null) {
+                            knownChildren.remove(pathEvent.context().toString());
+                        }
+                        dispatch(completeFile, true, FileState.DELETED);
+                    }
+
+                }
+
+                // Rescan what was lost
+                if (overflow) {
+                    overflowCount.incrementAndGet();
+                    rescan(keyPath);
+                }
+
+                // Reset
+                if (!key.reset()) {
+                    pathByKey.remove(key);
+                    registeredPaths.remove(keyPath);
+                    childrenByDirectory.remove(keyPath);
+                }
+
+            }
+
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
 }
@@ -0,0 +1,79 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.listscomparator;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A spliterator that computes its items on demand in the caller's thread. When split, it hands a batch of the next items (growing in size at each split) to the other thread, which lets parallel
+ * streams process the items while this one computes the next batch.
+ *
+ * @param <E>
+ *            the type of the items
+ */
+abstract class AbstractBatchedSpliterator<E> implements Spliterator<E> {
+
+    protected static final int BATCH_UNIT = 1 << 10;
+    protected static final int MAX_BATCH = 1 << 25;
+
+    private int batch = 0;
+    private boolean completed = false;
+
+    /**
+     * Compute the next item.
+     *
+     * @return the next item or null if there are no more
+     */
+    protected abstract E computeNext();
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super E> action) {
+        if (completed) {
+            return false;
+        }
+        E next = computeNext();
+        if (next == null) {
+            completed = true;
+            return false;
+        }
+        action.accept(next);
+        return true;
+    }
+
+    @Override
+    public Spliterator<E> trySplit() {
+        if (completed) {
+            return null;
+        }
+
+        int size = Math.min(batch + BATCH_UNIT, MAX_BATCH);
+        Object[] items = new Object[size];
+        int count = 0;
+        E next;
+        while (count < size && (next = computeNext()) != null) {
+            items[count++] = next;
+        }
+        if (count < size) {
+            completed = true;
+        }
+        if (count == 0) {
+            return null;
+        }
+        batch = count;
+        return Spliterators.spliterator(items, 0, count, Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL);
+    }
+
+}
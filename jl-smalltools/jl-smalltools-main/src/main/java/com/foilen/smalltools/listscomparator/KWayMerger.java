@@ -0,0 +1,91 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.listscomparator;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Merges multiple ordered iterators and returns each distinct item once with its presence in each source. Uses a heap of the current head of each source, so each step costs log(k).
+ *
+ * @param <T>
+ *            the type of the items
+ */
+class KWayMerger<T> {
+
+    private List<Iterator<T>> iterators;
+    private Object[] heads;
+    private PriorityQueue<Integer> sourcesByHead;
+    private Comparator<? super T> comparator;
+
+    @SuppressWarnings("unchecked")
+    public KWayMerger(List<Iterator<T>> iterators, Comparator<? super T> comparator) {
+        this.iterators = iterators;
+        this.comparator = comparator;
+        this.heads = new Object[iterators.size()];
+        this.sourcesByHead = new PriorityQueue<>(Math.max(1, iterators.size()), (a, b) -> {
+            int comparison = comparator.compare((T) heads[a], (T) heads[b]);
+            if (comparison == 0) {
+                return Integer.compare(a, b);
+            }
+            return comparison;
+        });
+
+        for (int i = 0; i < heads.length; ++i) {
+            advance(i);
+        }
+    }
+
+    private void advance(int source) {
+        Iterator<T> it = iterators.get(source);
+        if (it.hasNext()) {
+            heads[source] = it.next();
+            sourcesByHead.add(source);
+        } else {
+            heads[source] = null;
+        }
+    }
+
+    /**
+     * Get the next distinct item.
+     *
+     * @return the next item with its presence or null if all the sources are completed
+     */
+    @SuppressWarnings("unchecked")
+    public ListsComparatorPresence<T> next() {
+
+        Integer first = sourcesByHead.poll();
+        if (first == null) {
+            return null;
+        }
+
+        // Take all the sources that have the same head
+        Object[] itemBySource = new Object[heads.length];
+        T lowest = (T) heads[first];
+        itemBySource[first] = lowest;
+        Integer other;
+        while ((other = sourcesByHead.peek()) != null && comparator.compare(lowest, (T) heads[other]) == 0) {
+            sourcesByHead.poll();
+            itemBySource[other] = heads[other];
+        }
+
+        // Advance them
+        for (int i = 0; i < itemBySource.length; ++i) {
+            if (itemBySource[i] != null) {
+                advance(i);
+            }
+        }
+
+        return new ListsComparatorPresence<T>((List<T>) (List<?>) Arrays.asList(itemBySource));
+    }
+
+}
@@ -9,8 +9,10 @@
 package com.foilen.smalltools.listscomparator;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 
@@ -128,6 +130,117 @@ public final class ListsComparator {
         compareLists(lefts, rights, (left, right) -> left.compareTo(right), listComparatorHandler);
     }
 
+    /**
+     * Compare two ordered random access lists for differences as a stream. When the stream is parallel, the lists are split in ranges that are compared in parallel.
+     *
+     * @param lefts
+     *            ordered list
+     * @param rights
+     *            ordered list
+     * @param comparator
+     *            the way to compare the items
+     * @param parallel
+     *            true to get a parallel stream
+     * @param <T>
+     *            the type of the items
+     * @return the differences in order
+     */
+    public static <T> Stream<ListsComparatorDifference<T>> compareListsAsStream(List<T> lefts, List<T> rights, Comparator<? super T> comparator, boolean parallel) {
+        return StreamSupport.stream(new SpliteratorRangeComparatorDifference<>(lefts, rights, comparator), parallel);
+    }
+
+    /**
+     * Compare two ordered random access lists for differences as a stream. When the stream is parallel, the lists are split in ranges that are compared in parallel.
+     *
+     * @param lefts
+     *            ordered list
+     * @param rights
+     *            ordered list
+     * @param parallel
+     *            true to get a parallel stream
+     * @param <T>
+     *            the type of the items
+     * @return the differences in order
+     */
+    public static <T extends Comparable<T>> Stream<ListsComparatorDifference<T>> compareListsAsStream(List<T> lefts, List<T> rights, boolean parallel) {
+        return compareListsAsStream(lefts, rights, Comparator.naturalOrder(), parallel);
+    }
+
+    /**
+     * Compare multiple ordered lists at the same time.
+     *
+     * @param sources
+     *            the ordered lists
+     * @param comparator
+     *            the way to compare the items
+     * @param handler
+     *            called for every distinct item (even the ones present in all the lists)
+     * @param <T>
+     *            the type of the items
+     */
+    public static <T> void compareMultipleLists(List<List<T>> sources, Comparator<? super T> comparator, MultipleListsComparatorHandler<T> handler) {
+        compareMultipleIterators(sources.stream().map(List::iterator).collect(Collectors.toList()), comparator, handler);
+    }
+
+    /**
+     * Compare multiple ordered lists for differences.
+     *
+     * @param sources
+     *            the ordered lists
+     * @param <T>
+     *            the type of the items
+     * @return the items that are not present in all the lists
+     */
+    public static <T extends Comparable<T>> List<ListsComparatorPresence<T>> compareMultipleLists(List<List<T>> sources) {
+        List<ListsComparatorPresence<T>> differences = new ArrayList<>();
+        compareMultipleLists(sources, Comparator.naturalOrder(), presence -> {
+            if (!presence.isPresentInAll()) {
+                differences.add(presence);
+            }
+        });
+        return differences;
+    }
+
+    private static <T> void compareMultipleIterators(List<Iterator<T>> iterators, Comparator<? super T> comparator, MultipleListsComparatorHandler<T> handler) {
+        KWayMerger<T> merger = new KWayMerger<>(iterators, comparator);
+        ListsComparatorPresence<T> presence;
+        while ((presence = merger.next()) != null) {
+            handler.item(presence);
+        }
+    }
+
+    /**
+     * Compare multiple ordered streams at the same time.
+     *
+     * @param sources
+     *            the ordered streams
+     * @param comparator
+     *            the way to compare the items
+     * @param handler
+     *            called for every distinct item (even the ones present in all the streams)
+     * @param <T>
+     *            the type of the items
+     */
+    public static <T> void compareMultipleStreams(List<Stream<T>> sources, Comparator<? super T> comparator, MultipleListsComparatorHandler<T> handler) {
+        compareMultipleIterators(sources.stream().map(Stream::iterator).collect(Collectors.toList()), comparator, handler);
+    }
+
+    /**
+     * Compare multiple ordered streams for differences.
+     *
+     * @param sources
+     *            the ordered streams
+     * @param comparator
+     *            the way to compare the items
+     * @param <T>
+     *            the type of the items
+     * @return the items that are not present in all the streams
+     */
+    public static <T> Stream<ListsComparatorPresence<T>> compareMultipleStreams(List<Stream<T>> sources, Comparator<? super T> comparator) {
+        List<Iterator<T>> iterators = sources.stream().map(Stream::iterator).collect(Collectors.toList());
+        return StreamSupport.stream(new SpliteratorComparatorPresence<>(iterators, comparator), false);
+    }
+
     /**
      * Compare two ordered streams for differences.
      *
@@ -0,0 +1,97 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.listscomparator;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An item found by {@link ListsComparator} when comparing multiple lists with the item of each list that is equal to it (null when that list does not have it).
+ *
+ * @param <T>
+ *            the type of objects being compared
+ */
+public class ListsComparatorPresence<T> {
+
+    private List<T> itemBySource;
+    private int presentCount;
+
+    public ListsComparatorPresence(List<T> itemBySource) {
+        this.itemBySource = Collections.unmodifiableList(itemBySource);
+        for (T item : itemBySource) {
+            if (item != null) {
+                ++presentCount;
+            }
+        }
+    }
+
+    /**
+     * Get the item of a source.
+     *
+     * @param source
+     *            the index of the source
+     * @return the item or null if not present in that source
+     */
+    public T getItem(int source) {
+        return itemBySource.get(source);
+    }
+
+    /**
+     * The item in each source. The position is the index of the source and the value is null when the source does not have that item.
+     *
+     * @return the items
+     */
+    public List<T> getItemBySource() {
+        return itemBySource;
+    }
+
+    /**
+     * The item that was compared. When the sources have different instances, this is the one of the first source that has it.
+     *
+     * @return the item
+     */
+    public T getObject() {
+        for (T item : itemBySource) {
+            if (item != null) {
+                return item;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The amount of sources that have the item.
+     *
+     * @return the count
+     */
+    public int getPresentCount() {
+        return presentCount;
+    }
+
+    /**
+     * Tell if a source has the item.
+     *
+     * @param source
+     *            the index of the source
+     * @return true if present
+     */
+    public boolean isPresent(int source) {
+        return itemBySource.get(source) != null;
+    }
+
+    /**
+     * Tell if all the sources have the item.
+     *
+     * @return true if present everywhere
+     */
+    public boolean isPresentInAll() {
+        return presentCount == itemBySource.size();
+    }
+
+}
@@ -0,0 +1,27 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.listscomparator;
+
+/**
+ * Extend with what to do with each item when comparing multiple lists.
+ *
+ * @param <T>
+ *            type of the items
+ */
+public interface MultipleListsComparatorHandler<T> {
+
+    /**
+     * What to do with an item. It is called once per distinct item in the order of the lists.
+     *
+     * @param presence
+     *            the item and in which lists it is present
+     */
+    void item(ListsComparatorPresence<T> presence);
+
+}
@@ -9,119 +9,76 @@
 package com.foilen.smalltools.listscomparator;
 
 import java.util.Comparator;
+import java.util.Iterator;
 import java.util.Spliterator;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Semaphore;
-import java.util.function.Consumer;
 import java.util.stream.Stream;
 
-import com.foilen.smalltools.exception.SmallToolsException;
-import com.foilen.smalltools.tools.AbstractBasics;
-import com.foilen.smalltools.tools.ExecutorsTools;
-
-public class SpliteratorComparatorDifference<T extends Comparable<T>> extends AbstractBasics implements Spliterator<ListsComparatorDifference<T>>, Runnable {
+/**
+ * Compares two ordered streams and gives the differences. The comparison is done while consuming, so there is no extra thread. When used in a parallel stream, batches of differences are handed to the
+ * other threads.
+ *
+ * @param <T>
+ *            the type of the items
+ */
+public class SpliteratorComparatorDifference<T extends Comparable<T>> extends AbstractBatchedSpliterator<ListsComparatorDifference<T>> {
 
-    private BlockingQueue<ListsComparatorDifference<T>> queue = new ArrayBlockingQueue<>(50);
-    private volatile boolean completed = false;
-    private Semaphore semaphore = new Semaphore(0);
-    private volatile SmallToolsException exception;
+    private Iterator<T> leftIt;
+    private Iterator<T> rightIt;
 
-    private Stream<T> lefts;
-    private Stream<T> rights;
+    private T left;
+    private T right;
 
     public SpliteratorComparatorDifference(Stream<T> lefts, Stream<T> rights) {
-        this.lefts = lefts;
-        this.rights = rights;
-        ExecutorsTools.getCachedDaemonThreadPool().execute(this);
+        this.leftIt = lefts.iterator();
+        this.rightIt = rights.iterator();
+        left = leftIt.hasNext() ? leftIt.next() : null;
+        right = rightIt.hasNext() ? rightIt.next() : null;
     }
 
     @Override
     public int characteristics() {
-        return Spliterator.IMMUTABLE | Spliterator.SORTED;
-    }
-
-    @Override
-    public long estimateSize() {
-        return Long.MAX_VALUE;
-    }
-
-    @Override
-    public Comparator<? super ListsComparatorDifference<T>> getComparator() {
-        return (a, b) -> a.getObject().compareTo(b.getObject());
-    }
-
-    @Override
-    public void run() {
-
-        try {
-            // Get next items until the end
-            ListsComparator.compareStreams(lefts, rights, new ListComparatorHandler<T, T>() {
-                @Override
-                public void both(T left, T right) {
-                }
-
-                @Override
-                public void leftOnly(T left) {
-                    try {
-                        queue.put(new ListsComparatorDifference<T>(left, -1));
-                        semaphore.release();
-                    } catch (InterruptedException e) {
-                        throw new SmallToolsException(e);
-                    }
-                }
-
-                @Override
-                public void rightOnly(T right) {
-                    try {
-                        queue.put(new ListsComparatorDifference<T>(right, 1));
-                        semaphore.release();
-                    } catch (InterruptedException e) {
-                        throw new SmallToolsException(e);
-                    }
-                }
-            });
-
-            completed = true;
-        } catch (SmallToolsException e) {
-            exception = e;
-        } catch (Throwable e) {
-            exception = new SmallToolsException(e);
-        }
-
-        semaphore.release();
-
+        return Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.SORTED;
     }
 
     @Override
-    public boolean tryAdvance(Consumer<? super ListsComparatorDifference<T>> action) {
-        try {
-            semaphore.acquire();
-
-            ListsComparatorDifference<T> difference = queue.poll();
-            if (difference != null) {
-                action.accept(difference);
-                return true;
+    protected ListsComparatorDifference<T> computeNext() {
+        while (left != null || right != null) {
+
+            // If one is null
+            if (left == null) {
+                T item = right;
+                right = rightIt.hasNext() ? rightIt.next() : null;
+                return new ListsComparatorDifference<T>(item, 1);
             }
 
-            if (completed == true) {
-                return false;
+            if (right == null) {
+                T item = left;
+                left = leftIt.hasNext() ? leftIt.next() : null;
+                return new ListsComparatorDifference<T>(item, -1);
             }
 
-            if (exception != null) {
-                throw exception;
+            // Compare both
+            int comparison = left.compareTo(right);
+            if (comparison < 0) {
+                T item = left;
+                left = leftIt.hasNext() ? leftIt.next() : null;
+                return new ListsComparatorDifference<T>(item, -1);
+            } else if (comparison > 0) {
+                T item = right;
+                right = rightIt.hasNext() ? rightIt.next() : null;
+                return new ListsComparatorDifference<T>(item, 1);
+            } else {
+                left = leftIt.hasNext() ? leftIt.next() : null;
+                right = rightIt.hasNext() ? rightIt.next() : null;
             }
-
-        } catch (InterruptedException e) {
-            throw new SmallToolsException(e);
         }
 
-        throw new SmallToolsException("Unexpected state");
+        return null;
     }
 
     @Override
-    public Spliterator<ListsComparatorDifference<T>> trySplit() {
-        return null;
+    public Comparator<? super ListsComparatorDifference<T>> getComparator() {
+        return (a, b) -> a.getObject().compareTo(b.getObject());
     }
 
 }
@@ -0,0 +1,47 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.listscomparator;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+
+/**
+ * Compares multiple ordered iterators and gives the items that are not present in all of them. The comparison is done while consuming, so there is no extra thread. When used in a parallel stream,
+ * batches of items are handed to the other threads.
+ *
+ * @param <T>
+ *            the type of the items
+ */
+class SpliteratorComparatorPresence<T> extends AbstractBatchedSpliterator<ListsComparatorPresence<T>> {
+
+    private KWayMerger<T> merger;
+
+    public SpliteratorComparatorPresence(List<Iterator<T>> iterators, Comparator<? super T> comparator) {
+        this.merger = new KWayMerger<>(iterators, comparator);
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL;
+    }
+
+    @Override
+    protected ListsComparatorPresence<T> computeNext() {
+        ListsComparatorPresence<T> next;
+        while ((next = merger.next()) != null) {
+            if (!next.isPresentInAll()) {
+                return next;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,137 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.listscomparator;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Compares two ordered random access lists and gives the differences. To split, it takes the middle item of the biggest range and finds where it would go in both lists with a binary search, so each
+ * part compares its own ranges without any sharing.
+ *
+ * @param <T>
+ *            the type of the items
+ */
+class SpliteratorRangeComparatorDifference<T> implements Spliterator<ListsComparatorDifference<T>> {
+
+    private static final int MIN_SPLIT_SIZE = 1 << 10;
+
+    private static <T> int lowerBound(List<T> items, int from, int to, T value, Comparator<? super T> comparator) {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            if (comparator.compare(items.get(middle), value) < 0) {
+                from = middle + 1;
+            } else {
+                to = middle;
+            }
+        }
+        return from;
+    }
+
+    private List<T> lefts;
+    private List<T> rights;
+    private Comparator<? super T> comparator;
+
+    private int posLeft;
+    private int endLeft;
+    private int posRight;
+    private int endRight;
+
+    public SpliteratorRangeComparatorDifference(List<T> lefts, List<T> rights, Comparator<? super T> comparator) {
+        this(lefts, 0, lefts.size(), rights, 0, rights.size(), comparator);
+    }
+
+    private SpliteratorRangeComparatorDifference(List<T> lefts, int posLeft, int endLeft, List<T> rights, int posRight, int endRight, Comparator<? super T> comparator) {
+        this.lefts = lefts;
+        this.posLeft = posLeft;
+        this.endLeft = endLeft;
+        this.rights = rights;
+        this.posRight = posRight;
+        this.endRight = endRight;
+        this.comparator = comparator;
+    }
+
+    @Override
+    public int characteristics() {
+        return Spliterator.ORDERED | Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.SORTED;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (long) (endLeft - posLeft) + (endRight - posRight);
+    }
+
+    @Override
+    public Comparator<? super ListsComparatorDifference<T>> getComparator() {
+        return (a, b) -> comparator.compare(a.getObject(), b.getObject());
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ListsComparatorDifference<T>> action) {
+        while (posLeft < endLeft || posRight < endRight) {
+
+            // If one is completed
+            if (posLeft >= endLeft) {
+                action.accept(new ListsComparatorDifference<T>(rights.get(posRight++), 1));
+                return true;
+            }
+            if (posRight >= endRight) {
+                action.accept(new ListsComparatorDifference<T>(lefts.get(posLeft++), -1));
+                return true;
+            }
+
+            // Compare both
+            T left = lefts.get(posLeft);
+            T right = rights.get(posRight);
+            int comparison = comparator.compare(left, right);
+            if (comparison < 0) {
+                ++posLeft;
+                action.accept(new ListsComparatorDifference<T>(left, -1));
+                return true;
+            } else if (comparison > 0) {
+                ++posRight;
+                action.accept(new ListsComparatorDifference<T>(right, 1));
+                return true;
+            } else {
+                ++posLeft;
+                ++posRight;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Spliterator<ListsComparatorDifference<T>> trySplit() {
+        if (estimateSize() < MIN_SPLIT_SIZE) {
+            return null;
+        }
+
+        // Pivot in the middle of the biggest range
+        T pivot;
+        if (endLeft - posLeft >= endRight - posRight) {
+            pivot = lefts.get((posLeft + endLeft) >>> 1);
+        } else {
+            pivot = rights.get((posRight + endRight) >>> 1);
+        }
+        int middleLeft = lowerBound(lefts, posLeft, endLeft, pivot, comparator);
+        int middleRight = lowerBound(rights, posRight, endRight, pivot, comparator);
+        if (middleLeft == posLeft && middleRight == posRight) {
+            return null;
+        }
+
+        // Give the first part
+        SpliteratorRangeComparatorDifference<T> prefix = new SpliteratorRangeComparatorDifference<>(lefts, posLeft, middleLeft, rights, posRight, middleRight, comparator);
+        posLeft = middleLeft;
+        posRight = middleRight;
+        return prefix;
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counter that is cheap to increment from many threads at the same time (it is striped with a {@link LongAdder}).
+ *
+ * Usage:
+ *
+ * <pre>
+ * Counter counter = MetricsRegistry.getDefault().counter("myService.calls");
+ * counter.increment();
+ * </pre>
+ */
+public class Counter {
+
+    private LongAdder value = new LongAdder();
+
+    /**
+     * Add to the counter.
+     *
+     * @param delta
+     *            the amount to add
+     */
+    public void add(long delta) {
+        value.add(delta);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+
+    /**
+     * Add 1 to the counter.
+     */
+    public void increment() {
+        value.increment();
+    }
+
+    /**
+     * Put back the counter to 0. Increments done at the same time might be kept.
+     */
+    public void reset() {
+        value.reset();
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of positive long values with log-linear buckets (like HdrHistogram): each power of 2 is split in 32 buckets, so any recorded value is known with a precision of about 3% while using a
+ * fixed amount of memory. Recording is lock-free and does not allocate.
+ *
+ * Usage:
+ *
+ * <pre>
+ * Histogram histogram = new Histogram();
+ * histogram.record(durationUs);
+ * long p99 = histogram.getValueAtPercentile(99);
+ * </pre>
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKET_COUNT - 1);
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        long lowerBound = (long) (SUB_BUCKET_COUNT + subBucket) << shift;
+        return lowerBound + (1L << shift) - 1;
+    }
+
+    private AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private LongAdder count = new LongAdder();
+    private LongAdder sum = new LongAdder();
+    private AtomicLong max = new AtomicLong();
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the average of the recorded values.
+     *
+     * @return the mean or 0 if nothing was recorded
+     */
+    public double getMean() {
+        long currentCount = count.sum();
+        if (currentCount == 0) {
+            return 0;
+        }
+        return (double) sum.sum() / currentCount;
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Get the value under which the percentage of the recorded values are.
+     *
+     * @param percentile
+     *            the percentile (0 to 100)
+     * @return the value (the upper bound of its bucket) or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            total += counts.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long wanted = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            seen += counts.get(i);
+            if (seen >= wanted) {
+                return Math.min(bucketUpperBound(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Record a value.
+     *
+     * @param value
+     *            the value. Negative values are recorded as 0
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.incrementAndGet(bucketIndex(value));
+        count.increment();
+        sum.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Record the time elapsed since a start time.
+     *
+     * @param startNanoTime
+     *            the start time from {@link System#nanoTime()}
+     */
+    public void recordMicrosSince(long startNanoTime) {
+        record((System.nanoTime() - startNanoTime) / 1000);
+    }
+
+    /**
+     * Remove all the recorded values. Values recorded at the same time might be partially kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+}
@@ -0,0 +1,111 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.metrics;
+
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.foilen.smalltools.tools.JsonTools;
+
+/**
+ * Export the current values of a {@link MetricsRegistry} as text or JSON.
+ *
+ * Usage:
+ *
+ * <pre>
+ * System.out.println(MetricsExporter.toText(MetricsRegistry.getDefault()));
+ * </pre>
+ *
+ * Text output (one metric per line, sorted by name):
+ *
+ * <pre>
+ * consoleRunner.executions 12
+ * consoleRunner.executionUs count=12 mean=5321.5 p50=5119 p90=8703 p99=9215 max=9300
+ * executor.myPool.active 2
+ * </pre>
+ */
+public class MetricsExporter {
+
+    /**
+     * Get all the metrics as maps. The values of the histograms are maps with "count", "mean", "p50", "p90", "p99" and "max".
+     *
+     * @param registry
+     *            the registry
+     * @return the value by name for "counters", "gauges" and "histograms"
+     */
+    public static SortedMap<String, SortedMap<String, Object>> toMap(MetricsRegistry registry) {
+        SortedMap<String, SortedMap<String, Object>> result = new TreeMap<>();
+
+        SortedMap<String, Object> counters = new TreeMap<>();
+        registry.getCounters().forEach((name, counter) -> counters.put(name, counter.get()));
+        result.put("counters", counters);
+
+        result.put("gauges", new TreeMap<>(registry.getGaugeValues()));
+
+        SortedMap<String, Object> histograms = new TreeMap<>();
+        registry.getHistograms().forEach((name, histogram) -> {
+            SortedMap<String, Object> values = new TreeMap<>();
+            values.put("count", histogram.getCount());
+            values.put("mean", histogram.getMean());
+            values.put("p50", histogram.getValueAtPercentile(50));
+            values.put("p90", histogram.getValueAtPercentile(90));
+            values.put("p99", histogram.getValueAtPercentile(99));
+            values.put("max", histogram.getMax());
+            histograms.put(name, values);
+        });
+        result.put("histograms", histograms);
+
+        return result;
+    }
+
+    /**
+     * Get all the metrics as a JSON object (see {@link #toMap(MetricsRegistry)}).
+     *
+     * @param registry
+     *            the registry
+     * @return the JSON
+     */
+    public static String toJson(MetricsRegistry registry) {
+        return JsonTools.prettyPrint(toMap(registry));
+    }
+
+    /**
+     * Get all the metrics as text with one metric per line sorted by name.
+     *
+     * @param registry
+     *            the registry
+     * @return the text
+     */
+    public static String toText(MetricsRegistry registry) {
+        SortedMap<String, String> lines = new TreeMap<>();
+        registry.getCounters().forEach((name, counter) -> lines.put(name, String.valueOf(counter.get())));
+        registry.getGaugeValues().forEach((name, value) -> lines.put(name, String.valueOf(value)));
+        registry.getHistograms().forEach((name, histogram) -> {
+            lines.put(name, String.format(Locale.US, "count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d", //
+                    histogram.getCount(), //
+                    histogram.getMean(), //
+                    histogram.getValueAtPercentile(50), //
+                    histogram.getValueAtPercentile(90), //
+                    histogram.getValueAtPercentile(99), //
+                    histogram.getMax()));
+        });
+
+        StringBuilder text = new StringBuilder();
+        for (Entry<String, String> line : lines.entrySet()) {
+            text.append(line.getKey()).append(' ').append(line.getValue()).append('\n');
+        }
+        return text.toString();
+    }
+
+    private MetricsExporter() {
+    }
+
+}
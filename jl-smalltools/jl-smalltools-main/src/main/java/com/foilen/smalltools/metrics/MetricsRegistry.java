@@ -0,0 +1,122 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+
+/**
+ * A place to register named metrics. The names are usually dotted (e.g. "executor.myPool.active").
+ *
+ * Usage:
+ *
+ * <pre>
+ * MetricsRegistry registry = MetricsRegistry.getDefault();
+ * registry.counter("myService.calls").increment();
+ * registry.histogram("myService.callUs").record(durationUs);
+ * registry.gauge("myService.queueSize", () -&gt; queue.size());
+ * </pre>
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry defaultRegistry = new MetricsRegistry();
+
+    /**
+     * Get the shared registry.
+     *
+     * @return the shared registry
+     */
+    public static MetricsRegistry getDefault() {
+        return defaultRegistry;
+    }
+
+    private Map<String, Counter> counterByName = new ConcurrentHashMap<>();
+    private Map<String, Histogram> histogramByName = new ConcurrentHashMap<>();
+    private Map<String, LongSupplier> gaugeByName = new ConcurrentHashMap<>();
+
+    /**
+     * Get or create a counter.
+     *
+     * @param name
+     *            the name
+     * @return the counter
+     */
+    public Counter counter(String name) {
+        return counterByName.computeIfAbsent(name, k -> new Counter());
+    }
+
+    /**
+     * Register a gauge. It replaces any gauge with the same name.
+     *
+     * @param name
+     *            the name
+     * @param gauge
+     *            the way to get the current value
+     */
+    public void gauge(String name, LongSupplier gauge) {
+        gaugeByName.put(name, gauge);
+    }
+
+    /**
+     * Get all the counters.
+     *
+     * @return the counter by name
+     */
+    public SortedMap<String, Counter> getCounters() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(counterByName));
+    }
+
+    /**
+     * Get the current value of all the gauges.
+     *
+     * @return the value by name
+     */
+    public SortedMap<String, Long> getGaugeValues() {
+        SortedMap<String, Long> values = new TreeMap<>();
+        gaugeByName.forEach((name, gauge) -> values.put(name, gauge.getAsLong()));
+        return values;
+    }
+
+    /**
+     * Get all the histograms.
+     *
+     * @return the histogram by name
+     */
+    public SortedMap<String, Histogram> getHistograms() {
+        return Collections.unmodifiableSortedMap(new TreeMap<>(histogramByName));
+    }
+
+    /**
+     * Get or create a histogram.
+     *
+     * @param name
+     *            the name
+     * @return the histogram
+     */
+    public Histogram histogram(String name) {
+        return histogramByName.computeIfAbsent(name, k -> new Histogram());
+    }
+
+    /**
+     * Remove all the metrics that start with the prefix.
+     *
+     * @param prefix
+     *            the prefix of the names
+     */
+    public void removeAll(String prefix) {
+        counterByName.keySet().removeIf(name -> name.startsWith(prefix));
+        histogramByName.keySet().removeIf(name -> name.startsWith(prefix));
+        gaugeByName.keySet().removeIf(name -> name.startsWith(prefix));
+    }
+
+}
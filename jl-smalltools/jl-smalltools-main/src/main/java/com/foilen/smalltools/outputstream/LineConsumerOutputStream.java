@@ -0,0 +1,96 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.outputstream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.function.Consumer;
+
+import com.foilen.smalltools.tools.AssertTools;
+
+/**
+ * An {@link OutputStream} that splits what is written to it in lines and gives each of them to a consumer as soon as they are complete. The last line is given when closing if it does not end with
+ * a new line. The "\r" before the "\n" is removed.
+ *
+ * Usage:
+ *
+ * <pre>
+ * OutputStream out = new LineConsumerOutputStream(line -&gt; System.out.println("Got: " + line));
+ * </pre>
+ */
+public class LineConsumerOutputStream extends OutputStream {
+
+    private Consumer<String> lineConsumer;
+    private Charset charset;
+
+    private ByteArrayOutputStream currentLine = new ByteArrayOutputStream();
+
+    /**
+     * The constructor using the default charset.
+     *
+     * @param lineConsumer
+     *            the consumer of each line (without the new line)
+     */
+    public LineConsumerOutputStream(Consumer<String> lineConsumer) {
+        this(lineConsumer, Charset.defaultCharset());
+    }
+
+    /**
+     * The constructor.
+     *
+     * @param lineConsumer
+     *            the consumer of each line (without the new line)
+     * @param charset
+     *            the charset to use
+     */
+    public LineConsumerOutputStream(Consumer<String> lineConsumer, Charset charset) {
+        AssertTools.assertNotNull(lineConsumer, "The line consumer cannot be null");
+        AssertTools.assertNotNull(charset, "The charset cannot be null");
+        this.lineConsumer = lineConsumer;
+        this.charset = charset;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (currentLine.size() > 0) {
+            sendLine();
+        }
+    }
+
+    private void sendLine() {
+        byte[] bytes = currentLine.toByteArray();
+        int len = bytes.length;
+        if (len > 0 && bytes[len - 1] == '\r') {
+            --len;
+        }
+        currentLine.reset();
+        lineConsumer.accept(new String(bytes, 0, len, charset));
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int off, int len) {
+        int end = off + len;
+        int lineStart = off;
+        for (int i = off; i < end; ++i) {
+            if (bytes[i] == '\n') {
+                currentLine.write(bytes, lineStart, i - lineStart);
+                sendLine();
+                lineStart = i + 1;
+            }
+        }
+        currentLine.write(bytes, lineStart, end - lineStart);
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+}
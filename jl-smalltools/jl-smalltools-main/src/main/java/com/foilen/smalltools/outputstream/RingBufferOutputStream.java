@@ -0,0 +1,131 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.outputstream;
+
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+
+import com.foilen.smalltools.tools.AssertTools;
+
+/**
+ * An {@link OutputStream} that only keeps the last bytes written to it. Useful to capture the output of a process without keeping everything in memory.
+ *
+ * Usage:
+ *
+ * <pre>
+ * RingBufferOutputStream out = new RingBufferOutputStream(1024 * 1024);
+ * // Write to it
+ * String lastMegabyte = out.toString();
+ * long droppedBytes = out.getDroppedBytes();
+ * </pre>
+ */
+public class RingBufferOutputStream extends OutputStream {
+
+    private byte[] buffer;
+    private int start;
+    private int length;
+    private long droppedBytes;
+
+    /**
+     * The constructor.
+     *
+     * @param capacity
+     *            the maximum amount of bytes to keep
+     */
+    public RingBufferOutputStream(int capacity) {
+        AssertTools.assertTrue(capacity > 0, "The capacity must be positive");
+        this.buffer = new byte[capacity];
+    }
+
+    public int getCapacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Get the amount of bytes that were written, but are not kept anymore.
+     *
+     * @return the amount of bytes
+     */
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    /**
+     * Get the amount of bytes that are kept.
+     *
+     * @return the amount of bytes
+     */
+    public synchronized int size() {
+        return length;
+    }
+
+    /**
+     * Get a copy of the kept bytes.
+     *
+     * @return the bytes
+     */
+    public synchronized byte[] toByteArray() {
+        byte[] result = new byte[length];
+        int firstPart = Math.min(length, buffer.length - start);
+        System.arraycopy(buffer, start, result, 0, firstPart);
+        System.arraycopy(buffer, 0, result, firstPart, length - firstPart);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return new String(toByteArray(), Charset.defaultCharset());
+    }
+
+    /**
+     * Get the kept bytes as a String.
+     *
+     * @param charset
+     *            the charset to use
+     * @return the String
+     */
+    public String toString(Charset charset) {
+        return new String(toByteArray(), charset);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int off, int len) {
+        int capacity = buffer.length;
+
+        // Only the end can be kept
+        if (len > capacity) {
+            droppedBytes += length + len - capacity;
+            off += len - capacity;
+            len = capacity;
+            start = 0;
+            length = 0;
+        }
+
+        // Free some space
+        int overflow = length + len - capacity;
+        if (overflow > 0) {
+            start = (start + overflow) % capacity;
+            length -= overflow;
+            droppedBytes += overflow;
+        }
+
+        // Copy in at most 2 parts
+        int end = (start + length) % capacity;
+        int firstPart = Math.min(len, capacity - end);
+        System.arraycopy(bytes, off, buffer, end, firstPart);
+        System.arraycopy(bytes, off + firstPart, buffer, 0, len - firstPart);
+        length += len;
+    }
+
+    @Override
+    public void write(int b) {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+}
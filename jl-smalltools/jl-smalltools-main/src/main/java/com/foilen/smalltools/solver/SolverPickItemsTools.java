@@ -8,11 +8,19 @@
  */
 package com.foilen.smalltools.solver;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
 
 /**
  * It is a generic tool that, given a list of items, will try all the possible combination of picking a subset of them and will return these solutions. You can use it with a small list of items that
@@ -50,6 +58,15 @@ import java.util.function.Function;
  *
  * </pre>
  *
+ * For bigger lists of items, the search tree can be split across the workers of a {@link ForkJoinPool}:
+ * <ul>
+ * <li>{@link #solveParallel(Function)}: all the solutions in the same order as {@link #solve(Function)}.</li>
+ * <li>{@link #solveFirst(Function)}: stops as soon as a solution is found.</li>
+ * <li>{@link #solveBest(Function, ToDoubleFunction, ToDoubleFunction)}: branch-and-bound search of the solution with the highest score.</li>
+ * </ul>
+ *
+ * The possibility given to the solver function is reused while exploring, so it must be copied if it is kept. The amount of possibilities checked by the last search is available with
+ * {@link #getLastNodesExplored()} and {@link #getLastNodesPerSecond()}.
  *
  * @param <T>
  *            item type
@@ -57,8 +74,203 @@ import java.util.function.Function;
  */
 public class SolverPickItemsTools<T> {
 
+    /**
+     * The current possibility of a worker backed by an array that is reused while exploring.
+     */
+    private static class Possibility<T> extends AbstractList<T> implements RandomAccess {
+
+        private Object[] elements = new Object[16];
+        private int size;
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public T get(int index) {
+            if (index >= size) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            }
+            return (T) elements[index];
+        }
+
+        public void pop() {
+            elements[--size] = null;
+        }
+
+        public void push(T item) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, size * 2);
+            }
+            elements[size++] = item;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+    }
+
+    /**
+     * The state shared by all the workers of one search.
+     */
+    private class Search {
+
+        private Function<List<T>, SolveState> solver;
+        private int splitDepth;
+        private boolean stopOnFirst;
+        private ToDoubleFunction<List<T>> score;
+        private ToDoubleFunction<List<T>> upperBound;
+
+        private AtomicBoolean stopped = new AtomicBoolean();
+        private LongAdder nodesExplored = new LongAdder();
+        private volatile double bestScore = Double.NEGATIVE_INFINITY;
+        private List<T> bestSolution;
+
+        private Search(Function<List<T>, SolveState> solver, int splitDepth) {
+            this.solver = solver;
+            this.splitDepth = splitDepth;
+        }
+
+        /**
+         * Explore all the possibilities that start with the current possibility.
+         *
+         * @param positions
+         *            the positions of the items in the current possibility
+         * @param possibility
+         *            the current possibility
+         * @param results
+         *            where to add the solutions and the forked tasks (in the order of the exploration)
+         */
+        private void explore(int[] positions, Possibility<T> possibility, List<Object> results) {
+
+            int depth = possibility.size();
+            int nextPos = 0;
+            if (depth > 0) {
+                nextPos = positions[depth - 1];
+                if (!canReuse) {
+                    ++nextPos;
+                }
+            }
+
+            for (; nextPos < items.size() && !stopped.get(); ++nextPos) {
+                possibility.push(items.get(nextPos));
+                nodesExplored.increment();
+
+                switch (solver.apply(possibility)) {
+                case NO_ADDMORE:
+                    if (upperBound != null && upperBound.applyAsDouble(possibility) <= bestScore) {
+                        break;
+                    }
+                    if (depth >= positions.length - 1) {
+                        positions = Arrays.copyOf(positions, positions.length * 2);
+                    }
+                    positions[depth] = nextPos;
+                    if (depth < splitDepth) {
+                        SearchTask task = new SearchTask(this, Arrays.copyOf(positions, depth + 1));
+                        task.fork();
+                        results.add(task);
+                    } else {
+                        explore(positions, possibility, results);
+                    }
+                    break;
+                case NO_WONTBE:
+                    break;
+                case YES:
+                    found(possibility, results);
+                    break;
+                }
+
+                possibility.pop();
+            }
+
+        }
+
+        private void found(Possibility<T> possibility, List<Object> results) {
+
+            List<T> solution = new ArrayList<>(possibility);
+
+            // Best
+            if (score != null) {
+                double solutionScore = score.applyAsDouble(solution);
+                synchronized (this) {
+                    if (bestSolution == null || solutionScore > bestScore) {
+                        bestScore = solutionScore;
+                        bestSolution = solution;
+                    }
+                }
+                return;
+            }
+
+            results.add(solution);
+            if (stopOnFirst) {
+                stopped.set(true);
+            }
+        }
+
+        private List<List<T>> run(ForkJoinPool pool) {
+            long startNs = System.nanoTime();
+            try {
+                SearchTask task = new SearchTask(this, new int[0]);
+                if (pool == null) {
+                    return task.compute();
+                }
+                return pool.invoke(task);
+            } finally {
+                lastNodesExplored = nodesExplored.sum();
+                lastDurationNs = System.nanoTime() - startNs;
+            }
+        }
+
+    }
+
+    /**
+     * Explore all the possibilities that start with a prefix.
+     */
+    private class SearchTask extends RecursiveTask<List<List<T>>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private Search search;
+        private int[] prefixPositions;
+
+        private SearchTask(Search search, int[] prefixPositions) {
+            this.search = search;
+            this.prefixPositions = prefixPositions;
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        protected List<List<T>> compute() {
+
+            int[] positions = Arrays.copyOf(prefixPositions, Math.max(16, prefixPositions.length * 2));
+            Possibility<T> possibility = new Possibility<>();
+            for (int position : prefixPositions) {
+                possibility.push(items.get(position));
+            }
+
+            List<Object> results = new ArrayList<>();
+            search.explore(positions, possibility, results);
+
+            // Join the forked tasks in order
+            List<List<T>> solutions = new ArrayList<>();
+            for (Object result : results) {
+                if (result instanceof ForkJoinTask) {
+                    solutions.addAll(((SearchTask) result).join());
+                } else {
+                    solutions.add((List<T>) result);
+                }
+            }
+            return solutions;
+        }
+
+    }
+
     private List<T> items;
     private boolean canReuse = true;
+    private ForkJoinPool forkJoinPool = ForkJoinPool.commonPool();
+    private int splitDepth = 2;
+
+    private volatile long lastNodesExplored;
+    private volatile long lastDurationNs;
 
     /**
      * Provide the list of items.
@@ -70,39 +282,43 @@ public class SolverPickItemsTools<T> {
         this.items = items;
     }
 
-    @SuppressWarnings("unchecked")
-    private void addOneAndCheck(List<List<T>> results, Function<List<T>, SolveState> solver, Deque<Integer> positions, Deque<T> possibility) {
+    public ForkJoinPool getForkJoinPool() {
+        return forkJoinPool;
+    }
 
-        int nextPos = 0;
-        if (!positions.isEmpty()) {
-            nextPos = positions.peekLast();
-            if (!canReuse) {
-                ++nextPos;
-                if (nextPos >= items.size()) {
-                    return;
-                }
-            }
-        }
+    /**
+     * Get how long the last search took.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getLastDurationMs() {
+        return lastDurationNs / 1000000;
+    }
 
-        for (; nextPos < items.size(); ++nextPos) {
-            possibility.add(items.get(nextPos));
-
-            switch (solver.apply((List<T>) possibility)) {
-            case NO_ADDMORE:
-                positions.add(nextPos);
-                addOneAndCheck(results, solver, positions, possibility);
-                positions.removeLast();
-                break;
-            case NO_WONTBE:
-                break;
-            case YES:
-                results.add(new ArrayList<>(possibility));
-                break;
-            }
+    /**
+     * Get the amount of possibilities that were given to the solver function during the last search.
+     *
+     * @return the amount of nodes
+     */
+    public long getLastNodesExplored() {
+        return lastNodesExplored;
+    }
 
-            possibility.removeLast();
+    /**
+     * Get the speed of the last search.
+     *
+     * @return the amount of possibilities given to the solver function per second
+     */
+    public double getLastNodesPerSecond() {
+        long durationNs = lastDurationNs;
+        if (durationNs == 0) {
+            return 0;
         }
+        return lastNodesExplored * 1000000000.0 / durationNs;
+    }
 
+    public int getSplitDepth() {
+        return splitDepth;
     }
 
     /**
@@ -124,6 +340,26 @@ public class SolverPickItemsTools<T> {
         this.canReuse = canReuse;
     }
 
+    /**
+     * Choose the pool used by the parallel searches.
+     *
+     * @param forkJoinPool
+     *            the pool (default: {@link ForkJoinPool#commonPool()})
+     */
+    public void setForkJoinPool(ForkJoinPool forkJoinPool) {
+        this.forkJoinPool = forkJoinPool;
+    }
+
+    /**
+     * Choose how deep the search tree is split in tasks for the parallel searches. Each possibility that has less items than this depth is explored in its own task.
+     *
+     * @param splitDepth
+     *            the depth (default: 2)
+     */
+    public void setSplitDepth(int splitDepth) {
+        this.splitDepth = splitDepth;
+    }
+
     /**
      * Try all the possibilities and ask the solver if it is good, if it should go deeper or if it should give up that path.
      *
@@ -132,11 +368,52 @@ public class SolverPickItemsTools<T> {
      * @return the list of solutions
      */
     public List<List<T>> solve(Function<List<T>, SolveState> solver) {
-        List<List<T>> results = new ArrayList<>();
-        Deque<Integer> positions = new LinkedList<>();
-        Deque<T> possibility = new LinkedList<>();
-        addOneAndCheck(results, solver, positions, possibility);
-        return results;
+        return new Search(solver, 0).run(null);
+    }
+
+    /**
+     * Search the solution with the highest score in parallel. It is a branch-and-bound search: when the solver says to add more items and the upper bound of the possibility is not better than the
+     * best solution found so far, that path is not explored.
+     *
+     * @param solver
+     *            the solver (must be thread-safe)
+     * @param score
+     *            the score of a solution (must be thread-safe)
+     * @param upperBound
+     *            (optional) the highest score that a solution starting with the possibility can have (must be thread-safe)
+     * @return the solution with the highest score if any
+     */
+    public Optional<List<T>> solveBest(Function<List<T>, SolveState> solver, ToDoubleFunction<List<T>> score, ToDoubleFunction<List<T>> upperBound) {
+        Search search = new Search(solver, splitDepth);
+        search.score = score;
+        search.upperBound = upperBound;
+        search.run(forkJoinPool);
+        return Optional.ofNullable(search.bestSolution);
+    }
+
+    /**
+     * Search in parallel and stop as soon as a solution is found. When multiple workers find one at the same time, any of them can be returned.
+     *
+     * @param solver
+     *            the solver (must be thread-safe)
+     * @return a solution if any
+     */
+    public Optional<List<T>> solveFirst(Function<List<T>, SolveState> solver) {
+        Search search = new Search(solver, splitDepth);
+        search.stopOnFirst = true;
+        List<List<T>> solutions = search.run(forkJoinPool);
+        return solutions.stream().findFirst();
+    }
+
+    /**
+     * Try all the possibilities in parallel. The solutions are in the same order as {@link #solve(Function)}.
+     *
+     * @param solver
+     *            the solver (must be thread-safe)
+     * @return the list of solutions
+     */
+    public List<List<T>> solveParallel(Function<List<T>, SolveState> solver) {
+        return new Search(solver, splitDepth).run(forkJoinPool);
     }
 
 }
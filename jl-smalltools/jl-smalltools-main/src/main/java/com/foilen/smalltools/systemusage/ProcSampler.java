@@ -0,0 +1,789 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.systemusage;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.tools.CloseableTools;
+
+/**
+ * To sample the usage of the machine and of the current process by using the files in /proc and to compute the rates between 2 samples. It can be called often (e.g. 10 times per second) since the
+ * files stay opened, are read in reused buffers and are parsed without creating Strings. Only a new network interface or disk creates objects.
+ *
+ * The files that do not exist (e.g. /proc/diskstats in some containers) are skipped. This class is not thread-safe.
+ *
+ * Usage:
+ *
+ * <pre>
+ * ProcSampler procSampler = new ProcSampler();
+ * while (true) {
+ *     procSampler.sample();
+ *     System.out.println(procSampler.getCpuBusyPercent() + "% " + procSampler.getNetworkInBytesPerSecond() + " B/s");
+ *     Thread.sleep(100);
+ * }
+ * </pre>
+ */
+public class ProcSampler implements Closeable {
+
+    /**
+     * The usage of one disk from /proc/diskstats.
+     */
+    public static class DiskSample {
+
+        private String name;
+        private byte[] nameBytes;
+        private boolean seen;
+        private boolean hasPrevious;
+
+        private long reads;
+        private long readSectors;
+        private long writes;
+        private long writtenSectors;
+        private long ioTimeMs;
+
+        private double readsPerSecond;
+        private double readBytesPerSecond;
+        private double writesPerSecond;
+        private double writtenBytesPerSecond;
+        private double busyPercent;
+
+        /**
+         * Get the time the disk was busy during the last interval.
+         *
+         * @return the percentage (0 to 100)
+         */
+        public double getBusyPercent() {
+            return busyPercent;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public double getReadBytesPerSecond() {
+            return readBytesPerSecond;
+        }
+
+        public long getReads() {
+            return reads;
+        }
+
+        public double getReadsPerSecond() {
+            return readsPerSecond;
+        }
+
+        public long getWrites() {
+            return writes;
+        }
+
+        public double getWritesPerSecond() {
+            return writesPerSecond;
+        }
+
+        public double getWrittenBytesPerSecond() {
+            return writtenBytesPerSecond;
+        }
+
+    }
+
+    /**
+     * The usage of one network interface from /proc/net/dev.
+     */
+    public static class NetworkInterfaceSample {
+
+        private String name;
+        private byte[] nameBytes;
+        private boolean seen;
+        private boolean hasPrevious;
+
+        private long inBytes;
+        private long inPackets;
+        private long outBytes;
+        private long outPackets;
+
+        private double inBytesPerSecond;
+        private double inPacketsPerSecond;
+        private double outBytesPerSecond;
+        private double outPacketsPerSecond;
+
+        public long getInBytes() {
+            return inBytes;
+        }
+
+        public double getInBytesPerSecond() {
+            return inBytesPerSecond;
+        }
+
+        public long getInPackets() {
+            return inPackets;
+        }
+
+        public double getInPacketsPerSecond() {
+            return inPacketsPerSecond;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getOutBytes() {
+            return outBytes;
+        }
+
+        public double getOutBytesPerSecond() {
+            return outBytesPerSecond;
+        }
+
+        public long getOutPackets() {
+            return outPackets;
+        }
+
+        public double getOutPacketsPerSecond() {
+            return outPacketsPerSecond;
+        }
+
+    }
+
+    /**
+     * A file that is read again at each sample with a cursor to parse it.
+     */
+    private static class ProcFile {
+
+        private File file;
+        private RandomAccessFile randomAccessFile;
+        private boolean missing;
+
+        private byte[] buffer = new byte[4096];
+        private int length;
+        private int position;
+
+        public ProcFile(File file) {
+            this.file = file;
+        }
+
+        public void close() {
+            CloseableTools.close(randomAccessFile);
+            randomAccessFile = null;
+        }
+
+        public boolean hasMore() {
+            return position < length;
+        }
+
+        public boolean isSpace() {
+            byte b = buffer[position];
+            return b == ' ' || b == '\t';
+        }
+
+        public boolean lineStartsWith(byte[] prefix) {
+            if (position + prefix.length > length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; ++i) {
+                if (buffer[position + i] != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Read the whole file again.
+         *
+         * @return false if the file does not exist
+         */
+        public boolean load() {
+            if (missing) {
+                return false;
+            }
+            try {
+                if (randomAccessFile == null) {
+                    if (!file.exists()) {
+                        missing = true;
+                        return false;
+                    }
+                    randomAccessFile = new RandomAccessFile(file, "r");
+                }
+
+                // The content of the /proc files is generated at each read from the start
+                randomAccessFile.seek(0);
+                length = 0;
+                position = 0;
+                int len;
+                while ((len = randomAccessFile.read(buffer, length, buffer.length - length)) > 0) {
+                    length += len;
+                    if (length == buffer.length) {
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new SmallToolsException("Problem reading " + file, e);
+            }
+        }
+
+        public void nextLine() {
+            while (position < length && buffer[position++] != '\n') {
+            }
+        }
+
+        public long nextLong() {
+            skipSpaces();
+            long value = 0;
+            while (position < length) {
+                int digit = buffer[position] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                value = value * 10 + digit;
+                ++position;
+            }
+            return value;
+        }
+
+        public void skip(int count) {
+            position += count;
+        }
+
+        public void skipSpaces() {
+            while (position < length && isSpace()) {
+                ++position;
+            }
+        }
+
+        public void skipTokens(int count) {
+            for (int i = 0; i < count; ++i) {
+                skipSpaces();
+                while (position < length && !isSpace() && buffer[position] != '\n') {
+                    ++position;
+                }
+            }
+        }
+
+        public byte[] tokenBytes(int tokenLength) {
+            return Arrays.copyOfRange(buffer, position, position + tokenLength);
+        }
+
+        public boolean tokenEquals(byte[] bytes, int tokenLength) {
+            if (bytes.length != tokenLength) {
+                return false;
+            }
+            for (int i = 0; i < tokenLength; ++i) {
+                if (buffer[position + i] != bytes[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Get the length of the token at the current position.
+         *
+         * @param separator
+         *            another character that ends the token
+         * @return the length
+         */
+        public int tokenLength(char separator) {
+            int end = position;
+            while (end < length) {
+                byte b = buffer[end];
+                if (b == ' ' || b == '\t' || b == '\n' || b == separator) {
+                    break;
+                }
+                ++end;
+            }
+            return end - position;
+        }
+
+    }
+
+    private static final byte[] STAT_CPU = "cpu ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STAT_CTXT = "ctxt ".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEMINFO_MEM_TOTAL = "MemTotal:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEMINFO_MEM_AVAILABLE = "MemAvailable:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEMINFO_SWAP_TOTAL = "SwapTotal:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] MEMINFO_SWAP_FREE = "SwapFree:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LOOPBACK = "lo".getBytes(StandardCharsets.US_ASCII);
+
+    private static final int SECTOR_SIZE = 512;
+
+    private static double percent(long part, long total) {
+        if (total <= 0 || part < 0) {
+            return 0;
+        }
+        return part * 100d / total;
+    }
+
+    private static double rate(long current, long previous, double elapsedSeconds) {
+        // A counter that went down was reset
+        if (elapsedSeconds <= 0 || current < previous) {
+            return 0;
+        }
+        return (current - previous) / elapsedSeconds;
+    }
+
+    private ProcFile statFile;
+    private ProcFile meminfoFile;
+    private ProcFile netDevFile;
+    private ProcFile selfStatFile;
+    private ProcFile diskstatsFile;
+
+    private long clockTicksPerSecond = 100;
+    private long pageSize = 4096;
+
+    private long lastSampleNs;
+    private double elapsedSeconds;
+
+    // /proc/stat
+    private long cpuTotal;
+    private long cpuIdle;
+    private long cpuIowait;
+    private long contextSwitches;
+    private double cpuBusyPercent;
+    private double cpuIowaitPercent;
+    private double contextSwitchesPerSecond;
+
+    // /proc/meminfo
+    private long memoryTotalBytes;
+    private long memoryAvailableBytes;
+    private long swapTotalBytes;
+    private long swapFreeBytes;
+
+    // /proc/self/stat
+    private long processCpuTicks;
+    private long processThreads;
+    private long processRssBytes;
+    private double processCpuPercent;
+
+    // /proc/net/dev
+    private List<NetworkInterfaceSample> networkInterfaces = new ArrayList<>();
+    private double networkInBytesPerSecond;
+    private double networkOutBytesPerSecond;
+
+    // /proc/diskstats
+    private List<DiskSample> disks = new ArrayList<>();
+
+    /**
+     * Use /proc .
+     */
+    public ProcSampler() {
+        this("/proc");
+    }
+
+    /**
+     * Use another directory with the same files as /proc .
+     *
+     * @param procPath
+     *            the path to the proc directory
+     */
+    public ProcSampler(String procPath) {
+        statFile = new ProcFile(new File(procPath, "stat"));
+        meminfoFile = new ProcFile(new File(procPath, "meminfo"));
+        netDevFile = new ProcFile(new File(procPath, "net/dev"));
+        selfStatFile = new ProcFile(new File(procPath, "self/stat"));
+        diskstatsFile = new ProcFile(new File(procPath, "diskstats"));
+    }
+
+    @Override
+    public void close() {
+        statFile.close();
+        meminfoFile.close();
+        netDevFile.close();
+        selfStatFile.close();
+        diskstatsFile.close();
+    }
+
+    public long getClockTicksPerSecond() {
+        return clockTicksPerSecond;
+    }
+
+    /**
+     * Get the amount of context switches per second on the machine.
+     *
+     * @return the rate
+     */
+    public double getContextSwitchesPerSecond() {
+        return contextSwitchesPerSecond;
+    }
+
+    /**
+     * Get the CPU usage of the machine (all the CPUs together) since the previous sample.
+     *
+     * @return the percentage (0 to 100)
+     */
+    public double getCpuBusyPercent() {
+        return cpuBusyPercent;
+    }
+
+    /**
+     * Get the time the CPUs were waiting for IO since the previous sample.
+     *
+     * @return the percentage (0 to 100)
+     */
+    public double getCpuIowaitPercent() {
+        return cpuIowaitPercent;
+    }
+
+    /**
+     * Get the disks. The list and its items are reused by the next samples.
+     *
+     * @return the disks
+     */
+    public List<DiskSample> getDisks() {
+        return disks;
+    }
+
+    /**
+     * Get the time between the last 2 samples.
+     *
+     * @return the seconds or 0 if there was only one sample
+     */
+    public double getElapsedSeconds() {
+        return elapsedSeconds;
+    }
+
+    public long getMemoryAvailableBytes() {
+        return memoryAvailableBytes;
+    }
+
+    public long getMemoryTotalBytes() {
+        return memoryTotalBytes;
+    }
+
+    /**
+     * Get the received bytes per second of all the network interfaces, but the loopback.
+     *
+     * @return the rate
+     */
+    public double getNetworkInBytesPerSecond() {
+        return networkInBytesPerSecond;
+    }
+
+    /**
+     * Get the network interfaces. The list and its items are reused by the next samples.
+     *
+     * @return the network interfaces
+     */
+    public List<NetworkInterfaceSample> getNetworkInterfaces() {
+        return networkInterfaces;
+    }
+
+    /**
+     * Get the sent bytes per second of all the network interfaces, but the loopback.
+     *
+     * @return the rate
+     */
+    public double getNetworkOutBytesPerSecond() {
+        return networkOutBytesPerSecond;
+    }
+
+    public long getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Get the CPU usage of the current process since the previous sample.
+     *
+     * @return the percentage of one CPU (can go up to 100 times the amount of CPUs)
+     */
+    public double getProcessCpuPercent() {
+        return processCpuPercent;
+    }
+
+    public long getProcessRssBytes() {
+        return processRssBytes;
+    }
+
+    public long getProcessThreads() {
+        return processThreads;
+    }
+
+    public long getSwapFreeBytes() {
+        return swapFreeBytes;
+    }
+
+    public long getSwapTotalBytes() {
+        return swapTotalBytes;
+    }
+
+    /**
+     * Read all the files and compute the rates since the previous sample.
+     */
+    public void sample() {
+        sample(System.nanoTime());
+    }
+
+    protected void sample(long nowNs) {
+        elapsedSeconds = lastSampleNs == 0 ? 0 : (nowNs - lastSampleNs) / 1000000000d;
+        lastSampleNs = nowNs;
+
+        if (statFile.load()) {
+            sampleStat();
+        }
+        if (meminfoFile.load()) {
+            sampleMeminfo();
+        }
+        if (selfStatFile.load()) {
+            sampleSelfStat();
+        }
+        if (netDevFile.load()) {
+            sampleNetDev();
+        }
+        if (diskstatsFile.load()) {
+            sampleDiskstats();
+        }
+    }
+
+    private void sampleDiskstats() {
+        ProcFile file = diskstatsFile;
+        for (int i = 0; i < disks.size(); ++i) {
+            disks.get(i).seen = false;
+        }
+
+        while (file.hasMore()) {
+            // major minor name
+            file.skipTokens(2);
+            file.skipSpaces();
+            int nameLength = file.tokenLength(' ');
+            if (nameLength == 0) {
+                file.nextLine();
+                continue;
+            }
+            DiskSample disk = null;
+            for (int i = 0; i < disks.size(); ++i) {
+                if (file.tokenEquals(disks.get(i).nameBytes, nameLength)) {
+                    disk = disks.get(i);
+                    break;
+                }
+            }
+            if (disk == null) {
+                disk = new DiskSample();
+                disk.nameBytes = file.tokenBytes(nameLength);
+                disk.name = new String(disk.nameBytes, StandardCharsets.US_ASCII);
+                disks.add(disk);
+            }
+            disk.seen = true;
+            file.skip(nameLength);
+
+            long reads = file.nextLong();
+            file.skipTokens(1);
+            long readSectors = file.nextLong();
+            file.skipTokens(1);
+            long writes = file.nextLong();
+            file.skipTokens(1);
+            long writtenSectors = file.nextLong();
+            file.skipTokens(2);
+            long ioTimeMs = file.nextLong();
+            file.nextLine();
+
+            if (disk.hasPrevious) {
+                disk.readsPerSecond = rate(reads, disk.reads, elapsedSeconds);
+                disk.readBytesPerSecond = rate(readSectors, disk.readSectors, elapsedSeconds) * SECTOR_SIZE;
+                disk.writesPerSecond = rate(writes, disk.writes, elapsedSeconds);
+                disk.writtenBytesPerSecond = rate(writtenSectors, disk.writtenSectors, elapsedSeconds) * SECTOR_SIZE;
+                disk.busyPercent = Math.min(100, rate(ioTimeMs, disk.ioTimeMs, elapsedSeconds) / 10);
+            }
+            disk.reads = reads;
+            disk.readSectors = readSectors;
+            disk.writes = writes;
+            disk.writtenSectors = writtenSectors;
+            disk.ioTimeMs = ioTimeMs;
+            disk.hasPrevious = true;
+        }
+
+        for (int i = disks.size() - 1; i >= 0; --i) {
+            if (!disks.get(i).seen) {
+                disks.remove(i);
+            }
+        }
+    }
+
+    private void sampleMeminfo() {
+        ProcFile file = meminfoFile;
+        while (file.hasMore()) {
+            // The values are in KiB even if the unit is "kB"
+            if (file.lineStartsWith(MEMINFO_MEM_TOTAL)) {
+                file.skip(MEMINFO_MEM_TOTAL.length);
+                memoryTotalBytes = file.nextLong() * 1024;
+            } else if (file.lineStartsWith(MEMINFO_MEM_AVAILABLE)) {
+                file.skip(MEMINFO_MEM_AVAILABLE.length);
+                memoryAvailableBytes = file.nextLong() * 1024;
+            } else if (file.lineStartsWith(MEMINFO_SWAP_TOTAL)) {
+                file.skip(MEMINFO_SWAP_TOTAL.length);
+                swapTotalBytes = file.nextLong() * 1024;
+            } else if (file.lineStartsWith(MEMINFO_SWAP_FREE)) {
+                file.skip(MEMINFO_SWAP_FREE.length);
+                swapFreeBytes = file.nextLong() * 1024;
+            }
+            file.nextLine();
+        }
+    }
+
+    private void sampleNetDev() {
+        ProcFile file = netDevFile;
+        for (int i = 0; i < networkInterfaces.size(); ++i) {
+            networkInterfaces.get(i).seen = false;
+        }
+
+        // Skip 2 headers lines
+        file.nextLine();
+        file.nextLine();
+
+        double totalInBytesPerSecond = 0;
+        double totalOutBytesPerSecond = 0;
+        while (file.hasMore()) {
+            file.skipSpaces();
+            int nameLength = file.tokenLength(':');
+            if (nameLength == 0) {
+                file.nextLine();
+                continue;
+            }
+            NetworkInterfaceSample networkInterface = null;
+            for (int i = 0; i < networkInterfaces.size(); ++i) {
+                if (file.tokenEquals(networkInterfaces.get(i).nameBytes, nameLength)) {
+                    networkInterface = networkInterfaces.get(i);
+                    break;
+                }
+            }
+            if (networkInterface == null) {
+                networkInterface = new NetworkInterfaceSample();
+                networkInterface.nameBytes = file.tokenBytes(nameLength);
+                networkInterface.name = new String(networkInterface.nameBytes, StandardCharsets.US_ASCII);
+                networkInterfaces.add(networkInterface);
+            }
+            networkInterface.seen = true;
+            file.skip(nameLength + 1);
+
+            long inBytes = file.nextLong();
+            long inPackets = file.nextLong();
+            file.skipTokens(6);
+            long outBytes = file.nextLong();
+            long outPackets = file.nextLong();
+            file.nextLine();
+
+            if (networkInterface.hasPrevious) {
+                networkInterface.inBytesPerSecond = rate(inBytes, networkInterface.inBytes, elapsedSeconds);
+                networkInterface.inPacketsPerSecond = rate(inPackets, networkInterface.inPackets, elapsedSeconds);
+                networkInterface.outBytesPerSecond = rate(outBytes, networkInterface.outBytes, elapsedSeconds);
+                networkInterface.outPacketsPerSecond = rate(outPackets, networkInterface.outPackets, elapsedSeconds);
+                if (!Arrays.equals(LOOPBACK, networkInterface.nameBytes)) {
+                    totalInBytesPerSecond += networkInterface.inBytesPerSecond;
+                    totalOutBytesPerSecond += networkInterface.outBytesPerSecond;
+                }
+            }
+            networkInterface.inBytes = inBytes;
+            networkInterface.inPackets = inPackets;
+            networkInterface.outBytes = outBytes;
+            networkInterface.outPackets = outPackets;
+            networkInterface.hasPrevious = true;
+        }
+        networkInBytesPerSecond = totalInBytesPerSecond;
+        networkOutBytesPerSecond = totalOutBytesPerSecond;
+
+        for (int i = networkInterfaces.size() - 1; i >= 0; --i) {
+            if (!networkInterfaces.get(i).seen) {
+                networkInterfaces.remove(i);
+            }
+        }
+    }
+
+    private void sampleSelfStat() {
+        ProcFile file = selfStatFile;
+
+        // The command name can contain spaces and parenthesis, so start after the last ')'
+        int end = file.length - 1;
+        while (end >= 0 && file.buffer[end] != ')') {
+            --end;
+        }
+        if (end < 0) {
+            return;
+        }
+        file.position = end + 1;
+
+        // From the field 3 (state) to utime (14), stime (15), num_threads (20) and rss (24)
+        file.skipTokens(11);
+        long cpuTicks = file.nextLong();
+        cpuTicks += file.nextLong();
+        file.skipTokens(4);
+        processThreads = file.nextLong();
+        file.skipTokens(3);
+        processRssBytes = file.nextLong() * pageSize;
+
+        if (elapsedSeconds > 0) {
+            processCpuPercent = rate(cpuTicks, processCpuTicks, elapsedSeconds) * 100 / clockTicksPerSecond;
+        }
+        processCpuTicks = cpuTicks;
+    }
+
+    private void sampleStat() {
+        ProcFile file = statFile;
+        while (file.hasMore()) {
+            if (file.lineStartsWith(STAT_CPU)) {
+                file.skip(STAT_CPU.length);
+                long user = file.nextLong();
+                long nice = file.nextLong();
+                long system = file.nextLong();
+                long idle = file.nextLong();
+                long iowait = file.nextLong();
+                long irq = file.nextLong();
+                long softirq = file.nextLong();
+                long steal = file.nextLong();
+                long total = user + nice + system + idle + iowait + irq + softirq + steal;
+
+                if (elapsedSeconds > 0) {
+                    long deltaTotal = total - cpuTotal;
+                    cpuBusyPercent = percent(deltaTotal - (idle - cpuIdle) - (iowait - cpuIowait), deltaTotal);
+                    cpuIowaitPercent = percent(iowait - cpuIowait, deltaTotal);
+                }
+                cpuTotal = total;
+                cpuIdle = idle;
+                cpuIowait = iowait;
+            } else if (file.lineStartsWith(STAT_CTXT)) {
+                file.skip(STAT_CTXT.length);
+                long value = file.nextLong();
+                contextSwitchesPerSecond = rate(value, contextSwitches, elapsedSeconds);
+                contextSwitches = value;
+            }
+            file.nextLine();
+        }
+    }
+
+    /**
+     * Set the value of USER_HZ used in /proc/self/stat . Default 100 (the value on most systems)
+     *
+     * @param clockTicksPerSecond
+     *            the ticks per second
+     * @return this
+     */
+    public ProcSampler setClockTicksPerSecond(long clockTicksPerSecond) {
+        this.clockTicksPerSecond = clockTicksPerSecond;
+        return this;
+    }
+
+    /**
+     * Set the size of a memory page used in /proc/self/stat . Default 4096
+     *
+     * @param pageSize
+     *            the size in bytes
+     * @return this
+     */
+    public ProcSampler setPageSize(long pageSize) {
+        this.pageSize = pageSize;
+        return this;
+    }
+
+}
@@ -0,0 +1,338 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.timer;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.foilen.smalltools.tools.AssertTools;
+import com.foilen.smalltools.tools.ExecutorsTools;
+
+/**
+ * A hierarchical timing wheel (like the Linux kernel timers) driven by a single timer thread. Scheduling and cancelling are O(1), so it can handle hundreds of thousands of timeouts per second.
+ *
+ * <ul>
+ * <li>The first wheel has 256 slots of one tick each. The next 4 wheels have 64 slots each covering a full turn of the previous wheel. Timeouts are moved to a lower wheel when their slot is
+ * reached.</li>
+ * <li>The precision is one tick (10 ms by default).</li>
+ * <li>New timeouts and cancellations are put in queues that the timer thread applies at each tick, so the callers never take a lock.</li>
+ * <li>When there are no timeouts, the timer thread sleeps until the next one is scheduled.</li>
+ * <li>The expired tasks are executed on the task executor to keep the timer thread free. If the executor rejects a task, it is executed by the timer thread and any exception it throws is
+ * logged.</li>
+ * </ul>
+ *
+ * Usage:
+ *
+ * <pre>
+ * TimingWheel.Timeout timeout = TimingWheel.getDefault().schedule(() -&gt; System.out.println("Too slow"), 5000);
+ * // ... when done in time
+ * timeout.cancel();
+ * </pre>
+ */
+public class TimingWheel {
+
+    /**
+     * A scheduled task.
+     */
+    public static class Timeout {
+
+        private static final int STATE_PENDING = 0;
+        private static final int STATE_CANCELLED = 1;
+        private static final int STATE_EXPIRED = 2;
+
+        private TimingWheel timingWheel;
+        private Runnable task;
+        private long deadlineTick;
+        private AtomicInteger state = new AtomicInteger(STATE_PENDING);
+
+        // Managed by the timer thread
+        private Timeout prev;
+        private Timeout next;
+        private Timeout bucket;
+
+        private Timeout(TimingWheel timingWheel, Runnable task, long deadlineTick) {
+            this.timingWheel = timingWheel;
+            this.task = task;
+            this.deadlineTick = deadlineTick;
+        }
+
+        /**
+         * Cancel the task if it was not executed yet.
+         *
+         * @return true if cancelled ; false if it was already cancelled or executed
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+                return false;
+            }
+            timingWheel.cancelled.add(this);
+            timingWheel.pendingCount.decrementAndGet();
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == STATE_EXPIRED;
+        }
+
+    }
+
+    private static final int ROOT_BITS = 8;
+    private static final int ROOT_SIZE = 1 << ROOT_BITS;
+    private static final int ROOT_MASK = ROOT_SIZE - 1;
+    private static final int LEVEL_BITS = 6;
+    private static final int LEVEL_SIZE = 1 << LEVEL_BITS;
+    private static final int LEVEL_MASK = LEVEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA_TICKS = (1L << (ROOT_BITS + LEVELS * LEVEL_BITS)) - 1;
+
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheel.class);
+
+    private static final TimingWheel defaultTimingWheel = new TimingWheel("TimingWheel", 10, ExecutorsTools.getCachedDaemonThreadPool());
+
+    /**
+     * Get the shared timing wheel with a tick of 10 ms that executes the tasks on {@link ExecutorsTools#getCachedDaemonThreadPool()}.
+     *
+     * @return the shared timing wheel
+     */
+    public static TimingWheel getDefault() {
+        return defaultTimingWheel;
+    }
+
+    private static Timeout[] newBuckets(int size) {
+        Timeout[] buckets = new Timeout[size];
+        for (int i = 0; i < size; ++i) {
+            Timeout head = new Timeout(null, null, 0);
+            head.prev = head;
+            head.next = head;
+            buckets[i] = head;
+        }
+        return buckets;
+    }
+
+    private long tickNanos;
+    private long startNanos;
+    private Executor taskExecutor;
+    private Thread thread;
+    private volatile boolean running = true;
+
+    private Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private Queue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private AtomicLong pendingCount = new AtomicLong();
+
+    // Managed by the timer thread
+    private Timeout[] rootBuckets = newBuckets(ROOT_SIZE);
+    private Timeout[][] levelBuckets = new Timeout[LEVELS][];
+    private long nextTick;
+    private long inWheelCount;
+
+    /**
+     * Create a timing wheel with its own timer thread.
+     *
+     * @param name
+     *            the name of the timer thread
+     * @param tickMs
+     *            the precision
+     * @param taskExecutor
+     *            where to execute the expired tasks
+     */
+    public TimingWheel(String name, long tickMs, Executor taskExecutor) {
+        AssertTools.assertTrue(tickMs > 0, "The tick must be at least 1 ms");
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.taskExecutor = taskExecutor;
+        for (int i = 0; i < LEVELS; ++i) {
+            levelBuckets[i] = newBuckets(LEVEL_SIZE);
+        }
+
+        startNanos = System.nanoTime();
+        thread = new Thread(this::runTimer, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void add(Timeout timeout) {
+
+        long deadlineTick = Math.max(timeout.deadlineTick, nextTick);
+        long delta = Math.min(deadlineTick - nextTick, MAX_DELTA_TICKS);
+        long placementTick = nextTick + delta;
+
+        Timeout head;
+        if (delta < ROOT_SIZE) {
+            head = rootBuckets[(int) (placementTick & ROOT_MASK)];
+        } else {
+            int level = 0;
+            int shift = ROOT_BITS;
+            while (delta >= 1L << (shift + LEVEL_BITS)) {
+                ++level;
+                shift += LEVEL_BITS;
+            }
+            head = levelBuckets[level][(int) ((placementTick >>> shift) & LEVEL_MASK)];
+        }
+
+        timeout.bucket = head;
+        timeout.prev = head.prev;
+        timeout.next = head;
+        head.prev.next = timeout;
+        head.prev = timeout;
+        ++inWheelCount;
+    }
+
+    private void applyQueues() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.state.get() == Timeout.STATE_PENDING) {
+                add(timeout);
+            }
+        }
+        while ((timeout = cancelled.poll()) != null) {
+            if (timeout.bucket != null) {
+                unlink(timeout);
+            }
+        }
+    }
+
+    /**
+     * Move all the timeouts of a slot to the lower wheels.
+     *
+     * @return the index of the slot
+     */
+    private int cascade(int level) {
+        int index = (int) ((nextTick >>> (ROOT_BITS + level * LEVEL_BITS)) & LEVEL_MASK);
+        Timeout head = levelBuckets[level][index];
+        while (head.next != head) {
+            Timeout timeout = head.next;
+            unlink(timeout);
+            add(timeout);
+        }
+        return index;
+    }
+
+    private long currentTick() {
+        return (System.nanoTime() - startNanos) / tickNanos;
+    }
+
+    private void expire(Timeout head) {
+        while (head.next != head) {
+            Timeout timeout = head.next;
+            unlink(timeout);
+            if (timeout.deadlineTick > nextTick) {
+                // Was capped to the maximum delay
+                add(timeout);
+                continue;
+            }
+            if (timeout.state.compareAndSet(Timeout.STATE_PENDING, Timeout.STATE_EXPIRED)) {
+                pendingCount.decrementAndGet();
+                try {
+                    taskExecutor.execute(timeout.task);
+                } catch (RejectedExecutionException e) {
+                    try {
+                        timeout.task.run();
+                    } catch (Throwable t) {
+                        logger.error("Problem executing the expired task", t);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the amount of tasks waiting for their time.
+     *
+     * @return the amount of tasks
+     */
+    public long getPendingCount() {
+        return pendingCount.get();
+    }
+
+    private void runTimer() {
+        while (running) {
+
+            applyQueues();
+
+            // Nothing to do
+            if (inWheelCount == 0 && added.isEmpty()) {
+                if (pendingCount.get() == 0) {
+                    LockSupport.park(this);
+                }
+                nextTick = currentTick();
+                continue;
+            }
+
+            // Process all the passed ticks
+            long currentTick = currentTick();
+            while (nextTick <= currentTick) {
+                applyQueues();
+                int index = (int) (nextTick & ROOT_MASK);
+                if (index == 0) {
+                    for (int level = 0; level < LEVELS && cascade(level) == 0; ++level) {
+                    }
+                }
+                expire(rootBuckets[index]);
+                ++nextTick;
+            }
+
+            // Wait for the next tick
+            long sleepNanos = startNanos + nextTick * tickNanos - System.nanoTime();
+            if (sleepNanos > 0) {
+                LockSupport.parkNanos(this, sleepNanos);
+            }
+        }
+    }
+
+    /**
+     * Execute the task after the delay unless it is cancelled.
+     *
+     * @param task
+     *            the task
+     * @param delayMs
+     *            the delay in milliseconds
+     * @return the timeout to cancel it
+     */
+    public Timeout schedule(Runnable task, long delayMs) {
+        AssertTools.assertTrue(running, "The timing wheel is shut down");
+        long deadlineNanos = System.nanoTime() - startNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMs));
+        long deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        Timeout timeout = new Timeout(this, task, deadlineTick);
+        added.add(timeout);
+        if (pendingCount.getAndIncrement() == 0) {
+            LockSupport.unpark(thread);
+        }
+        return timeout;
+    }
+
+    /**
+     * Stop the timer thread. The pending tasks are never executed.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(thread);
+    }
+
+    private void unlink(Timeout timeout) {
+        timeout.prev.next = timeout.next;
+        timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = null;
+        --inWheelCount;
+    }
+
+}
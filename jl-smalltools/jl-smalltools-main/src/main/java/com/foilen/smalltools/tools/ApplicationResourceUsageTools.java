@@ -8,12 +8,21 @@
  */
 package com.foilen.smalltools.tools;
 
+import java.io.File;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 
 import com.foilen.smalltools.systemusage.MemoryUsage;
+import com.foilen.smalltools.tuple.Tuple3;
 
 /**
  * This class displays in the logs some information about the application usage of the resources.
@@ -30,6 +39,17 @@ import com.foilen.smalltools.systemusage.MemoryUsage;
  *         .start();
  * </pre>
  *
+ * To know who is using the resources instead of getting all the stack traces:
+ *
+ * <pre>
+ * new ApplicationResourceUsageTools() //
+ *         .setShowThreadStackstrace(false) //
+ *         .setShowHotThreads(true) // The threads using the most CPU and allocating the most since the previous output
+ *         .setShowGc(true) // The GC pauses and safepoints since the previous output
+ *         .setStackProfilerFile("/tmp/app.collapsed") // Sample the stacks and write them for FlameGraph at each output
+ *         .start();
+ * </pre>
+ *
  * <pre>
  * Dependencies:
  * compile 'org.apache.commons:commons-lang3:3.6'
@@ -45,7 +65,9 @@ public class ApplicationResourceUsageTools extends AbstractBasics implements Run
                 .setShowJvmMemory(true) //
                 .setShowSystemMemory(true) //
                 .setShowThreadCount(true) //
-                .setShowThreadStackstrace(true) //
+                .setShowThreadStackstrace(false) //
+                .setShowHotThreads(true) //
+                .setShowGc(true) //
                 .start();
 
         // Use more and more memory
@@ -62,11 +84,79 @@ public class ApplicationResourceUsageTools extends AbstractBasics implements Run
     private boolean showSystemMemory = true;
     private boolean showThreadCount = true;
     private boolean showThreadStackstrace = true;
+    private boolean showHotThreads = false;
+    private int hotThreadsCount = 10;
+    private boolean showGc = false;
+    private String stackProfilerFile;
+    private long stackProfilerIntervalMs = 20;
+
+    private StackSamplingProfiler stackProfiler;
+
+    // The values at the previous output
+    private long lastOutputTime;
+    private Map<Long, Long> cpuTimeNsByThreadId = new HashMap<>();
+    private Map<Long, Long> allocatedBytesByThreadId = new HashMap<>();
+    private Map<String, long[]> countAndTimeByGcName = new HashMap<>();
+    private long[] safepointCountAndTimes = new long[3];
+
+    // Safepoints are only available using the internal API
+    private boolean safepointsUnavailable;
+    private Object hotspotRuntimeMBean;
+    private Method safepointCountMethod;
+    private Method safepointTimeMethod;
+    private Method safepointSyncTimeMethod;
 
     public long getDelayBetweenOutputInMs() {
         return delayBetweenOutputInMs;
     }
 
+    public int getHotThreadsCount() {
+        return hotThreadsCount;
+    }
+
+    public String getStackProfilerFile() {
+        return stackProfilerFile;
+    }
+
+    public long getStackProfilerIntervalMs() {
+        return stackProfilerIntervalMs;
+    }
+
+    private String humanBytes(long bytes) {
+        if (bytes < 0) {
+            return "N/A";
+        }
+        return SpaceConverterTools.convertToBiggestBUnit(bytes);
+    }
+
+    private boolean initSafepoints() {
+        if (safepointsUnavailable) {
+            return false;
+        }
+        if (hotspotRuntimeMBean == null) {
+            try {
+                hotspotRuntimeMBean = Class.forName("sun.management.ManagementFactoryHelper").getMethod("getHotspotRuntimeMBean").invoke(null);
+                Class<?> hotspotRuntimeMBeanClass = Class.forName("sun.management.HotspotRuntimeMBean");
+                safepointCountMethod = hotspotRuntimeMBeanClass.getMethod("getSafepointCount");
+                safepointTimeMethod = hotspotRuntimeMBeanClass.getMethod("getTotalSafepointTime");
+                safepointSyncTimeMethod = hotspotRuntimeMBeanClass.getMethod("getSafepointSyncTime");
+            } catch (Throwable e) {
+                logger.info("The safepoints statistics are not available on this JVM: {}", e.getMessage());
+                safepointsUnavailable = true;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean isShowGc() {
+        return showGc;
+    }
+
+    public boolean isShowHotThreads() {
+        return showHotThreads;
+    }
+
     public boolean isShowJvmMemory() {
         return showJvmMemory;
     }
@@ -83,6 +173,101 @@ public class ApplicationResourceUsageTools extends AbstractBasics implements Run
         return showThreadStackstrace;
     }
 
+    private void outputGc(long elapsedMs) throws Exception {
+        for (GarbageCollectorMXBean garbageCollectorMXBean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            long count = garbageCollectorMXBean.getCollectionCount();
+            long timeMs = garbageCollectorMXBean.getCollectionTime();
+            long[] previous = countAndTimeByGcName.put(garbageCollectorMXBean.getName(), new long[] { count, timeMs });
+            if (previous == null) {
+                previous = new long[2];
+            }
+            long deltaCount = count - previous[0];
+            long deltaTimeMs = timeMs - previous[1];
+            logger.info("GC {}: collections: {} ; time: {} ms ({}% of the time) ; average pause: {} ms", garbageCollectorMXBean.getName(), deltaCount, deltaTimeMs, percent(deltaTimeMs, elapsedMs),
+                    deltaCount == 0 ? 0 : deltaTimeMs / deltaCount);
+        }
+
+        if (initSafepoints()) {
+            long count = (Long) safepointCountMethod.invoke(hotspotRuntimeMBean);
+            long timeMs = (Long) safepointTimeMethod.invoke(hotspotRuntimeMBean);
+            long syncTimeMs = (Long) safepointSyncTimeMethod.invoke(hotspotRuntimeMBean);
+            long deltaTimeMs = timeMs - safepointCountAndTimes[1];
+            logger.info("Safepoints: count: {} ; time: {} ms ({}% of the time) ; time to reach them: {} ms", count - safepointCountAndTimes[0], deltaTimeMs, percent(deltaTimeMs, elapsedMs),
+                    syncTimeMs - safepointCountAndTimes[2]);
+            safepointCountAndTimes = new long[] { count, timeMs, syncTimeMs };
+        }
+    }
+
+    private void outputHotThreads(long elapsedMs) {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        long[] threadIds = threadMXBean.getAllThreadIds();
+
+        // Get the counters of all the threads at once when possible
+        long[] cpuTimesNs;
+        long[] allocatedBytes;
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sunThreadMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (sunThreadMXBean.isThreadAllocatedMemorySupported() && !sunThreadMXBean.isThreadAllocatedMemoryEnabled()) {
+                sunThreadMXBean.setThreadAllocatedMemoryEnabled(true);
+            }
+            cpuTimesNs = sunThreadMXBean.getThreadCpuTime(threadIds);
+            allocatedBytes = sunThreadMXBean.getThreadAllocatedBytes(threadIds);
+        } else {
+            cpuTimesNs = new long[threadIds.length];
+            allocatedBytes = new long[threadIds.length];
+            for (int i = 0; i < threadIds.length; ++i) {
+                cpuTimesNs[i] = threadMXBean.getThreadCpuTime(threadIds[i]);
+                allocatedBytes[i] = -1;
+            }
+        }
+        ThreadInfo[] threadInfos = threadMXBean.getThreadInfo(threadIds);
+
+        // Compute the deltas
+        List<Tuple3<String, Long, Long>> nameCpuAllocations = new ArrayList<>();
+        Map<Long, Long> nextCpuTimeNsByThreadId = new HashMap<>();
+        Map<Long, Long> nextAllocatedBytesByThreadId = new HashMap<>();
+        for (int i = 0; i < threadIds.length; ++i) {
+            if (threadInfos[i] == null) {
+                continue;
+            }
+            long threadId = threadIds[i];
+            long cpuDeltaNs = cpuTimesNs[i] - cpuTimeNsByThreadId.getOrDefault(threadId, 0L);
+            long allocatedDelta = allocatedBytes[i] - allocatedBytesByThreadId.getOrDefault(threadId, 0L);
+            nextCpuTimeNsByThreadId.put(threadId, cpuTimesNs[i]);
+            nextAllocatedBytesByThreadId.put(threadId, allocatedBytes[i]);
+            nameCpuAllocations.add(new Tuple3<>(threadInfos[i].getThreadName(), cpuDeltaNs, allocatedDelta));
+        }
+        cpuTimeNsByThreadId = nextCpuTimeNsByThreadId;
+        allocatedBytesByThreadId = nextAllocatedBytesByThreadId;
+
+        // Top by CPU
+        nameCpuAllocations.sort(Comparator.comparing((Tuple3<String, Long, Long> it) -> it.getB()).reversed());
+        int max = Math.min(hotThreadsCount, nameCpuAllocations.size());
+        for (int i = 0; i < max; ++i) {
+            Tuple3<String, Long, Long> nameCpuAllocation = nameCpuAllocations.get(i);
+            long cpuMs = nameCpuAllocation.getB() / 1000000;
+            logger.info("Hot thread by CPU {}/{}: {} ; cpu: {} ms ({}% of one CPU) ; allocated: {}", i + 1, max, nameCpuAllocation.getA(), cpuMs, percent(cpuMs, elapsedMs),
+                    humanBytes(nameCpuAllocation.getC()));
+        }
+
+        // Top by allocations
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            nameCpuAllocations.sort(Comparator.comparing((Tuple3<String, Long, Long> it) -> it.getC()).reversed());
+            for (int i = 0; i < max; ++i) {
+                Tuple3<String, Long, Long> nameCpuAllocation = nameCpuAllocations.get(i);
+                logger.info("Hot thread by allocations {}/{}: {} ; allocated: {} ; cpu: {} ms", i + 1, max, nameCpuAllocation.getA(), humanBytes(nameCpuAllocation.getC()),
+                        nameCpuAllocation.getB() / 1000000);
+            }
+        }
+    }
+
+    private long percent(long part, long total) {
+        if (total <= 0) {
+            return 0;
+        }
+        return part * 100 / total;
+    }
+
     @Override
     public void run() {
 
@@ -153,6 +338,22 @@ public class ApplicationResourceUsageTools extends AbstractBasics implements Run
                     }
                 }
 
+                // The deltas since the previous output (or the start of the JVM for the first one)
+                long elapsedMs = lastOutputTime == 0 ? ManagementFactory.getRuntimeMXBean().getUptime() : lastCheckedTime - lastOutputTime;
+                lastOutputTime = lastCheckedTime;
+                if (showHotThreads) {
+                    outputHotThreads(elapsedMs);
+                }
+                if (showGc) {
+                    outputGc(elapsedMs);
+                }
+
+                // Stacks
+                if (stackProfiler != null) {
+                    stackProfiler.writeCollapsedStacks(new File(stackProfilerFile));
+                    logger.info("Collapsed stacks written to {} ({} samples)", stackProfilerFile, stackProfiler.getSamplesCount());
+                }
+
             } catch (Exception e) {
                 logger.error("Problem outputting the resource usage", e);
             }
@@ -164,6 +365,42 @@ public class ApplicationResourceUsageTools extends AbstractBasics implements Run
         return this;
     }
 
+    /**
+     * Set how many threads to show when {@link #setShowHotThreads(boolean)} is enabled. Default 10
+     *
+     * @param hotThreadsCount
+     *            the amount of threads
+     * @return this
+     */
+    public ApplicationResourceUsageTools setHotThreadsCount(int hotThreadsCount) {
+        this.hotThreadsCount = hotThreadsCount;
+        return this;
+    }
+
+    /**
+     * Show the amount and time of the garbage collections and of the safepoints since the previous output. Default false
+     *
+     * @param showGc
+     *            true to show
+     * @return this
+     */
+    public ApplicationResourceUsageTools setShowGc(boolean showGc) {
+        this.showGc = showGc;
+        return this;
+    }
+
+    /**
+     * Show the threads that used the most CPU and that allocated the most memory since the previous output. Default false
+     *
+     * @param showHotThreads
+     *            true to show
+     * @return this
+     */
+    public ApplicationResourceUsageTools setShowHotThreads(boolean showHotThreads) {
+        this.showHotThreads = showHotThreads;
+        return this;
+    }
+
     public ApplicationResourceUsageTools setShowJvmMemory(boolean showJvmMemory) {
         this.showJvmMemory = showJvmMemory;
         return this;
@@ -184,10 +421,40 @@ public class ApplicationResourceUsageTools extends AbstractBasics implements Run
         return this;
     }
 
+    /**
+     * Sample the stacks of the running threads with a {@link StackSamplingProfiler} and write them at each output in the collapsed stacks format (for FlameGraph). The file contains all the samples
+     * since the start. Default null (no profiling)
+     *
+     * @param stackProfilerFile
+     *            the file to write
+     * @return this
+     */
+    public ApplicationResourceUsageTools setStackProfilerFile(String stackProfilerFile) {
+        this.stackProfilerFile = stackProfilerFile;
+        return this;
+    }
+
+    /**
+     * Set the time between 2 samples of the stacks. Default 20 ms
+     *
+     * @param stackProfilerIntervalMs
+     *            the interval in milliseconds
+     * @return this
+     */
+    public ApplicationResourceUsageTools setStackProfilerIntervalMs(long stackProfilerIntervalMs) {
+        this.stackProfilerIntervalMs = stackProfilerIntervalMs;
+        return this;
+    }
+
     /**
      * Start logging at the fixed rate.
      */
     public ApplicationResourceUsageTools start() {
+        if (stackProfilerFile != null) {
+            stackProfiler = new StackSamplingProfiler() //
+                    .setIntervalMs(stackProfilerIntervalMs) //
+                    .start();
+        }
         ExecutorsTools.getCachedDaemonThreadPool().submit(this);
         return this;
     }
@@ -0,0 +1,584 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.LongStream;
+
+import com.foilen.smalltools.tools.SearchingAvailabilityIntTools.CheckAvailabilityInt;
+import com.foilen.smalltools.tools.SearchingAvailabilityLongTools.CheckAvailabilityLong;
+
+/**
+ * An in-memory allocator of values in a range (e.g. ports or uids) that keeps the used values in a compressed bitmap. It is an alternative to {@link SearchingAvailabilityTools} when the used values
+ * can be loaded once instead of asking the backing store on each search.
+ *
+ * Features:
+ * <ul>
+ * <li>The range is split in chunks of 65536 values (like a Roaring bitmap). Each chunk stores its used values in the most compact way: nothing when empty or full, a sorted array when there are up to
+ * 4096 used values and a bitmap otherwise.</li>
+ * <li>Each chunk has its own lock, so threads working in different chunks do not block each other.</li>
+ * <li>Keeps track of the last chunk and value found to continue from there (and loops once if the end is reached).</li>
+ * <li>Can be seeded with the used values ({@link #reserve(long)}, {@link #reserveAll(LongStream)} and {@link #reserveRange(long, long)}).</li>
+ * <li>Can stay in sync with the backing store by using the same checks as {@link SearchingAvailabilityIntTools} and {@link SearchingAvailabilityLongTools} (see
+ * {@link #allocate(CheckAvailabilityLong)}).</li>
+ * </ul>
+ *
+ * Usage:
+ *
+ * <pre>
+ * BitmapAvailabilityTools ports = new BitmapAvailabilityTools(10000, 20000);
+ * ports.reserveAll(usedPortsFromTheDatabase);
+ *
+ * long port = ports.allocate().getAsLong();
+ * ports.free(port);
+ * </pre>
+ *
+ * The range can have at most 2^32 values.
+ */
+public class BitmapAvailabilityTools extends AbstractBasics {
+
+    /**
+     * The used values of a range of 65536 values. The methods must be called while having the lock on the chunk.
+     */
+    private static class Chunk {
+
+        private int size;
+        private volatile int used;
+
+        // When empty or full, there is no array and no bitmap
+        private char[] array;
+        private long[] bitmap;
+
+        private int nextOffset;
+
+        public Chunk(int size) {
+            this.size = size;
+        }
+
+        public boolean add(int offset) {
+
+            if (used == size) {
+                return false;
+            }
+
+            // Bitmap
+            if (bitmap != null) {
+                long mask = 1L << offset;
+                if ((bitmap[offset >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bitmap[offset >>> 6] |= mask;
+                ++used;
+                fillIfFull();
+                return true;
+            }
+
+            // Array
+            if (array == null) {
+                array = new char[16];
+            }
+            int index = Arrays.binarySearch(array, 0, used, (char) offset);
+            if (index >= 0) {
+                return false;
+            }
+            if (used == MAX_ARRAY_SIZE) {
+                toBitmap();
+                return add(offset);
+            }
+            if (used == array.length) {
+                array = Arrays.copyOf(array, Math.min(used * 2, MAX_ARRAY_SIZE));
+            }
+            int insertAt = -index - 1;
+            System.arraycopy(array, insertAt, array, insertAt + 1, used - insertAt);
+            array[insertAt] = (char) offset;
+            ++used;
+            fillIfFull();
+            return true;
+        }
+
+        /**
+         * Reserve the next free value.
+         *
+         * @return the offset or -1 if full
+         */
+        public int allocate() {
+            int offset = findFree(nextOffset);
+            if (offset < 0) {
+                return -1;
+            }
+            add(offset);
+            nextOffset = offset + 1 >= size ? 0 : offset + 1;
+            return offset;
+        }
+
+        public boolean contains(int offset) {
+            if (used == 0) {
+                return false;
+            }
+            if (used == size) {
+                return true;
+            }
+            if (bitmap != null) {
+                return (bitmap[offset >>> 6] & (1L << offset)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, used, (char) offset) >= 0;
+        }
+
+        public void fill() {
+            used = size;
+            array = null;
+            bitmap = null;
+        }
+
+        private void fillIfFull() {
+            if (used == size) {
+                fill();
+            }
+        }
+
+        /**
+         * Find the first free value from the offset and loop once if the end is reached.
+         *
+         * @param fromOffset
+         *            the first offset to check
+         * @return the offset or -1 if full
+         */
+        public int findFree(int fromOffset) {
+            if (used == size) {
+                return -1;
+            }
+            if (used == 0) {
+                return fromOffset;
+            }
+
+            // Bitmap
+            if (bitmap != null) {
+                int offset = findFreeInBitmap(fromOffset, size);
+                if (offset < 0) {
+                    offset = findFreeInBitmap(0, fromOffset);
+                }
+                return offset;
+            }
+
+            // Array
+            int offset = findFreeInArray(fromOffset);
+            if (offset >= size) {
+                offset = findFreeInArray(0);
+            }
+            return offset < size ? offset : -1;
+        }
+
+        private int findFreeInArray(int fromOffset) {
+            int candidate = fromOffset;
+            int index = Arrays.binarySearch(array, 0, used, (char) candidate);
+            if (index < 0) {
+                return candidate;
+            }
+            while (index < used && array[index] == candidate) {
+                ++index;
+                ++candidate;
+            }
+            return candidate;
+        }
+
+        private int findFreeInBitmap(int fromOffset, int toOffsetExclusive) {
+            if (fromOffset >= toOffsetExclusive) {
+                return -1;
+            }
+            int wordIndex = fromOffset >>> 6;
+            long word = ~bitmap[wordIndex] & (-1L << fromOffset);
+            while (true) {
+                if (word != 0) {
+                    int offset = (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+                    return offset < toOffsetExclusive ? offset : -1;
+                }
+                ++wordIndex;
+                if (wordIndex << 6 >= toOffsetExclusive) {
+                    return -1;
+                }
+                word = ~bitmap[wordIndex];
+            }
+        }
+
+        public boolean remove(int offset) {
+
+            if (used == 0) {
+                return false;
+            }
+
+            // Full to bitmap
+            if (used == size) {
+                bitmap = new long[(size + 63) >>> 6];
+                for (int i = 0; i < size; ++i) {
+                    bitmap[i >>> 6] |= 1L << i;
+                }
+            }
+
+            // Bitmap
+            if (bitmap != null) {
+                long mask = 1L << offset;
+                if ((bitmap[offset >>> 6] & mask) == 0) {
+                    return false;
+                }
+                bitmap[offset >>> 6] &= ~mask;
+                --used;
+                if (used < MAX_ARRAY_SIZE / 2) {
+                    toArray();
+                }
+                return true;
+            }
+
+            // Array
+            int index = Arrays.binarySearch(array, 0, used, (char) offset);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(array, index + 1, array, index, used - index - 1);
+            --used;
+            return true;
+        }
+
+        private void toArray() {
+            char[] newArray = new char[Math.max(16, used)];
+            int count = 0;
+            for (int wordIndex = 0; wordIndex < bitmap.length; ++wordIndex) {
+                long word = bitmap[wordIndex];
+                while (word != 0) {
+                    newArray[count++] = (char) ((wordIndex << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            array = newArray;
+            bitmap = null;
+        }
+
+        private void toBitmap() {
+            long[] newBitmap = new long[(size + 63) >>> 6];
+            for (int i = 0; i < used; ++i) {
+                newBitmap[array[i] >>> 6] |= 1L << array[i];
+            }
+            bitmap = newBitmap;
+            array = null;
+        }
+
+    }
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int MAX_ARRAY_SIZE = 4096;
+
+    // Properties
+    private long min;
+    private long max;
+    private long checkRange = 100;
+
+    // Internal
+    private int chunkCount;
+    private AtomicReferenceArray<Chunk> chunks;
+    private AtomicInteger cursor = new AtomicInteger();
+    private AtomicLong usedCount = new AtomicLong();
+
+    /**
+     * Create an allocator where all the values are available.
+     *
+     * @param min
+     *            the lowest value (inclusive)
+     * @param max
+     *            the highest value (inclusive)
+     */
+    public BitmapAvailabilityTools(long min, long max) {
+        AssertTools.assertTrue(max >= min, "max must be greater or equal to min");
+        AssertTools.assertTrue(max - min >= 0 && max - min < (1L << 32), "The range can have at most 2^32 values");
+        this.min = min;
+        this.max = max;
+
+        long count = max - min + 1;
+        chunkCount = (int) ((count + CHUNK_SIZE - 1) >>> CHUNK_BITS);
+        chunks = new AtomicReferenceArray<>(chunkCount);
+    }
+
+    /**
+     * Get the next available value if any and mark it as used.
+     *
+     * @return the value
+     */
+    public OptionalLong allocate() {
+
+        int startChunk = cursor.get();
+        for (int i = 0; i < chunkCount; ++i) {
+            int chunkIndex = startChunk + i;
+            if (chunkIndex >= chunkCount) {
+                chunkIndex -= chunkCount;
+            }
+
+            Chunk chunk = getChunk(chunkIndex);
+            if (chunk.used == chunk.size) {
+                continue;
+            }
+
+            int offset;
+            synchronized (chunk) {
+                offset = chunk.allocate();
+            }
+            if (offset >= 0) {
+                if (chunkIndex != startChunk) {
+                    cursor.set(chunkIndex);
+                }
+                usedCount.incrementAndGet();
+                return OptionalLong.of(toValue(chunkIndex, offset));
+            }
+        }
+
+        return OptionalLong.empty();
+    }
+
+    /**
+     * Get the next available value by confirming with the backing store. The candidate from this allocator and the next values that are free here (up to {@link #getCheckRange()}) are given to the
+     * check. The values the check skipped are used in the backing store, so they are marked as used here as well.
+     *
+     * @param checkAvailability
+     *            the same check as for {@link SearchingAvailabilityLongTools}. It must reserve the value it returns
+     * @return the value
+     */
+    public OptionalLong allocate(CheckAvailabilityLong checkAvailability) {
+
+        while (true) {
+            OptionalLong candidate = allocate();
+            if (!candidate.isPresent()) {
+                return OptionalLong.empty();
+            }
+
+            // Ask the backing store with the free values that follow
+            long from = candidate.getAsLong();
+            long to = from;
+            while (to < max && to - from + 1 < checkRange && isAvailable(to + 1)) {
+                ++to;
+            }
+            logger.debug("Next Available: from={}, to={}", from, to);
+            Optional<Long> next = checkAvailability.nextAvailable(from, to);
+            logger.debug("Found: {}", next);
+
+            // Sync what is used
+            if (next.isPresent()) {
+                reserveRange(from, next.get());
+                return OptionalLong.of(next.get());
+            }
+            reserveRange(from, to);
+        }
+
+    }
+
+    /**
+     * Get multiple available values and mark them as used.
+     *
+     * @param count
+     *            the amount of values
+     * @return the values (less than the count if there are not enough available values)
+     */
+    public long[] allocateMany(int count) {
+        long[] values = new long[count];
+        for (int i = 0; i < count; ++i) {
+            OptionalLong value = allocate();
+            if (!value.isPresent()) {
+                return Arrays.copyOf(values, i);
+            }
+            values[i] = value.getAsLong();
+        }
+        return values;
+    }
+
+    /**
+     * Same as {@link #allocate(CheckAvailabilityLong)} with the check of {@link SearchingAvailabilityIntTools}.
+     *
+     * @param checkAvailability
+     *            the same check as for {@link SearchingAvailabilityIntTools}. It must reserve the value it returns
+     * @return the value
+     */
+    public OptionalInt allocateInt(CheckAvailabilityInt checkAvailability) {
+        OptionalLong value = allocate((from, to) -> checkAvailability.nextAvailable(from.intValue(), to.intValue()).map(Integer::longValue));
+        return value.isPresent() ? OptionalInt.of((int) value.getAsLong()) : OptionalInt.empty();
+    }
+
+    private void assertInRange(long value) {
+        AssertTools.assertTrue(value >= min && value <= max, "The value is not in the range");
+    }
+
+    private int chunkIndex(long value) {
+        return (int) ((value - min) >>> CHUNK_BITS);
+    }
+
+    /**
+     * Mark a value as available.
+     *
+     * @param value
+     *            the value
+     * @return true if it was used
+     */
+    public boolean free(long value) {
+        assertInRange(value);
+        Chunk chunk = chunks.get(chunkIndex(value));
+        if (chunk == null) {
+            return false;
+        }
+        boolean removed;
+        synchronized (chunk) {
+            removed = chunk.remove(offset(value));
+        }
+        if (removed) {
+            usedCount.decrementAndGet();
+        }
+        return removed;
+    }
+
+    public long getAvailableCount() {
+        return max - min + 1 - usedCount.get();
+    }
+
+    public long getCheckRange() {
+        return checkRange;
+    }
+
+    private Chunk getChunk(int chunkIndex) {
+        Chunk chunk = chunks.get(chunkIndex);
+        if (chunk == null) {
+            int size = CHUNK_SIZE;
+            if (chunkIndex == chunkCount - 1) {
+                size = (int) (max - min + 1 - ((long) chunkIndex << CHUNK_BITS));
+            }
+            chunks.compareAndSet(chunkIndex, null, new Chunk(size));
+            chunk = chunks.get(chunkIndex);
+        }
+        return chunk;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public long getMin() {
+        return min;
+    }
+
+    public long getUsedCount() {
+        return usedCount.get();
+    }
+
+    /**
+     * Tell if a value is available.
+     *
+     * @param value
+     *            the value
+     * @return true if available
+     */
+    public boolean isAvailable(long value) {
+        assertInRange(value);
+        Chunk chunk = chunks.get(chunkIndex(value));
+        if (chunk == null) {
+            return true;
+        }
+        synchronized (chunk) {
+            return !chunk.contains(offset(value));
+        }
+    }
+
+    private int offset(long value) {
+        return (int) ((value - min) & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * Mark a value as used.
+     *
+     * @param value
+     *            the value
+     * @return true if it was available
+     */
+    public boolean reserve(long value) {
+        assertInRange(value);
+        Chunk chunk = getChunk(chunkIndex(value));
+        boolean added;
+        synchronized (chunk) {
+            added = chunk.add(offset(value));
+        }
+        if (added) {
+            usedCount.incrementAndGet();
+        }
+        return added;
+    }
+
+    /**
+     * Mark multiple values as used. Useful to seed the allocator with the used values of the backing store.
+     *
+     * @param values
+     *            the values
+     * @return the amount of values that were available
+     */
+    public long reserveAll(LongStream values) {
+        return values.filter(this::reserve).count();
+    }
+
+    /**
+     * Mark all the values in a range as used. The chunks that are completely in the range are filled without checking each value.
+     *
+     * @param from
+     *            the lower range (inclusive)
+     * @param to
+     *            the upper range (inclusive)
+     * @return the amount of values that were available
+     */
+    public long reserveRange(long from, long to) {
+        assertInRange(from);
+        assertInRange(to);
+
+        long reserved = 0;
+        for (int chunkIndex = chunkIndex(from); chunkIndex <= chunkIndex(to); ++chunkIndex) {
+            Chunk chunk = getChunk(chunkIndex);
+            int fromOffset = chunkIndex == chunkIndex(from) ? offset(from) : 0;
+            int toOffset = chunkIndex == chunkIndex(to) ? offset(to) : chunk.size - 1;
+            synchronized (chunk) {
+                if (fromOffset == 0 && toOffset == chunk.size - 1) {
+                    reserved += chunk.size - chunk.used;
+                    chunk.fill();
+                } else {
+                    for (int offset = fromOffset; offset <= toOffset; ++offset) {
+                        if (chunk.add(offset)) {
+                            ++reserved;
+                        }
+                    }
+                }
+            }
+        }
+
+        usedCount.addAndGet(reserved);
+        return reserved;
+    }
+
+    /**
+     * Choose how many values are given to the check in {@link #allocate(CheckAvailabilityLong)}.
+     *
+     * @param checkRange
+     *            the maximum amount of values to check at once (default: 100)
+     * @return this
+     */
+    public BitmapAvailabilityTools setCheckRange(long checkRange) {
+        AssertTools.assertTrue(checkRange >= 1, "checkRange must be at least 1");
+        this.checkRange = checkRange;
+        return this;
+    }
+
+    private long toValue(int chunkIndex, int offset) {
+        return min + ((long) chunkIndex << CHUNK_BITS) + offset;
+    }
+
+}
@@ -14,7 +14,8 @@ import java.util.List;
 import java.util.function.Consumer;
 
 /**
- * A way to provide many items and automatically batch them.
+ * A way to provide many items and automatically batch them. It is not thread-safe and executes the batches in the caller's thread. To add from many threads, see
+ * {@link ConcurrentBufferBatchesTools}.
  *
  * Usage:
  *
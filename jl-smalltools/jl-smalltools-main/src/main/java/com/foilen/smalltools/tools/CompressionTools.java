@@ -8,24 +8,107 @@
  */
 package com.foilen.smalltools.tools;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
+import com.foilen.smalltools.compress.CompressionCodec;
+import com.foilen.smalltools.compress.DeflateRawCompressionCodec;
+import com.foilen.smalltools.compress.GzipCompressionCodec;
+import com.foilen.smalltools.compress.LzFastCompressionCodec;
+import com.foilen.smalltools.compress.ParallelGzipOutputStream;
 import com.foilen.smalltools.exception.SmallToolsException;
 
+/**
+ * Some simple methods to compress and decompress.
+ *
+ * Usage:
+ *
+ * <pre>
+ * byte[] compressed = CompressionTools.compress(CompressionTools.LZ_FAST, bytes);
+ * byte[] uncompressed = CompressionTools.decompress(CompressionTools.LZ_FAST, compressed);
+ *
+ * OutputStream out = CompressionTools.GZIP.wrapOutputStream(new FileOutputStream(file));
+ * </pre>
+ */
 public class CompressionTools {
 
+    /**
+     * Raw deflate (RFC 1951) with the default level.
+     */
+    public static final CompressionCodec DEFLATE_RAW = new DeflateRawCompressionCodec();
+
+    /**
+     * GZIP (RFC 1952) with the default level.
+     */
+    public static final CompressionCodec GZIP = new GzipCompressionCodec();
+
+    /**
+     * A fast codec using the LZ4 block format.
+     */
+    public static final CompressionCodec LZ_FAST = new LzFastCompressionCodec();
+
+    /**
+     * Compress all the bytes.
+     *
+     * @param codec
+     *            the codec to use
+     * @param uncompressed
+     *            the bytes
+     * @return the compressed bytes
+     */
+    static public byte[] compress(CompressionCodec codec, byte[] uncompressed) {
+        ByteBuffer destination = ByteBuffer.allocate(codec.maxCompressedLength(uncompressed.length));
+        codec.compress(ByteBuffer.wrap(uncompressed), destination);
+        return Arrays.copyOf(destination.array(), destination.position());
+    }
+
+    /**
+     * Decompress all the bytes.
+     *
+     * @param codec
+     *            the codec that was used to compress
+     * @param compressed
+     *            the compressed bytes
+     * @return the uncompressed bytes
+     */
+    static public byte[] decompress(CompressionCodec codec, byte[] compressed) {
+        return StreamsTools.consumeAsBytes(codec.wrapInputStream(new ByteArrayInputStream(compressed)));
+    }
+
+    /**
+     * Decompress all the bytes when the uncompressed size is known.
+     *
+     * @param codec
+     *            the codec that was used to compress
+     * @param compressed
+     *            the compressed bytes
+     * @param uncompressedLength
+     *            the size of the uncompressed data
+     * @return the uncompressed bytes
+     */
+    static public byte[] decompress(CompressionCodec codec, byte[] compressed, int uncompressedLength) {
+        ByteBuffer destination = ByteBuffer.allocate(uncompressedLength);
+        codec.decompress(ByteBuffer.wrap(compressed), destination);
+        if (destination.hasRemaining()) {
+            throw new SmallToolsException("The uncompressed data is smaller than expected");
+        }
+        return destination.array();
+    }
+
     static public void gzipFileToFile(File source, File target) {
 
         OutputStream out = null;
         try {
-            out = new GZIPOutputStream(new FileOutputStream(target));
+            out = GZIP.wrapOutputStream(new FileOutputStream(target));
             InputStream in = new FileInputStream(source);
             StreamsTools.flowStream(in, out);
+            out.close();
         } catch (Exception e) {
             throw new SmallToolsException("Problem gzipping the file", e);
         } finally {
@@ -45,6 +128,33 @@ public class CompressionTools {
         gzipFileToFile(new File(source), new File(target));
     }
 
+    /**
+     * Gzip a file using all the processors. The result is a standard GZIP file.
+     *
+     * @param source
+     *            the file to compress
+     * @param target
+     *            the GZIP file to create
+     */
+    static public void parallelGzipFileToFile(File source, File target) {
+
+        OutputStream out = null;
+        try {
+            out = new ParallelGzipOutputStream(new FileOutputStream(target));
+            InputStream in = new FileInputStream(source);
+            StreamsTools.flowStream(in, out);
+            out.close();
+        } catch (Exception e) {
+            throw new SmallToolsException("Problem gzipping the file", e);
+        } finally {
+            CloseableTools.close(out);
+        }
+    }
+
+    static public void parallelGzipFileToFile(String source, String target) {
+        parallelGzipFileToFile(new File(source), new File(target));
+    }
+
     private CompressionTools() {
     }
 
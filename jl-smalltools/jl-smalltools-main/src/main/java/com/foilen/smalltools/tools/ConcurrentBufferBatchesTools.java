@@ -0,0 +1,381 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.tools.thread.ThreadList;
+
+/**
+ * A thread-safe {@link BufferBatchesTools}. Many threads can add items that are batched and executed by background threads.
+ *
+ * A batch is executed when:
+ * <ul>
+ * <li>it has itemsInBatch items</li>
+ * <li>or its first item is waiting for maxBatchAgeMs</li>
+ * </ul>
+ *
+ * Options are:
+ * <ul>
+ * <li>queueCapacity: the max amount of items waiting to be in a batch. When full, the backpressurePolicy is applied.</li>
+ * <li>backpressurePolicy: BLOCK to wait for some space ; DROP to skip the item (they are counted in {@link #getItemsDropped()}).</li>
+ * <li>executors: the amount of batches that can execute in parallel.</li>
+ * <li>batchMetricsListener: gets the size and latencies of every batch.</li>
+ * </ul>
+ *
+ * Usage:
+ *
+ * <pre>
+ * ConcurrentBufferBatchesTools&lt;String&gt; bufferBatchesTools = new ConcurrentBufferBatchesTools&lt;String&gt;(100, items -&gt; dao.insertAll(items)) //
+ *         .setMaxBatchAgeMs(1000) //
+ *         .setQueueCapacity(10000) //
+ *         .setExecutors(4) //
+ *         .start();
+ *
+ * // From any thread
+ * bufferBatchesTools.add("1");
+ *
+ * // Execute all the remaining ones and wait
+ * bufferBatchesTools.close();
+ * </pre>
+ *
+ * @param <I>
+ *            the type of item
+ */
+public class ConcurrentBufferBatchesTools<I> extends AbstractBasics implements Closeable {
+
+    /**
+     * What to do when adding an item and the queue is full.
+     */
+    public static enum BackpressurePolicy {
+        BLOCK, //
+        DROP, //
+    }
+
+    /**
+     * The details of an executed batch.
+     */
+    public static class BatchMetrics {
+
+        private int size;
+        private long fillMs;
+        private long executionMs;
+        private boolean success;
+
+        public BatchMetrics(int size, long fillMs, long executionMs, boolean success) {
+            this.size = size;
+            this.fillMs = fillMs;
+            this.executionMs = executionMs;
+            this.success = success;
+        }
+
+        /**
+         * The time spent executing the batch.
+         *
+         * @return the time in ms
+         */
+        public long getExecutionMs() {
+            return executionMs;
+        }
+
+        /**
+         * The time between taking the first item of the batch and starting its execution.
+         *
+         * @return the time in ms
+         */
+        public long getFillMs() {
+            return fillMs;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * The time between taking the first item of the batch and the end of its execution.
+         *
+         * @return the time in ms
+         */
+        public long getTotalMs() {
+            return fillMs + executionMs;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+    }
+
+    // Properties
+    private int itemsInBatch;
+    private Consumer<List<I>> batchExecution;
+    private long maxBatchAgeMs = 1000;
+    private int queueCapacity = 10000;
+    private BackpressurePolicy backpressurePolicy = BackpressurePolicy.BLOCK;
+    private int executors = 1;
+    private Consumer<BatchMetrics> batchMetricsListener;
+
+    // Internal
+    private BlockingQueue<I> queue;
+    private ThreadList threadList;
+    private volatile boolean closing;
+
+    // Metrics
+    private AtomicLong batchesExecuted = new AtomicLong();
+    private AtomicLong batchesFailed = new AtomicLong();
+    private AtomicLong itemsExecuted = new AtomicLong();
+    private AtomicLong itemsDropped = new AtomicLong();
+    private AtomicLong executionTotalMs = new AtomicLong();
+    private AtomicLong executionMaxMs = new AtomicLong();
+
+    /**
+     * Create the buffer. Change the options and call {@link #start()}.
+     *
+     * @param itemsInBatch
+     *            the max amount of items in a batch
+     * @param batchExecution
+     *            what to do with a batch. Can be called by multiple threads at the same time when there are many executors
+     */
+    public ConcurrentBufferBatchesTools(int itemsInBatch, Consumer<List<I>> batchExecution) {
+        this.itemsInBatch = itemsInBatch;
+        this.batchExecution = batchExecution;
+    }
+
+    /**
+     * Add many items.
+     *
+     * @param items
+     *            the items
+     * @return the amount of items that were added (less than the items when dropped)
+     */
+    public int add(Collection<I> items) {
+        int added = 0;
+        for (I item : items) {
+            if (add(item)) {
+                ++added;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Add an item.
+     *
+     * @param item
+     *            the item
+     * @return true if added ; false if dropped
+     */
+    public boolean add(I item) {
+        AssertTools.assertNotNull(queue, "Not started");
+        if (closing) {
+            throw new SmallToolsException("Closed");
+        }
+
+        switch (backpressurePolicy) {
+        case BLOCK:
+            try {
+                queue.put(item);
+            } catch (InterruptedException e) {
+                throw new SmallToolsException("Interrupted while waiting for space in the queue", e);
+            }
+            return true;
+        case DROP:
+            if (queue.offer(item)) {
+                return true;
+            }
+            itemsDropped.incrementAndGet();
+            return false;
+        }
+
+        return false;
+    }
+
+    /**
+     * Stop accepting items and wait for all the waiting items to be executed. The producers must be done adding before calling it.
+     */
+    @Override
+    public void close() {
+        if (threadList == null) {
+            return;
+        }
+        closing = true;
+        try {
+            threadList.join();
+        } catch (InterruptedException e) {
+            throw new SmallToolsException("Interrupted while waiting for the batches to complete", e);
+        }
+    }
+
+    private void executeBatch(List<I> batch, long firstTakenAt) {
+        long start = System.currentTimeMillis();
+        boolean success = true;
+        try {
+            batchExecution.accept(batch);
+        } catch (Exception e) {
+            success = false;
+            batchesFailed.incrementAndGet();
+            logger.error("Problem executing a batch of {} items", batch.size(), e);
+        }
+        long end = System.currentTimeMillis();
+
+        long executionMs = end - start;
+        batchesExecuted.incrementAndGet();
+        itemsExecuted.addAndGet(batch.size());
+        executionTotalMs.addAndGet(executionMs);
+        executionMaxMs.accumulateAndGet(executionMs, Math::max);
+
+        if (batchMetricsListener != null) {
+            try {
+                batchMetricsListener.accept(new BatchMetrics(batch.size(), start - firstTakenAt, executionMs, success));
+            } catch (Exception e) {
+                logger.error("Problem with the metrics listener", e);
+            }
+        }
+    }
+
+    public long getBatchesExecuted() {
+        return batchesExecuted.get();
+    }
+
+    public long getBatchesFailed() {
+        return batchesFailed.get();
+    }
+
+    public long getExecutionMaxMs() {
+        return executionMaxMs.get();
+    }
+
+    public long getExecutionTotalMs() {
+        return executionTotalMs.get();
+    }
+
+    public long getItemsDropped() {
+        return itemsDropped.get();
+    }
+
+    public long getItemsExecuted() {
+        return itemsExecuted.get();
+    }
+
+    /**
+     * Get the amount of items waiting to be in a batch.
+     *
+     * @return the amount of items
+     */
+    public int getQueueSize() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    private void run() {
+
+        List<I> batch = new ArrayList<>(Math.min(itemsInBatch, 1024));
+        try {
+            while (true) {
+
+                // Wait for the first item
+                I first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closing && queue.isEmpty()) {
+                        break;
+                    }
+                    continue;
+                }
+                long firstTakenAt = System.currentTimeMillis();
+                long flushAt = firstTakenAt + maxBatchAgeMs;
+                batch.add(first);
+
+                // Fill until full or too old
+                while (batch.size() < itemsInBatch) {
+                    queue.drainTo(batch, itemsInBatch - batch.size());
+                    if (batch.size() >= itemsInBatch) {
+                        break;
+                    }
+                    long waitMs = flushAt - System.currentTimeMillis();
+                    if (waitMs <= 0 || closing) {
+                        break;
+                    }
+                    I next = queue.poll(waitMs, TimeUnit.MILLISECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+
+                executeBatch(batch, firstTakenAt);
+                batch = new ArrayList<>(Math.min(itemsInBatch, 1024));
+            }
+        } catch (InterruptedException e) {
+            logger.warn("Interrupted. {} items are not executed", batch.size() + queue.size());
+        }
+
+    }
+
+    public ConcurrentBufferBatchesTools<I> setBackpressurePolicy(BackpressurePolicy backpressurePolicy) {
+        AssertTools.assertNull(queue, "Cannot change while running");
+        this.backpressurePolicy = backpressurePolicy;
+        return this;
+    }
+
+    public ConcurrentBufferBatchesTools<I> setBatchMetricsListener(Consumer<BatchMetrics> batchMetricsListener) {
+        AssertTools.assertNull(queue, "Cannot change while running");
+        this.batchMetricsListener = batchMetricsListener;
+        return this;
+    }
+
+    public ConcurrentBufferBatchesTools<I> setExecutors(int executors) {
+        AssertTools.assertNull(queue, "Cannot change while running");
+        this.executors = executors;
+        return this;
+    }
+
+    public ConcurrentBufferBatchesTools<I> setMaxBatchAgeMs(long maxBatchAgeMs) {
+        AssertTools.assertNull(queue, "Cannot change while running");
+        this.maxBatchAgeMs = maxBatchAgeMs;
+        return this;
+    }
+
+    public ConcurrentBufferBatchesTools<I> setQueueCapacity(int queueCapacity) {
+        AssertTools.assertNull(queue, "Cannot change while running");
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Start the executor threads.
+     *
+     * @return this
+     */
+    public ConcurrentBufferBatchesTools<I> start() {
+        AssertTools.assertNull(queue, "Already started");
+        AssertTools.assertNotNull(batchExecution, "No batch execution given");
+        AssertTools.assertTrue(itemsInBatch > 0, "itemsInBatch must be 1 or bigger");
+        AssertTools.assertTrue(executors > 0, "executors must be 1 or bigger");
+        AssertTools.assertTrue(queueCapacity > 0, "queueCapacity must be 1 or bigger");
+
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+        threadList = new ThreadList();
+        for (int i = 0; i < executors; ++i) {
+            Thread thread = new Thread(this::run, "ConcurrentBufferBatches-" + i);
+            thread.setDaemon(true);
+            threadList.add(thread);
+        }
+        threadList.start();
+        return this;
+    }
+
+}
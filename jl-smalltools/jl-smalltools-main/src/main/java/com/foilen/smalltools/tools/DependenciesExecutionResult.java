@@ -0,0 +1,80 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What happened during an execution by {@link DependenciesExecutor}.
+ */
+public class DependenciesExecutionResult {
+
+    private List<String> completionOrder = new ArrayList<>();
+    private Map<String, Long> durationMsByItem = new LinkedHashMap<>();
+    private List<String> criticalPath = new ArrayList<>();
+    private long criticalPathMs;
+    private long totalMs;
+
+    /**
+     * Get the items in the order they completed.
+     *
+     * @return the items
+     */
+    public List<String> getCompletionOrder() {
+        return completionOrder;
+    }
+
+    /**
+     * Get the chain of dependencies that took the most time. Making any of these items faster makes the whole execution faster.
+     *
+     * @return the items from the first to execute to the last
+     */
+    public List<String> getCriticalPath() {
+        return criticalPath;
+    }
+
+    /**
+     * Get the sum of the durations of the items in the critical path. It is the best possible total time with unlimited threads.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getCriticalPathMs() {
+        return criticalPathMs;
+    }
+
+    public Map<String, Long> getDurationMsByItem() {
+        return durationMsByItem;
+    }
+
+    /**
+     * Get the time from the start of the first item to the end of the last one.
+     *
+     * @return the duration in milliseconds
+     */
+    public long getTotalMs() {
+        return totalMs;
+    }
+
+    public void setCriticalPathMs(long criticalPathMs) {
+        this.criticalPathMs = criticalPathMs;
+    }
+
+    public void setTotalMs(long totalMs) {
+        this.totalMs = totalMs;
+    }
+
+    @Override
+    public String toString() {
+        return "DependenciesExecutionResult [totalMs=" + totalMs + ", criticalPathMs=" + criticalPathMs + ", criticalPath=" + criticalPath + "]";
+    }
+
+}
@@ -0,0 +1,315 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+
+/**
+ * Executes items with dependencies in parallel: each item starts as soon as all the items it depends on are completed.
+ *
+ * <ul>
+ * <li>Circular dependencies are detected before executing anything.</li>
+ * <li>When many items are ready at the same time, they are started in alphabetical order.</li>
+ * <li>If an item fails, the items not started yet are skipped, the running ones are waited for and an exception is thrown.</li>
+ * <li>The result gives the duration of each item and the critical path.</li>
+ * </ul>
+ *
+ * <pre>
+ * Sample usage:
+ *
+ * MultiDependenciesResolverTools resolver = new MultiDependenciesResolverTools();
+ * resolver.addDependency("C", "A");
+ * resolver.addDependency("C", "B");
+ *
+ * // A and B run together, then C
+ * DependenciesExecutionResult result = resolver.execute(item -&gt; startService(item), 4);
+ * </pre>
+ */
+public class DependenciesExecutor {
+
+    private static class Completed {
+        private String item;
+        private long startMs;
+        private long endMs;
+        private Throwable failure;
+    }
+
+    /**
+     * Find a cycle in what is left.
+     *
+     * @param dependsOnByItem
+     *            the items that could not be ordered and their dependencies
+     * @return the items in the cycle (the first one is repeated at the end)
+     */
+    private static List<String> findCycle(Map<String, Set<String>> dependsOnByItem) {
+        List<String> path = new ArrayList<>();
+        Set<String> inPath = new HashSet<>();
+        String current = Collections.min(dependsOnByItem.keySet());
+        while (inPath.add(current)) {
+            path.add(current);
+            for (String dependsOn : dependsOnByItem.get(current)) {
+                if (dependsOnByItem.containsKey(dependsOn)) {
+                    current = dependsOn;
+                    break;
+                }
+            }
+        }
+        List<String> cycle = new ArrayList<>(path.subList(path.indexOf(current), path.size()));
+        cycle.add(current);
+        Collections.reverse(cycle);
+        return cycle;
+    }
+
+    private Map<String, Set<String>> dependsOnByItem = new HashMap<>();
+    private Map<String, List<String>> dependedByByItem = new HashMap<>();
+    private List<String> topologicalOrder = new ArrayList<>();
+
+    private ExecutorService executorService;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Prepare the executor.
+     *
+     * @param dependsOnByItem
+     *            all the items and the items they depend on (the ones only in the dependencies are added)
+     * @throws SmallToolsException
+     *             if it is a circular dependency
+     */
+    public DependenciesExecutor(Map<String, Set<String>> dependsOnByItem) {
+
+        // Copy
+        for (Entry<String, Set<String>> entry : dependsOnByItem.entrySet()) {
+            this.dependsOnByItem.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).addAll(entry.getValue());
+            for (String dependsOn : entry.getValue()) {
+                this.dependsOnByItem.computeIfAbsent(dependsOn, k -> new HashSet<>());
+            }
+        }
+        for (Entry<String, Set<String>> entry : this.dependsOnByItem.entrySet()) {
+            dependedByByItem.computeIfAbsent(entry.getKey(), k -> new ArrayList<>());
+            for (String dependsOn : entry.getValue()) {
+                dependedByByItem.computeIfAbsent(dependsOn, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        dependedByByItem.values().forEach(Collections::sort);
+
+        // Check for cycles
+        Map<String, Set<String>> remaining = new HashMap<>();
+        for (Entry<String, Set<String>> entry : this.dependsOnByItem.entrySet()) {
+            remaining.put(entry.getKey(), new HashSet<>(entry.getValue()));
+        }
+        List<String> ready = new ArrayList<>();
+        remaining.forEach((item, dependsOn) -> {
+            if (dependsOn.isEmpty()) {
+                ready.add(item);
+            }
+        });
+        Collections.sort(ready);
+        while (!ready.isEmpty()) {
+            String item = ready.remove(0);
+            remaining.remove(item);
+            topologicalOrder.add(item);
+            for (String dependedBy : dependedByByItem.get(item)) {
+                Set<String> dependsOn = remaining.get(dependedBy);
+                dependsOn.remove(item);
+                if (dependsOn.isEmpty()) {
+                    ready.add(dependedBy);
+                }
+            }
+        }
+        if (!remaining.isEmpty()) {
+            throw new SmallToolsException("Has a circular dependency: " + String.join(" -> ", findCycle(remaining)));
+        }
+
+    }
+
+    private void computeCriticalPath(DependenciesExecutionResult result) {
+
+        Map<String, Long> pathMsByItem = new HashMap<>();
+        Map<String, String> previousByItem = new HashMap<>();
+        String last = null;
+        long lastMs = -1;
+        for (String item : topologicalOrder) {
+            Long durationMs = result.getDurationMsByItem().get(item);
+            if (durationMs == null) {
+                continue;
+            }
+
+            long longestDependencyMs = 0;
+            String previous = null;
+            for (String dependsOn : dependsOnByItem.get(item)) {
+                Long dependencyMs = pathMsByItem.get(dependsOn);
+                if (dependencyMs != null && (previous == null || dependencyMs > longestDependencyMs)) {
+                    longestDependencyMs = dependencyMs;
+                    previous = dependsOn;
+                }
+            }
+
+            long pathMs = longestDependencyMs + durationMs;
+            pathMsByItem.put(item, pathMs);
+            previousByItem.put(item, previous);
+            if (pathMs > lastMs) {
+                lastMs = pathMs;
+                last = item;
+            }
+        }
+
+        List<String> criticalPath = result.getCriticalPath();
+        for (String item = last; item != null; item = previousByItem.get(item)) {
+            criticalPath.add(item);
+        }
+        Collections.reverse(criticalPath);
+        result.setCriticalPathMs(Math.max(0, lastMs));
+    }
+
+    /**
+     * Execute all the items.
+     *
+     * @param action
+     *            what to do for an item
+     * @return the result
+     * @throws SmallToolsException
+     *             if an item failed
+     */
+    public DependenciesExecutionResult execute(Consumer<String> action) {
+
+        ExecutorService executorService = this.executorService;
+        boolean ownExecutor = executorService == null;
+        if (ownExecutor) {
+            executorService = Executors.newFixedThreadPool(threads, ThreadTools.daemonThreadFactory(thread -> thread.setName("DependenciesExecutor-" + thread.getId())));
+        }
+
+        DependenciesExecutionResult result = new DependenciesExecutionResult();
+        try {
+            ExecutorCompletionService<Completed> completionService = new ExecutorCompletionService<>(executorService);
+            Map<String, Integer> waitingCountByItem = new HashMap<>();
+            dependsOnByItem.forEach((item, dependsOn) -> waitingCountByItem.put(item, dependsOn.size()));
+
+            // Start the roots
+            long startMs = System.currentTimeMillis();
+            int running = 0;
+            for (String item : topologicalOrder) {
+                if (waitingCountByItem.get(item) == 0) {
+                    submit(completionService, action, item);
+                    ++running;
+                }
+            }
+
+            // Start the others when ready
+            Throwable failure = null;
+            String failedItem = null;
+            while (running > 0) {
+                Completed completed;
+                try {
+                    completed = completionService.take().get();
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new SmallToolsException("Problem while waiting for the items", e);
+                }
+                --running;
+
+                if (completed.failure != null) {
+                    if (failure == null) {
+                        failure = completed.failure;
+                        failedItem = completed.item;
+                    }
+                    continue;
+                }
+                result.getCompletionOrder().add(completed.item);
+                result.getDurationMsByItem().put(completed.item, completed.endMs - completed.startMs);
+                result.setTotalMs(completed.endMs - startMs);
+
+                if (failure != null) {
+                    continue;
+                }
+                for (String dependedBy : dependedByByItem.get(completed.item)) {
+                    int waitingCount = waitingCountByItem.get(dependedBy) - 1;
+                    waitingCountByItem.put(dependedBy, waitingCount);
+                    if (waitingCount == 0) {
+                        submit(completionService, action, dependedBy);
+                        ++running;
+                    }
+                }
+            }
+
+            if (failure != null) {
+                throw new SmallToolsException("Item " + failedItem + " failed", failure);
+            }
+        } finally {
+            if (ownExecutor) {
+                executorService.shutdown();
+            }
+        }
+
+        computeCriticalPath(result);
+        return result;
+    }
+
+    /**
+     * Get the items in an order that respects the dependencies.
+     *
+     * @return the items
+     */
+    public List<String> getTopologicalOrder() {
+        return Collections.unmodifiableList(topologicalOrder);
+    }
+
+    /**
+     * Use that executor instead of creating a fixed pool for each execution.
+     *
+     * @param executorService
+     *            the executor
+     * @return this
+     */
+    public DependenciesExecutor setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * Change the amount of threads of the pool created for each execution.
+     *
+     * @param threads
+     *            the maximum amount of items executing at the same time
+     * @return this
+     */
+    public DependenciesExecutor setThreads(int threads) {
+        AssertTools.assertTrue(threads > 0, "Must have at least 1 thread");
+        this.threads = threads;
+        return this;
+    }
+
+    private void submit(ExecutorCompletionService<Completed> completionService, Consumer<String> action, String item) {
+        completionService.submit(() -> {
+            Completed completed = new Completed();
+            completed.item = item;
+            completed.startMs = System.currentTimeMillis();
+            try {
+                action.accept(item);
+            } catch (Throwable e) {
+                completed.failure = e;
+            }
+            completed.endMs = System.currentTimeMillis();
+            return completed;
+        });
+    }
+
+}
@@ -11,6 +11,8 @@ package com.foilen.smalltools.tools;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
+import com.foilen.smalltools.tools.thread.ExecutorServiceBuilder;
+
 /**
  * Some shared executors.
  */
@@ -19,6 +21,17 @@ public final class ExecutorsTools {
     private static ExecutorService cachedThreadPool = Executors.newCachedThreadPool();
     private static ExecutorService cachedDaemonThreadPool = Executors.newCachedThreadPool(ThreadTools.daemonThreadFactory());
 
+    /**
+     * Start building a bounded executor with named threads and metrics.
+     *
+     * @param name
+     *            the name of the executor. Used as the prefix of the threads' name and of the metrics
+     * @return the builder
+     */
+    public static ExecutorServiceBuilder builder(String name) {
+        return new ExecutorServiceBuilder(name);
+    }
+
     /**
      * Get a shared executor that executes everything right now and keep the idling Threads around for 1 minute. The threads are set as being daemon threads.
      *
@@ -17,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import com.foilen.smalltools.exception.SmallToolsException;
 import com.google.common.base.Strings;
@@ -51,6 +52,9 @@ import com.google.common.base.Strings;
  *
  * Gives: "A", "B", "H", "E", "F", "G", "C", "D"
  *
+ * // Or execute them in parallel as soon as their dependencies are completed
+ * DependenciesExecutionResult result = resolver.execute(item -&gt; doSomething(item), 4);
+ *
  * </pre>
  */
 public class MultiDependenciesResolverTools {
@@ -93,6 +97,30 @@ public class MultiDependenciesResolverTools {
         }
     }
 
+    /**
+     * Execute all the items in parallel. Each item starts as soon as all the items it depends on are completed.
+     *
+     * @param action
+     *            what to do for an item
+     * @param threads
+     *            the maximum amount of items executing at the same time
+     * @return the result with the critical path
+     * @throws SmallToolsException
+     *             if it is a circular dependency or if an item failed
+     */
+    public DependenciesExecutionResult execute(Consumer<String> action, int threads) {
+        return new DependenciesExecutor(dependsOnByItem).setThreads(threads).execute(action);
+    }
+
+    /**
+     * Get all the items and the items they depend on.
+     *
+     * @return the dependencies by item
+     */
+    public Map<String, Set<String>> getDependsOnByItem() {
+        return Collections.unmodifiableMap(dependsOnByItem);
+    }
+
     /**
      * To retrieve the execution plan.
      *
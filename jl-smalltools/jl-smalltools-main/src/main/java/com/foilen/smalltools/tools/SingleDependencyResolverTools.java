@@ -10,8 +10,11 @@ package com.foilen.smalltools.tools;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 
 import com.foilen.smalltools.exception.SmallToolsException;
 import com.google.common.base.Strings;
@@ -33,6 +36,9 @@ import com.google.common.base.Strings;
  *
  * resolver.getExecution(); // "A", "B", "C", "D", "E"
  *
+ * // Or execute them in parallel as soon as their dependency is completed (B and D together)
+ * resolver.execute(item -&gt; doSomething(item), 4);
+ *
  * </pre>
  */
 public class SingleDependencyResolverTools {
@@ -97,6 +103,37 @@ public class SingleDependencyResolverTools {
         return this;
     }
 
+    /**
+     * Execute all the items in parallel. Each item starts as soon as the item it depends on is completed.
+     *
+     * @param action
+     *            what to do for an item
+     * @param threads
+     *            the maximum amount of items executing at the same time
+     * @return the result with the critical path
+     * @throws SmallToolsException
+     *             if it is a circular dependency or if an item failed
+     */
+    public DependenciesExecutionResult execute(Consumer<String> action, int threads) {
+        return new DependenciesExecutor(getDependsOnByItem()).setThreads(threads).execute(action);
+    }
+
+    /**
+     * Get all the items and the item they depend on.
+     *
+     * @return the dependencies by item
+     */
+    public Map<String, Set<String>> getDependsOnByItem() {
+        Map<String, Set<String>> dependsOnByItem = new HashMap<>();
+        for (Item item : itemByName.values()) {
+            dependsOnByItem.computeIfAbsent(item.name, k -> new HashSet<>());
+            for (Item dependedBy : item.dependedBy) {
+                dependsOnByItem.computeIfAbsent(dependedBy.name, k -> new HashSet<>()).add(item.name);
+            }
+        }
+        return dependsOnByItem;
+    }
+
     /**
      * To retrieve the execution plan.
      *
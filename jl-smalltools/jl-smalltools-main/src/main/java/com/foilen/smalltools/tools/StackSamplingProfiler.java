@@ -0,0 +1,263 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+
+/**
+ * A sampling profiler that takes the stack traces of the threads at a fixed interval and counts how many times each stack was seen. The result is in the "collapsed stacks" format used by
+ * FlameGraph (https://github.com/brendangregg/FlameGraph) and speedscope: one line per stack with the frames from the root to the leaf separated by ";" followed by the count.
+ *
+ * Taking the stack traces pauses the JVM for a short time, so an interval of 10 ms or more keeps the overhead low. By default, only the runnable threads are sampled.
+ *
+ * Usage:
+ *
+ * <pre>
+ * StackSamplingProfiler profiler = new StackSamplingProfiler() //
+ *         .setIntervalMs(20) //
+ *         .start();
+ * // Do the work
+ * profiler.stop();
+ * profiler.writeCollapsedStacks(new File("/tmp/profile.collapsed"));
+ * // flamegraph.pl /tmp/profile.collapsed &gt; profile.svg
+ * </pre>
+ */
+public class StackSamplingProfiler extends AbstractBasics implements Runnable {
+
+    private long intervalMs = 20;
+    private int maxDepth = 0;
+    private boolean includeThreadName = false;
+    private boolean onlyRunnable = true;
+
+    private ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private Map<String, LongAdder> countByStack = new ConcurrentHashMap<>();
+    private AtomicLong samplesCount = new AtomicLong();
+    private volatile boolean running;
+    private volatile Thread thread;
+
+    /**
+     * Get the amount of times each stack was seen.
+     *
+     * @return the counts by collapsed stack
+     */
+    public Map<String, Long> getCountByStack() {
+        Map<String, Long> result = new ConcurrentHashMap<>();
+        countByStack.forEach((stack, count) -> result.put(stack, count.sum()));
+        return result;
+    }
+
+    public long getIntervalMs() {
+        return intervalMs;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Get the amount of times the threads were sampled.
+     *
+     * @return the amount
+     */
+    public long getSamplesCount() {
+        return samplesCount.get();
+    }
+
+    public boolean isIncludeThreadName() {
+        return includeThreadName;
+    }
+
+    public boolean isOnlyRunnable() {
+        return onlyRunnable;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Remove all the samples.
+     */
+    public void reset() {
+        countByStack.clear();
+        samplesCount.set(0);
+    }
+
+    @Override
+    public void run() {
+        thread = Thread.currentThread();
+        long nextSampleMs = System.currentTimeMillis();
+        while (running) {
+            try {
+                sample();
+            } catch (Exception e) {
+                logger.error("Problem while sampling the stacks", e);
+            }
+
+            nextSampleMs += intervalMs;
+            long waitMs = nextSampleMs - System.currentTimeMillis();
+            if (waitMs > 0) {
+                ThreadTools.sleep(waitMs);
+            } else {
+                // Too slow; do not try to catch up
+                nextSampleMs = System.currentTimeMillis();
+            }
+        }
+        thread = null;
+    }
+
+    /**
+     * Take the stack traces of the threads once.
+     */
+    public void sample() {
+        long[] threadIds = threadMXBean.getAllThreadIds();
+        ThreadInfo[] threadInfos = threadMXBean.getThreadInfo(threadIds, maxDepth <= 0 ? Integer.MAX_VALUE : maxDepth);
+
+        Thread samplerThread = thread;
+        long samplerThreadId = samplerThread == null ? -1 : samplerThread.getId();
+        StringBuilder stack = new StringBuilder();
+        for (ThreadInfo threadInfo : threadInfos) {
+            if (threadInfo == null || threadInfo.getThreadId() == samplerThreadId) {
+                continue;
+            }
+            if (onlyRunnable && threadInfo.getThreadState() != Thread.State.RUNNABLE) {
+                continue;
+            }
+            StackTraceElement[] stackTraceElements = threadInfo.getStackTrace();
+            if (stackTraceElements.length == 0) {
+                continue;
+            }
+
+            // From the root to the leaf
+            stack.setLength(0);
+            if (includeThreadName) {
+                stack.append(threadInfo.getThreadName().replace(';', '_').replace(' ', '_')).append(';');
+            }
+            for (int i = stackTraceElements.length - 1; i >= 0; --i) {
+                StackTraceElement stackTraceElement = stackTraceElements[i];
+                stack.append(stackTraceElement.getClassName()).append('.').append(stackTraceElement.getMethodName());
+                if (i > 0) {
+                    stack.append(';');
+                }
+            }
+            countByStack.computeIfAbsent(stack.toString(), k -> new LongAdder()).increment();
+        }
+        samplesCount.incrementAndGet();
+    }
+
+    /**
+     * Prefix the stacks with the name of the thread. Default false (the same code in different threads is merged)
+     *
+     * @param includeThreadName
+     *            true to include
+     * @return this
+     */
+    public StackSamplingProfiler setIncludeThreadName(boolean includeThreadName) {
+        this.includeThreadName = includeThreadName;
+        return this;
+    }
+
+    /**
+     * Set the time between 2 samples. Default 20 ms
+     *
+     * @param intervalMs
+     *            the interval in milliseconds
+     * @return this
+     */
+    public StackSamplingProfiler setIntervalMs(long intervalMs) {
+        AssertTools.assertTrue(intervalMs > 0, "The interval must be positive");
+        this.intervalMs = intervalMs;
+        return this;
+    }
+
+    /**
+     * Keep only the frames closest to the leaf. Default 0 (all)
+     *
+     * @param maxDepth
+     *            the maximum amount of frames or 0 for all
+     * @return this
+     */
+    public StackSamplingProfiler setMaxDepth(int maxDepth) {
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * Sample only the threads that are running. Default true (the waiting threads are not using the CPU)
+     *
+     * @param onlyRunnable
+     *            true to skip the threads that are blocked or waiting
+     * @return this
+     */
+    public StackSamplingProfiler setOnlyRunnable(boolean onlyRunnable) {
+        this.onlyRunnable = onlyRunnable;
+        return this;
+    }
+
+    /**
+     * Start sampling in a daemon thread.
+     *
+     * @return this
+     */
+    public StackSamplingProfiler start() {
+        if (running) {
+            return this;
+        }
+        running = true;
+        ExecutorsTools.getCachedDaemonThreadPool().submit(this);
+        return this;
+    }
+
+    /**
+     * Stop sampling. The samples are kept.
+     */
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Write the collapsed stacks with the most seen first.
+     *
+     * @param file
+     *            the file to create or replace
+     */
+    public void writeCollapsedStacks(File file) {
+        List<Entry<String, Long>> entries = new ArrayList<>(getCountByStack().entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue(), a.getValue()));
+
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            for (Entry<String, Long> entry : entries) {
+                writer.write(entry.getKey());
+                writer.write(' ');
+                writer.write(String.valueOf(entry.getValue()));
+                writer.write('\n');
+            }
+        } catch (Exception e) {
+            throw new SmallToolsException("Problem writing the collapsed stacks to " + file, e);
+        }
+    }
+
+}
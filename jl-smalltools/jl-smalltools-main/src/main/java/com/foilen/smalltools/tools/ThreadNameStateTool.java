@@ -9,25 +9,144 @@
 package com.foilen.smalltools.tools;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import com.google.common.base.Joiner;
 
+/**
+ * To change the name of the current thread and revert it later.
+ *
+ * There are 2 modes:
+ * <ul>
+ * <li>Normal (see {@link ThreadTools#nameThread()}): each {@link #change()} formats all the parts and calls {@link Thread#setName(String)}.</li>
+ * <li>Lazy (see {@link ThreadTools#nameThreadLazy()}): each {@link #change()} only keeps the parts in a slot of the current thread. The parts (like the JSON) are formatted only when the name is
+ * needed: {@link #getName()}, {@link #getContextName(Thread)} (e.g. in {@link ThreadTools#printAllStackTraces()}) or {@link #materialize()} to really set the thread's name before logging. Since the
+ * objects are formatted later, they must not be modified after being appended.</li>
+ * </ul>
+ */
 public class ThreadNameStateTool {
 
-    private List<String> previousName;
-    private List<String> currentName;
-    private List<String> nextName;
+    private static class LazyPart {
+
+        private PartType type;
+        private Object value;
+
+        public LazyPart(PartType type, Object value) {
+            this.type = type;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            return format(type, value);
+        }
+
+    }
+
+    private static enum PartType {
+        CLASS, CLASS_SIMPLE, DATE, JSON, TEXT
+    }
+
+    private static class ThreadContext {
+
+        private String separator;
+        private volatile Object[] parts;
+
+        // The thread's name before materializing or null if not materialized
+        private String baseName;
+
+    }
+
+    private static final Map<Thread, ThreadContext> contextByThread = Collections.synchronizedMap(new WeakHashMap<>());
+    private static final ThreadLocal<ThreadContext> currentContext = ThreadLocal.withInitial(() -> {
+        ThreadContext threadContext = new ThreadContext();
+        contextByThread.put(Thread.currentThread(), threadContext);
+        return threadContext;
+    });
+
+    private static String format(PartType type, Object value) {
+        switch (type) {
+        case CLASS:
+            return value.getClass().getName();
+        case CLASS_SIMPLE:
+            return value.getClass().getSimpleName();
+        case DATE:
+            return DateTools.formatFull((Date) value);
+        case JSON:
+            return JsonTools.compactPrint(value);
+        default:
+            return value.toString();
+        }
+    }
+
+    /**
+     * Get the name of a thread that is using the lazy mode.
+     *
+     * @param thread
+     *            the thread
+     * @return the name from the lazy context or null if the thread never changed its name in lazy mode
+     */
+    public static String getContextName(Thread thread) {
+        ThreadContext threadContext = contextByThread.get(thread);
+        if (threadContext == null) {
+            return null;
+        }
+        Object[] parts = threadContext.parts;
+        if (parts == null) {
+            return null;
+        }
+        return Joiner.on(threadContext.separator).join(parts);
+    }
+
+    private ThreadContext threadContext;
+
+    private List<Object> previousName;
+    private List<Object> currentName;
+    private List<Object> nextName;
     private String separator = "";
 
     public ThreadNameStateTool() {
-        previousName = new ArrayList<>();
-        previousName.add(Thread.currentThread().getName());
-        currentName = new ArrayList<>();
-        currentName.add(Thread.currentThread().getName());
-        nextName = new ArrayList<>();
-        nextName.add(Thread.currentThread().getName());
+        this(false);
+    }
+
+    /**
+     * Create the tool for the current thread. In lazy mode, when another lazy tool already changed the name of the current thread, this one starts from that name.
+     *
+     * @param lazy
+     *            true to only keep the name in a context of the current thread without calling {@link Thread#setName(String)}
+     */
+    public ThreadNameStateTool(boolean lazy) {
+        List<Object> initialName = Collections.singletonList(Thread.currentThread().getName());
+        if (lazy) {
+            threadContext = currentContext.get();
+            Object[] parts = threadContext.parts;
+            if (parts != null) {
+                initialName = Arrays.asList(parts);
+                separator = threadContext.separator;
+            } else if (threadContext.baseName != null) {
+                initialName = Collections.singletonList(threadContext.baseName);
+            }
+        }
+
+        previousName = new ArrayList<>(initialName);
+        currentName = new ArrayList<>(initialName);
+        nextName = new ArrayList<>(initialName);
+    }
+
+    private ThreadNameStateTool append(PartType type, Object value) {
+        if (value == null) {
+            nextName.add("null");
+        } else if (threadContext == null) {
+            nextName.add(format(type, value));
+        } else {
+            nextName.add(new LazyPart(type, value));
+        }
+        return this;
     }
 
     /**
@@ -48,12 +167,7 @@ public class ThreadNameStateTool {
      * @return this
      */
     public ThreadNameStateTool appendDate(Date date) {
-        if (date == null) {
-            nextName.add("null");
-        } else {
-            nextName.add(DateTools.formatFull(date));
-        }
-        return this;
+        return append(PartType.DATE, date);
     }
 
     /**
@@ -64,12 +178,7 @@ public class ThreadNameStateTool {
      * @return this
      */
     public ThreadNameStateTool appendJson(Object object) {
-        if (object == null) {
-            nextName.add("null");
-        } else {
-            nextName.add(JsonTools.compactPrint(object));
-        }
-        return this;
+        return append(PartType.JSON, object);
     }
 
     /**
@@ -80,12 +189,7 @@ public class ThreadNameStateTool {
      * @return this
      */
     public ThreadNameStateTool appendObjectClass(Object object) {
-        if (object == null) {
-            nextName.add("null");
-        } else {
-            nextName.add(object.getClass().getName());
-        }
-        return this;
+        return append(PartType.CLASS, object);
     }
 
     /**
@@ -96,13 +200,7 @@ public class ThreadNameStateTool {
      * @return this
      */
     public ThreadNameStateTool appendObjectClassSimple(Object object) {
-        if (object == null) {
-            nextName.add("null");
-        } else {
-            nextName.add(object.getClass().getSimpleName());
-        }
-        return this;
-
+        return append(PartType.CLASS_SIMPLE, object);
     }
 
     /**
@@ -113,12 +211,7 @@ public class ThreadNameStateTool {
      * @return this
      */
     public ThreadNameStateTool appendObjectText(Object object) {
-        if (object == null) {
-            nextName.add("null");
-        } else {
-            nextName.add(object.toString());
-        }
-        return this;
+        return append(PartType.TEXT, object);
     }
 
     /**
@@ -134,7 +227,7 @@ public class ThreadNameStateTool {
     }
 
     /**
-     * Change the current thread name. Can be reverted with {@link #revert()}.
+     * Change the current thread name. Can be reverted with {@link #revert()}. In lazy mode, the thread name is put back to what it was before the last {@link #materialize()} if needed.
      *
      * @return this
      */
@@ -143,7 +236,16 @@ public class ThreadNameStateTool {
         previousName.addAll(currentName);
         currentName.clear();
         currentName.addAll(nextName);
-        Thread.currentThread().setName(Joiner.on(separator).join(nextName));
+        if (threadContext == null) {
+            Thread.currentThread().setName(getName());
+        } else {
+            if (threadContext.baseName != null) {
+                Thread.currentThread().setName(threadContext.baseName);
+                threadContext.baseName = null;
+            }
+            threadContext.separator = separator;
+            threadContext.parts = currentName.toArray();
+        }
         return this;
     }
 
@@ -157,6 +259,35 @@ public class ThreadNameStateTool {
         return this;
     }
 
+    /**
+     * Get the name set by the last {@link #change()}.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return Joiner.on(separator).join(currentName);
+    }
+
+    public boolean isLazy() {
+        return threadContext != null;
+    }
+
+    /**
+     * In lazy mode, really set the thread name to the name set by the last {@link #change()}. It is useful before logging or dumping when the thread name is used. The next {@link #change()} puts back
+     * the original thread name.
+     *
+     * @return this
+     */
+    public ThreadNameStateTool materialize() {
+        if (threadContext != null) {
+            if (threadContext.baseName == null) {
+                threadContext.baseName = Thread.currentThread().getName();
+            }
+            Thread.currentThread().setName(getName());
+        }
+        return this;
+    }
+
     /**
      * Remove the last part.
      *
@@ -186,4 +317,4 @@ public class ThreadNameStateTool {
         return this;
     }
 
-}
\ No newline at end of file
+}
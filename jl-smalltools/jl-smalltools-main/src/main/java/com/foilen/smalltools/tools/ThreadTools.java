@@ -97,12 +97,36 @@ public final class ThreadTools {
         return new ThreadNameStateTool();
     }
 
+    /**
+     * To help change the name of a thread and revert back later without calling {@link Thread#setName(String)} and without formatting the parts on each change. The name is visible in
+     * {@link #printAllStackTraces()} and can be really set with {@link ThreadNameStateTool#materialize()}.
+     *
+     * <pre>
+     * ThreadNameStateTool threadNameStateTool = ThreadTools.nameThreadLazy() //
+     *         .appendText("-") //
+     *         .appendJson(request) //
+     *         .change();
+     *
+     * threadNameStateTool.revert();
+     * </pre>
+     *
+     * @return the thread changer
+     */
+    public static ThreadNameStateTool nameThreadLazy() {
+        return new ThreadNameStateTool(true);
+    }
+
     /**
      * Write the stack trace of all threads to STDOUT.
      */
     public static void printAllStackTraces() {
         for (Entry<Thread, StackTraceElement[]> entry : Thread.getAllStackTraces().entrySet()) {
-            System.out.println(entry.getKey().getName());
+            String contextName = ThreadNameStateTool.getContextName(entry.getKey());
+            if (contextName == null) {
+                System.out.println(entry.getKey().getName());
+            } else {
+                System.out.println(entry.getKey().getName() + " (" + contextName + ")");
+            }
             printStackTrace(entry.getValue());
             System.out.println();
         }
@@ -8,6 +8,8 @@
  */
 package com.foilen.smalltools.tools;
 
+import com.foilen.smalltools.metrics.Histogram;
+
 public class TimeExecutionTools extends AbstractBasics {
 
     /**
@@ -24,4 +26,25 @@ public class TimeExecutionTools extends AbstractBasics {
 
     }
 
+    /**
+     * Measure the execution time in microseconds and record it in the histogram. The time is recorded even if the runnable throws an exception.
+     *
+     * @param histogram
+     *            where to record the execution time
+     * @param runnable
+     *            what to execute
+     * @return the execution time in microseconds
+     */
+    public static long measureInUs(Histogram histogram, Runnable runnable) {
+        long startNs = System.nanoTime();
+        long durationUs;
+        try {
+            runnable.run();
+        } finally {
+            durationUs = (System.nanoTime() - startNs) / 1000;
+            histogram.record(durationUs);
+        }
+        return durationUs;
+    }
+
 }
@@ -0,0 +1,38 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.sync;
+
+import java.util.Optional;
+
+/**
+ * A checkpoint store that keeps the checkpoint in memory. Useful to retry a failed sync in the same process.
+ *
+ * @param <I>
+ *            the id type
+ */
+public class InMemorySyncCheckpointStore<I> implements SyncCheckpointStore<I> {
+
+    private volatile Optional<I> lastSyncedId = Optional.empty();
+
+    @Override
+    public void clear() {
+        lastSyncedId = Optional.empty();
+    }
+
+    @Override
+    public Optional<I> load() {
+        return lastSyncedId;
+    }
+
+    @Override
+    public void save(I lastSyncedId) {
+        this.lastSyncedId = Optional.of(lastSyncedId);
+    }
+
+}
@@ -0,0 +1,56 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.sync;
+
+import java.io.File;
+import java.util.Optional;
+
+import com.foilen.smalltools.tools.AssertTools;
+import com.foilen.smalltools.tools.FileTools;
+import com.foilen.smalltools.tools.JsonTools;
+
+/**
+ * A checkpoint store that keeps the checkpoint in a JSON file to be able to resume after a restart.
+ *
+ * @param <I>
+ *            the id type
+ */
+public class JsonFileSyncCheckpointStore<I> implements SyncCheckpointStore<I> {
+
+    private String fileName;
+    private Class<I> idClass;
+
+    public JsonFileSyncCheckpointStore(String fileName, Class<I> idClass) {
+        this.fileName = fileName;
+        this.idClass = idClass;
+    }
+
+    @Override
+    public void clear() {
+        new File(fileName).delete();
+    }
+
+    @Override
+    public Optional<I> load() {
+        if (!FileTools.exists(fileName)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(JsonTools.readFromFile(fileName, idClass));
+    }
+
+    @Override
+    public void save(I lastSyncedId) {
+        String tmpFile = fileName + ".tmp";
+        JsonTools.writeToFile(tmpFile, lastSyncedId);
+        File target = new File(fileName);
+        target.delete();
+        AssertTools.assertTrue(new File(tmpFile).renameTo(target), "Could not move the temporary file");
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.sync;
+
+import java.util.Optional;
+
+/**
+ * Keeps the last id that was fully synced to be able to resume a sync that did not complete.
+ *
+ * @param <I>
+ *            the id type
+ */
+public interface SyncCheckpointStore<I> {
+
+    /**
+     * Remove the checkpoint. Called when the sync completed.
+     */
+    void clear();
+
+    /**
+     * Get the checkpoint.
+     *
+     * @return the last id that was fully synced or empty if there is none
+     */
+    Optional<I> load();
+
+    /**
+     * Save the checkpoint. Everything up to this id (inclusive) was synced.
+     *
+     * @param lastSyncedId
+     *            the last id that was fully synced
+     */
+    void save(I lastSyncedId);
+
+}
@@ -36,6 +36,7 @@ import com.foilen.smalltools.exception.SmallToolsException;
  * </p>
  * <ul>
  * <li>maxSliceSize = 1000</li>
+ * <li>pipelineQueueSize = 2 (only used by {@link SyncTools#syncPipelined(SyncConfiguration)})</li>
  * <li>needsUpdate returns always false (meaning only add and delete are applied)</li>
  * <li>updateHandler applies the delete and then applies the add</li>
  * </ul>
@@ -53,6 +54,23 @@ import com.foilen.smalltools.exception.SmallToolsException;
  * <li>deleteHandler to delete the entities with the specified ids to the destination</li>
  * </ul>
  *
+ * <p>
+ * Mandatories when using {@link SyncTools#syncRangeDigest(SyncConfiguration)}:
+ * </p>
+ * <ul>
+ * <li>sourceRangeDigest to compute the count, hash and middle id of the desired range on the source</li>
+ * <li>destinationRangeDigest to compute the count, hash and middle id of the desired range on the destination</li>
+ * </ul>
+ *
+ * <p>
+ * Optionals:
+ * </p>
+ * <ul>
+ * <li>checkpointStore to save the last synced id after each slice and resume from it when the sync is executed again after a failure (used by {@link SyncTools#sync(SyncConfiguration)} and
+ * {@link SyncTools#syncPipelined(SyncConfiguration)})</li>
+ * <li>progressListener to receive the progress and the latencies of each side after each slice</li>
+ * </ul>
+ *
  *
  * @param <I>
  *            the id type
@@ -64,6 +82,9 @@ import com.foilen.smalltools.exception.SmallToolsException;
 public class SyncConfiguration<I, E, P> {
 
     private long maxSliceSize = 1000;
+    private SyncCheckpointStore<I> checkpointStore;
+    private SyncProgressListener<I> progressListener;
+    private int pipelineQueueSize = 2;
 
     private Function<E, I> idFromEntity = (a -> {
         throw new SmallToolsException("idFromEntity not provided");
@@ -82,6 +103,13 @@ public class SyncConfiguration<I, E, P> {
         throw new SmallToolsException("destinationSlice not provided");
     });
 
+    private SyncConfigurationRangeDigest<I> sourceRangeDigest = (a -> {
+        throw new SmallToolsException("sourceRangeDigest not provided");
+    });
+    private SyncConfigurationRangeDigest<I> destinationRangeDigest = (a -> {
+        throw new SmallToolsException("destinationRangeDigest not provided");
+    });
+
     private SyncConfigurationCheckUpdate<E, P> needsUpdate = ((a, b) -> false);
 
     private Consumer<List<E>> addHandler = (a -> {
@@ -99,6 +127,10 @@ public class SyncConfiguration<I, E, P> {
         return addHandler;
     }
 
+    public SyncCheckpointStore<I> getCheckpointStore() {
+        return checkpointStore;
+    }
+
     public BiFunction<I, I, Integer> getCompareId() {
         return compareId;
     }
@@ -107,6 +139,10 @@ public class SyncConfiguration<I, E, P> {
         return deleteHandler;
     }
 
+    public SyncConfigurationRangeDigest<I> getDestinationRangeDigest() {
+        return destinationRangeDigest;
+    }
+
     public SyncConfigurationRetrieveSlice<I, P> getDestinationSlice() {
         return destinationSlice;
     }
@@ -127,6 +163,18 @@ public class SyncConfiguration<I, E, P> {
         return needsUpdate;
     }
 
+    public int getPipelineQueueSize() {
+        return pipelineQueueSize;
+    }
+
+    public SyncProgressListener<I> getProgressListener() {
+        return progressListener;
+    }
+
+    public SyncConfigurationRangeDigest<I> getSourceRangeDigest() {
+        return sourceRangeDigest;
+    }
+
     public SyncConfigurationRetrieveSlice<I, E> getSourceSlice() {
         return sourceSlice;
     }
@@ -140,6 +188,11 @@ public class SyncConfiguration<I, E, P> {
         return this;
     }
 
+    public SyncConfiguration<I, E, P> setCheckpointStore(SyncCheckpointStore<I> checkpointStore) {
+        this.checkpointStore = checkpointStore;
+        return this;
+    }
+
     public SyncConfiguration<I, E, P> setCompareId(BiFunction<I, I, Integer> compareId) {
         this.compareId = compareId;
         return this;
@@ -150,6 +203,11 @@ public class SyncConfiguration<I, E, P> {
         return this;
     }
 
+    public SyncConfiguration<I, E, P> setDestinationRangeDigest(SyncConfigurationRangeDigest<I> destinationRangeDigest) {
+        this.destinationRangeDigest = destinationRangeDigest;
+        return this;
+    }
+
     public SyncConfiguration<I, E, P> setDestinationSlice(SyncConfigurationRetrieveSlice<I, P> destinationSlice) {
         this.destinationSlice = destinationSlice;
         return this;
@@ -175,6 +233,28 @@ public class SyncConfiguration<I, E, P> {
         return this;
     }
 
+    /**
+     * When using {@link SyncTools#syncPipelined(SyncConfiguration)}, the amount of slices that can be retrieved in advance on each side.
+     *
+     * @param pipelineQueueSize
+     *            the amount of slices
+     * @return this
+     */
+    public SyncConfiguration<I, E, P> setPipelineQueueSize(int pipelineQueueSize) {
+        this.pipelineQueueSize = pipelineQueueSize;
+        return this;
+    }
+
+    public SyncConfiguration<I, E, P> setProgressListener(SyncProgressListener<I> progressListener) {
+        this.progressListener = progressListener;
+        return this;
+    }
+
+    public SyncConfiguration<I, E, P> setSourceRangeDigest(SyncConfigurationRangeDigest<I> sourceRangeDigest) {
+        this.sourceRangeDigest = sourceRangeDigest;
+        return this;
+    }
+
     public SyncConfiguration<I, E, P> setSourceSlice(SyncConfigurationRetrieveSlice<I, E> sourceSlice) {
         this.sourceSlice = sourceSlice;
         return this;
@@ -0,0 +1,21 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.sync;
+
+/**
+ * A method to compute the digest of all the items in a range.
+ *
+ * @param <I>
+ *            the id type
+ */
+public interface SyncConfigurationRangeDigest<I> {
+
+    SyncRangeDigest<I> call(SyncSlice<I> slice);
+
+}
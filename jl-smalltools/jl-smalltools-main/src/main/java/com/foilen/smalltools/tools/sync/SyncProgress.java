@@ -0,0 +1,108 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.sync;
+
+import java.util.Optional;
+
+import com.foilen.smalltools.tools.AbstractBasics;
+
+/**
+ * The progress of a sync. The latencies let you see which side is the bottleneck.
+ *
+ * @param <I>
+ *            the id type
+ */
+public class SyncProgress<I> extends AbstractBasics {
+
+    protected long elapsedMs;
+    protected long slices;
+    protected Optional<I> lastSyncedId = Optional.empty();
+    protected SyncChanges changes = new SyncChanges();
+
+    protected long sourceItems;
+    protected long destinationItems;
+
+    protected long lastSliceSourceMs;
+    protected long lastSliceDestinationMs;
+    protected long lastSliceHandlersMs;
+
+    protected long totalSourceMs;
+    protected long totalDestinationMs;
+    protected long totalHandlersMs;
+
+    public SyncChanges getChanges() {
+        return changes;
+    }
+
+    public long getDestinationItems() {
+        return destinationItems;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+
+    /**
+     * The amount of items retrieved on both sides per second since the beginning.
+     *
+     * @return the rate
+     */
+    public double getItemsPerSecond() {
+        if (elapsedMs == 0) {
+            return 0;
+        }
+        return getScannedItems() * 1000.0 / elapsedMs;
+    }
+
+    public long getLastSliceDestinationMs() {
+        return lastSliceDestinationMs;
+    }
+
+    public long getLastSliceHandlersMs() {
+        return lastSliceHandlersMs;
+    }
+
+    public long getLastSliceSourceMs() {
+        return lastSliceSourceMs;
+    }
+
+    public Optional<I> getLastSyncedId() {
+        return lastSyncedId;
+    }
+
+    /**
+     * The amount of items retrieved on both sides.
+     *
+     * @return the amount
+     */
+    public long getScannedItems() {
+        return sourceItems + destinationItems;
+    }
+
+    public long getSlices() {
+        return slices;
+    }
+
+    public long getSourceItems() {
+        return sourceItems;
+    }
+
+    public long getTotalDestinationMs() {
+        return totalDestinationMs;
+    }
+
+    public long getTotalHandlersMs() {
+        return totalHandlersMs;
+    }
+
+    public long getTotalSourceMs() {
+        return totalSourceMs;
+    }
+
+}
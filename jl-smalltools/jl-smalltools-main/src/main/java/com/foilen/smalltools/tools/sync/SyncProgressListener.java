@@ -0,0 +1,21 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.sync;
+
+/**
+ * Receives the progress of a sync after each slice.
+ *
+ * @param <I>
+ *            the id type
+ */
+public interface SyncProgressListener<I> {
+
+    void progress(SyncProgress<I> progress);
+
+}
@@ -0,0 +1,97 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.sync;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records the timings of a sync (possibly from multiple threads) and sends snapshots to the {@link SyncProgressListener}.
+ *
+ * @param <I>
+ *            the id type
+ */
+class SyncProgressTracker<I> {
+
+    private static long toMs(long ns) {
+        return TimeUnit.NANOSECONDS.toMillis(ns);
+    }
+
+    private SyncProgressListener<I> listener;
+    private long startNs = System.nanoTime();
+    private long slices;
+
+    private AtomicLong sourceItems = new AtomicLong();
+    private AtomicLong destinationItems = new AtomicLong();
+
+    private volatile long lastSourceNs;
+    private volatile long lastDestinationNs;
+    private volatile long lastHandlersNs;
+    private AtomicLong totalSourceNs = new AtomicLong();
+    private AtomicLong totalDestinationNs = new AtomicLong();
+    private AtomicLong totalHandlersNs = new AtomicLong();
+
+    public SyncProgressTracker(SyncProgressListener<I> listener) {
+        this.listener = listener;
+    }
+
+    public void recordDestination(int items, long ns) {
+        destinationItems.addAndGet(items);
+        lastDestinationNs = ns;
+        totalDestinationNs.addAndGet(ns);
+    }
+
+    public void recordHandlers(long ns) {
+        lastHandlersNs = ns;
+        totalHandlersNs.addAndGet(ns);
+    }
+
+    public void recordSource(int items, long ns) {
+        sourceItems.addAndGet(items);
+        lastSourceNs = ns;
+        totalSourceNs.addAndGet(ns);
+    }
+
+    /**
+     * Send the progress to the listener if there is one.
+     *
+     * @param changes
+     *            the changes up to now
+     * @param lastSyncedId
+     *            the last id that was processed
+     */
+    public void report(SyncChanges changes, Optional<I> lastSyncedId) {
+        ++slices;
+        if (listener == null) {
+            return;
+        }
+
+        SyncProgress<I> progress = new SyncProgress<>();
+        progress.elapsedMs = toMs(System.nanoTime() - startNs);
+        progress.slices = slices;
+        progress.lastSyncedId = lastSyncedId;
+        progress.changes.added = changes.added;
+        progress.changes.updated = changes.updated;
+        progress.changes.deleted = changes.deleted;
+
+        progress.sourceItems = sourceItems.get();
+        progress.destinationItems = destinationItems.get();
+
+        progress.lastSliceSourceMs = toMs(lastSourceNs);
+        progress.lastSliceDestinationMs = toMs(lastDestinationNs);
+        progress.lastSliceHandlersMs = toMs(lastHandlersNs);
+        progress.totalSourceMs = toMs(totalSourceNs.get());
+        progress.totalDestinationMs = toMs(totalDestinationNs.get());
+        progress.totalHandlersMs = toMs(totalHandlersNs.get());
+
+        listener.progress(progress);
+    }
+
+}
@@ -0,0 +1,97 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.sync;
+
+import java.util.Objects;
+import java.util.Optional;
+
+import com.foilen.smalltools.tools.AbstractBasics;
+
+/**
+ * The summary of all the items of one side in a range of ids.
+ *
+ * @param <I>
+ *            the id type
+ */
+public class SyncRangeDigest<I> extends AbstractBasics {
+
+    private long count;
+    private String hash;
+    private Optional<I> middleId = Optional.empty();
+
+    public SyncRangeDigest() {
+    }
+
+    public SyncRangeDigest(long count, String hash, Optional<I> middleId) {
+        this.count = count;
+        this.hash = hash;
+        this.middleId = middleId;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public String getHash() {
+        return hash;
+    }
+
+    public Optional<I> getMiddleId() {
+        return middleId;
+    }
+
+    /**
+     * Tells if both sides have the same content in the range.
+     *
+     * @param other
+     *            the digest of the other side
+     * @return true if the counts and the hashes are the same
+     */
+    public boolean sameContent(SyncRangeDigest<I> other) {
+        return count == other.count && Objects.equals(hash, other.hash);
+    }
+
+    /**
+     * The amount of items in the range.
+     *
+     * @param count
+     *            the amount
+     * @return this
+     */
+    public SyncRangeDigest<I> setCount(long count) {
+        this.count = count;
+        return this;
+    }
+
+    /**
+     * An aggregated hash of all the items in the range. It must only contain what is needed to know if an item needs to be updated (like the "version" used in
+     * {@link SyncConfiguration#getNeedsUpdate()}) and be computed the same way on both sides.
+     *
+     * @param hash
+     *            the hash
+     * @return this
+     */
+    public SyncRangeDigest<I> setHash(String hash) {
+        this.hash = hash;
+        return this;
+    }
+
+    /**
+     * An id around the middle of the range. It is used to split the range in 2 when the hashes are different.
+     *
+     * @param middleId
+     *            the id or empty if the range is empty
+     * @return this
+     */
+    public SyncRangeDigest<I> setMiddleId(Optional<I> middleId) {
+        this.middleId = middleId;
+        return this;
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.sync;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+
+/**
+ * Reads all the items of one side, slice after slice, in a separate task that stays a few slices ahead of the consumer.
+ *
+ * @param <I>
+ *            the id type
+ * @param <T>
+ *            the partial or full entity type
+ */
+class SyncSliceCursor<I, T> {
+
+    private static class Page<T> {
+
+        private List<T> items;
+        private Throwable error;
+
+        public Page(List<T> items, Throwable error) {
+            this.items = items;
+            this.error = error;
+        }
+
+    }
+
+    private BlockingQueue<Page<T>> pages;
+    private Future<?> future;
+
+    private List<T> current = Collections.emptyList();
+    private int currentPosition;
+    private boolean ended;
+
+    public SyncSliceCursor(ExecutorService executorService, SyncConfigurationRetrieveSlice<I, T> retrieveSlice, Function<T, I> idFromItem, SyncSlice<I> slice, long maxSliceSize, int queueSize,
+            BiConsumer<Integer, Long> retrieveRecorder) {
+        this.pages = new ArrayBlockingQueue<>(Math.max(1, queueSize));
+        Optional<I> beforeOrEqualId = slice.getBeforeOrEqualId();
+        Optional<I> initialAfterId = slice.getAfterId();
+        future = executorService.submit(() -> {
+            Optional<I> afterId = initialAfterId;
+            try {
+                while (true) {
+                    long startNs = System.nanoTime();
+                    List<T> items = retrieveSlice.call(new SyncSlice<I>().setAfterId(afterId).setBeforeOrEqualId(beforeOrEqualId), maxSliceSize);
+                    retrieveRecorder.accept(items.size(), System.nanoTime() - startNs);
+                    pages.put(new Page<>(items, null));
+                    if (items.isEmpty()) {
+                        return;
+                    }
+                    afterId = Optional.of(idFromItem.apply(items.get(items.size() - 1)));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Throwable e) {
+                try {
+                    pages.put(new Page<>(Collections.emptyList(), e));
+                } catch (InterruptedException e1) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the prefetching task.
+     */
+    public void close() {
+        future.cancel(true);
+    }
+
+    /**
+     * Go to the next item.
+     */
+    public void next() {
+        if (peek() != null) {
+            ++currentPosition;
+        }
+    }
+
+    /**
+     * Get the current item.
+     *
+     * @return the item or null if there are no more
+     */
+    public T peek() {
+        while (currentPosition >= current.size()) {
+            if (ended) {
+                return null;
+            }
+            Page<T> page;
+            try {
+                page = pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SmallToolsException("Interrupted while waiting for a slice", e);
+            }
+            if (page.error != null) {
+                ended = true;
+                throw new SmallToolsException("Problem retrieving a slice", page.error);
+            }
+            current = page.items;
+            currentPosition = 0;
+            ended = current.isEmpty();
+        }
+        return current.get(currentPosition);
+    }
+
+}
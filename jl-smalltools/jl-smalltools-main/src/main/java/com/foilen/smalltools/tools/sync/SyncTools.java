@@ -8,14 +8,26 @@
  */
 package com.foilen.smalltools.tools.sync;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.metrics.MetricsRegistry;
+import com.foilen.smalltools.tools.ExecutorsTools;
+import com.foilen.smalltools.tools.ThreadTools;
 import com.foilen.smalltools.tuple.Tuple2;
 
 /**
@@ -23,7 +35,21 @@ import com.foilen.smalltools.tuple.Tuple2;
  * changed (per id and your defined subset to check for change). <br/>
  * <br/>
  *
- * See {@link SyncConfiguration} for more detail.
+ * See {@link SyncConfiguration} for more detail. <br/>
+ * <br/>
+ *
+ * There are 4 ways to execute it:
+ * <ul>
+ * <li>{@link #sync(SyncConfiguration)}: retrieves a slice on both sides, applies the changes and then retrieves the next slices.</li>
+ * <li>{@link #syncPipelined(SyncConfiguration)}: retrieves the next slices of both sides in other threads while the current ones are compared and applies the changes in another thread while
+ * comparing the next ones.</li>
+ * <li>{@link #syncPartitioned(SyncConfiguration, List, int)}: splits the ids in ranges and syncs them concurrently in pipelined mode.</li>
+ * <li>{@link #syncRangeDigest(SyncConfiguration)}: compares digests of ranges of ids on both sides, skips the identical ranges and splits the different ones until they are small enough to be
+ * synced normally.</li>
+ * </ul>
+ *
+ * Every execution is published in {@link MetricsRegistry#getDefault()}: the "syncTools.{mode}.durationUs" histogram (mode is "sync", "pipelined", "partitioned" or "rangeDigest"; also recorded when
+ * the sync fails) and the "syncTools.added", "syncTools.updated" and "syncTools.deleted" counters.
  *
  * <pre>
  * Dependencies:
@@ -34,6 +60,50 @@ public final class SyncTools {
 
     private final static Logger log = LoggerFactory.getLogger(SyncTools.class);
 
+    private static <E, I, P> void applyChanges(SyncConfiguration<I, E, P> syncConfiguration, List<E> toAdd, List<E> toUpdate, List<I> toRemove) {
+        log.debug("Will apply changes: add {} ; update {} ; delete {}", toAdd.size(), toUpdate.size(), toRemove.size());
+        if (!toRemove.isEmpty()) {
+            syncConfiguration.getDeleteHandler().accept(toRemove);
+        }
+        if (!toUpdate.isEmpty()) {
+            syncConfiguration.getUpdateHandler().accept(toUpdate);
+        }
+        if (!toAdd.isEmpty()) {
+            syncConfiguration.getAddHandler().accept(toAdd);
+        }
+    }
+
+    private static <E, I, P> Future<?> applyChangesAsync(SyncConfiguration<I, E, P> syncConfiguration, ExecutorService executorService, Future<?> previous, SyncChanges changes, List<E> toAdd,
+            List<E> toUpdate, List<I> toRemove, I lastId, SyncCheckpointStore<I> checkpointStore, SyncProgressTracker<I> progressTracker) {
+
+        // One batch at a time to keep the order
+        waitFor(previous);
+
+        if (toAdd.isEmpty() && toUpdate.isEmpty() && toRemove.isEmpty()) {
+            if (checkpointStore != null && lastId != null) {
+                checkpointStore.save(lastId);
+            }
+            progressTracker.report(changes, Optional.ofNullable(lastId));
+            return null;
+        }
+
+        // Only count and report the batch once it is applied
+        return executorService.submit(() -> {
+            long startNs = System.nanoTime();
+            applyChanges(syncConfiguration, toAdd, toUpdate, toRemove);
+            progressTracker.recordHandlers(System.nanoTime() - startNs);
+
+            changes.added += toAdd.size();
+            changes.updated += toUpdate.size();
+            changes.deleted += toRemove.size();
+
+            if (checkpointStore != null) {
+                checkpointStore.save(lastId);
+            }
+            progressTracker.report(changes, Optional.ofNullable(lastId));
+        });
+    }
+
     private static <E, I, P> I findFrom(SyncConfiguration<I, E, P> syncConfiguration, SyncSlice<I> syncSlice, List<E> sourceEntities, List<P> destinationEntities) {
 
         I from = null;
@@ -92,6 +162,33 @@ public final class SyncTools {
         return to;
     }
 
+    private static SyncChanges recordChanges(SyncChanges changes) {
+        MetricsRegistry registry = MetricsRegistry.getDefault();
+        registry.counter("syncTools.added").add(changes.added);
+        registry.counter("syncTools.updated").add(changes.updated);
+        registry.counter("syncTools.deleted").add(changes.deleted);
+        return changes;
+    }
+
+    private static void recordDuration(String mode, long startNs) {
+        MetricsRegistry.getDefault().histogram("syncTools." + mode + ".durationUs").recordMicrosSince(startNs);
+    }
+
+    private static <E, I, P> void resumeFromCheckpoint(SyncConfiguration<I, E, P> syncConfiguration, SyncCheckpointStore<I> checkpointStore, SyncSlice<I> slice) {
+        if (checkpointStore == null) {
+            return;
+        }
+        Optional<I> checkpoint = checkpointStore.load();
+        if (!checkpoint.isPresent()) {
+            return;
+        }
+        if (slice.getAfterId().isPresent() && syncConfiguration.getCompareId().apply(checkpoint.get(), slice.getAfterId().get()) <= 0) {
+            return;
+        }
+        log.info("Resuming the sync after the checkpoint {}", checkpoint.get());
+        slice.setAfterId(checkpoint);
+    }
+
     /**
      * Execute the sync.
      *
@@ -125,9 +222,21 @@ public final class SyncTools {
      * @return the added, updated and deleted counts
      */
     public static final <E, I, P> SyncChanges sync(SyncConfiguration<I, E, P> syncConfiguration, SyncSlice<I> slice) {
+        long startNs = System.nanoTime();
+        try {
+            return recordChanges(sync(syncConfiguration, slice, true));
+        } finally {
+            recordDuration("sync", startNs);
+        }
+    }
+
+    private static <E, I, P> SyncChanges sync(SyncConfiguration<I, E, P> syncConfiguration, SyncSlice<I> slice, boolean useCheckpoint) {
 
         // Initial
         SyncChanges changes = new SyncChanges();
+        SyncCheckpointStore<I> checkpointStore = useCheckpoint ? syncConfiguration.getCheckpointStore() : null;
+        resumeFromCheckpoint(syncConfiguration, checkpointStore, slice);
+        SyncProgressTracker<I> progressTracker = new SyncProgressTracker<>(syncConfiguration.getProgressListener());
 
         List<E> sourceEntities = null;
         List<P> destinationEntities = null;
@@ -143,11 +252,15 @@ public final class SyncTools {
 
             // Check the destination
             if (updateSource) {
+                long startNs = System.nanoTime();
                 sourceEntities = syncConfiguration.getSourceSlice().call(slice, syncConfiguration.getMaxSliceSize());
+                progressTracker.recordSource(sourceEntities.size(), System.nanoTime() - startNs);
                 updateSource = false;
             }
             if (updateDestination) {
+                long startNs = System.nanoTime();
                 destinationEntities = syncConfiguration.getDestinationSlice().call(slice, syncConfiguration.getMaxSliceSize());
+                progressTracker.recordDestination(destinationEntities.size(), System.nanoTime() - startNs);
                 updateDestination = false;
             }
 
@@ -219,16 +332,9 @@ public final class SyncTools {
                 }
 
                 // Apply changes
-                log.debug("Will apply changes: add {} ; update {} ; delete {}", toAdd.size(), toUpdate.size(), toRemove.size());
-                if (!toRemove.isEmpty()) {
-                    syncConfiguration.getDeleteHandler().accept(toRemove);
-                }
-                if (!toUpdate.isEmpty()) {
-                    syncConfiguration.getUpdateHandler().accept(toUpdate);
-                }
-                if (!toAdd.isEmpty()) {
-                    syncConfiguration.getAddHandler().accept(toAdd);
-                }
+                long startNs = System.nanoTime();
+                applyChanges(syncConfiguration, toAdd, toUpdate, toRemove);
+                progressTracker.recordHandlers(System.nanoTime() - startNs);
 
                 changes.added += toAdd.size();
                 changes.updated += toUpdate.size();
@@ -248,10 +354,383 @@ public final class SyncTools {
                 slice.setAfterId(Optional.of(toId));
                 fromId = toId;
 
+                if (checkpointStore != null) {
+                    checkpointStore.save(toId);
+                }
+                progressTracker.report(changes, slice.getAfterId());
+
+            }
+        }
+
+        if (checkpointStore != null) {
+            checkpointStore.clear();
+        }
+
+        return changes;
+
+    }
+
+    /**
+     * Execute the sync on multiple ranges concurrently. Each range is synced with {@link #syncPipelined(SyncConfiguration, SyncSlice)}, so the retrieve methods and the handlers must support being
+     * called from multiple threads at the same time.
+     *
+     * @param syncConfiguration
+     *            all the methods to sync
+     * @param boundaries
+     *            the ids (ascending) where to split the ranges. With boundaries "b1" and "b2", the ranges are: up to "b1" (inclusive) ; after "b1" up to "b2" (inclusive) ; after "b2"
+     * @param parallelism
+     *            the maximum amount of ranges to sync at the same time
+     * @param <E>
+     *            the entity type
+     * @param <I>
+     *            the id type
+     * @param <P>
+     *            the partial entity type
+     * @return the added, updated and deleted counts of all the ranges
+     */
+    public static final <E, I, P> SyncChanges syncPartitioned(SyncConfiguration<I, E, P> syncConfiguration, List<I> boundaries, int parallelism) {
+
+        long startNs = System.nanoTime();
+        try {
+
+            // Create the ranges
+            List<SyncSlice<I>> slices = new ArrayList<>();
+            Optional<I> afterId = Optional.empty();
+            for (I boundary : boundaries) {
+                if (afterId.isPresent() && syncConfiguration.getCompareId().apply(afterId.get(), boundary) >= 0) {
+                    throw new SmallToolsException("The boundaries must be in ascending order");
+                }
+                slices.add(new SyncSlice<I>().setAfterId(afterId).setBeforeOrEqualId(Optional.of(boundary)));
+                afterId = Optional.of(boundary);
+            }
+            slices.add(new SyncSlice<I>().setAfterId(afterId));
+            log.debug("Syncing {} ranges with a parallelism of {}", slices.size(), parallelism);
+
+            // Sync them
+            ExecutorService partitionsExecutorService = Executors.newFixedThreadPool(Math.max(1, parallelism), ThreadTools.daemonThreadFactory());
+            try {
+                List<Future<SyncChanges>> futures = new ArrayList<>();
+                for (SyncSlice<I> slice : slices) {
+                    futures.add(partitionsExecutorService.submit(() -> syncPipelined(syncConfiguration, slice, ExecutorsTools.getCachedDaemonThreadPool(), false)));
+                }
+
+                SyncChanges changes = new SyncChanges();
+                for (Future<SyncChanges> future : futures) {
+                    SyncChanges rangeChanges = waitFor(future);
+                    changes.added += rangeChanges.added;
+                    changes.updated += rangeChanges.updated;
+                    changes.deleted += rangeChanges.deleted;
+                }
+                return recordChanges(changes);
+            } finally {
+                partitionsExecutorService.shutdownNow();
+            }
+        } finally {
+            recordDuration("partitioned", startNs);
+        }
+    }
+
+    /**
+     * Execute the sync in pipelined mode using the shared daemon thread pool.
+     *
+     * @param syncConfiguration
+     *            all the methods to sync
+     * @param <E>
+     *            the entity type
+     * @param <I>
+     *            the id type
+     * @param <P>
+     *            the partial entity type
+     * @return the added, updated and deleted counts
+     * @see #syncPipelined(SyncConfiguration, SyncSlice, ExecutorService)
+     */
+    public static final <E, I, P> SyncChanges syncPipelined(SyncConfiguration<I, E, P> syncConfiguration) {
+        return syncPipelined(syncConfiguration, new SyncSlice<>());
+    }
+
+    /**
+     * Execute the sync in pipelined mode using the shared daemon thread pool.
+     *
+     * @param syncConfiguration
+     *            all the methods to sync
+     * @param slice
+     *            to specify a range of update
+     * @param <E>
+     *            the entity type
+     * @param <I>
+     *            the id type
+     * @param <P>
+     *            the partial entity type
+     * @return the added, updated and deleted counts
+     * @see #syncPipelined(SyncConfiguration, SyncSlice, ExecutorService)
+     */
+    public static final <E, I, P> SyncChanges syncPipelined(SyncConfiguration<I, E, P> syncConfiguration, SyncSlice<I> slice) {
+        return syncPipelined(syncConfiguration, slice, ExecutorsTools.getCachedDaemonThreadPool());
+    }
+
+    /**
+     * Execute the sync in pipelined mode:
+     * <ul>
+     * <li>The source and the destination are each read in their own task, up to {@link SyncConfiguration#getPipelineQueueSize()} slices in advance.</li>
+     * <li>The comparison is done on the current thread.</li>
+     * <li>The changes are applied in another task (one batch at a time, in order) while the next batch is compared.</li>
+     * </ul>
+     *
+     * Since the destination can be read while changes are applied, the retrieve methods and the handlers must support being called from different threads at the same time. Items that are retrieved
+     * with an id that was already processed are ignored.
+     *
+     * @param syncConfiguration
+     *            all the methods to sync
+     * @param slice
+     *            to specify a range of update
+     * @param executorService
+     *            the executor that runs the 3 tasks. It must be able to run them at the same time
+     * @param <E>
+     *            the entity type
+     * @param <I>
+     *            the id type
+     * @param <P>
+     *            the partial entity type
+     * @return the added, updated and deleted counts
+     */
+    public static final <E, I, P> SyncChanges syncPipelined(SyncConfiguration<I, E, P> syncConfiguration, SyncSlice<I> slice, ExecutorService executorService) {
+        long startNs = System.nanoTime();
+        try {
+            return recordChanges(syncPipelined(syncConfiguration, slice, executorService, true));
+        } finally {
+            recordDuration("pipelined", startNs);
+        }
+    }
+
+    private static <E, I, P> SyncChanges syncPipelined(SyncConfiguration<I, E, P> syncConfiguration, SyncSlice<I> slice, ExecutorService executorService, boolean useCheckpoint) {
+
+        BiFunction<I, I, Integer> compareId = syncConfiguration.getCompareId();
+        Function<E, I> idFromEntity = syncConfiguration.getIdFromEntity();
+        Function<P, I> idFromPartial = syncConfiguration.getIdFromPartial();
+        long maxSliceSize = syncConfiguration.getMaxSliceSize();
+
+        SyncChanges changes = new SyncChanges();
+        SyncCheckpointStore<I> checkpointStore = useCheckpoint ? syncConfiguration.getCheckpointStore() : null;
+        SyncSlice<I> resumedSlice = new SyncSlice<I>().setAfterId(slice.getAfterId()).setBeforeOrEqualId(slice.getBeforeOrEqualId());
+        resumeFromCheckpoint(syncConfiguration, checkpointStore, resumedSlice);
+        SyncProgressTracker<I> progressTracker = new SyncProgressTracker<>(syncConfiguration.getProgressListener());
+
+        SyncSliceCursor<I, E> sourceCursor = new SyncSliceCursor<>(executorService, syncConfiguration.getSourceSlice(), idFromEntity, resumedSlice, maxSliceSize,
+                syncConfiguration.getPipelineQueueSize(), progressTracker::recordSource);
+        SyncSliceCursor<I, P> destinationCursor = new SyncSliceCursor<>(executorService, syncConfiguration.getDestinationSlice(), idFromPartial, resumedSlice, maxSliceSize,
+                syncConfiguration.getPipelineQueueSize(), progressTracker::recordDestination);
+        Future<?> applying = null;
+        try {
+
+            List<E> toAdd = new ArrayList<>();
+            List<I> toRemove = new ArrayList<>();
+            List<E> toUpdate = new ArrayList<>();
+            long processed = 0;
+            I lastId = null;
+
+            while (true) {
+
+                // Get the next items that were not already processed
+                E source = sourceCursor.peek();
+                I sourceId = source == null ? null : idFromEntity.apply(source);
+                if (sourceId != null && lastId != null && compareId.apply(sourceId, lastId) <= 0) {
+                    sourceCursor.next();
+                    continue;
+                }
+                P destination = destinationCursor.peek();
+                I destinationId = destination == null ? null : idFromPartial.apply(destination);
+                if (destinationId != null && lastId != null && compareId.apply(destinationId, lastId) <= 0) {
+                    destinationCursor.next();
+                    continue;
+                }
+
+                // Nothing more
+                if (source == null && destination == null) {
+                    log.debug("There is nothing else on both sides. Processing completed");
+                    break;
+                }
+
+                // Compare
+                int comparison;
+                if (source == null) {
+                    comparison = 1;
+                } else if (destination == null) {
+                    comparison = -1;
+                } else {
+                    comparison = compareId.apply(sourceId, destinationId);
+                }
+
+                if (comparison == 0) {
+                    // Check if needs updated
+                    if (syncConfiguration.getNeedsUpdate().check(source, destination)) {
+                        toUpdate.add(source);
+                    }
+                    lastId = sourceId;
+                    sourceCursor.next();
+                    destinationCursor.next();
+                } else if (comparison < 0) {
+                    // Missing on destination
+                    toAdd.add(source);
+                    lastId = sourceId;
+                    sourceCursor.next();
+                } else {
+                    // Extra on destination
+                    toRemove.add(destinationId);
+                    lastId = destinationId;
+                    destinationCursor.next();
+                }
+
+                // Apply in the background
+                if (++processed >= maxSliceSize) {
+                    log.debug("Processed up to {}", lastId);
+                    applying = applyChangesAsync(syncConfiguration, executorService, applying, changes, toAdd, toUpdate, toRemove, lastId, checkpointStore, progressTracker);
+                    toAdd = new ArrayList<>();
+                    toRemove = new ArrayList<>();
+                    toUpdate = new ArrayList<>();
+                    processed = 0;
+                }
+
+            }
+
+            // Apply the last ones
+            applying = applyChangesAsync(syncConfiguration, executorService, applying, changes, toAdd, toUpdate, toRemove, lastId, checkpointStore, progressTracker);
+            waitFor(applying);
+            applying = null;
+
+            if (checkpointStore != null) {
+                checkpointStore.clear();
+            }
+
+        } finally {
+            sourceCursor.close();
+            destinationCursor.close();
+
+            // Do not leave changes being applied after returning (already failing, so only log the problems of that last batch)
+            if (applying != null) {
+                try {
+                    applying.get();
+                } catch (InterruptedException e) {
+                    log.warn("Interrupted while waiting for the last changes to be applied", e);
+                    Thread.currentThread().interrupt();
+                } catch (Exception e) {
+                    log.error("Problem while applying the last changes", e);
+                }
             }
         }
 
         return changes;
+    }
 
+    /**
+     * Execute the sync by comparing digests of ranges.
+     *
+     * @param syncConfiguration
+     *            all the methods to sync
+     * @param <E>
+     *            the entity type
+     * @param <I>
+     *            the id type
+     * @param <P>
+     *            the partial entity type
+     * @return the added, updated and deleted counts
+     * @see #syncRangeDigest(SyncConfiguration, SyncSlice)
+     */
+    public static final <E, I, P> SyncChanges syncRangeDigest(SyncConfiguration<I, E, P> syncConfiguration) {
+        return syncRangeDigest(syncConfiguration, new SyncSlice<>());
     }
+
+    /**
+     * Execute the sync by comparing digests of ranges:
+     * <ul>
+     * <li>Both sides compute the digest of the range (see {@link SyncConfiguration#getSourceRangeDigest()} and {@link SyncConfiguration#getDestinationRangeDigest()}).</li>
+     * <li>If the digests are the same, the range is skipped.</li>
+     * <li>If the range is small enough (up to {@link SyncConfiguration#getMaxSliceSize()} items on both sides) or one side is empty, it is synced with {@link #sync(SyncConfiguration, SyncSlice)}.</li>
+     * <li>Otherwise, the range is split in 2 at the middle id and both halves are checked the same way.</li>
+     * </ul>
+     *
+     * When only a few items are different, only the digests of O(changes * log n) ranges are computed and only the items in the different small ranges are retrieved.
+     *
+     * @param syncConfiguration
+     *            all the methods to sync
+     * @param slice
+     *            to specify a range of update
+     * @param <E>
+     *            the entity type
+     * @param <I>
+     *            the id type
+     * @param <P>
+     *            the partial entity type
+     * @return the added, updated and deleted counts
+     */
+    public static final <E, I, P> SyncChanges syncRangeDigest(SyncConfiguration<I, E, P> syncConfiguration, SyncSlice<I> slice) {
+
+        long startNs = System.nanoTime();
+        try {
+            BiFunction<I, I, Integer> compareId = syncConfiguration.getCompareId();
+            SyncChanges changes = new SyncChanges();
+
+            // Process the ranges in ascending order
+            Deque<SyncSlice<I>> ranges = new ArrayDeque<>();
+            ranges.push(new SyncSlice<I>().setAfterId(slice.getAfterId()).setBeforeOrEqualId(slice.getBeforeOrEqualId()));
+            while (!ranges.isEmpty()) {
+                SyncSlice<I> range = ranges.pop();
+
+                SyncRangeDigest<I> sourceDigest = syncConfiguration.getSourceRangeDigest().call(range);
+                SyncRangeDigest<I> destinationDigest = syncConfiguration.getDestinationRangeDigest().call(range);
+                if (sourceDigest.sameContent(destinationDigest)) {
+                    log.debug("Range {} is the same on both sides ({} items)", range, sourceDigest.getCount());
+                    continue;
+                }
+
+                // Find where to split
+                Optional<I> middleId = sourceDigest.getMiddleId();
+                if (!middleId.isPresent()) {
+                    middleId = destinationDigest.getMiddleId();
+                }
+                boolean canSplit = middleId.isPresent() //
+                        && (!range.getAfterId().isPresent() || compareId.apply(middleId.get(), range.getAfterId().get()) > 0) //
+                        && (!range.getBeforeOrEqualId().isPresent() || compareId.apply(middleId.get(), range.getBeforeOrEqualId().get()) < 0);
+
+                // Small enough
+                long maxCount = Math.max(sourceDigest.getCount(), destinationDigest.getCount());
+                long minCount = Math.min(sourceDigest.getCount(), destinationDigest.getCount());
+                if (!canSplit || minCount == 0 || maxCount <= syncConfiguration.getMaxSliceSize()) {
+                    log.debug("Range {} is different. Syncing it ({} source items ; {} destination items)", range, sourceDigest.getCount(), destinationDigest.getCount());
+                    SyncChanges rangeChanges = sync(syncConfiguration, new SyncSlice<I>().setAfterId(range.getAfterId()).setBeforeOrEqualId(range.getBeforeOrEqualId()), false);
+                    changes.added += rangeChanges.added;
+                    changes.updated += rangeChanges.updated;
+                    changes.deleted += rangeChanges.deleted;
+                    continue;
+                }
+
+                // Split
+                log.debug("Range {} is different. Splitting at {}", range, middleId.get());
+                ranges.push(new SyncSlice<I>().setAfterId(middleId).setBeforeOrEqualId(range.getBeforeOrEqualId()));
+                ranges.push(new SyncSlice<I>().setAfterId(range.getAfterId()).setBeforeOrEqualId(middleId));
+            }
+
+            return recordChanges(changes);
+        } finally {
+            recordDuration("rangeDigest", startNs);
+        }
+    }
+
+    private static <T> T waitFor(Future<T> future) {
+        if (future == null) {
+            return null;
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SmallToolsException("Interrupted while syncing", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SmallToolsException("Problem while syncing", cause);
+        }
+    }
+
 }
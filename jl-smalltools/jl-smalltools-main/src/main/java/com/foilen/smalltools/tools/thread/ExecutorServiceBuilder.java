@@ -0,0 +1,231 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.thread;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.foilen.smalltools.metrics.MetricsRegistry;
+import com.foilen.smalltools.tools.AbstractBasics;
+import com.foilen.smalltools.tools.AssertTools;
+
+/**
+ * Build a bounded {@link ExecutorService} with named threads and metrics.
+ *
+ * The pool starts up to maxThreads threads before queuing the tasks and the idle threads are stopped after keepAliveMs. When all the threads are busy and the queue is full, the
+ * {@link RejectionPolicy} is applied. When the queueSize is 0, the idle threads are reused like {@link Executors#newCachedThreadPool()} instead of starting a new thread for each task
+ * until maxThreads is reached.
+ *
+ * The metrics are the ones of {@link InstrumentedExecutorService}.
+ *
+ * Usage:
+ *
+ * <pre>
+ * ExecutorService executorService = ExecutorsTools.builder("workers") //
+ *         .setMaxThreads(20) //
+ *         .setQueueSize(1000) //
+ *         .setRejectionPolicy(RejectionPolicy.CALLER_RUNS) //
+ *         .build();
+ * </pre>
+ */
+public class ExecutorServiceBuilder extends AbstractBasics {
+
+    private String name;
+    private int maxThreads = Runtime.getRuntime().availableProcessors();
+    private int queueSize = 1000;
+    private long keepAliveMs = 60000;
+    private boolean daemon = true;
+    private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+    private boolean virtualThreadsIfAvailable = false;
+    private MetricsRegistry metricsRegistry = MetricsRegistry.getDefault();
+
+    public ExecutorServiceBuilder(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Create the executor.
+     *
+     * @return the executor
+     */
+    public InstrumentedExecutorService build() {
+        AssertTools.assertNotNull(name, "The name is mandatory");
+        AssertTools.assertTrue(maxThreads > 0, "maxThreads must be 1 or bigger");
+        AssertTools.assertTrue(queueSize >= 0, "queueSize must be 0 or bigger");
+        AssertTools.assertNotNull(rejectionPolicy, "The rejection policy is mandatory");
+
+        ExecutorService delegate = null;
+        if (virtualThreadsIfAvailable) {
+            delegate = createVirtualThreadPerTaskExecutor();
+        }
+        if (delegate == null) {
+            delegate = createThreadPoolExecutor();
+        }
+        return new InstrumentedExecutorService(delegate, name, metricsRegistry);
+    }
+
+    private ExecutorService createThreadPoolExecutor() {
+        BlockingQueue<Runnable> queue;
+        if (queueSize == 0) {
+            queue = new SynchronousQueue<>();
+        } else if (queueSize == Integer.MAX_VALUE) {
+            queue = new LinkedBlockingQueue<>();
+        } else {
+            queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        AtomicInteger nextThreadId = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + nextThreadId.getAndIncrement());
+            thread.setDaemon(daemon);
+            return thread;
+        };
+
+        // Without a queue, only keep the idle threads to reuse them
+        int coreThreads = queueSize == 0 ? 0 : maxThreads;
+
+        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(coreThreads, maxThreads, keepAliveMs, TimeUnit.MILLISECONDS, queue, threadFactory, getRejectedExecutionHandler());
+        threadPoolExecutor.allowCoreThreadTimeOut(coreThreads > 0 && keepAliveMs > 0);
+        return threadPoolExecutor;
+    }
+
+    private ExecutorService createVirtualThreadPerTaskExecutor() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = Class.forName("java.lang.Thread$Builder$OfVirtual").getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+            ThreadFactory threadFactory = (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (Exception e) {
+            logger.info("Virtual threads are not available. Using a thread pool for {}", name);
+            return null;
+        }
+    }
+
+    private RejectedExecutionHandler getRejectedExecutionHandler() {
+        switch (rejectionPolicy) {
+        case BLOCK:
+            return (runnable, executor) -> {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("The executor " + name + " is shutdown");
+                }
+                try {
+                    executor.getQueue().put(runnable);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for space in the queue of " + name, e);
+                }
+            };
+        case CALLER_RUNS:
+            return new ThreadPoolExecutor.CallerRunsPolicy();
+        case DISCARD:
+            return new ThreadPoolExecutor.DiscardPolicy();
+        case DISCARD_OLDEST:
+            return new ThreadPoolExecutor.DiscardOldestPolicy();
+        default:
+            return new ThreadPoolExecutor.AbortPolicy();
+        }
+    }
+
+    /**
+     * Set if the threads are daemon threads. Default: true.
+     *
+     * @param daemon
+     *            true if daemon
+     * @return this
+     */
+    public ExecutorServiceBuilder setDaemon(boolean daemon) {
+        this.daemon = daemon;
+        return this;
+    }
+
+    /**
+     * Set how long an idle thread is kept. Default: 60 seconds.
+     *
+     * @param keepAliveMs
+     *            the time in ms
+     * @return this
+     */
+    public ExecutorServiceBuilder setKeepAliveMs(long keepAliveMs) {
+        this.keepAliveMs = keepAliveMs;
+        return this;
+    }
+
+    /**
+     * Set the max amount of threads. Default: the amount of processors.
+     *
+     * @param maxThreads
+     *            the max amount of threads
+     * @return this
+     */
+    public ExecutorServiceBuilder setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+        return this;
+    }
+
+    /**
+     * Set where to register the metrics. Default: {@link MetricsRegistry#getDefault()}.
+     *
+     * @param metricsRegistry
+     *            the registry or null to not register them
+     * @return this
+     */
+    public ExecutorServiceBuilder setMetricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+
+    /**
+     * Set the amount of tasks that can wait when all the threads are busy. Default: 1000.
+     *
+     * @param queueSize
+     *            0 to never wait ; {@link Integer#MAX_VALUE} for unbounded
+     * @return this
+     */
+    public ExecutorServiceBuilder setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+        return this;
+    }
+
+    /**
+     * Set what to do when all the threads are busy and the queue is full. Default: {@link RejectionPolicy#ABORT}.
+     *
+     * @param rejectionPolicy
+     *            the policy
+     * @return this
+     */
+    public ExecutorServiceBuilder setRejectionPolicy(RejectionPolicy rejectionPolicy) {
+        this.rejectionPolicy = rejectionPolicy;
+        return this;
+    }
+
+    /**
+     * Use a new virtual thread per task when the JVM supports it (Java 21+). In that case, maxThreads, queueSize and rejectionPolicy are not used. Default: false.
+     *
+     * @param virtualThreadsIfAvailable
+     *            true to use virtual threads
+     * @return this
+     */
+    public ExecutorServiceBuilder setVirtualThreadsIfAvailable(boolean virtualThreadsIfAvailable) {
+        this.virtualThreadsIfAvailable = virtualThreadsIfAvailable;
+        return this;
+    }
+
+}
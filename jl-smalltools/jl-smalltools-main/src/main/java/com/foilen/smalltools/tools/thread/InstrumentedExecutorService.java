@@ -0,0 +1,187 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.thread;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.foilen.smalltools.metrics.Histogram;
+import com.foilen.smalltools.metrics.MetricsRegistry;
+
+/**
+ * An {@link ExecutorService} that wraps another one to know how many tasks are active, queued and completed and how long they wait and execute.
+ *
+ * When a registry is given, these metrics are registered under "executor.{name}." :
+ * <ul>
+ * <li>active, queued, completed, failed, rejected: gauges</li>
+ * <li>queueWaitUs: histogram of the time between the submission and the start of the tasks</li>
+ * <li>executionUs: histogram of the execution time of the tasks</li>
+ * </ul>
+ *
+ * These metrics are removed from the registry when the executor is shut down.
+ */
+public class InstrumentedExecutorService extends AbstractExecutorService {
+
+    private ExecutorService delegate;
+    private MetricsRegistry metricsRegistry;
+    private String prefix;
+
+    private LongAdder completed = new LongAdder();
+    private LongAdder failed = new LongAdder();
+    private LongAdder rejected = new LongAdder();
+    private AtomicInteger active = new AtomicInteger();
+    private AtomicInteger queued = new AtomicInteger();
+
+    private Histogram queueWaitUs;
+    private Histogram executionUs;
+
+    /**
+     * Wrap an executor.
+     *
+     * @param delegate
+     *            the executor that really executes the tasks
+     * @param name
+     *            the name used in the registry
+     * @param metricsRegistry
+     *            (optional) the registry where to register the metrics
+     */
+    public InstrumentedExecutorService(ExecutorService delegate, String name, MetricsRegistry metricsRegistry) {
+        this.delegate = delegate;
+        this.metricsRegistry = metricsRegistry;
+
+        if (metricsRegistry == null) {
+            queueWaitUs = new Histogram();
+            executionUs = new Histogram();
+        } else {
+            prefix = "executor." + name + ".";
+            queueWaitUs = metricsRegistry.histogram(prefix + "queueWaitUs");
+            executionUs = metricsRegistry.histogram(prefix + "executionUs");
+            metricsRegistry.gauge(prefix + "active", this::getActiveCount);
+            metricsRegistry.gauge(prefix + "queued", this::getQueuedCount);
+            metricsRegistry.gauge(prefix + "completed", this::getCompletedCount);
+            metricsRegistry.gauge(prefix + "failed", this::getFailedCount);
+            metricsRegistry.gauge(prefix + "rejected", this::getRejectedCount);
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        long submittedAt = System.nanoTime();
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                queued.decrementAndGet();
+                long startedAt = System.nanoTime();
+                queueWaitUs.record((startedAt - submittedAt) / 1000);
+                active.incrementAndGet();
+                try {
+                    command.run();
+                } catch (RuntimeException | Error e) {
+                    failed.increment();
+                    throw e;
+                } finally {
+                    active.decrementAndGet();
+                    executionUs.record((System.nanoTime() - startedAt) / 1000);
+                    completed.increment();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    public long getActiveCount() {
+        return active.get();
+    }
+
+    public long getCompletedCount() {
+        return completed.sum();
+    }
+
+    public ExecutorService getDelegate() {
+        return delegate;
+    }
+
+    public Histogram getExecutionUs() {
+        return executionUs;
+    }
+
+    /**
+     * The amount of tasks that failed with an exception. The tasks sent with submit() keep their exception in their {@link java.util.concurrent.Future} and are not counted.
+     *
+     * @return the amount of failed tasks
+     */
+    public long getFailedCount() {
+        return failed.sum();
+    }
+
+    /**
+     * The amount of tasks waiting to be started. When the delegate is a {@link ThreadPoolExecutor}, this is the size of its queue; otherwise, it is the amount of tasks accepted but not started yet.
+     *
+     * @return the amount of tasks
+     */
+    public long getQueuedCount() {
+        if (delegate instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) delegate).getQueue().size();
+        }
+        return Math.max(0, queued.get());
+    }
+
+    public Histogram getQueueWaitUs() {
+        return queueWaitUs;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    private void removeMetrics() {
+        if (metricsRegistry != null) {
+            metricsRegistry.removeAll(prefix);
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+        removeMetrics();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> notStarted = delegate.shutdownNow();
+        queued.addAndGet(-notStarted.size());
+        removeMetrics();
+        return notStarted;
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools.thread;
+
+/**
+ * What an {@link ExecutorServiceBuilder} executor does with a task when all the threads are busy and the queue is full.
+ */
+public enum RejectionPolicy {
+
+    /**
+     * Throw a {@link java.util.concurrent.RejectedExecutionException}.
+     */
+    ABORT, //
+
+    /**
+     * Wait for some space in the queue.
+     */
+    BLOCK, //
+
+    /**
+     * Execute the task in the thread that submits it.
+     */
+    CALLER_RUNS, //
+
+    /**
+     * Skip the task.
+     */
+    DISCARD, //
+
+    /**
+     * Skip the oldest task in the queue and retry.
+     */
+    DISCARD_OLDEST, //
+
+}
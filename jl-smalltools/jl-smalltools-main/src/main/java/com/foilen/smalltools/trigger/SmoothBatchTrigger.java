@@ -0,0 +1,259 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.trigger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.foilen.smalltools.tools.AssertTools;
+import com.foilen.smalltools.tools.ThreadTools;
+
+/**
+ * A {@link SmoothTrigger} that accumulates the requested items and gives them to the action in batches. The requests only append to a lock-free queue, so many threads can request without contention.
+ *
+ * Options are the ones of {@link SmoothTrigger} and:
+ * <ul>
+ * <li>maxBatchSize: the max amount of items given to the action in one call. When that many items are waiting, they are processed right away without waiting for the delays.</li>
+ * </ul>
+ *
+ * The delayAfterLastTriggerMs is the debounce and the maxDelayAfterFirstRequestMs is the max latency of an item.
+ *
+ * The batches are given to the action one at a time and in the order the items were requested.
+ *
+ * Usage:
+ *
+ * <pre>
+ * SmoothBatchTrigger&lt;String&gt; smoothBatchTrigger = new SmoothBatchTrigger&lt;String&gt;(batch -&gt; saveAll(batch)) //
+ *         .setDelayAfterLastTriggerMs(500) //
+ *         .setMaxDelayAfterFirstRequestMs(2000) //
+ *         .setMaxBatchSize(1000) //
+ *         .start();
+ *
+ * smoothBatchTrigger.request("item");
+ * </pre>
+ *
+ * @param <T>
+ *            the type of the items
+ */
+public class SmoothBatchTrigger<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SmoothBatchTrigger.class);
+
+    // Properties
+    private int maxBatchSize = Integer.MAX_VALUE;
+    private Consumer<List<T>> action;
+
+    // Internal
+    private SmoothTrigger smoothTrigger;
+    private Queue<T> buffer = new ConcurrentLinkedQueue<>();
+    private AtomicInteger bufferSize = new AtomicInteger();
+    private AtomicBoolean draining = new AtomicBoolean();
+    private AtomicBoolean drainAllRequested = new AtomicBoolean();
+    private volatile boolean started;
+
+    /**
+     * Create a {@link SmoothBatchTrigger} with a warmup time of 1s, a max wait of 10s and no limit on the batch size.
+     *
+     * @param action
+     *            the action to execute with each batch
+     */
+    public SmoothBatchTrigger(Consumer<List<T>> action) {
+        this.action = action;
+        this.smoothTrigger = new SmoothTrigger(() -> drain(true));
+    }
+
+    /**
+     * Create a {@link SmoothBatchTrigger}.
+     *
+     * @param delayAfterLastTriggerMs
+     *            how long to wait after the last request before executing the action
+     * @param maxDelayAfterFirstRequestMs
+     *            the max amount of time an item can wait. To disable, set it to {@link Long#MAX_VALUE}.
+     * @param maxBatchSize
+     *            the max amount of items per batch
+     * @param action
+     *            the action to execute with each batch
+     */
+    public SmoothBatchTrigger(long delayAfterLastTriggerMs, long maxDelayAfterFirstRequestMs, int maxBatchSize, Consumer<List<T>> action) {
+        this.action = action;
+        this.maxBatchSize = maxBatchSize;
+        this.smoothTrigger = new SmoothTrigger(delayAfterLastTriggerMs, maxDelayAfterFirstRequestMs, false, () -> drain(true));
+    }
+
+    /**
+     * Cancel the pending execution. The items stay in the buffer and will be part of the next batch.
+     */
+    public void cancelPending() {
+        smoothTrigger.cancelPending();
+    }
+
+    private void drain(boolean all) {
+
+        if (all) {
+            drainAllRequested.set(true);
+        }
+
+        do {
+            if (!draining.compareAndSet(false, true)) {
+                // The current drainer will take care of it
+                return;
+            }
+
+            try {
+                boolean drainAll = drainAllRequested.getAndSet(false);
+                while (drainAll || bufferSize.get() >= maxBatchSize) {
+                    List<T> batch = nextBatch();
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    logger.debug("Executing action with a batch of {} items", batch.size());
+                    action.accept(batch);
+                    if (!drainAll) {
+                        drainAll = drainAllRequested.getAndSet(false);
+                    }
+                }
+            } catch (Exception e) {
+                logger.error("Problem executing the action", e);
+            } finally {
+                draining.set(false);
+            }
+
+            // Another drain could have been requested while draining
+        } while (bufferSize.get() >= maxBatchSize || (drainAllRequested.get() && bufferSize.get() > 0));
+
+    }
+
+    public Consumer<List<T>> getAction() {
+        return action;
+    }
+
+    /**
+     * Get the amount of items waiting.
+     *
+     * @return the amount of items
+     */
+    public int getBufferSize() {
+        return bufferSize.get();
+    }
+
+    public long getDelayAfterLastTriggerMs() {
+        return smoothTrigger.getDelayAfterLastTriggerMs();
+    }
+
+    public int getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public long getMaxDelayAfterFirstRequestMs() {
+        return smoothTrigger.getMaxDelayAfterFirstRequestMs();
+    }
+
+    public SmoothTriggerScheduler getScheduler() {
+        return smoothTrigger.getScheduler();
+    }
+
+    public boolean isFirstPassThrough() {
+        return smoothTrigger.isFirstPassThrough();
+    }
+
+    private List<T> nextBatch() {
+        List<T> batch = new ArrayList<>();
+        T item;
+        while (batch.size() < maxBatchSize && (item = buffer.poll()) != null) {
+            batch.add(item);
+        }
+        bufferSize.addAndGet(-batch.size());
+        return batch;
+    }
+
+    /**
+     * Add an item. Depending on the state, the parameters and the amount of items waiting, the action might execute now or in the future. It returns right away since the execution of the action is
+     * done in a separate thread.
+     *
+     * @param item
+     *            the item to add
+     */
+    public void request(T item) {
+        AssertTools.assertTrue(started, "Not running");
+        buffer.add(item);
+        if (bufferSize.incrementAndGet() >= maxBatchSize && !draining.get()) {
+            getScheduler().getActionExecutor().execute(() -> drain(false));
+        }
+        smoothTrigger.request();
+    }
+
+    public SmoothBatchTrigger<T> setAction(Consumer<List<T>> action) {
+        AssertTools.assertFalse(started, "Cannot change while running");
+        this.action = action;
+        return this;
+    }
+
+    public SmoothBatchTrigger<T> setDelayAfterLastTriggerMs(long delayAfterLastTriggerMs) {
+        smoothTrigger.setDelayAfterLastTriggerMs(delayAfterLastTriggerMs);
+        return this;
+    }
+
+    public SmoothBatchTrigger<T> setFirstPassThrough(boolean isFirstPassThrough) {
+        smoothTrigger.setFirstPassThrough(isFirstPassThrough);
+        return this;
+    }
+
+    public SmoothBatchTrigger<T> setMaxBatchSize(int maxBatchSize) {
+        AssertTools.assertFalse(started, "Cannot change while running");
+        this.maxBatchSize = maxBatchSize;
+        return this;
+    }
+
+    public SmoothBatchTrigger<T> setMaxDelayAfterFirstRequestMs(long maxDelayAfterFirstRequestMs) {
+        smoothTrigger.setMaxDelayAfterFirstRequestMs(maxDelayAfterFirstRequestMs);
+        return this;
+    }
+
+    public SmoothBatchTrigger<T> setScheduler(SmoothTriggerScheduler scheduler) {
+        smoothTrigger.setScheduler(scheduler);
+        return this;
+    }
+
+    public SmoothBatchTrigger<T> start() {
+        AssertTools.assertNotNull(action, "No action given");
+        AssertTools.assertTrue(maxBatchSize > 0, "maxBatchSize must be 1 or bigger");
+        smoothTrigger.start();
+        started = true;
+        return this;
+    }
+
+    /**
+     * Stop the smooth trigger system. It returns when stopped and the action execution completed (if needed).
+     *
+     * @param executeActionIfPending
+     *            if true, will give all the waiting items to the action before returning
+     */
+    public void stop(boolean executeActionIfPending) {
+        started = false;
+        smoothTrigger.stop(executeActionIfPending);
+        if (executeActionIfPending) {
+            while (bufferSize.get() > 0 || draining.get()) {
+                drain(true);
+                if (draining.get()) {
+                    // Another thread is executing the action
+                    ThreadTools.sleep(1);
+                }
+            }
+        }
+    }
+
+}
@@ -8,7 +8,7 @@
  */
 package com.foilen.smalltools.trigger;
 
-import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.metrics.MetricsRegistry;
 import com.foilen.smalltools.tools.AssertTools;
 
 /**
@@ -31,6 +31,10 @@ import com.foilen.smalltools.tools.AssertTools;
  * <li>Warmup: When a request is made, it is in pending state. After the action is triggered, it goes in cooldown. The max amount of time in this state is managed by maxDelayAfterFirstRequest.</li>
  * </ul>
  *
+ * The timing is driven by a {@link SmoothTriggerScheduler} (the shared one by default), so there is no thread per trigger.
+ *
+ * When a metrics name is set (see {@link #setMetricsName(String)}), the trigger publishes in {@link MetricsRegistry#getDefault()}: the "smoothTrigger.{name}.requests" and
+ * "smoothTrigger.{name}.executions" counters and the "smoothTrigger.{name}.executionUs" histogram.
  */
 public class SmoothTrigger {
 
@@ -39,11 +43,12 @@ public class SmoothTrigger {
     private long maxDelayAfterFirstRequestMs;
     private boolean isFirstPassThrough;
     private Runnable action;
+    private SmoothTriggerScheduler scheduler = SmoothTriggerScheduler.getDefault();
+    private String metricsName;
 
     // Internal
     private Object internalUpdateLock = new Object();
-    private SmoothTriggerRunnable smoothTriggerRunnable;
-    private Thread smoothTriggerThread;
+    private volatile SmoothTriggerRunnable smoothTriggerRunnable;
 
     /**
      * Create a {@link SmoothTrigger}.
@@ -78,9 +83,9 @@ public class SmoothTrigger {
     }
 
     public void cancelPending() {
+        SmoothTriggerRunnable smoothTriggerRunnable = this.smoothTriggerRunnable;
         AssertTools.assertNotNull(smoothTriggerRunnable, "Not running");
         smoothTriggerRunnable.cancelPending();
-        smoothTriggerThread.interrupt();
     }
 
     public Runnable getAction() {
@@ -95,6 +100,14 @@ public class SmoothTrigger {
         return maxDelayAfterFirstRequestMs;
     }
 
+    public String getMetricsName() {
+        return metricsName;
+    }
+
+    public SmoothTriggerScheduler getScheduler() {
+        return scheduler;
+    }
+
     public boolean isFirstPassThrough() {
         return isFirstPassThrough;
     }
@@ -104,9 +117,9 @@ public class SmoothTrigger {
      * separate thread.
      */
     public void request() {
+        SmoothTriggerRunnable smoothTriggerRunnable = this.smoothTriggerRunnable;
         AssertTools.assertNotNull(smoothTriggerRunnable, "Not running");
         smoothTriggerRunnable.request();
-        smoothTriggerThread.interrupt();
     }
 
     public SmoothTrigger setAction(Runnable action) {
@@ -133,19 +146,43 @@ public class SmoothTrigger {
         return this;
     }
 
+    /**
+     * Publish the requests and executions in {@link MetricsRegistry#getDefault()}.
+     *
+     * @param metricsName
+     *            the name used in the metrics names (e.g. "myDao.save") or null to not publish
+     * @return this
+     */
+    public SmoothTrigger setMetricsName(String metricsName) {
+        AssertTools.assertNull(smoothTriggerRunnable, "Cannot change while running");
+        this.metricsName = metricsName;
+        return this;
+    }
+
+    /**
+     * Change the scheduler that drives the timing and executes the action.
+     *
+     * @param scheduler
+     *            the scheduler
+     * @return this
+     */
+    public SmoothTrigger setScheduler(SmoothTriggerScheduler scheduler) {
+        AssertTools.assertNull(smoothTriggerRunnable, "Cannot change while running");
+        this.scheduler = scheduler;
+        return this;
+    }
+
     public SmoothTrigger start() {
 
-        // Start thread
         synchronized (internalUpdateLock) {
             AssertTools.assertNotNull(action, "No action given");
             AssertTools.assertTrue(delayAfterLastTriggerMs >= 0, "delayAfterLastTriggerMs must be 0 or bigger");
             AssertTools.assertTrue(maxDelayAfterFirstRequestMs >= delayAfterLastTriggerMs, "maxDelayAfterFirstRequestMs must be greater or equals to delayAfterLastTriggerMs");
 
+            AssertTools.assertNotNull(scheduler, "No scheduler given");
+
             AssertTools.assertNull(smoothTriggerRunnable, "Already started");
-            smoothTriggerRunnable = new SmoothTriggerRunnable(this);
-            smoothTriggerThread = new Thread(smoothTriggerRunnable, "SmoothTrigger");
-            smoothTriggerThread.setDaemon(true);
-            smoothTriggerThread.start();
+            smoothTriggerRunnable = new SmoothTriggerRunnable(this, scheduler);
         }
         return this;
 
@@ -163,19 +200,12 @@ public class SmoothTrigger {
             AssertTools.assertNotNull(smoothTriggerRunnable, "Not running");
 
             smoothTriggerRunnable.requestStop();
-            smoothTriggerThread.interrupt();
-            try {
-                smoothTriggerThread.join();
-            } catch (InterruptedException e) {
-                throw new SmallToolsException("Interrupted while waiting for the Thread to stop", e);
-            }
 
             if (executeActionIfPending) {
                 smoothTriggerRunnable.executeActionIfPending(true);
             }
 
             smoothTriggerRunnable = null;
-            smoothTriggerThread = null;
         }
 
     }
@@ -13,29 +13,66 @@ import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.foilen.smalltools.tools.ExecutorsTools;
+import com.foilen.smalltools.metrics.Counter;
+import com.foilen.smalltools.metrics.Histogram;
+import com.foilen.smalltools.metrics.MetricsRegistry;
 
+/**
+ * The state machine of a {@link SmoothTrigger}. The requests are processed right away in the caller's thread and the {@link #run()} is the wakeup scheduled on the {@link SmoothTriggerScheduler} when
+ * the warmup must end.
+ */
 class SmoothTriggerRunnable implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(SmoothTriggerRunnable.class);
 
     private SmoothTrigger smoothTrigger;
+    private SmoothTriggerScheduler scheduler;
+    private Runnable action;
+
+    private Counter requestsCounter;
 
     private SmoothTriggerState state = SmoothTriggerState.IDLE;
-    private volatile long requestMade = -1;
+    private long nextWarmupFinished = -1;
+    private long nextMaxFinished = -1;
+
+    private ScheduledFuture<?> wakeup;
+    private long wakeupAt = -1;
 
     private Queue<Future<?>> futures = new ConcurrentLinkedQueue<>();
-    private volatile boolean requestStop = false;
+    private boolean stopped = false;
 
-    public SmoothTriggerRunnable(SmoothTrigger smoothTrigger) {
+    public SmoothTriggerRunnable(SmoothTrigger smoothTrigger, SmoothTriggerScheduler scheduler) {
         this.smoothTrigger = smoothTrigger;
+        this.scheduler = scheduler;
+        this.action = smoothTrigger.getAction();
+
+        // Metrics
+        String metricsName = smoothTrigger.getMetricsName();
+        if (metricsName != null) {
+            MetricsRegistry registry = MetricsRegistry.getDefault();
+            String prefix = "smoothTrigger." + metricsName + ".";
+            requestsCounter = registry.counter(prefix + "requests");
+            Counter executionsCounter = registry.counter(prefix + "executions");
+            Histogram executionUs = registry.histogram(prefix + "executionUs");
+            Runnable originalAction = action;
+            action = () -> {
+                executionsCounter.increment();
+                long startNs = System.nanoTime();
+                try {
+                    originalAction.run();
+                } finally {
+                    executionUs.recordMicrosSince(startNs);
+                }
+            };
+        }
     }
 
-    public void cancelPending() {
+    public synchronized void cancelPending() {
 
         logger.debug("Cancelling pending. Current state [{}]", state);
 
@@ -45,28 +82,48 @@ class SmoothTriggerRunnable implements Runnable {
         case IDLE:
             break;
         case WARMUP:
-            requestMade = 0;
+            nextMaxFinished = -1;
             state = SmoothTriggerState.COOLDOWN;
+            cancelWakeup();
             break;
         }
 
         logger.debug("Ending state [{}]", state);
     }
 
+    private void cancelWakeup() {
+        if (wakeup != null) {
+            wakeup.cancel(false);
+            wakeup = null;
+            wakeupAt = -1;
+        }
+    }
+
     public void executeActionIfPending(boolean wait) {
 
-        logger.debug("executeActionIfPending. Current state [{}]", state);
+        synchronized (this) {
+            logger.debug("executeActionIfPending. Current state [{}]", state);
 
-        if (state == SmoothTriggerState.WARMUP) {
-            state = SmoothTriggerState.COOLDOWN;
+            if (state == SmoothTriggerState.WARMUP) {
+                state = SmoothTriggerState.COOLDOWN;
 
-            // Submit
-            logger.debug("Executing action");
-            Future<?> future = ExecutorsTools.getCachedThreadPool().submit(smoothTrigger.getAction());
-            futures.add(future);
-        }
+                // Submit
+                logger.debug("Executing action");
+                Future<?> future = scheduler.getActionExecutor().submit(action);
+                futures.add(future);
+            }
+
+            logger.debug("executeActionIfPending. Ending state [{}]", state);
 
-        logger.debug("executeActionIfPending. Ending state [{}]", state);
+            // Cleanup completed actions until hitting one not completed (will continue the cleanup later)
+            Future<?> future;
+            while ((future = futures.peek()) != null) {
+                if (!future.isDone()) {
+                    break;
+                }
+                futures.poll();
+            }
+        }
 
         // Wait for all to finish if needed
         if (wait) {
@@ -85,115 +142,93 @@ class SmoothTriggerRunnable implements Runnable {
         }
     }
 
-    public void request() {
-        requestMade = System.currentTimeMillis();
+    private void process(long now, boolean requestMade) {
 
-    }
+        logger.debug("Current state [{}] ; now [{}]", state, now);
 
-    public void requestStop() {
-        logger.debug("Requesting stop");
-        requestStop = true;
-    }
-
-    @Override
-    public void run() {
+        // Check if should go back to idling
+        if (state == SmoothTriggerState.COOLDOWN && nextWarmupFinished <= now) {
+            state = SmoothTriggerState.IDLE;
+            logger.debug("Change state [{}]", state);
+        }
 
-        logger.info("Starting");
+        // Check if new request made
+        if (requestMade) {
 
-        long nextWarmupFinished = -1;
-        long nextMaxFinished = -1;
-        while (!requestStop) {
+            logger.debug("A request was made at [{}]", now);
 
-            long now = System.currentTimeMillis();
-            logger.debug("Current state [{}] ; now [{}]", state, now);
+            SmoothTriggerState previousState = state;
 
-            // Check if should go back to idling
-            if (state == SmoothTriggerState.COOLDOWN && nextWarmupFinished <= now) {
-                state = SmoothTriggerState.IDLE;
-                logger.debug("Change state [{}]", state, now);
+            state = SmoothTriggerState.WARMUP;
+            nextWarmupFinished = now + smoothTrigger.getDelayAfterLastTriggerMs();
+            if (nextWarmupFinished < 0) {
+                nextWarmupFinished = Long.MAX_VALUE;
             }
-
-            // Check if new request made
-            if (requestMade >= 0) {
-
-                logger.debug("A request was made at [{}]", requestMade);
-
-                SmoothTriggerState previousState = state;
-
-                state = SmoothTriggerState.WARMUP;
-                nextWarmupFinished = requestMade + smoothTrigger.getDelayAfterLastTriggerMs();
-                if (nextWarmupFinished < 0) {
-                    nextWarmupFinished = Long.MAX_VALUE;
-                }
-                if (nextMaxFinished == -1) {
-                    nextMaxFinished = requestMade + smoothTrigger.getMaxDelayAfterFirstRequestMs();
-                    if (nextMaxFinished < 0) {
-                        nextMaxFinished = Long.MAX_VALUE;
-                    }
-                }
-                requestMade = -1;
-
-                if (smoothTrigger.isFirstPassThrough() && previousState == SmoothTriggerState.IDLE) {
-                    logger.debug("Execute since pass through and was idling");
-                    executeActionIfPending(false);
-                    nextWarmupFinished += smoothTrigger.getDelayAfterLastTriggerMs();
+            if (nextMaxFinished == -1) {
+                nextMaxFinished = now + smoothTrigger.getMaxDelayAfterFirstRequestMs();
+                if (nextMaxFinished < 0) {
+                    nextMaxFinished = Long.MAX_VALUE;
                 }
+            }
 
+            if (smoothTrigger.isFirstPassThrough() && previousState == SmoothTriggerState.IDLE) {
+                logger.debug("Execute since pass through and was idling");
+                executeActionIfPending(false);
+                nextWarmupFinished += smoothTrigger.getDelayAfterLastTriggerMs();
             }
 
-            // Check what action to do
-            logger.debug("State [{}] ; now [{}] ; nextWarmupFinished [{}] ; nextMaxFinished [{}]", state, now, nextWarmupFinished, nextMaxFinished);
-            switch (state) {
-            case COOLDOWN:
-                break;
-            case IDLE:
-                break;
-            case WARMUP:
-                if (nextWarmupFinished <= now || nextMaxFinished <= now) {
-                    executeActionIfPending(false);
-                    nextWarmupFinished += smoothTrigger.getDelayAfterLastTriggerMs();
-                    nextMaxFinished = -1;
-                }
+        }
 
-                break;
+        // Check what action to do
+        logger.debug("State [{}] ; now [{}] ; nextWarmupFinished [{}] ; nextMaxFinished [{}]", state, now, nextWarmupFinished, nextMaxFinished);
+        if (state == SmoothTriggerState.WARMUP && (nextWarmupFinished <= now || nextMaxFinished <= now)) {
+            executeActionIfPending(false);
+            nextWarmupFinished += smoothTrigger.getDelayAfterLastTriggerMs();
+            nextMaxFinished = -1;
+        }
 
+        // Schedule the wakeup. The cooldown ending is only checked on the next request, so only the warmup needs one
+        if (state == SmoothTriggerState.WARMUP) {
+            long sooner = Math.min(nextMaxFinished, nextWarmupFinished);
+            if (wakeup != null && wakeupAt <= sooner) {
+                // The current wakeup is earlier and will schedule the next one
+                return;
             }
-
-            // Cleanup completed actions until hitting one not completed (will continue the cleanup later
-            Future<?> future;
-            while ((future = futures.peek()) != null) {
-                if (!future.isDone()) {
-                    break;
-                }
-                futures.poll();
+            cancelWakeup();
+            if (sooner != Long.MAX_VALUE) {
+                wakeupAt = sooner;
+                wakeup = scheduler.schedule(this, sooner - now);
             }
+        } else {
+            cancelWakeup();
+        }
 
-            // Go to sleep
-            switch (state) {
-            case COOLDOWN:
-            case IDLE:
-                try {
-                    Thread.sleep(120000); // 2 mins (will be interrupted if needed)
-                } catch (InterruptedException e) {
-                }
-                break;
-            case WARMUP:
-                long sooner = Math.min(nextMaxFinished, nextWarmupFinished);
-                long delta = sooner - now;
-                if (delta > 0) {
-                    try {
-                        Thread.sleep(delta);
-                    } catch (InterruptedException e) {
-                    }
-                }
-                break;
-
-            }
+    }
 
+    public synchronized void request() {
+        if (stopped) {
+            return;
+        }
+        if (requestsCounter != null) {
+            requestsCounter.increment();
         }
+        process(System.currentTimeMillis(), true);
+    }
 
-        logger.info("Ended");
+    public synchronized void requestStop() {
+        logger.debug("Requesting stop");
+        stopped = true;
+        cancelWakeup();
+    }
 
+    @Override
+    public synchronized void run() {
+        if (stopped) {
+            return;
+        }
+        wakeup = null;
+        wakeupAt = -1;
+        process(System.currentTimeMillis(), false);
     }
 
 }
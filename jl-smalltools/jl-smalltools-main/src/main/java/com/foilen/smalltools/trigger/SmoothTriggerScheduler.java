@@ -0,0 +1,94 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.trigger;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.foilen.smalltools.tools.ExecutorsTools;
+import com.foilen.smalltools.tools.ThreadTools;
+
+/**
+ * Drives many {@link SmoothTrigger} with a single timer thread. A trigger only has a wakeup scheduled at the exact time its warmup ends, so an idle trigger costs nothing. The actions are executed on
+ * the action executor to keep the timer thread free.
+ *
+ * By default, all the {@link SmoothTrigger} use the shared one from {@link #getDefault()}.
+ *
+ * Usage:
+ *
+ * <pre>
+ * SmoothTriggerScheduler scheduler = new SmoothTriggerScheduler("my-triggers", Executors.newFixedThreadPool(4));
+ * SmoothTrigger smoothTrigger = new SmoothTrigger(action) //
+ *         .setScheduler(scheduler) //
+ *         .start();
+ * </pre>
+ */
+public class SmoothTriggerScheduler {
+
+    private static final SmoothTriggerScheduler defaultScheduler = new SmoothTriggerScheduler("SmoothTriggerScheduler", ExecutorsTools.getCachedThreadPool());
+
+    /**
+     * Get the shared scheduler that executes the actions on {@link ExecutorsTools#getCachedThreadPool()}.
+     *
+     * @return the shared scheduler
+     */
+    public static SmoothTriggerScheduler getDefault() {
+        return defaultScheduler;
+    }
+
+    private ScheduledThreadPoolExecutor timer;
+    private ExecutorService actionExecutor;
+
+    /**
+     * Create a scheduler with its own timer thread.
+     *
+     * @param name
+     *            the name of the timer thread
+     * @param actionExecutor
+     *            where to execute the actions
+     */
+    public SmoothTriggerScheduler(String name, ExecutorService actionExecutor) {
+        this.actionExecutor = actionExecutor;
+        this.timer = new ScheduledThreadPoolExecutor(1, ThreadTools.daemonThreadFactory(thread -> thread.setName(name)));
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    /**
+     * Get the executor running the actions.
+     *
+     * @return the executor
+     */
+    public ExecutorService getActionExecutor() {
+        return actionExecutor;
+    }
+
+    /**
+     * Get the executor running the wakeups.
+     *
+     * @return the timer
+     */
+    public ScheduledExecutorService getTimer() {
+        return timer;
+    }
+
+    ScheduledFuture<?> schedule(Runnable wakeup, long delayMs) {
+        return timer.schedule(wakeup, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the timer thread. The triggers using it won't execute their pending actions. The action executor is not stopped since it can be shared.
+     */
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+}
@@ -11,8 +11,13 @@ package com.foilen.smalltools.upgrader;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.PostConstruct;
 
@@ -22,7 +27,9 @@ import org.slf4j.LoggerFactory;
 import com.foilen.smalltools.comparator.ClassNameComparator;
 import com.foilen.smalltools.exception.SmallToolsException;
 import com.foilen.smalltools.tools.AssertTools;
+import com.foilen.smalltools.tools.DependenciesExecutor;
 import com.foilen.smalltools.upgrader.tasks.UpgradeTask;
+import com.foilen.smalltools.upgrader.tasks.UpgraderTrackerAware;
 import com.foilen.smalltools.upgrader.trackers.UpgraderTracker;
 
 /**
@@ -30,6 +37,10 @@ import com.foilen.smalltools.upgrader.trackers.UpgraderTracker;
  *
  * You can choose different backends to keep track of what was already executed.
  *
+ * By default, the tasks are executed one after the other in their order (by class name unless disabled with {@link #setSortByClassName(boolean)}); a task is only postponed after the tasks it
+ * depends on (see {@link UpgradeTask#dependsOnTasks()}). With {@link #setParallelThreads(int)}, the tasks are executed in parallel and each one starts as soon as the tasks it depends on are
+ * completed. Tasks without dependencies can start right away.
+ *
  * <pre>
  * Dependencies:
  * compile 'org.slf4j:slf4j-api:1.7.25'
@@ -44,6 +55,7 @@ public class UpgraderTools {
     private List<UpgradeTask> tasks = new ArrayList<>();
 
     private boolean sortByClassName = true;
+    private int parallelThreads = 1;
 
     public UpgraderTools() {
     }
@@ -77,11 +89,9 @@ public class UpgraderTools {
             it.trackerBegin();
         });
 
-        int count = 1;
-        Exception failure = null;
+        // Get the tracker of each task
+        Map<UpgradeTask, UpgraderTracker> trackerByTask = new IdentityHashMap<>();
         for (UpgradeTask task : tasks) {
-
-            // Get the tracker
             UpgraderTracker upgraderTracker;
             String trackerName = task.useTracker();
             if (UpgradeTask.DEFAULT_TRACKER.equals(trackerName)) {
@@ -91,29 +101,52 @@ public class UpgraderTools {
                 upgraderTracker = upgraderTrackerByName.get(trackerName);
                 AssertTools.assertNotNull(upgraderTracker, "There is no upgrade tracker with name: " + trackerName);
             }
+            trackerByTask.put(task, upgraderTracker);
+        }
+
+        // Load what was executed once per tracker
+        Map<UpgraderTracker, Set<String>> executedByTracker = new IdentityHashMap<>();
+        for (UpgraderTracker upgraderTracker : allTrackers) {
+            Set<String> executed = upgraderTracker.loadAllExecutedSuccessfully();
+            if (executed != null) {
+                executedByTracker.put(upgraderTracker, executed);
+            }
+        }
 
+        // Skip the ones already executed
+        AtomicInteger count = new AtomicInteger(1);
+        Map<String, UpgradeTask> pendingTaskBySimpleName = new LinkedHashMap<>();
+        for (UpgradeTask task : tasks) {
+            UpgraderTracker upgraderTracker = trackerByTask.get(task);
             String taskSimpleName = task.getClass().getSimpleName();
-            if (upgraderTracker.wasExecutedSuccessfully(taskSimpleName)) {
-                logger.info("[{}/{}] Skipping {} . Already executed", count, tasks.size(), taskSimpleName);
-                ++count;
+            Set<String> executed = executedByTracker.get(upgraderTracker);
+            boolean wasExecuted = executed == null ? upgraderTracker.wasExecutedSuccessfully(taskSimpleName) : executed.contains(taskSimpleName);
+            if (wasExecuted) {
+                logger.info("[{}/{}] Skipping {} . Already executed", count.getAndIncrement(), tasks.size(), taskSimpleName);
                 continue;
             }
+            pendingTaskBySimpleName.put(taskSimpleName, task);
+        }
 
-            logger.info("[{}/{}] Begin {}", count, tasks.size(), taskSimpleName);
-            upgraderTracker.executionBegin(taskSimpleName);
-            try {
-                task.execute();
-            } catch (Throwable e) {
-                logger.error("[{}/{}] Problem executing upgrade task {}", count, tasks.size(), task.getClass().getSimpleName(), e);
-                failure = new SmallToolsException("Problem executing upgrade task " + task.getClass().getSimpleName(), e);
-                break;
-            } finally {
-                upgraderTracker.executionEnd(taskSimpleName, failure == null);
+        Exception failure = null;
+        try {
+            Map<String, Set<String>> dependsOnByTask = getPendingDependsOnByTask(pendingTaskBySimpleName);
+            if (parallelThreads <= 1) {
+                executeInOrder(pendingTaskBySimpleName, dependsOnByTask, trackerByTask, count);
+            } else {
+                try {
+                    new DependenciesExecutor(dependsOnByTask) //
+                            .setThreads(parallelThreads) //
+                            .execute(taskSimpleName -> {
+                                UpgradeTask task = pendingTaskBySimpleName.get(taskSimpleName);
+                                executeTask(task, trackerByTask.get(task), count);
+                            });
+                } catch (SmallToolsException e) {
+                    throw e.getCause() instanceof SmallToolsException ? (SmallToolsException) e.getCause() : e;
+                }
             }
-
-            logger.info("[{}/{}] Completed {}", count, tasks.size(), task.getClass().getSimpleName());
-            ++count;
-
+        } catch (Exception e) {
+            failure = e;
         }
 
         // End all trackers
@@ -129,10 +162,91 @@ public class UpgraderTools {
         logger.info("Upgrades completed");
     }
 
+    /**
+     * Execute the tasks one after the other in their order, except that a task is postponed until the tasks it depends on are completed.
+     *
+     * @param pendingTaskBySimpleName
+     *            the tasks to execute in order
+     * @param dependsOnByTask
+     *            the pending tasks that each task depends on
+     * @param trackerByTask
+     *            the tracker of each task
+     * @param count
+     *            the position of the next task in the logs
+     */
+    private void executeInOrder(Map<String, UpgradeTask> pendingTaskBySimpleName, Map<String, Set<String>> dependsOnByTask, Map<UpgradeTask, UpgraderTracker> trackerByTask, AtomicInteger count) {
+
+        // Fail on circular dependencies
+        new DependenciesExecutor(dependsOnByTask);
+
+        List<String> remaining = new ArrayList<>(pendingTaskBySimpleName.keySet());
+        Set<String> completed = new HashSet<>();
+        while (!remaining.isEmpty()) {
+            String taskSimpleName = remaining.stream() //
+                    .filter(it -> completed.containsAll(dependsOnByTask.get(it))) //
+                    .findFirst().get();
+            remaining.remove(taskSimpleName);
+            UpgradeTask task = pendingTaskBySimpleName.get(taskSimpleName);
+            executeTask(task, trackerByTask.get(task), count);
+            completed.add(taskSimpleName);
+        }
+    }
+
+    private void executeTask(UpgradeTask task, UpgraderTracker upgraderTracker, AtomicInteger count) {
+        String taskSimpleName = task.getClass().getSimpleName();
+        int position = count.getAndIncrement();
+
+        logger.info("[{}/{}] Begin {}", position, tasks.size(), taskSimpleName);
+        upgraderTracker.executionBegin(taskSimpleName);
+        if (task instanceof UpgraderTrackerAware) {
+            ((UpgraderTrackerAware) task).setUpgraderTracker(upgraderTracker);
+        }
+        boolean success = false;
+        try {
+            task.execute();
+            success = true;
+        } catch (Throwable e) {
+            logger.error("[{}/{}] Problem executing upgrade task {}", position, tasks.size(), taskSimpleName, e);
+            throw new SmallToolsException("Problem executing upgrade task " + taskSimpleName, e);
+        } finally {
+            upgraderTracker.executionEnd(taskSimpleName, success);
+        }
+
+        logger.info("[{}/{}] Completed {}", position, tasks.size(), taskSimpleName);
+    }
+
     public UpgraderTracker getDefaultUpgraderTracker() {
         return defaultUpgraderTracker;
     }
 
+    public int getParallelThreads() {
+        return parallelThreads;
+    }
+
+    /**
+     * Get the pending tasks that each pending task depends on. The dependencies already executed are completed and not returned.
+     *
+     * @param pendingTaskBySimpleName
+     *            the tasks to execute
+     * @return the dependencies by task simple name
+     */
+    private Map<String, Set<String>> getPendingDependsOnByTask(Map<String, UpgradeTask> pendingTaskBySimpleName) {
+        Map<String, Set<String>> dependsOnByTask = new HashMap<>();
+        pendingTaskBySimpleName.forEach((taskSimpleName, task) -> {
+            Set<String> dependsOn = new HashSet<>();
+            for (String dependsOnTask : task.dependsOnTasks()) {
+                if (pendingTaskBySimpleName.containsKey(dependsOnTask)) {
+                    dependsOn.add(dependsOnTask);
+                } else {
+                    AssertTools.assertTrue(tasks.stream().anyMatch(it -> it.getClass().getSimpleName().equals(dependsOnTask)),
+                            "Task " + taskSimpleName + " depends on the unknown task " + dependsOnTask);
+                }
+            }
+            dependsOnByTask.put(taskSimpleName, dependsOn);
+        });
+        return dependsOnByTask;
+    }
+
     public List<UpgradeTask> getTasks() {
         return tasks;
     }
@@ -149,6 +263,16 @@ public class UpgraderTools {
         this.defaultUpgraderTracker = defaultUpgraderTracker;
     }
 
+    /**
+     * Change the amount of tasks that can be executed at the same time. When more than 1, the tasks are executed as soon as the tasks they depend on are completed.
+     *
+     * @param parallelThreads
+     *            the amount of threads (1 by default to execute them one after the other)
+     */
+    public void setParallelThreads(int parallelThreads) {
+        this.parallelThreads = parallelThreads;
+    }
+
     public void setSortByClassName(boolean sortByClassName) {
         this.sortByClassName = sortByClassName;
     }
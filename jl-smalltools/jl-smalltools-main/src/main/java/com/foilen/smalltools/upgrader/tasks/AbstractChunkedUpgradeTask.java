@@ -0,0 +1,261 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.upgrader.tasks;
+
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.tools.AssertTools;
+import com.foilen.smalltools.tools.ThreadTools;
+import com.foilen.smalltools.upgrader.trackers.UpgraderTracker;
+
+/**
+ * Extend this class to migrate a lot of data by ranges of keys (e.g. the ids of a table). Each chunk is processed in its own transaction (when there is a {@link #jdbcTemplate}) and the progress is
+ * saved in the {@link UpgraderTracker} so a restart after a failure resumes where it was.
+ *
+ * <ul>
+ * <li>The keys from {@link #getFirstKey()} to {@link #getLastKey()} (inclusive) are split in chunks of chunkSize keys.</li>
+ * <li>The chunks can be processed by many workers. The saved progress is the key before which all the chunks are completed.</li>
+ * <li>The progress is saved outside the transaction of the chunk, so a chunk that was committed can be processed again after a restart. The chunks must be idempotent.</li>
+ * <li>The amount of chunks started per second can be limited to reduce the load on the database.</li>
+ * </ul>
+ *
+ * Default:
+ * <ul>
+ * <li>chunkSize = 10000</li>
+ * <li>workers = 1</li>
+ * <li>maxChunksPerSecond = 0 (no limit)</li>
+ * </ul>
+ *
+ * <pre>
+ * public class V2021_BackfillTotals extends AbstractChunkedUpgradeTask {
+ *
+ *     protected long getFirstKey() {
+ *         return jdbcTemplate.queryForObject("SELECT MIN(id) FROM orders", Long.class);
+ *     }
+ *
+ *     protected long getLastKey() {
+ *         return jdbcTemplate.queryForObject("SELECT MAX(id) FROM orders", Long.class);
+ *     }
+ *
+ *     protected void processChunk(long fromKey, long toKey) {
+ *         jdbcTemplate.update("UPDATE orders SET total = price * quantity WHERE id &gt;= ? AND id &lt; ?", fromKey, toKey);
+ *     }
+ *
+ * }
+ * </pre>
+ */
+public abstract class AbstractChunkedUpgradeTask extends AbstractDatabaseUpgradeTask implements UpgraderTrackerAware {
+
+    private int chunkSize = 10000;
+    private int workers = 1;
+    private double maxChunksPerSecond = 0;
+
+    private UpgraderTracker upgraderTracker;
+
+    // Running state
+    private Object throttleLock = new Object();
+    private long nextChunkStartNanos = Long.MIN_VALUE;
+
+    private void executeChunk(long fromKey, long toKey) {
+        if (jdbcTemplate == null) {
+            processChunk(fromKey, toKey);
+            return;
+        }
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(jdbcTemplate.getDataSource());
+        TransactionStatus transactionStatus = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        try {
+            processChunk(fromKey, toKey);
+        } catch (Throwable e) {
+            transactionManager.rollback(transactionStatus);
+            throw e;
+        }
+        transactionManager.commit(transactionStatus);
+    }
+
+    @Override
+    public void execute() {
+
+        String taskSimpleName = getClass().getSimpleName();
+        long firstKey = getFirstKey();
+        long lastKey = getLastKey();
+        if (lastKey < firstKey) {
+            logger.info("Nothing to process");
+            return;
+        }
+        AssertTools.assertTrue(lastKey < Long.MAX_VALUE, "The last key must be smaller than Long.MAX_VALUE since the end of a chunk is exclusive");
+
+        // Resume
+        long startKey = firstKey;
+        String progress = upgraderTracker == null ? null : upgraderTracker.loadProgress(taskSimpleName);
+        if (progress != null) {
+            startKey = Math.max(firstKey, Long.parseLong(progress));
+            logger.info("Resuming at key {}", startKey);
+        }
+
+        long chunkCount = 0;
+        if (lastKey >= startKey) {
+            long keysCount = lastKey - startKey;
+            AssertTools.assertTrue(keysCount >= 0, "The range of keys is too big");
+            chunkCount = keysCount / chunkSize + 1;
+        }
+        AssertTools.assertTrue(chunkCount <= Integer.MAX_VALUE, "There are too many chunks. Use a bigger chunk size");
+        logger.info("Processing keys {} to {} in {} chunks of {} with {} workers", startKey, lastKey, chunkCount, chunkSize, workers);
+
+        ExecutorService executorService = Executors.newFixedThreadPool(workers, ThreadTools.daemonThreadFactory(thread -> thread.setName(taskSimpleName + "-" + thread.getId())));
+        Semaphore inFlight = new Semaphore(workers * 2);
+        BitSet completedChunks = new BitSet();
+        int[] nextIncompleteChunk = { 0 };
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        long finalStartKey = startKey;
+        long finalChunkCount = chunkCount;
+        try {
+            for (int chunk = 0; chunk < chunkCount && failure.get() == null; ++chunk) {
+                inFlight.acquireUninterruptibly();
+                if (failure.get() != null) {
+                    inFlight.release();
+                    break;
+                }
+
+                int chunkIndex = chunk;
+                long fromKey = startKey + chunk * (long) chunkSize;
+                long toKey = lastKey - fromKey < chunkSize ? lastKey + 1 : fromKey + chunkSize;
+                executorService.execute(() -> {
+                    try {
+                        throttle();
+                        executeChunk(fromKey, toKey);
+
+                        // Save the progress if all the previous chunks are completed
+                        synchronized (completedChunks) {
+                            completedChunks.set(chunkIndex);
+                            int previous = nextIncompleteChunk[0];
+                            nextIncompleteChunk[0] = completedChunks.nextClearBit(previous);
+                            if (previous != nextIncompleteChunk[0] && upgraderTracker != null) {
+                                long progressKey = nextIncompleteChunk[0] >= finalChunkCount ? lastKey + 1 : finalStartKey + nextIncompleteChunk[0] * (long) chunkSize;
+                                upgraderTracker.saveProgress(taskSimpleName, String.valueOf(progressKey));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        logger.error("Problem processing keys {} to {}", fromKey, toKey, e);
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            executorService.shutdown();
+            try {
+                executorService.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new SmallToolsException("Interrupted while waiting for the chunks", e);
+            }
+        }
+
+        if (failure.get() != null) {
+            throw new SmallToolsException("Problem processing a chunk", failure.get());
+        }
+
+        // Completed
+        if (upgraderTracker != null) {
+            upgraderTracker.saveProgress(taskSimpleName, null);
+        }
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * Get the first key to process.
+     *
+     * @return the first key (inclusive)
+     */
+    protected abstract long getFirstKey();
+
+    /**
+     * Get the last key to process.
+     *
+     * @return the last key (inclusive)
+     */
+    protected abstract long getLastKey();
+
+    public double getMaxChunksPerSecond() {
+        return maxChunksPerSecond;
+    }
+
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Process all the keys in the range. Is called in a transaction when there is a {@link #jdbcTemplate}. Can be called by multiple threads at the same time when there are many workers. Must be
+     * idempotent since the same range can be processed again when resuming after a failure.
+     *
+     * @param fromKey
+     *            the first key (inclusive)
+     * @param toKey
+     *            the last key (exclusive)
+     */
+    protected abstract void processChunk(long fromKey, long toKey);
+
+    public void setChunkSize(int chunkSize) {
+        AssertTools.assertTrue(chunkSize > 0, "The chunk size must be at least 1");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Limit the amount of chunks started per second.
+     *
+     * @param maxChunksPerSecond
+     *            the maximum or 0 for no limit
+     */
+    public void setMaxChunksPerSecond(double maxChunksPerSecond) {
+        this.maxChunksPerSecond = maxChunksPerSecond;
+    }
+
+    @Override
+    public void setUpgraderTracker(UpgraderTracker upgraderTracker) {
+        this.upgraderTracker = upgraderTracker;
+    }
+
+    public void setWorkers(int workers) {
+        AssertTools.assertTrue(workers > 0, "Must have at least 1 worker");
+        this.workers = workers;
+    }
+
+    private void throttle() {
+        if (maxChunksPerSecond <= 0) {
+            return;
+        }
+
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / maxChunksPerSecond);
+        long startNanos;
+        synchronized (throttleLock) {
+            long now = System.nanoTime();
+            startNanos = Math.max(now, nextChunkStartNanos);
+            nextChunkStartNanos = startNanos + intervalNanos;
+        }
+        long waitNanos = startNanos - System.nanoTime();
+        if (waitNanos > 0) {
+            ThreadTools.sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+    }
+
+}
@@ -8,6 +8,9 @@
  */
 package com.foilen.smalltools.upgrader.tasks;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * A task to execute.
  */
@@ -15,6 +18,16 @@ public interface UpgradeTask {
 
     public static final String DEFAULT_TRACKER = "____";
 
+    /**
+     * Tells which tasks must be completed before this one when the tasks are executed in parallel. When executed one after the other, the tasks are executed in their list order (sorted by class name
+     * by default).
+     *
+     * @return the simple class names of the tasks this one depends on
+     */
+    default List<String> dependsOnTasks() {
+        return Collections.emptyList();
+    }
+
     /**
      * Execute the task. Throw a {@link RuntimeException} for any failure.
      */
@@ -0,0 +1,27 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.upgrader.tasks;
+
+import com.foilen.smalltools.upgrader.UpgraderTools;
+import com.foilen.smalltools.upgrader.trackers.UpgraderTracker;
+
+/**
+ * An {@link UpgradeTask} that wants to use its {@link UpgraderTracker} (e.g. to save its progress). {@link UpgraderTools} gives it the tracker before executing it.
+ */
+public interface UpgraderTrackerAware {
+
+    /**
+     * Set the tracker used for this task.
+     *
+     * @param upgraderTracker
+     *            the tracker
+     */
+    void setUpgraderTracker(UpgraderTracker upgraderTracker);
+
+}
@@ -8,7 +8,9 @@
  */
 package com.foilen.smalltools.upgrader.trackers;
 
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.springframework.jdbc.core.JdbcTemplate;
 
@@ -39,9 +41,30 @@ public class DatabaseUpgraderTracker implements UpgraderTracker {
         }
     }
 
+    @Override
+    public Set<String> loadAllExecutedSuccessfully() {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT task FROM upgrader_tools", String.class));
+    }
+
+    @Override
+    public String loadProgress(String taskSimpleName) {
+        List<String> progresses = jdbcTemplate.queryForList("SELECT progress FROM upgrader_tools_progress WHERE task = ?", String.class, taskSimpleName);
+        return progresses.isEmpty() ? null : progresses.get(0);
+    }
+
+    @Override
+    public void saveProgress(String taskSimpleName, String progress) {
+        if (progress == null) {
+            jdbcTemplate.update("DELETE FROM upgrader_tools_progress WHERE task = ?", taskSimpleName);
+        } else if (jdbcTemplate.update("UPDATE upgrader_tools_progress SET progress = ? WHERE task = ?", progress, taskSimpleName) == 0) {
+            jdbcTemplate.update("INSERT INTO upgrader_tools_progress (task, progress) VALUES (?, ?)", taskSimpleName, progress);
+        }
+    }
+
     @Override
     public void trackerBegin() {
         jdbcTemplate.update("CREATE TABLE IF NOT EXISTS upgrader_tools (task varchar(255) PRIMARY KEY)");
+        jdbcTemplate.update("CREATE TABLE IF NOT EXISTS upgrader_tools_progress (task varchar(255) PRIMARY KEY, progress varchar(1000))");
     }
 
     @Override
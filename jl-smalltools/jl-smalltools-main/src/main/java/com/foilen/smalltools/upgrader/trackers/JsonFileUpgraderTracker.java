@@ -9,7 +9,9 @@
 package com.foilen.smalltools.upgrader.trackers;
 
 import java.io.File;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 import com.foilen.smalltools.tools.AssertTools;
@@ -17,13 +19,14 @@ import com.foilen.smalltools.tools.FileTools;
 import com.foilen.smalltools.tools.JsonTools;
 
 /**
- * A tracker that stores the successfully executed tasks in a {@link Set} and stores it in a file.
+ * A tracker that stores the successfully executed tasks in a {@link Set} and stores it in a file. The progress of the tasks is stored in a second file with the ".progress" suffix.
  */
 public class JsonFileUpgraderTracker implements UpgraderTracker {
 
     private String fileName;
 
     private Set<String> successfulTasks = new HashSet<>();
+    private Map<String, String> progressByTask;
 
     public JsonFileUpgraderTracker(String fileName) {
         this.fileName = fileName;
@@ -34,22 +37,52 @@ public class JsonFileUpgraderTracker implements UpgraderTracker {
     }
 
     @Override
-    public void executionEnd(String taskSimpleName, boolean isSuccessful) {
+    public synchronized void executionEnd(String taskSimpleName, boolean isSuccessful) {
         if (isSuccessful) {
             successfulTasks.add(taskSimpleName);
             save();
         }
     }
 
-    private void save() {
+    @Override
+    public synchronized Set<String> loadAllExecutedSuccessfully() {
+        return new HashSet<>(successfulTasks);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public synchronized String loadProgress(String taskSimpleName) {
+        if (progressByTask == null) {
+            String progressFileName = fileName + ".progress";
+            progressByTask = FileTools.exists(progressFileName) ? JsonTools.readFromFile(progressFileName, Map.class) : new HashMap<>();
+        }
+        return progressByTask.get(taskSimpleName);
+    }
+
+    private synchronized void save() {
         String tmpFile = fileName + ".tmp";
         JsonTools.writeToFile(tmpFile, successfulTasks);
         AssertTools.assertTrue(new File(tmpFile).renameTo(new File(fileName)), "Could not move the temporary file");
     }
 
+    @Override
+    public synchronized void saveProgress(String taskSimpleName, String progress) {
+        loadProgress(taskSimpleName);
+        if (progress == null) {
+            progressByTask.remove(taskSimpleName);
+        } else {
+            progressByTask.put(taskSimpleName, progress);
+        }
+
+        String progressFileName = fileName + ".progress";
+        String tmpFile = progressFileName + ".tmp";
+        JsonTools.writeToFile(tmpFile, progressByTask);
+        AssertTools.assertTrue(new File(tmpFile).renameTo(new File(progressFileName)), "Could not move the temporary file");
+    }
+
     @SuppressWarnings("unchecked")
     @Override
-    public void trackerBegin() {
+    public synchronized void trackerBegin() {
         if (!FileTools.exists(fileName)) {
             save();
         }
@@ -57,12 +90,12 @@ public class JsonFileUpgraderTracker implements UpgraderTracker {
     }
 
     @Override
-    public void trackerEnd() {
+    public synchronized void trackerEnd() {
         save();
     }
 
     @Override
-    public boolean wasExecutedSuccessfully(String taskSimpleName) {
+    public synchronized boolean wasExecutedSuccessfully(String taskSimpleName) {
         return successfulTasks.contains(taskSimpleName);
     }
 
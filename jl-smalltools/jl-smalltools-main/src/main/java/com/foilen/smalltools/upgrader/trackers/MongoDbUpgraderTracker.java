@@ -10,7 +10,9 @@ package com.foilen.smalltools.upgrader.trackers;
 
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 
 import org.bson.Document;
 
@@ -18,9 +20,11 @@ import com.foilen.smalltools.tools.DateTools;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReplaceOptions;
 
 /**
- * A tracker that stores the successfully executed tasks in a MongoDB Database.
+ * A tracker that stores the successfully executed tasks in a MongoDB Database. The progress of the tasks is stored in the collection with the "Progress" suffix.
  *
  * <pre>
  * Dependencies:
@@ -67,11 +71,46 @@ public class MongoDbUpgraderTracker implements UpgraderTracker {
         return collectionName;
     }
 
+    @Override
+    public Set<String> loadAllExecutedSuccessfully() {
+        Set<String> taskSimpleNames = new HashSet<>();
+        mongoClient.getDatabase(databaseName) //
+                .getCollection(collectionName) //
+                .find() //
+                .projection(Projections.include("_id")) //
+                .forEach(document -> taskSimpleNames.add(document.getString("_id")));
+        return taskSimpleNames;
+    }
+
     public MongoDbUpgraderTracker setCollectionName(String collectionName) {
         this.collectionName = collectionName;
         return this;
     }
 
+    @Override
+    public String loadProgress(String taskSimpleName) {
+        Document document = mongoClient.getDatabase(databaseName) //
+                .getCollection(collectionName + "Progress") //
+                .find(Filters.eq("_id", taskSimpleName)) //
+                .first();
+        return document == null ? null : document.getString("progress");
+    }
+
+    @Override
+    public void saveProgress(String taskSimpleName, String progress) {
+        if (progress == null) {
+            mongoClient.getDatabase(databaseName) //
+                    .getCollection(collectionName + "Progress") //
+                    .deleteOne(Filters.eq("_id", taskSimpleName));
+        } else {
+            Document document = new Document("_id", taskSimpleName);
+            document.put("progress", progress);
+            mongoClient.getDatabase(databaseName) //
+                    .getCollection(collectionName + "Progress") //
+                    .replaceOne(Filters.eq("_id", taskSimpleName), document, new ReplaceOptions().upsert(true));
+        }
+    }
+
     @Override
     public void trackerBegin() {
     }
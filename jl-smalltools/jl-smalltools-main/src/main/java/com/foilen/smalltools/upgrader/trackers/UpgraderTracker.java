@@ -8,6 +8,8 @@
  */
 package com.foilen.smalltools.upgrader.trackers;
 
+import java.util.Set;
+
 import com.foilen.smalltools.upgrader.UpgraderTools;
 import com.foilen.smalltools.upgrader.tasks.UpgradeTask;
 
@@ -16,6 +18,15 @@ import com.foilen.smalltools.upgrader.tasks.UpgradeTask;
  */
 public interface UpgraderTracker {
 
+    /**
+     * Load the names of all the tasks that were executed successfully. It is called once by {@link UpgraderTools} to avoid asking {@link #wasExecutedSuccessfully(String)} for each task.
+     *
+     * @return the task simple class names or null if not supported by this tracker
+     */
+    default Set<String> loadAllExecutedSuccessfully() {
+        return null;
+    }
+
     /**
      * Called before each task.
      *
@@ -25,7 +36,7 @@ public interface UpgraderTracker {
     void executionBegin(String taskSimpleName);
 
     /**
-     * Called after each task.
+     * Called after each task. Can be called by multiple threads when the tasks are executed in parallel.
      *
      * @param taskSimpleName
      *            the task simple class name
@@ -34,6 +45,28 @@ public interface UpgraderTracker {
      */
     void executionEnd(String taskSimpleName, boolean isSuccessful);
 
+    /**
+     * Get the progress saved by a task that did not complete.
+     *
+     * @param taskSimpleName
+     *            the task simple class name
+     * @return the progress or null if none or if not supported by this tracker
+     */
+    default String loadProgress(String taskSimpleName) {
+        return null;
+    }
+
+    /**
+     * Save the progress of a long task to be able to resume it. Not supported by default.
+     *
+     * @param taskSimpleName
+     *            the task simple class name
+     * @param progress
+     *            the progress or null to remove it
+     */
+    default void saveProgress(String taskSimpleName, String progress) {
+    }
+
     /**
      * Called before any task is executed to prepare the tracker if needed.
      */
@@ -0,0 +1,120 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.assemblyline;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.tools.ExecutorsTools;
+import com.foilen.smalltools.tools.ThreadTools;
+
+public class AssemblyLinePipelineTest {
+
+    private AssemblyLine<AssemblyLineAction<Integer>, Integer> createAssemblyLine() {
+        AssemblyLine<AssemblyLineAction<Integer>, Integer> assemblyLine = new AssemblyLine<>();
+
+        // Drop the multiples of 10
+        assemblyLine.addAction(item -> item % 10 == 0 ? null : item);
+
+        // Slow action
+        assemblyLine.addAction(item -> {
+            ThreadTools.sleep(item % 3);
+            return item * 2;
+        });
+
+        return assemblyLine;
+    }
+
+    @Test(timeout = 30000)
+    public void testConcurrentWithFailure() throws Exception {
+        AssemblyLine<AssemblyLineAction<Integer>, Integer> assemblyLine = new AssemblyLine<>();
+        assemblyLine.addAction(item -> {
+            if (item < 0) {
+                throw new RuntimeException("Bad item");
+            }
+            ThreadTools.sleep(1);
+            return item;
+        });
+        AssemblyLinePipeline<Integer> pipeline = new AssemblyLinePipeline<>(assemblyLine).setQueueSize(5);
+
+        // The failing one does not stop the other
+        List<Integer> output = new ArrayList<>();
+        Future<?> future = ExecutorsTools.getCachedDaemonThreadPool().submit(() -> pipeline.process(IntStream.range(0, 500).boxed(), output::add));
+        try {
+            pipeline.process(IntStream.range(-10, 0).boxed(), item -> {
+            });
+            Assert.fail("Expecting an exception");
+        } catch (SmallToolsException e) {
+            Assert.assertEquals("Bad item", e.getCause().getMessage());
+        }
+        future.get();
+        Assert.assertEquals(IntStream.range(0, 500).boxed().collect(Collectors.toList()), output);
+    }
+
+    @Test(timeout = 30000)
+    public void testFailure() {
+        AssemblyLine<AssemblyLineAction<Integer>, Integer> assemblyLine = new AssemblyLine<>();
+        assemblyLine.addAction(item -> {
+            if (item == 50) {
+                throw new RuntimeException("Bad item");
+            }
+            return item;
+        });
+
+        try {
+            new AssemblyLinePipeline<>(assemblyLine).setQueueSize(5).process(IntStream.range(0, 1000).boxed(), item -> {
+            });
+            Assert.fail("Expecting an exception");
+        } catch (SmallToolsException e) {
+            Assert.assertEquals("Bad item", e.getCause().getMessage());
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testOrdered() {
+        AssemblyLinePipeline<Integer> pipeline = new AssemblyLinePipeline<>(createAssemblyLine()) //
+                .setStageWorkers(1, 8) //
+                .setQueueSize(10);
+
+        List<Integer> output = new ArrayList<>();
+        pipeline.process(IntStream.range(0, 500).boxed(), output::add);
+
+        List<Integer> expected = IntStream.range(0, 500).filter(i -> i % 10 != 0).map(i -> i * 2).boxed().collect(Collectors.toList());
+        Assert.assertEquals(expected, output);
+
+        Assert.assertEquals(2, pipeline.getStageStats().size());
+        Assert.assertEquals(500, pipeline.getStageStats().get(0).getProcessed());
+        Assert.assertEquals(50, pipeline.getStageStats().get(0).getDropped());
+        Assert.assertEquals(450, pipeline.getStageStats().get(1).getProcessed());
+        Assert.assertEquals(8, pipeline.getStageStats().get(1).getWorkers());
+    }
+
+    @Test(timeout = 30000)
+    public void testUnordered() {
+        AssemblyLinePipeline<Integer> pipeline = new AssemblyLinePipeline<>(createAssemblyLine()) //
+                .setStageWorkers(1, 8) //
+                .setOrdered(false);
+
+        List<Integer> output = new ArrayList<>();
+        pipeline.process(IntStream.range(0, 500).boxed(), output::add);
+
+        List<Integer> expected = IntStream.range(0, 500).filter(i -> i % 10 != 0).map(i -> i * 2).boxed().collect(Collectors.toList());
+        Collections.sort(output);
+        Assert.assertEquals(expected, output);
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.consolerunner;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.consolerunner.ConsoleRunnerBatchResult.Invocation;
+
+public class ConsoleRunnerBatchTest {
+
+    @Test(timeout = 20000)
+    public void testExecute() {
+        ConsoleRunnerBatch batch = new ConsoleRunnerBatch() //
+                .setConcurrency(4) //
+                .setCaptureOutputs(true);
+        for (int i = 0; i < 20; ++i) {
+            batch.add(new ConsoleRunner().setCommand("sh").addArguments("-c", "echo " + i + "; exit " + (i % 5 == 0 ? 1 : 0)));
+        }
+        batch.add(new ConsoleRunner().setCommand("sleep").addArguments("5").setTimeoutInMilliseconds(200L));
+
+        ConsoleRunnerBatchResult result = batch.execute();
+
+        Assert.assertEquals(21, result.getInvocations().size());
+        Assert.assertEquals(16, result.getSuccessCount());
+        Assert.assertEquals(5, result.getFailedCount());
+        Assert.assertFalse(result.isAllSuccess());
+        Assert.assertEquals(21, result.getDurationMs().getCount());
+
+        for (int i = 0; i < 20; ++i) {
+            Invocation invocation = result.getInvocations().get(i);
+            Assert.assertEquals(i + "\n", invocation.getOutput());
+            Assert.assertEquals((Integer) (i % 5 == 0 ? 1 : 0), invocation.getStatusCode());
+            Assert.assertNull(invocation.getFailure());
+        }
+
+        Invocation timedOut = result.getInvocations().get(20);
+        Assert.assertNull(timedOut.getStatusCode());
+        Assert.assertTrue(timedOut.getFailure() instanceof ConsoleTimedoutException);
+    }
+
+}
@@ -0,0 +1,121 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.consolerunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.tools.ThreadTools;
+import com.foilen.smalltools.tuple.Tuple2;
+
+public class ConsoleRunnerTest {
+
+    @Test
+    public void testExecuteForString_MaxCaptureBytes() {
+        ConsoleRunner consoleRunner = new ConsoleRunner() //
+                .setCommand("sh") //
+                .addArguments("-c", "echo 0123456789; echo abc") //
+                .setMaxCaptureBytes(6);
+
+        Assert.assertEquals("9\nabc\n", consoleRunner.executeForString());
+        Assert.assertEquals(0, consoleRunner.getStatusCode());
+    }
+
+    @Test
+    public void testExecuteForStrings_Many() {
+        for (int i = 0; i < 50; ++i) {
+            Tuple2<String, String> outputs = new ConsoleRunner() //
+                    .setCommand("sh") //
+                    .addArguments("-c", "echo out" + i + "; echo err" + i + " >&2") //
+                    .executeForStrings();
+            Assert.assertEquals("out" + i + "\n", outputs.getA());
+            Assert.assertEquals("err" + i + "\n", outputs.getB());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testExecuteWithLineConsumers() {
+        List<String> outputLines = new ArrayList<>();
+        List<String> errorLines = new ArrayList<>();
+        int statusCode = new ConsoleRunner() //
+                .setCommand("sh") //
+                .addArguments("-c", "echo one; echo error >&2; echo two; printf three; exit 3") //
+                .executeWithLineConsumers(outputLines::add, errorLines::add);
+
+        Assert.assertEquals(3, statusCode);
+        Assert.assertEquals(Arrays.asList("one", "two", "three"), outputLines);
+        Assert.assertEquals(Arrays.asList("error"), errorLines);
+    }
+
+    @Test(timeout = 10000)
+    public void testExecuteWithLineConsumers_ConsumerFails() {
+        try {
+            new ConsoleRunner() //
+                    .setCommand("sh") //
+                    .addArguments("-c", "echo one; echo two") //
+                    .executeWithLineConsumers(line -> {
+                        throw new RuntimeException("Consumer failed");
+                    }, null);
+            Assert.fail("Expecting an exception");
+        } catch (SmallToolsException e) {
+        }
+
+        // The other runners still work
+        Assert.assertEquals("ok\n", new ConsoleRunner().setCommand("echo").addArguments("ok").executeForString());
+    }
+
+    @Test(timeout = 10000)
+    public void testExecuteWithLineConsumers_SlowConsumer() throws Exception {
+        CountDownLatch firstLine = new CountDownLatch(1);
+        Thread slowThread = new Thread(() -> {
+            new ConsoleRunner() //
+                    .setCommand("sh") //
+                    .addArguments("-c", "echo one; echo two") //
+                    .executeWithLineConsumers(line -> {
+                        firstLine.countDown();
+                        ThreadTools.sleep(2000);
+                    }, null);
+        });
+        slowThread.start();
+        firstLine.await();
+
+        // The other runners are not waiting for the slow consumer
+        long start = System.currentTimeMillis();
+        Assert.assertEquals("ok\n", new ConsoleRunner().setCommand("echo").addArguments("ok").executeForString());
+        long duration = System.currentTimeMillis() - start;
+        Assert.assertTrue("Took " + duration, duration < 1500);
+
+        slowThread.join();
+    }
+
+    @Test(timeout = 10000)
+    public void testTimeout() {
+        ConsoleRunner consoleRunner = new ConsoleRunner() //
+                .setCommand("sleep") //
+                .addArguments("5") //
+                .setTimeoutInMilliseconds(300L);
+
+        long start = System.currentTimeMillis();
+        try {
+            consoleRunner.execute();
+            Assert.fail("Expecting a timeout");
+        } catch (ConsoleTimedoutException e) {
+        }
+        long duration = System.currentTimeMillis() - start;
+        Assert.assertTrue("Took " + duration, duration < 2000);
+    }
+
+}
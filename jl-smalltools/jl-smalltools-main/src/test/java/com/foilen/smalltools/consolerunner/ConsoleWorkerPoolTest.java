@@ -0,0 +1,88 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.consolerunner;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConsoleWorkerPoolTest {
+
+    private static final String ECHO_LOOP = "while read line; do if [ \"$line\" = sleep ]; then sleep 5; fi; echo \"got $line\"; echo END; done";
+
+    @Test(timeout = 20000)
+    public void testRequest() throws Exception {
+        ConsoleRunner template = new ConsoleRunner().setCommand("sh").addArguments("-c", ECHO_LOOP);
+        try (ConsoleWorkerPool pool = new ConsoleWorkerPool(template) //
+                .setMaxWorkers(3) //
+                .setEndOfResponse("END"::equals)) {
+
+            ExecutorService executorService = Executors.newFixedThreadPool(6);
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; ++i) {
+                String request = "r" + i;
+                futures.add(executorService.submit(() -> pool.request(request)));
+            }
+            for (int i = 0; i < 100; ++i) {
+                Assert.assertEquals("got r" + i + "\nEND", futures.get(i).get());
+            }
+            executorService.shutdown();
+
+            Assert.assertTrue(pool.getStartedWorkersCount() <= 3);
+            Assert.assertEquals(100, pool.getRequestTimeUs().getCount());
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testRequest_MaxRequestsPerWorker() {
+        ConsoleRunner template = new ConsoleRunner().setCommand("sh").addArguments("-c", "while read line; do echo \"$$ $line\"; done");
+        try (ConsoleWorkerPool pool = new ConsoleWorkerPool(template) //
+                .setMaxWorkers(1) //
+                .setMaxRequestsPerWorker(2)) {
+
+            Set<String> pids = new HashSet<>();
+            for (int i = 0; i < 6; ++i) {
+                String[] parts = pool.request(String.valueOf(i)).split(" ");
+                Assert.assertEquals(String.valueOf(i), parts[1]);
+                pids.add(parts[0]);
+            }
+
+            Assert.assertEquals(3, pids.size());
+            Assert.assertEquals(3, pool.getStartedWorkersCount());
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testRequest_Timeout() {
+        ConsoleRunner template = new ConsoleRunner().setCommand("sh").addArguments("-c", ECHO_LOOP);
+        try (ConsoleWorkerPool pool = new ConsoleWorkerPool(template) //
+                .setMaxWorkers(1) //
+                .setEndOfResponse("END"::equals) //
+                .setRequestTimeoutInMilliseconds(300L)) {
+
+            try {
+                pool.request("sleep");
+                Assert.fail("Expecting a timeout");
+            } catch (ConsoleTimedoutException e) {
+            }
+
+            // A new worker is started
+            Assert.assertEquals("got again\nEND", pool.request("again"));
+            Assert.assertEquals(2, pool.getStartedWorkersCount());
+        }
+    }
+
+}
@@ -17,6 +17,7 @@ import java.util.concurrent.Future;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.foilen.smalltools.metrics.MetricsRegistry;
 import com.foilen.smalltools.tools.ExecutorsTools;
 import com.foilen.smalltools.tools.FileTools;
 import com.foilen.smalltools.tools.ThreadTools;
@@ -171,6 +172,9 @@ public class AbstractSingleJsonFileDaoTest {
         TestDbEntity entity = dao.load();
         Assert.assertNotNull(entity);
 
+        // The metrics are per file
+        Assert.assertEquals(1, MetricsRegistry.getDefault().histogram("jsonDao." + dbFile.getName() + ".loadUs").getCount());
+
     }
 
     @Test(timeout = 30000)
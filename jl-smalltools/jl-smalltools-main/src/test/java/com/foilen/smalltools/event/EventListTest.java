@@ -0,0 +1,157 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.event.AsyncEventSubscriber.OverflowPolicy;
+
+public class EventListTest {
+
+    @Test(timeout = 30000)
+    public void testAsync() {
+        EventList<Integer> eventList = new EventList<>();
+
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        AsyncEventSubscriber<Integer> subscriber = eventList.addAsyncCallback(received::add, 16);
+
+        for (int i = 0; i < 1000; ++i) {
+            eventList.dispatch(i);
+        }
+        Assert.assertTrue(subscriber.awaitDelivered(10000));
+
+        Assert.assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), received);
+        Assert.assertEquals(1000, subscriber.getDeliveredCount());
+        Assert.assertEquals(0, subscriber.getDroppedCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testAsync_batched() {
+        EventList<Integer> eventList = new EventList<>();
+
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        AsyncEventSubscriber<Integer> subscriber = AsyncEventSubscriber.batched(batches::add, 1024, 10);
+        eventList.addCallback(subscriber);
+
+        for (int i = 0; i < 1000; ++i) {
+            eventList.dispatch(i);
+        }
+        Assert.assertTrue(subscriber.awaitDelivered(10000));
+
+        Assert.assertTrue(batches.stream().allMatch(it -> it.size() <= 10));
+        Assert.assertEquals(IntStream.range(0, 1000).boxed().collect(Collectors.toList()), batches.stream().flatMap(List::stream).collect(Collectors.toList()));
+    }
+
+    @Test(timeout = 30000)
+    public void testAsync_failingCallback() {
+        EventList<Integer> eventList = new EventList<>();
+
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        AsyncEventSubscriber<Integer> subscriber = eventList.addAsyncCallback(param -> {
+            if (param % 10 == 0) {
+                throw new RuntimeException("Failing " + param);
+            }
+            received.add(param);
+        }, 1024);
+
+        for (int i = 0; i < 100; ++i) {
+            eventList.dispatch(i);
+        }
+        Assert.assertTrue(subscriber.awaitDelivered(10000));
+
+        Assert.assertEquals(IntStream.range(0, 100).filter(it -> it % 10 != 0).boxed().collect(Collectors.toList()), received);
+    }
+
+    @Test(timeout = 30000)
+    public void testAsync_rejectedOnce() {
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean reject = new AtomicBoolean(true);
+        AsyncEventSubscriber<Integer> subscriber = AsyncEventSubscriber.<Integer> of(received::add, 16) //
+                .setExecutor(task -> {
+                    if (reject.getAndSet(false)) {
+                        throw new RejectedExecutionException("Expected rejection");
+                    }
+                    new Thread(task).start();
+                });
+
+        // The first one is not scheduled
+        try {
+            subscriber.handle(1);
+            Assert.fail("Expecting an exception");
+        } catch (RejectedExecutionException e) {
+        }
+
+        // The next one schedules the delivery of both
+        subscriber.handle(2);
+        Assert.assertTrue(subscriber.awaitDelivered(10000));
+        Assert.assertEquals(Arrays.asList(1, 2), received);
+    }
+
+    @Test(timeout = 30000)
+    public void testAsync_slowDrop() throws Exception {
+        EventList<Integer> eventList = new EventList<>();
+
+        // A fast and a slow one
+        List<Integer> fastReceived = new ArrayList<>();
+        eventList.addCallback(fastReceived::add);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncEventSubscriber<Integer> slowSubscriber = AsyncEventSubscriber.<Integer> of(param -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+            }
+        }, 4) //
+                .setOverflowPolicy(OverflowPolicy.DROP);
+        eventList.addCallback(slowSubscriber);
+
+        // The dispatching is not stalled
+        for (int i = 0; i < 100; ++i) {
+            eventList.dispatch(i);
+        }
+        Assert.assertEquals(100, fastReceived.size());
+        Assert.assertTrue(slowSubscriber.isSlow());
+        Assert.assertTrue(slowSubscriber.getDroppedCount() >= 90);
+
+        release.countDown();
+        Assert.assertTrue(slowSubscriber.awaitDelivered(10000));
+        Assert.assertEquals(100, slowSubscriber.getDeliveredCount() + slowSubscriber.getDroppedCount());
+    }
+
+    @Test
+    public void testSync() {
+        EventList<String> eventList = new EventList<>();
+
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        EventCallback<String> firstCallback = first::add;
+        eventList.addCallback(firstCallback);
+        eventList.addCallback(second::add);
+
+        eventList.dispatch("a");
+        eventList.removeCallback(firstCallback);
+        eventList.dispatch("b");
+        eventList.clearCallbacks();
+        eventList.dispatch("c");
+
+        Assert.assertEquals(Collections.singletonList("a"), first);
+        Assert.assertEquals(Arrays.asList("a", "b"), second);
+    }
+
+}
@@ -10,8 +10,10 @@ package com.foilen.smalltools.listscomparator;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -47,6 +49,60 @@ public class ListsComparatorTest {
         assertComparison(diffComparisons.get(8), "lll", 1);
     }
 
+    @Test
+    public void testCompareListsAsStream_parallel() {
+
+        // Big lists
+        List<Integer> left = IntStream.range(0, 100000).filter(i -> i % 3 != 0).boxed().collect(Collectors.toList());
+        List<Integer> right = IntStream.range(0, 100000).filter(i -> i % 5 != 0).boxed().collect(Collectors.toList());
+
+        List<ListsComparatorDifference<Integer>> expected = new ArrayList<>();
+        ListsComparator.compareLists(left, right, new ListComparatorHandler<Integer, Integer>() {
+            @Override
+            public void both(Integer left, Integer right) {
+            }
+
+            @Override
+            public void leftOnly(Integer left) {
+                expected.add(new ListsComparatorDifference<>(left, -1));
+            }
+
+            @Override
+            public void rightOnly(Integer right) {
+                expected.add(new ListsComparatorDifference<>(right, 1));
+            }
+        });
+
+        List<ListsComparatorDifference<Integer>> actual = ListsComparator.compareListsAsStream(left, right, true).collect(Collectors.toList());
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            Assert.assertEquals(expected.get(i).getObject(), actual.get(i).getObject());
+            Assert.assertEquals(expected.get(i).getSide(), actual.get(i).getSide());
+        }
+    }
+
+    @Test
+    public void testCompareListsAsStream_sequential() {
+
+        // Lists
+        List<String> left = Arrays.asList("aaa", "bbb", "ddd", "fff", "ggg", "hhh", "kkk");
+        List<String> right = Arrays.asList("aaa", "ccc", "eee", "hhh", "iii", "jjj", "kkk", "lll");
+
+        List<ListsComparatorDifference<String>> diffComparisons = ListsComparator.compareListsAsStream(left, right, false).collect(Collectors.toList());
+
+        Assert.assertEquals(9, diffComparisons.size());
+
+        assertComparison(diffComparisons.get(0), "bbb", -1);
+        assertComparison(diffComparisons.get(1), "ccc", 1);
+        assertComparison(diffComparisons.get(2), "ddd", -1);
+        assertComparison(diffComparisons.get(3), "eee", 1);
+        assertComparison(diffComparisons.get(4), "fff", -1);
+        assertComparison(diffComparisons.get(5), "ggg", -1);
+        assertComparison(diffComparisons.get(6), "iii", 1);
+        assertComparison(diffComparisons.get(7), "jjj", 1);
+        assertComparison(diffComparisons.get(8), "lll", 1);
+    }
+
     @Test
     public void testCompareListsEmpty() {
 
@@ -89,6 +145,45 @@ public class ListsComparatorTest {
         assertComparison(diffComparisons.get(1), "bbb", 1);
     }
 
+    @Test
+    public void testCompareMultipleLists() {
+
+        // Lists
+        List<String> first = Arrays.asList("aaa", "bbb", "ddd");
+        List<String> second = Arrays.asList("aaa", "ccc", "ddd");
+        List<String> third = Arrays.asList("aaa", "bbb", "ddd", "eee");
+
+        List<ListsComparatorPresence<String>> differences = ListsComparator.compareMultipleLists(Arrays.asList(first, second, third));
+
+        Assert.assertEquals(3, differences.size());
+        Assert.assertEquals("bbb", differences.get(0).getObject());
+        Assert.assertEquals(Arrays.asList("bbb", null, "bbb"), differences.get(0).getItemBySource());
+        Assert.assertEquals("ccc", differences.get(1).getObject());
+        Assert.assertEquals(Arrays.asList(null, "ccc", null), differences.get(1).getItemBySource());
+        Assert.assertEquals("eee", differences.get(2).getObject());
+        Assert.assertEquals(1, differences.get(2).getPresentCount());
+        Assert.assertTrue(differences.get(2).isPresent(2));
+    }
+
+    @Test
+    public void testCompareMultipleStreams() {
+
+        // Streams
+        List<ListsComparatorPresence<String>> all = new ArrayList<>();
+        ListsComparator.compareMultipleStreams(Arrays.asList(Arrays.asList("aaa", "ccc").stream(), Arrays.asList("aaa", "bbb").stream()), Comparator.naturalOrder(), all::add);
+
+        Assert.assertEquals(3, all.size());
+        Assert.assertTrue(all.get(0).isPresentInAll());
+        Assert.assertEquals(Arrays.asList(null, "bbb"), all.get(1).getItemBySource());
+        Assert.assertEquals(Arrays.asList("ccc", null), all.get(2).getItemBySource());
+
+        // Only differences
+        List<String> differences = ListsComparator.compareMultipleStreams(Arrays.asList(Arrays.asList("aaa", "ccc").stream(), Arrays.asList("aaa", "bbb").stream()), Comparator.<String> naturalOrder()) //
+                .map(ListsComparatorPresence::getObject) //
+                .collect(Collectors.toList());
+        Assert.assertEquals(Arrays.asList("bbb", "ccc"), differences);
+    }
+
     @Test
     public void testCompareStreams() {
 
@@ -152,4 +247,16 @@ public class ListsComparatorTest {
         assertComparison(diffComparisons.get(0), "aaa", 1);
         assertComparison(diffComparisons.get(1), "bbb", 1);
     }
+
+    @Test
+    public void testCompareStreams_parallel() {
+
+        // Big streams
+        List<Integer> differences = ListsComparator.compareStreams(IntStream.range(0, 100000).boxed(), IntStream.range(0, 100000).filter(i -> i % 10 != 0).boxed()) //
+                .parallel() //
+                .map(ListsComparatorDifference::getObject) //
+                .collect(Collectors.toList());
+
+        Assert.assertEquals(IntStream.range(0, 100000).filter(i -> i % 10 == 0).boxed().collect(Collectors.toList()), differences);
+    }
 }
@@ -0,0 +1,47 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class HistogramTest {
+
+    @Test
+    public void testBuckets() {
+        for (long value : new long[] { 0, 1, 31, 32, 33, 63, 64, 1000, 123456789, Long.MAX_VALUE }) {
+            long upperBound = Histogram.bucketUpperBound(Histogram.bucketIndex(value));
+            Assert.assertTrue("Upper bound too small for " + value, upperBound >= value);
+            Assert.assertTrue("Upper bound too big for " + value, upperBound - value <= value / 32);
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+
+        for (int i = 1; i <= 1000; ++i) {
+            histogram.record(i);
+        }
+
+        Assert.assertEquals(1000, histogram.getCount());
+        Assert.assertEquals(500500, histogram.getSum());
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertEquals(500.5, histogram.getMean(), 0.001);
+        Assert.assertEquals(500, histogram.getValueAtPercentile(50), 500 / 32);
+        Assert.assertEquals(990, histogram.getValueAtPercentile(99), 990 / 32);
+        Assert.assertEquals(1000, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+    }
+
+}
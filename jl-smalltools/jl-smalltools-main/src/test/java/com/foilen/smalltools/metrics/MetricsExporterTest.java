@@ -0,0 +1,65 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.metrics;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.tools.JsonTools;
+
+public class MetricsExporterTest {
+
+    private MetricsRegistry createRegistry() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("a.calls").add(3);
+        registry.counter("a.calls").increment();
+        AtomicLong queueSize = new AtomicLong(7);
+        registry.gauge("b.queueSize", queueSize::get);
+        Histogram histogram = registry.histogram("c.callUs");
+        for (int i = 1; i <= 100; ++i) {
+            histogram.record(i);
+        }
+        return registry;
+    }
+
+    @Test
+    public void testRemoveAll() {
+        MetricsRegistry registry = createRegistry();
+        registry.removeAll("a.");
+        Assert.assertTrue(registry.getCounters().isEmpty());
+        Assert.assertEquals(1, registry.getGaugeValues().size());
+        Assert.assertEquals(1, registry.getHistograms().size());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testToJson() {
+        Map<String, Map<String, Object>> actual = JsonTools.readFromString(MetricsExporter.toJson(createRegistry()), Map.class);
+
+        Assert.assertEquals(4, ((Number) actual.get("counters").get("a.calls")).longValue());
+        Assert.assertEquals(7, ((Number) actual.get("gauges").get("b.queueSize")).longValue());
+        Map<String, Object> histogram = (Map<String, Object>) actual.get("histograms").get("c.callUs");
+        Assert.assertEquals(100, ((Number) histogram.get("count")).longValue());
+        Assert.assertEquals(50.5, ((Number) histogram.get("mean")).doubleValue(), 0.001);
+        Assert.assertEquals(100, ((Number) histogram.get("max")).longValue());
+    }
+
+    @Test
+    public void testToText() {
+        String expected = "" //
+                + "a.calls 4\n" //
+                + "b.queueSize 7\n" //
+                + "c.callUs count=100 mean=50.5 p50=50 p90=91 p99=99 max=100\n";
+        Assert.assertEquals(expected, MetricsExporter.toText(createRegistry()));
+    }
+
+}
@@ -0,0 +1,38 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.outputstream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LineConsumerOutputStreamTest {
+
+    @Test
+    public void testWrite() {
+        List<String> lines = new ArrayList<>();
+        LineConsumerOutputStream out = new LineConsumerOutputStream(lines::add, StandardCharsets.UTF_8);
+
+        byte[] bytes = "one\ntw".getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        Assert.assertEquals(Arrays.asList("one"), lines);
+
+        bytes = "o\r\n\nthree".getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+        Assert.assertEquals(Arrays.asList("one", "two", ""), lines);
+
+        out.close();
+        Assert.assertEquals(Arrays.asList("one", "two", "", "three"), lines);
+    }
+
+}
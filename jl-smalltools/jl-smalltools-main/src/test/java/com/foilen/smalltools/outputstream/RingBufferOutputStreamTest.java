@@ -0,0 +1,51 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.outputstream;
+
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RingBufferOutputStreamTest {
+
+    private void write(RingBufferOutputStream out, String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        out.write(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void testWrite() {
+        RingBufferOutputStream out = new RingBufferOutputStream(5);
+
+        write(out, "abc");
+        Assert.assertEquals("abc", out.toString());
+        Assert.assertEquals(0, out.getDroppedBytes());
+
+        write(out, "de");
+        Assert.assertEquals("abcde", out.toString());
+        Assert.assertEquals(0, out.getDroppedBytes());
+
+        // Wraps
+        write(out, "fg");
+        Assert.assertEquals("cdefg", out.toString());
+        Assert.assertEquals(2, out.getDroppedBytes());
+
+        out.write('h');
+        Assert.assertEquals("defgh", out.toString());
+        Assert.assertEquals(3, out.getDroppedBytes());
+
+        // Bigger than the capacity
+        write(out, "0123456789");
+        Assert.assertEquals("56789", out.toString());
+        Assert.assertEquals(13, out.getDroppedBytes());
+        Assert.assertEquals(5, out.size());
+    }
+
+}
@@ -10,6 +10,8 @@ package com.foilen.smalltools.solver;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Collectors;
 
 import org.junit.Assert;
@@ -20,6 +22,30 @@ import com.google.common.base.Joiner;
 
 public class SolverPickItemsToolsTest {
 
+    private static SolveState sumTo10WithMax3Items(List<Integer> possibility) {
+        int sum = possibility.stream().collect(Collectors.summingInt(it -> it));
+        if (sum == 10) {
+            return SolveState.YES;
+        }
+        if (possibility.size() == 3) {
+            return SolveState.NO_WONTBE;
+        }
+
+        return SolveState.NO_ADDMORE;
+    }
+
+    private static int sum(List<Integer> possibility) {
+        return possibility.stream().collect(Collectors.summingInt(it -> it));
+    }
+
+    private List<Integer> createItems(int count) {
+        List<Integer> all = new ArrayList<>();
+        for (int i = 1; i <= count; ++i) {
+            all.add(i);
+        }
+        return all;
+    }
+
     @Test
     public void testCannotReuse() {
 
@@ -87,4 +113,75 @@ public class SolverPickItemsToolsTest {
 
     }
 
+    @Test
+    public void testSolveBest() {
+
+        SolverPickItemsTools<Integer> solverPickItemsTools = new SolverPickItemsTools<>(createItems(40));
+        solverPickItemsTools.setCanReuse(false);
+
+        // Highest sum up to 150 with max 4 items
+        Optional<List<Integer>> best = solverPickItemsTools.solveBest(possibility -> {
+            int sum = sum(possibility);
+            if (sum > 150) {
+                return SolveState.NO_WONTBE;
+            }
+            if (possibility.size() == 4) {
+                return SolveState.YES;
+            }
+            return SolveState.NO_ADDMORE;
+        }, possibility -> sum(possibility), possibility -> sum(possibility) + (4 - possibility.size()) * 40);
+
+        Assert.assertTrue(best.isPresent());
+        Assert.assertEquals(150, sum(best.get()));
+        Assert.assertEquals(4, best.get().size());
+        Assert.assertTrue(solverPickItemsTools.getLastNodesExplored() > 0);
+        Assert.assertTrue(solverPickItemsTools.getLastNodesPerSecond() > 0);
+
+        // Without solution
+        Assert.assertFalse(solverPickItemsTools.solveBest(possibility -> SolveState.NO_WONTBE, possibility -> sum(possibility), null).isPresent());
+    }
+
+    @Test
+    public void testSolveFirst() {
+
+        SolverPickItemsTools<Integer> solverPickItemsTools = new SolverPickItemsTools<>(createItems(40));
+        solverPickItemsTools.setCanReuse(false);
+
+        // Sum of 5 items that is 190 (only the 5 biggest ones)
+        Optional<List<Integer>> first = solverPickItemsTools.solveFirst(possibility -> {
+            int sum = sum(possibility);
+            if (possibility.size() == 5) {
+                return sum == 190 ? SolveState.YES : SolveState.NO_WONTBE;
+            }
+            return SolveState.NO_ADDMORE;
+        });
+
+        Assert.assertTrue(first.isPresent());
+        Assert.assertEquals(190, sum(first.get()));
+        Assert.assertEquals(5, first.get().size());
+    }
+
+    @Test
+    public void testSolveParallel() {
+
+        SolverPickItemsTools<Integer> solverPickItemsTools = new SolverPickItemsTools<>(createItems(5));
+        solverPickItemsTools.setForkJoinPool(new ForkJoinPool(4));
+
+        // Can reuse
+        List<String> results = solverPickItemsTools.solveParallel(SolverPickItemsToolsTest::sumTo10WithMax3Items).stream().map(it -> Joiner.on(",").join(it)).collect(Collectors.toList());
+        String expected = ResourceTools.getResourceAsString("SolverPickItemsToolsTest-testCanReuse.txt", this.getClass());
+        Assert.assertEquals(expected, Joiner.on("\n").join(results));
+
+        // Cannot reuse
+        solverPickItemsTools.setCanReuse(false);
+        results = solverPickItemsTools.solveParallel(SolverPickItemsToolsTest::sumTo10WithMax3Items).stream().map(it -> Joiner.on(",").join(it)).collect(Collectors.toList());
+        expected = ResourceTools.getResourceAsString("SolverPickItemsToolsTest-testCannotReuse.txt", this.getClass());
+        Assert.assertEquals(expected, Joiner.on("\n").join(results));
+
+        // Same amount of nodes as the sequential search
+        long parallelNodes = solverPickItemsTools.getLastNodesExplored();
+        solverPickItemsTools.solve(SolverPickItemsToolsTest::sumTo10WithMax3Items);
+        Assert.assertEquals(parallelNodes, solverPickItemsTools.getLastNodesExplored());
+    }
+
 }
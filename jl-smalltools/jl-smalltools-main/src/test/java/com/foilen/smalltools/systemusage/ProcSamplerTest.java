@@ -0,0 +1,121 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.systemusage;
+
+import java.io.File;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.systemusage.ProcSampler.DiskSample;
+import com.foilen.smalltools.systemusage.ProcSampler.NetworkInterfaceSample;
+import com.foilen.smalltools.tools.DirectoryTools;
+import com.foilen.smalltools.tools.FileTools;
+import com.foilen.smalltools.tools.ResourceTools;
+import com.google.common.io.Files;
+
+public class ProcSamplerTest {
+
+    private static final double DELTA = 0.01;
+
+    public static void main(String[] args) throws Exception {
+        try (ProcSampler procSampler = new ProcSampler()) {
+            for (int i = 0; i < 20; ++i) {
+                procSampler.sample();
+                System.out.println("CPU " + procSampler.getCpuBusyPercent() + "% ; Process CPU " + procSampler.getProcessCpuPercent() + "% ; Net in " + procSampler.getNetworkInBytesPerSecond()
+                        + " B/s ; Net out " + procSampler.getNetworkOutBytesPerSecond() + " B/s");
+                Thread.sleep(500);
+            }
+        }
+    }
+
+    @Test
+    public void testSample() {
+        // Copy the files
+        File procFolder = Files.createTempDir();
+        String procPath = procFolder.getAbsolutePath() + File.separatorChar;
+        DirectoryTools.createPath(procPath + "net");
+        DirectoryTools.createPath(procPath + "self");
+        ResourceTools.copyToFile("proc-stat", this.getClass(), new File(procPath + "stat"));
+        ResourceTools.copyToFile("proc-meminfo", this.getClass(), new File(procPath + "meminfo"));
+        ResourceTools.copyToFile("proc-net-dev", this.getClass(), new File(procPath + "net/dev"));
+        ResourceTools.copyToFile("proc-self-stat", this.getClass(), new File(procPath + "self/stat"));
+        ResourceTools.copyToFile("proc-diskstats", this.getClass(), new File(procPath + "diskstats"));
+
+        try (ProcSampler procSampler = new ProcSampler(procPath)) {
+
+            // First sample (no rates)
+            procSampler.sample(1000000000L);
+
+            Assert.assertEquals(0, procSampler.getCpuBusyPercent(), DELTA);
+            Assert.assertEquals(1016940L * 1024, procSampler.getMemoryTotalBytes());
+            Assert.assertEquals(377956L * 1024, procSampler.getMemoryAvailableBytes());
+            Assert.assertEquals(4999996L * 1024, procSampler.getSwapTotalBytes());
+            Assert.assertEquals(4820480L * 1024, procSampler.getSwapFreeBytes());
+            Assert.assertEquals(12, procSampler.getProcessThreads());
+            Assert.assertEquals(1000L * 4096, procSampler.getProcessRssBytes());
+            Assert.assertEquals(2, procSampler.getNetworkInterfaces().size());
+            Assert.assertEquals("eth0", procSampler.getNetworkInterfaces().get(0).getName());
+            Assert.assertEquals(8265769858L, procSampler.getNetworkInterfaces().get(0).getInBytes());
+            Assert.assertEquals(37114397L, procSampler.getNetworkInterfaces().get(0).getOutPackets());
+            Assert.assertEquals(3, procSampler.getDisks().size());
+            Assert.assertEquals("sda", procSampler.getDisks().get(1).getName());
+            Assert.assertEquals(1000, procSampler.getDisks().get(1).getReads());
+
+            // Second sample 2 seconds later
+            FileTools.writeFile("cpu  27144861 53247 7825200 300401855 746107 82 45861 0 0 0\nctxt 1105798457\n", procPath + "stat");
+            FileTools.writeFile("7701 (my (odd) app) S 7692 7701 7692 0 -1 4194304 82 0 0 0 250 150 0 0 20 0 13 0 303437 2703360 1100 18446744073709551615\n", procPath + "self/stat");
+            FileTools.writeFile("Inter-|   Receive\n face |bytes\n" //
+                    + "  eth0: 8265771858 35975543    0    0    0     0          0         0 71073505742 37114417    0    0    0     0       0          0\n" //
+                    + "    lo: 7817860194 14495996    0    0    0     0          0         0 7817860194 14495996    0    0    0     0       0          0\n", procPath + "net/dev");
+            FileTools.writeFile("   8       0 sda 1200 10 24000 600 2100 20 41000 950 0 2200 2500 0 0 0 0 0 0\n" //
+                    + " 259       0 nvme0n1 5 0 10 1 0 0 0 0 0 1 1 0 0 0 0 0 0\n", procPath + "diskstats");
+            procSampler.sample(3000000000L);
+
+            Assert.assertEquals(2, procSampler.getElapsedSeconds(), DELTA);
+            Assert.assertEquals(66.67, procSampler.getCpuBusyPercent(), DELTA);
+            Assert.assertEquals(0, procSampler.getCpuIowaitPercent(), DELTA);
+            Assert.assertEquals(1000, procSampler.getContextSwitchesPerSecond(), DELTA);
+            Assert.assertEquals(100, procSampler.getProcessCpuPercent(), DELTA);
+            Assert.assertEquals(13, procSampler.getProcessThreads());
+
+            NetworkInterfaceSample eth0 = procSampler.getNetworkInterfaces().get(0);
+            Assert.assertEquals(1000, eth0.getInBytesPerSecond(), DELTA);
+            Assert.assertEquals(5, eth0.getInPacketsPerSecond(), DELTA);
+            Assert.assertEquals(2000, eth0.getOutBytesPerSecond(), DELTA);
+            Assert.assertEquals(10, eth0.getOutPacketsPerSecond(), DELTA);
+            Assert.assertEquals(1000, procSampler.getNetworkInBytesPerSecond(), DELTA);
+            Assert.assertEquals(2000, procSampler.getNetworkOutBytesPerSecond(), DELTA);
+
+            Assert.assertEquals(2, procSampler.getDisks().size());
+            DiskSample sda = procSampler.getDisks().get(0);
+            Assert.assertEquals("sda", sda.getName());
+            Assert.assertEquals(100, sda.getReadsPerSecond(), DELTA);
+            Assert.assertEquals(2000 * 512, sda.getReadBytesPerSecond(), DELTA);
+            Assert.assertEquals(50, sda.getWritesPerSecond(), DELTA);
+            Assert.assertEquals(500 * 512, sda.getWrittenBytesPerSecond(), DELTA);
+            Assert.assertEquals(50, sda.getBusyPercent(), DELTA);
+            DiskSample nvme = procSampler.getDisks().get(1);
+            Assert.assertEquals("nvme0n1", nvme.getName());
+            Assert.assertEquals(0, nvme.getReadsPerSecond(), DELTA);
+        }
+    }
+
+    @Test
+    public void testSample_MissingFiles() {
+        File procFolder = Files.createTempDir();
+        try (ProcSampler procSampler = new ProcSampler(procFolder.getAbsolutePath())) {
+            procSampler.sample();
+            procSampler.sample();
+            Assert.assertEquals(0, procSampler.getMemoryTotalBytes());
+            Assert.assertTrue(procSampler.getDisks().isEmpty());
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.timer;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.timer.TimingWheel.Timeout;
+import com.foilen.smalltools.tools.ThreadTools;
+
+public class TimingWheelTest {
+
+    private static final Executor inline = Runnable::run;
+
+    @Test(timeout = 10000)
+    public void testCancel() {
+        TimingWheel timingWheel = new TimingWheel("test", 1, inline);
+        try {
+            AtomicInteger executed = new AtomicInteger();
+            Timeout timeout = timingWheel.schedule(() -> executed.incrementAndGet(), 100);
+            Assert.assertEquals(1, timingWheel.getPendingCount());
+            Assert.assertTrue(timeout.cancel());
+            Assert.assertFalse(timeout.cancel());
+            Assert.assertTrue(timeout.isCancelled());
+            Assert.assertEquals(0, timingWheel.getPendingCount());
+
+            ThreadTools.sleep(300);
+            Assert.assertEquals(0, executed.get());
+            Assert.assertFalse(timeout.isExpired());
+        } finally {
+            timingWheel.shutdown();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testCascade() throws Exception {
+        TimingWheel timingWheel = new TimingWheel("test", 1, inline);
+        try {
+            // More than the first wheel
+            CountDownLatch latch = new CountDownLatch(2);
+            AtomicLong lateMs = new AtomicLong();
+            long start = System.nanoTime();
+            timingWheel.schedule(() -> {
+                lateMs.set(Math.max(lateMs.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - 700));
+                latch.countDown();
+            }, 700);
+            timingWheel.schedule(() -> {
+                lateMs.set(Math.max(lateMs.get(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) - 300));
+                latch.countDown();
+            }, 300);
+
+            latch.await();
+            Assert.assertTrue("Late by " + lateMs.get(), lateMs.get() >= 0 && lateMs.get() < 100);
+        } finally {
+            timingWheel.shutdown();
+        }
+    }
+
+    @Test(timeout = 20000)
+    public void testManyTimeouts() throws Exception {
+        TimingWheel timingWheel = new TimingWheel("test", 5, inline);
+        try {
+            int count = 200000;
+            CountDownLatch latch = new CountDownLatch(count / 2);
+            AtomicInteger tooEarly = new AtomicInteger();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < count; ++i) {
+                long delayMs = random.nextInt(1500);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+                Timeout timeout = timingWheel.schedule(() -> {
+                    if (System.nanoTime() < deadline) {
+                        tooEarly.incrementAndGet();
+                    }
+                    latch.countDown();
+                }, delayMs);
+                if (i % 2 == 1) {
+                    timeout.cancel();
+                }
+            }
+
+            latch.await();
+            Assert.assertEquals(0, tooEarly.get());
+            ThreadTools.sleep(100);
+            Assert.assertEquals(0, timingWheel.getPendingCount());
+        } finally {
+            timingWheel.shutdown();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testRejectedTaskFailing() throws Exception {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException();
+        };
+        TimingWheel timingWheel = new TimingWheel("test", 1, rejecting);
+        try {
+            // The failure does not stop the timer thread
+            timingWheel.schedule(() -> {
+                throw new RuntimeException("Expected failure");
+            }, 10);
+            CountDownLatch latch = new CountDownLatch(1);
+            timingWheel.schedule(latch::countDown, 50);
+            latch.await();
+        } finally {
+            timingWheel.shutdown();
+        }
+    }
+
+}
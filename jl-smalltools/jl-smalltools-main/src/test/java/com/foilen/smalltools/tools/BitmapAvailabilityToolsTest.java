@@ -0,0 +1,177 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BitmapAvailabilityToolsTest {
+
+    @Test
+    public void testAllocate() {
+
+        BitmapAvailabilityTools bitmapAvailability = new BitmapAvailabilityTools(0, 9);
+
+        // Get them all
+        for (int i = 0; i < 10; ++i) {
+            Assert.assertEquals(i, bitmapAvailability.allocate().getAsLong());
+        }
+        Assert.assertFalse(bitmapAvailability.allocate().isPresent());
+        Assert.assertEquals(0, bitmapAvailability.getAvailableCount());
+
+        // Free 6th
+        Assert.assertTrue(bitmapAvailability.free(6));
+        Assert.assertFalse(bitmapAvailability.free(6));
+        Assert.assertEquals(6, bitmapAvailability.allocate().getAsLong());
+
+        // Free 1, 5
+        bitmapAvailability.free(1);
+        bitmapAvailability.free(5);
+        Assert.assertEquals(1, bitmapAvailability.allocate().getAsLong());
+        Assert.assertEquals(5, bitmapAvailability.allocate().getAsLong());
+        Assert.assertFalse(bitmapAvailability.allocate().isPresent());
+        Assert.assertEquals(10, bitmapAvailability.getUsedCount());
+
+    }
+
+    @Test
+    public void testAllocate_checkAvailability() {
+
+        // The backing store
+        Set<Integer> used = new HashSet<>();
+        for (int i = 0; i < 5; ++i) {
+            used.add(i);
+        }
+        List<String> checks = new ArrayList<>();
+
+        BitmapAvailabilityTools bitmapAvailability = new BitmapAvailabilityTools(0, 9).setCheckRange(3);
+        SearchingAvailabilityIntTools.CheckAvailabilityInt checkAvailability = (from, to) -> {
+            checks.add(from + "-" + to);
+            for (int i = from; i <= to; ++i) {
+                if (used.add(i)) {
+                    return Optional.of(i);
+                }
+            }
+            return Optional.empty();
+        };
+
+        // The used ones are synced
+        Assert.assertEquals(5, bitmapAvailability.allocateInt(checkAvailability).getAsInt());
+        Assert.assertEquals(6, bitmapAvailability.getUsedCount());
+        Assert.assertEquals("[0-2, 3-5]", checks.toString());
+
+        // Next ones do not need to skip
+        Assert.assertEquals(6, bitmapAvailability.allocateInt(checkAvailability).getAsInt());
+        Assert.assertEquals("[0-2, 3-5, 6-8]", checks.toString());
+
+        // Get them all
+        for (int i = 7; i < 10; ++i) {
+            Assert.assertEquals(i, bitmapAvailability.allocateInt(checkAvailability).getAsInt());
+        }
+        Assert.assertFalse(bitmapAvailability.allocateInt(checkAvailability).isPresent());
+    }
+
+    @Test
+    public void testAllocate_concurrent() throws Exception {
+
+        BitmapAvailabilityTools bitmapAvailability = new BitmapAvailabilityTools(0, 199999);
+        Set<Long> allocated = ConcurrentHashMap.newKeySet();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; ++t) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 50000; ++i) {
+                    long value = bitmapAvailability.allocate().getAsLong();
+                    Assert.assertTrue(allocated.add(value));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(200000, allocated.size());
+        Assert.assertEquals(0, bitmapAvailability.getAvailableCount());
+        Assert.assertFalse(bitmapAvailability.allocate().isPresent());
+    }
+
+    @Test
+    public void testAllocate_manyChunks() {
+
+        BitmapAvailabilityTools bitmapAvailability = new BitmapAvailabilityTools(-1000, 199999);
+        Assert.assertEquals(201000, bitmapAvailability.getAvailableCount());
+
+        // Get them all
+        long[] values = bitmapAvailability.allocateMany(300000);
+        Assert.assertEquals(201000, values.length);
+        for (int i = 0; i < values.length; ++i) {
+            Assert.assertEquals(i - 1000, values[i]);
+        }
+        Assert.assertFalse(bitmapAvailability.allocate().isPresent());
+
+        // Free the even values of the second chunk (bitmap) and a few in the third one (array)
+        for (long value = 65536 - 1000; value < 2 * 65536 - 1000; value += 2) {
+            Assert.assertTrue(bitmapAvailability.free(value));
+        }
+        for (long value = 2 * 65536 - 1000; value < 2 * 65536 - 1000 + 30; value += 3) {
+            Assert.assertTrue(bitmapAvailability.free(value));
+        }
+        Assert.assertEquals(32768 + 10, bitmapAvailability.getAvailableCount());
+        Assert.assertTrue(bitmapAvailability.isAvailable(65536 - 1000));
+        Assert.assertFalse(bitmapAvailability.isAvailable(65536 - 1000 + 1));
+
+        // Reallocate them
+        Set<Long> reallocated = new HashSet<>();
+        for (long value : bitmapAvailability.allocateMany(32768 + 10)) {
+            Assert.assertTrue(reallocated.add(value));
+            Assert.assertTrue(value >= 65536 - 1000 && value < 2 * 65536 - 1000 + 30);
+        }
+        Assert.assertFalse(bitmapAvailability.allocate().isPresent());
+
+        // Free all of them
+        for (long value = -1000; value <= 199999; ++value) {
+            Assert.assertTrue(bitmapAvailability.free(value));
+        }
+        Assert.assertEquals(201000, bitmapAvailability.getAvailableCount());
+    }
+
+    @Test
+    public void testReserve() {
+
+        BitmapAvailabilityTools bitmapAvailability = new BitmapAvailabilityTools(1000, 300000);
+
+        // Seed
+        Assert.assertEquals(3, bitmapAvailability.reserveAll(LongStream.of(1000, 1001, 1003, 1003)));
+        Assert.assertTrue(bitmapAvailability.reserve(1004));
+        Assert.assertFalse(bitmapAvailability.reserve(1004));
+        Assert.assertEquals(1002, bitmapAvailability.allocate().getAsLong());
+        Assert.assertEquals(1005, bitmapAvailability.allocate().getAsLong());
+
+        // Range over 3 chunks (one completely)
+        Assert.assertEquals(200000, bitmapAvailability.reserveRange(2000, 201999));
+        Assert.assertEquals(1006, bitmapAvailability.allocate().getAsLong());
+        Assert.assertEquals(6 + 200000 + 1, bitmapAvailability.getUsedCount());
+
+        // Free in a full chunk
+        Assert.assertTrue(bitmapAvailability.free(100000));
+        Assert.assertTrue(bitmapAvailability.isAvailable(100000));
+        Assert.assertFalse(bitmapAvailability.isAvailable(100001));
+    }
+
+}
@@ -0,0 +1,163 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.compress.CompressionCodec;
+import com.foilen.smalltools.compress.DeflaterPool;
+import com.foilen.smalltools.compress.ParallelGzipOutputStream;
+import com.foilen.smalltools.compress.PooledGzipOutputStream;
+
+/**
+ * Tests for {@link CompressionTools}.
+ */
+public class CompressionToolsTest {
+
+    private static byte[] createData(int size) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < size) {
+            sb.append("line ").append(random.nextInt(1000)).append(" of some repetitive text\n");
+            if (random.nextInt(10) == 0) {
+                byte[] noise = new byte[random.nextInt(50)];
+                random.nextBytes(noise);
+                sb.append(EncodingTools.toHex(noise));
+            }
+        }
+        return sb.substring(0, size).getBytes(CharsetTools.UTF_8);
+    }
+
+    private void assertBuffersRoundTrip(CompressionCodec codec, byte[] data) {
+        // Heap buffers
+        byte[] compressed = CompressionTools.compress(codec, data);
+        Assert.assertArrayEquals(data, CompressionTools.decompress(codec, compressed, data.length));
+
+        // Direct buffers
+        ByteBuffer source = ByteBuffer.allocateDirect(data.length);
+        source.put(data).flip();
+        ByteBuffer compressedBuffer = ByteBuffer.allocateDirect(codec.maxCompressedLength(data.length));
+        codec.compress(source, compressedBuffer);
+        Assert.assertFalse(source.hasRemaining());
+        compressedBuffer.flip();
+        ByteBuffer uncompressedBuffer = ByteBuffer.allocateDirect(data.length);
+        codec.decompress(compressedBuffer, uncompressedBuffer);
+        Assert.assertFalse(uncompressedBuffer.hasRemaining());
+        uncompressedBuffer.flip();
+        byte[] actual = new byte[data.length];
+        uncompressedBuffer.get(actual);
+        Assert.assertArrayEquals(data, actual);
+    }
+
+    private void assertStreamsRoundTrip(CompressionCodec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream out = codec.wrapOutputStream(compressed);
+        out.write(data, 0, data.length / 3);
+        out.flush();
+        out.write(data, data.length / 3, data.length - data.length / 3);
+        out.close();
+
+        Assert.assertArrayEquals(data, CompressionTools.decompress(codec, compressed.toByteArray()));
+    }
+
+    private void testCodec(CompressionCodec codec) throws IOException {
+        for (int size : new int[] { 0, 1, 12, 13, 100, 70000, 300000 }) {
+            byte[] data = createData(size);
+            assertBuffersRoundTrip(codec, data);
+            assertStreamsRoundTrip(codec, data);
+        }
+
+        // Random data that cannot be compressed
+        byte[] data = new byte[100000];
+        new Random(1).nextBytes(data);
+        assertBuffersRoundTrip(codec, data);
+        assertStreamsRoundTrip(codec, data);
+    }
+
+    @Test
+    public void testDeflateRaw() throws IOException {
+        testCodec(CompressionTools.DEFLATE_RAW);
+    }
+
+    @Test
+    public void testGzip() throws IOException {
+        testCodec(CompressionTools.GZIP);
+
+        // Readable by the JDK
+        byte[] data = createData(10000);
+        byte[] compressed = CompressionTools.compress(CompressionTools.GZIP, data);
+        Assert.assertArrayEquals(data, StreamsTools.consumeAsBytes(new GZIPInputStream(new ByteArrayInputStream(compressed))));
+    }
+
+    @Test
+    public void testGzip_failedHeaderReleasesDeflater() {
+        DeflaterPool deflaterPool = new DeflaterPool(Deflater.DEFAULT_COMPRESSION, true, 1);
+        Deflater deflater = deflaterPool.borrow();
+        deflaterPool.release(deflater);
+
+        try {
+            new PooledGzipOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    throw new IOException("Cannot write");
+                }
+            }, deflaterPool);
+            Assert.fail("Expecting an exception");
+        } catch (IOException e) {
+        }
+
+        Assert.assertSame(deflater, deflaterPool.borrow());
+    }
+
+    @Test
+    public void testLzFast() throws IOException {
+        testCodec(CompressionTools.LZ_FAST);
+
+        // Long repetitions are compressed
+        byte[] data = new byte[100000];
+        byte[] compressed = CompressionTools.compress(CompressionTools.LZ_FAST, data);
+        Assert.assertTrue(compressed.length < 1000);
+        Assert.assertArrayEquals(data, CompressionTools.decompress(CompressionTools.LZ_FAST, compressed, data.length));
+    }
+
+    @Test
+    public void testParallelGzip() throws IOException {
+        ExecutorService executorService = Executors.newFixedThreadPool(4);
+        try {
+            for (int size : new int[] { 0, 10, 1000, 1000000 }) {
+                byte[] data = createData(size);
+
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                OutputStream out = new ParallelGzipOutputStream(compressed, executorService, 4, 16 * 1024, Deflater.DEFAULT_COMPRESSION);
+                out.write(data, 0, data.length / 2);
+                out.flush();
+                out.write(data, data.length / 2, data.length - data.length / 2);
+                out.close();
+
+                Assert.assertArrayEquals(data, StreamsTools.consumeAsBytes(new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()))));
+                Assert.assertArrayEquals(data, CompressionTools.decompress(CompressionTools.GZIP, compressed.toByteArray(), data.length));
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+}
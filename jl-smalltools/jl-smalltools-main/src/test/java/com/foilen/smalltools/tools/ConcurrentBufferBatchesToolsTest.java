@@ -0,0 +1,108 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.tools.ConcurrentBufferBatchesTools.BackpressurePolicy;
+import com.foilen.smalltools.tools.ConcurrentBufferBatchesTools.BatchMetrics;
+import com.foilen.smalltools.tools.thread.ThreadList;
+
+public class ConcurrentBufferBatchesToolsTest {
+
+    @Test(timeout = 30000)
+    public void testAge() {
+        List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+        ConcurrentBufferBatchesTools<String> bufferBatchesTools = new ConcurrentBufferBatchesTools<String>(100, batches::add) //
+                .setMaxBatchAgeMs(200) //
+                .start();
+
+        bufferBatchesTools.add("1");
+        bufferBatchesTools.add("2");
+        ThreadTools.sleep(1000);
+        Assert.assertEquals(1, batches.size());
+        Assert.assertEquals(2, batches.get(0).size());
+
+        bufferBatchesTools.add("3");
+        bufferBatchesTools.close();
+        Assert.assertEquals(2, batches.size());
+    }
+
+    @Test(timeout = 30000)
+    public void testDrop() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ConcurrentBufferBatchesTools<Integer> bufferBatchesTools = new ConcurrentBufferBatchesTools<Integer>(1, items -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+            }
+        }) //
+                .setQueueCapacity(5) //
+                .setBackpressurePolicy(BackpressurePolicy.DROP) //
+                .start();
+
+        // One is taken by the executor and 5 in the queue
+        int added = 0;
+        for (int i = 0; i < 20; ++i) {
+            if (bufferBatchesTools.add(i)) {
+                ++added;
+            }
+            ThreadTools.sleep(5);
+        }
+        Assert.assertEquals(6, added);
+        Assert.assertEquals(14, bufferBatchesTools.getItemsDropped());
+
+        release.countDown();
+        bufferBatchesTools.close();
+        Assert.assertEquals(6, bufferBatchesTools.getItemsExecuted());
+    }
+
+    @Test(timeout = 30000)
+    public void testMultipleProducersAndExecutors() throws Exception {
+        List<Integer> items = Collections.synchronizedList(new ArrayList<>());
+        List<BatchMetrics> batchMetrics = Collections.synchronizedList(new ArrayList<>());
+        ConcurrentBufferBatchesTools<Integer> bufferBatchesTools = new ConcurrentBufferBatchesTools<Integer>(100, batch -> {
+            AssertTools.assertTrue(batch.size() <= 100, "Batch too big");
+            items.addAll(batch);
+        }) //
+                .setQueueCapacity(50) //
+                .setExecutors(3) //
+                .setBatchMetricsListener(batchMetrics::add) //
+                .start();
+
+        ThreadList threadList = new ThreadList();
+        for (int p = 0; p < 4; ++p) {
+            int offset = p * 10000;
+            threadList.add(() -> {
+                for (int i = 0; i < 10000; ++i) {
+                    bufferBatchesTools.add(offset + i);
+                }
+            });
+        }
+        threadList.start();
+        threadList.join();
+        bufferBatchesTools.close();
+
+        Collections.sort(items);
+        Assert.assertEquals(IntStream.range(0, 40000).boxed().collect(Collectors.toList()), items);
+        Assert.assertEquals(40000, bufferBatchesTools.getItemsExecuted());
+        Assert.assertEquals(0, bufferBatchesTools.getItemsDropped());
+        Assert.assertEquals(bufferBatchesTools.getBatchesExecuted(), batchMetrics.size());
+        Assert.assertEquals(40000, batchMetrics.stream().mapToInt(BatchMetrics::getSize).sum());
+    }
+
+}
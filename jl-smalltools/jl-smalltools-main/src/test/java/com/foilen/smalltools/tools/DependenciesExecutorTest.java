@@ -0,0 +1,124 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.exception.SmallToolsException;
+
+public class DependenciesExecutorTest {
+
+    /**
+     * <pre>
+     * A
+     * B -&gt; C -&gt; D
+     *   -&gt; E -&gt; (D)
+     *        -&gt; F -&gt; G -&gt; (C)
+     * H -&gt; (E)
+     * </pre>
+     */
+    private MultiDependenciesResolverTools createComplex() {
+        MultiDependenciesResolverTools resolver = new MultiDependenciesResolverTools();
+        resolver.addItems("A", "B", "C", "D", "H");
+        resolver.addDependency("C", "B");
+        resolver.addDependency("C", "G");
+        resolver.addDependency("D", "C");
+        resolver.addDependency("D", "E");
+        resolver.addDependency("E", "B");
+        resolver.addDependency("E", "H");
+        resolver.addDependency("F", "E");
+        resolver.addDependency("G", "F");
+        return resolver;
+    }
+
+    @Test
+    public void testCircular() {
+        MultiDependenciesResolverTools resolver = new MultiDependenciesResolverTools();
+        resolver.addDependency("B", "A");
+        resolver.addDependency("C", "B");
+        resolver.addDependency("A", "C");
+        resolver.addDependency("D", "A");
+        resolver.addDependency("F", "E");
+
+        try {
+            resolver.execute(item -> {
+            }, 2);
+            Assert.fail("Expecting an exception");
+        } catch (SmallToolsException e) {
+            Assert.assertEquals("Has a circular dependency: A -> B -> C -> A", e.getMessage());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testExecute() {
+        MultiDependenciesResolverTools resolver = createComplex();
+        Map<String, Set<String>> dependsOnByItem = resolver.getDependsOnByItem();
+
+        Set<String> completed = ConcurrentHashMap.newKeySet();
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        DependenciesExecutionResult result = resolver.execute(item -> {
+            for (String dependsOn : dependsOnByItem.get(item)) {
+                Assert.assertTrue(item + " started before " + dependsOn, completed.contains(dependsOn));
+            }
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            ThreadTools.sleep("F".equals(item) ? 300 : "H".equals(item) ? 50 : 100);
+            running.decrementAndGet();
+            completed.add(item);
+        }, 4);
+
+        Assert.assertEquals(8, result.getCompletionOrder().size());
+        Assert.assertEquals(3, maxRunning.get());
+        Assert.assertEquals(Arrays.asList("B", "E", "F", "G", "C", "D"), result.getCriticalPath());
+        Assert.assertTrue(result.getCriticalPathMs() >= 800);
+        Assert.assertTrue(result.getTotalMs() >= result.getCriticalPathMs());
+    }
+
+    @Test(timeout = 10000)
+    public void testExecute_Failure() {
+        MultiDependenciesResolverTools resolver = createComplex();
+
+        List<String> executed = new CopyOnWriteArrayList<>();
+        try {
+            resolver.execute(item -> {
+                executed.add(item);
+                if ("E".equals(item)) {
+                    throw new IllegalStateException("Failed");
+                }
+            }, 1);
+            Assert.fail("Expecting an exception");
+        } catch (SmallToolsException e) {
+            Assert.assertEquals("Item E failed", e.getMessage());
+        }
+        Assert.assertEquals(Arrays.asList("A", "B", "H", "E"), executed);
+    }
+
+    @Test(timeout = 10000)
+    public void testExecute_Single() {
+        SingleDependencyResolverTools resolver = new SingleDependencyResolverTools();
+        resolver.addDependency("E", "D");
+        resolver.addDependency("B", "A");
+        resolver.addDependency("C", "B");
+        resolver.addDependency("D", "A");
+
+        DependenciesExecutionResult result = resolver.execute(item -> ThreadTools.sleep("A".equals(item) ? 0 : 200), 2);
+        Assert.assertEquals("A", result.getCompletionOrder().get(0));
+        Assert.assertTrue(result.getTotalMs() < 700);
+    }
+
+}
@@ -0,0 +1,147 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.metrics.MetricsRegistry;
+import com.foilen.smalltools.tools.thread.InstrumentedExecutorService;
+import com.foilen.smalltools.tools.thread.RejectionPolicy;
+
+public class ExecutorsToolsTest {
+
+    @Test(timeout = 30000)
+    public void testBuilder() throws Exception {
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        InstrumentedExecutorService executorService = ExecutorsTools.builder("test") //
+                .setMaxThreads(2) //
+                .setQueueSize(2) //
+                .setRejectionPolicy(RejectionPolicy.ABORT) //
+                .setMetricsRegistry(metricsRegistry) //
+                .build();
+
+        // Fill the threads and the queue
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(2);
+        for (int i = 0; i < 4; ++i) {
+            executorService.execute(() -> {
+                Assert.assertTrue(Thread.currentThread().getName().startsWith("test-"));
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                }
+            });
+        }
+        started.await();
+        Assert.assertEquals(2, executorService.getActiveCount());
+        Assert.assertEquals(2, executorService.getQueuedCount());
+        Assert.assertEquals(Long.valueOf(2), metricsRegistry.getGaugeValues().get("executor.test.queued"));
+
+        // Rejected
+        try {
+            executorService.execute(() -> {
+            });
+            Assert.fail("Should have been rejected");
+        } catch (RejectedExecutionException e) {
+        }
+        Assert.assertEquals(1, executorService.getRejectedCount());
+
+        // Complete
+        release.countDown();
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(4, executorService.getCompletedCount());
+        Assert.assertEquals(0, executorService.getQueuedCount());
+        Assert.assertEquals(4, executorService.getExecutionUs().getCount());
+        Assert.assertEquals(4, executorService.getQueueWaitUs().getCount());
+
+        // The metrics are removed from the registry
+        Assert.assertTrue(metricsRegistry.getGaugeValues().isEmpty());
+        Assert.assertTrue(metricsRegistry.getHistograms().isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testBuilder_discardAndShutdownNow() throws Exception {
+        InstrumentedExecutorService executorService = ExecutorsTools.builder("test-discard") //
+                .setMaxThreads(1) //
+                .setQueueSize(2) //
+                .setRejectionPolicy(RejectionPolicy.DISCARD) //
+                .setMetricsRegistry(null) //
+                .build();
+
+        // Fill the thread and the queue and discard some
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        executorService.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+            }
+        });
+        started.await();
+        for (int i = 0; i < 5; ++i) {
+            executorService.execute(() -> {
+            });
+        }
+        Assert.assertEquals(2, executorService.getQueuedCount());
+
+        // The ones not started are not queued anymore
+        Assert.assertEquals(2, executorService.shutdownNow().size());
+        Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(0, executorService.getQueuedCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testBuilder_block() throws Exception {
+        InstrumentedExecutorService executorService = ExecutorsTools.builder("test-block") //
+                .setMaxThreads(1) //
+                .setQueueSize(0) //
+                .setRejectionPolicy(RejectionPolicy.BLOCK) //
+                .setMetricsRegistry(null) //
+                .build();
+
+        // All are executed even if there is no space
+        for (int i = 0; i < 10; ++i) {
+            executorService.execute(() -> ThreadTools.sleep(10));
+        }
+        executorService.shutdown();
+        Assert.assertTrue(executorService.awaitTermination(10, TimeUnit.SECONDS));
+        Assert.assertEquals(10, executorService.getCompletedCount());
+        Assert.assertEquals(0, executorService.getRejectedCount());
+    }
+
+    @Test(timeout = 30000)
+    public void testBuilder_noQueueReusesIdleThreads() throws Exception {
+        InstrumentedExecutorService executorService = ExecutorsTools.builder("test-reuse") //
+                .setMaxThreads(10) //
+                .setQueueSize(0) //
+                .setMetricsRegistry(null) //
+                .build();
+
+        // One after the other on the same thread
+        Set<String> threadNames = new HashSet<>();
+        for (int i = 0; i < 5; ++i) {
+            threadNames.add(executorService.submit(() -> Thread.currentThread().getName()).get());
+            ThreadTools.sleep(50);
+        }
+        executorService.shutdown();
+        Assert.assertEquals(Collections.singleton("test-reuse-0"), threadNames);
+    }
+
+}
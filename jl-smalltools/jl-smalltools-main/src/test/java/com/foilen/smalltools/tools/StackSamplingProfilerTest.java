@@ -0,0 +1,73 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.tools;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class StackSamplingProfilerTest {
+
+    private static volatile boolean spinning;
+
+    private static long spinInTest() {
+        long value = 0;
+        while (spinning) {
+            value += System.nanoTime() % 7;
+        }
+        return value;
+    }
+
+    @Test(timeout = 30000)
+    public void testSample() throws Exception {
+        spinning = true;
+        Thread thread = new Thread(StackSamplingProfilerTest::spinInTest, "spinner");
+        thread.start();
+
+        StackSamplingProfiler profiler = new StackSamplingProfiler() //
+                .setIntervalMs(5) //
+                .setIncludeThreadName(true) //
+                .start();
+        try {
+            while (profiler.getSamplesCount() < 20) {
+                Thread.sleep(10);
+            }
+        } finally {
+            profiler.stop();
+            spinning = false;
+            thread.join();
+        }
+
+        // The spinning thread is there from the root to the leaf
+        String expectedStart = "spinner;java.lang.Thread.run;";
+        String expectedLeaf = StackSamplingProfilerTest.class.getName() + ".spinInTest";
+        Map<String, Long> countByStack = profiler.getCountByStack();
+        long spinCount = countByStack.entrySet().stream() //
+                .filter(it -> it.getKey().startsWith(expectedStart)) //
+                .filter(it -> it.getKey().endsWith(expectedLeaf) || it.getKey().contains(expectedLeaf + ";")) //
+                .mapToLong(it -> it.getValue()) //
+                .sum();
+        Assert.assertTrue("Got " + countByStack, spinCount > 0);
+
+        // Collapsed format
+        File file = File.createTempFile("profile", ".collapsed");
+        profiler.writeCollapsedStacks(file);
+        List<String> lines = FileTools.readFileLinesStream(file).collect(Collectors.toList());
+        Assert.assertEquals(countByStack.size(), lines.size());
+        for (String line : lines) {
+            Assert.assertTrue(line, line.matches(".+ [0-9]+"));
+        }
+        file.delete();
+    }
+
+}
@@ -69,6 +69,43 @@ public class ThreadToolsTest {
         assertThreadName("1969-12-31 19:00:00");
     }
 
+    @Test
+    public void testNameThreadLazy() {
+
+        String initialName = Thread.currentThread().getName();
+
+        // Change without changing the thread's name
+        ThreadNameStateTool state = ThreadTools.nameThreadLazy().setSeparator("-");
+        Tuple2<String, Integer> tuple = new Tuple2<>("text", 66);
+        state.clear().appendText("SomeText").appendJson(tuple).change();
+        assertThreadName(initialName);
+        Assert.assertEquals("SomeText-{\"a\":\"text\",\"b\":66}", state.getName());
+        Assert.assertEquals("SomeText-{\"a\":\"text\",\"b\":66}", ThreadNameStateTool.getContextName(Thread.currentThread()));
+
+        // Materialize
+        state.materialize();
+        assertThreadName("SomeText-{\"a\":\"text\",\"b\":66}");
+
+        // Pop and revert
+        state.pop().appendObjectClassSimple(this).change();
+        assertThreadName(initialName);
+        Assert.assertEquals("SomeText-ThreadToolsTest", ThreadNameStateTool.getContextName(Thread.currentThread()));
+        state.revert();
+        Assert.assertEquals("SomeText-{\"a\":\"text\",\"b\":66}", ThreadNameStateTool.getContextName(Thread.currentThread()));
+
+        // Another tool starts with the name of the context
+        state.materialize();
+        ThreadNameStateTool other = ThreadTools.nameThreadLazy().appendText("Other").change();
+        assertThreadName(initialName);
+        Assert.assertEquals("SomeText-{\"a\":\"text\",\"b\":66}-Other", other.getName());
+        Assert.assertEquals("SomeText-{\"a\":\"text\",\"b\":66}-Other", ThreadNameStateTool.getContextName(Thread.currentThread()));
+        other.revert();
+        Assert.assertEquals("SomeText-{\"a\":\"text\",\"b\":66}", ThreadNameStateTool.getContextName(Thread.currentThread()));
+
+        // Other threads have no context
+        Assert.assertNull(ThreadNameStateTool.getContextName(new Thread()));
+    }
+
     @Test
     public void testNameThread_pop() {
 
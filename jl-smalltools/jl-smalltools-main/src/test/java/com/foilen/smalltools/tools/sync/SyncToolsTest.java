@@ -9,9 +9,12 @@
 package com.foilen.smalltools.tools.sync;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
 import org.junit.Assert;
@@ -25,8 +28,20 @@ public class SyncToolsTest {
 
     private List<SyncTestItem> sourceItems = new ArrayList<>();
     private List<SyncTestItem> destinationItems = new ArrayList<>();
+    private Object destinationLock = new Object();
     private SyncConfiguration<String, SyncTestItem, Tuple2<String, Long>> syncConfiguration;
 
+    private SyncRangeDigest<String> computeRangeDigest(List<SyncTestItem> items, SyncSlice<String> slice) {
+        List<SyncTestItem> inRange = items.stream() //
+                .filter(it -> !slice.getAfterId().isPresent() || it.getId().compareTo(slice.getAfterId().get()) > 0) //
+                .filter(it -> !slice.getBeforeOrEqualId().isPresent() || it.getId().compareTo(slice.getBeforeOrEqualId().get()) <= 0) //
+                .sorted() //
+                .collect(Collectors.toList());
+        String hash = inRange.stream().map(it -> it.getId() + ":" + it.getVersion()).collect(Collectors.joining(","));
+        Optional<String> middleId = inRange.isEmpty() ? Optional.empty() : Optional.of(inRange.get(inRange.size() / 2).getId());
+        return new SyncRangeDigest<>(inRange.size(), hash, middleId);
+    }
+
     @Before
     public void init() {
         sourceItems = new ArrayList<>();
@@ -44,17 +59,28 @@ public class SyncToolsTest {
                         .limit(maxSliceSize) //
                         .collect(Collectors.toList()) //
                 ) //
-                .setDestinationSlice((slice, maxSliceSize) -> destinationItems.stream() //
-                        .filter(it -> !slice.getAfterId().isPresent() || it.getId().compareTo(slice.getAfterId().get()) > 0) //
-                        .filter(it -> !slice.getBeforeOrEqualId().isPresent() || it.getId().compareTo(slice.getBeforeOrEqualId().get()) <= 0) //
-                        .sorted() //
-                        .limit(maxSliceSize) //
-                        .map(it -> new Tuple2<>(it.getId(), it.getVersion())) //
-                        .collect(Collectors.toList()) //
-                ) //
+                .setDestinationSlice((slice, maxSliceSize) -> {
+                    synchronized (destinationLock) {
+                        return destinationItems.stream() //
+                                .filter(it -> !slice.getAfterId().isPresent() || it.getId().compareTo(slice.getAfterId().get()) > 0) //
+                                .filter(it -> !slice.getBeforeOrEqualId().isPresent() || it.getId().compareTo(slice.getBeforeOrEqualId().get()) <= 0) //
+                                .sorted() //
+                                .limit(maxSliceSize) //
+                                .map(it -> new Tuple2<>(it.getId(), it.getVersion())) //
+                                .collect(Collectors.toList());
+                    }
+                }) //
                 .setNeedsUpdate((source, destination) -> source.getVersion() != destination.getB()) //
-                .setAddHandler(entities -> destinationItems.addAll(entities)) //
-                .setDeleteHandler(ids -> destinationItems.removeIf(it -> ids.contains(it.getId()))) //
+                .setAddHandler(entities -> {
+                    synchronized (destinationLock) {
+                        destinationItems.addAll(entities);
+                    }
+                }) //
+                .setDeleteHandler(ids -> {
+                    synchronized (destinationLock) {
+                        destinationItems.removeIf(it -> ids.contains(it.getId()));
+                    }
+                }) //
         ;
     }
 
@@ -156,6 +182,241 @@ public class SyncToolsTest {
         AssertTools.assertJsonComparison(expectedItems, destinationItems);
     }
 
+    @Test
+    public void testDestinationRandom_partitioned() {
+        for (int i = 110; i < 170; ++i) {
+            sourceItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        for (int i = 100; i < 120; ++i) {
+            destinationItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        for (int i = 120; i < 200; ++i) {
+            destinationItems.add(new SyncTestItem("id" + i, 1, "Content different " + i));
+        }
+
+        SyncChanges syncChanges = SyncTools.syncPartitioned(syncConfiguration, Arrays.asList("id115", "id130", "id180"), 3);
+        Assert.assertEquals(0, syncChanges.getAdded());
+        Assert.assertEquals(50, syncChanges.getUpdated());
+        Assert.assertEquals(40, syncChanges.getDeleted());
+
+        Collections.sort(sourceItems);
+        Collections.sort(destinationItems);
+
+        AssertTools.assertJsonComparison(sourceItems, destinationItems);
+    }
+
+    @Test
+    public void testDestinationRandom_partialSync_pipelined() {
+
+        // Initial state
+        for (int i = 110; i < 170; ++i) {
+            sourceItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        for (int i = 100; i < 120; ++i) {
+            destinationItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        for (int i = 120; i < 200; ++i) {
+            destinationItems.add(new SyncTestItem("id" + i, 1, "Content different " + i));
+        }
+
+        // Expected
+        List<SyncTestItem> expectedItems = new ArrayList<>();
+        for (int i = 100; i < 106; ++i) {
+            expectedItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        for (int i = 110; i <= 130; ++i) {
+            expectedItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        for (int i = 131; i < 200; ++i) {
+            expectedItems.add(new SyncTestItem("id" + i, 1, "Content different " + i));
+        }
+
+        // Execute and assert
+        SyncChanges syncChanges = SyncTools.syncPipelined(syncConfiguration, new SyncSlice<String>().setAfterId(Optional.of("id105")).setBeforeOrEqualId(Optional.of("id130")));
+        Assert.assertEquals(0, syncChanges.getAdded());
+        Assert.assertEquals(11, syncChanges.getUpdated());
+        Assert.assertEquals(4, syncChanges.getDeleted());
+
+        Collections.sort(expectedItems);
+        Collections.sort(destinationItems);
+
+        AssertTools.assertJsonComparison(expectedItems, destinationItems);
+    }
+
+    @Test
+    public void testDestinationRandom_pipelined() {
+        for (int i = 110; i < 170; ++i) {
+            sourceItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        for (int i = 100; i < 120; ++i) {
+            destinationItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        for (int i = 120; i < 200; ++i) {
+            destinationItems.add(new SyncTestItem("id" + i, 1, "Content different " + i));
+        }
+        for (int i = 300; i < 310; ++i) {
+            sourceItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+
+        SyncChanges syncChanges = SyncTools.syncPipelined(syncConfiguration);
+        Assert.assertEquals(10, syncChanges.getAdded());
+        Assert.assertEquals(50, syncChanges.getUpdated());
+        Assert.assertEquals(40, syncChanges.getDeleted());
+
+        Collections.sort(sourceItems);
+        Collections.sort(destinationItems);
+
+        AssertTools.assertJsonComparison(sourceItems, destinationItems);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPipelined_failingHandler() {
+        for (int i = 100; i < 150; ++i) {
+            sourceItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        syncConfiguration.setAddHandler(entities -> {
+            throw new IllegalStateException("Failing");
+        });
+
+        SyncTools.syncPipelined(syncConfiguration);
+    }
+
+    @Test
+    public void testProgress() {
+        for (int i = 100; i < 150; ++i) {
+            sourceItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        for (int i = 140; i < 160; ++i) {
+            destinationItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+
+        List<SyncProgress<String>> progresses = new ArrayList<>();
+        syncConfiguration.setProgressListener(progress -> progresses.add(progress));
+
+        SyncTools.sync(syncConfiguration);
+
+        Assert.assertFalse(progresses.isEmpty());
+        SyncProgress<String> last = progresses.get(progresses.size() - 1);
+        Assert.assertEquals(progresses.size(), last.getSlices());
+        Assert.assertEquals(Optional.of("id159"), last.getLastSyncedId());
+        Assert.assertEquals(50, last.getSourceItems());
+        Assert.assertEquals(20, last.getDestinationItems());
+        Assert.assertEquals(70, last.getScannedItems());
+        Assert.assertEquals(40, last.getChanges().getAdded());
+        Assert.assertEquals(10, last.getChanges().getDeleted());
+    }
+
+    @Test
+    public void testProgress_pipelined() {
+        for (int i = 100; i < 150; ++i) {
+            sourceItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+
+        List<SyncProgress<String>> progresses = new ArrayList<>();
+        syncConfiguration.setProgressListener(progress -> progresses.add(progress));
+
+        SyncTools.syncPipelined(syncConfiguration);
+
+        Assert.assertFalse(progresses.isEmpty());
+        SyncProgress<String> last = progresses.get(progresses.size() - 1);
+        Assert.assertEquals(Optional.of("id149"), last.getLastSyncedId());
+        Assert.assertEquals(50, last.getSourceItems());
+        Assert.assertEquals(50, last.getChanges().getAdded());
+    }
+
+    private void testResumeFromCheckpoint(boolean pipelined) {
+        for (int i = 100; i < 150; ++i) {
+            sourceItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+
+        // Fail on the third batch
+        InMemorySyncCheckpointStore<String> checkpointStore = new InMemorySyncCheckpointStore<>();
+        AtomicInteger addCount = new AtomicInteger();
+        syncConfiguration.setCheckpointStore(checkpointStore);
+        syncConfiguration.setAddHandler(entities -> {
+            if (addCount.incrementAndGet() == 3) {
+                throw new IllegalStateException("Failing");
+            }
+            synchronized (destinationLock) {
+                destinationItems.addAll(entities);
+            }
+        });
+        try {
+            if (pipelined) {
+                SyncTools.syncPipelined(syncConfiguration);
+            } else {
+                SyncTools.sync(syncConfiguration);
+            }
+            Assert.fail("Expecting an exception");
+        } catch (IllegalStateException e) {
+        }
+        Assert.assertEquals(Optional.of("id113"), checkpointStore.load());
+
+        // Resume
+        SyncChanges syncChanges = pipelined ? SyncTools.syncPipelined(syncConfiguration) : SyncTools.sync(syncConfiguration);
+        Assert.assertEquals(36, syncChanges.getAdded());
+        Assert.assertFalse(checkpointStore.load().isPresent());
+
+        Collections.sort(sourceItems);
+        Collections.sort(destinationItems);
+
+        AssertTools.assertJsonComparison(sourceItems, destinationItems);
+    }
+
+    @Test
+    public void testResumeFromCheckpoint() {
+        testResumeFromCheckpoint(false);
+    }
+
+    @Test
+    public void testResumeFromCheckpoint_pipelined() {
+        testResumeFromCheckpoint(true);
+    }
+
+    @Test
+    public void testRangeDigest() {
+        for (int i = 1000; i < 2000; ++i) {
+            sourceItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+            destinationItems.add(new SyncTestItem("id" + i, 0, "Content " + i));
+        }
+        sourceItems.get(100).setVersion(1);
+        sourceItems.get(700).setVersion(1);
+        destinationItems.remove(400);
+        destinationItems.add(new SyncTestItem("id5000", 0, "Content 5000"));
+
+        AtomicLong retrievedDestinationItems = new AtomicLong();
+        SyncConfigurationRetrieveSlice<String, Tuple2<String, Long>> destinationSlice = syncConfiguration.getDestinationSlice();
+        syncConfiguration //
+                .setDestinationSlice((slice, maxSliceSize) -> {
+                    List<Tuple2<String, Long>> items = destinationSlice.call(slice, maxSliceSize);
+                    retrievedDestinationItems.addAndGet(items.size());
+                    return items;
+                }) //
+                .setSourceRangeDigest(slice -> computeRangeDigest(sourceItems, slice)) //
+                .setDestinationRangeDigest(slice -> {
+                    synchronized (destinationLock) {
+                        return computeRangeDigest(destinationItems, slice);
+                    }
+                });
+
+        SyncChanges syncChanges = SyncTools.syncRangeDigest(syncConfiguration);
+        Assert.assertEquals(1, syncChanges.getAdded());
+        Assert.assertEquals(2, syncChanges.getUpdated());
+        Assert.assertEquals(1, syncChanges.getDeleted());
+        Assert.assertTrue("Retrieved " + retrievedDestinationItems.get(), retrievedDestinationItems.get() < 100);
+
+        Collections.sort(sourceItems);
+        Collections.sort(destinationItems);
+
+        AssertTools.assertJsonComparison(sourceItems, destinationItems);
+
+        // Nothing to do on the second pass
+        retrievedDestinationItems.set(0);
+        syncChanges = SyncTools.syncRangeDigest(syncConfiguration);
+        Assert.assertFalse(syncChanges.hasChanged());
+        Assert.assertEquals(0, retrievedDestinationItems.get());
+    }
+
     @Test
     public void testSourceEmpty() {
 
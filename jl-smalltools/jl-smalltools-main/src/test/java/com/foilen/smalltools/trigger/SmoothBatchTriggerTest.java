@@ -0,0 +1,95 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.trigger;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.tools.ThreadTools;
+import com.foilen.smalltools.tools.thread.ThreadList;
+
+public class SmoothBatchTriggerTest {
+
+    private static final long DELAY = 200;
+
+    @Test(timeout = 30000)
+    public void testDebounce() {
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        SmoothBatchTrigger<Integer> smoothBatchTrigger = new SmoothBatchTrigger<Integer>(batches::add) //
+                .setDelayAfterLastTriggerMs(DELAY) //
+                .setMaxDelayAfterFirstRequestMs(Long.MAX_VALUE) //
+                .start();
+
+        // Requests quickly are in the same batch
+        for (int i = 0; i < 5; ++i) {
+            smoothBatchTrigger.request(i);
+        }
+        ThreadTools.sleep(DELAY * 3);
+        smoothBatchTrigger.request(5);
+        ThreadTools.sleep(DELAY * 3);
+
+        smoothBatchTrigger.stop(false);
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals(IntStream.range(0, 5).boxed().collect(Collectors.toList()), batches.get(0));
+        Assert.assertEquals(Collections.singletonList(5), batches.get(1));
+    }
+
+    @Test(timeout = 30000)
+    public void testMaxBatchSize() {
+        List<List<Integer>> batches = Collections.synchronizedList(new ArrayList<>());
+        SmoothBatchTrigger<Integer> smoothBatchTrigger = new SmoothBatchTrigger<Integer>(batches::add) //
+                .setDelayAfterLastTriggerMs(60000) //
+                .setMaxDelayAfterFirstRequestMs(60000) //
+                .setMaxBatchSize(10) //
+                .start();
+
+        // Full batches do not wait
+        for (int i = 0; i < 25; ++i) {
+            smoothBatchTrigger.request(i);
+        }
+        ThreadTools.sleep(DELAY);
+        Assert.assertEquals(2, batches.size());
+        Assert.assertEquals(5, smoothBatchTrigger.getBufferSize());
+
+        // Stop with the rest
+        smoothBatchTrigger.stop(true);
+        Assert.assertEquals(3, batches.size());
+        Assert.assertEquals(IntStream.range(0, 25).boxed().collect(Collectors.toList()), batches.stream().flatMap(List::stream).collect(Collectors.toList()));
+    }
+
+    @Test(timeout = 30000)
+    public void testMultipleProducers() throws Exception {
+        List<Integer> items = Collections.synchronizedList(new ArrayList<>());
+        SmoothBatchTrigger<Integer> smoothBatchTrigger = new SmoothBatchTrigger<Integer>(DELAY, DELAY * 2, 100, items::addAll).start();
+
+        Runnable[] producers = new Runnable[4];
+        for (int p = 0; p < producers.length; ++p) {
+            int offset = p * 10000;
+            producers[p] = () -> {
+                for (int i = 0; i < 10000; ++i) {
+                    smoothBatchTrigger.request(offset + i);
+                }
+            };
+        }
+        ThreadList threadList = ThreadTools.startMultipleThreads(false, producers);
+        threadList.join();
+
+        smoothBatchTrigger.stop(true);
+        Assert.assertEquals(40000, items.size());
+        Collections.sort(items);
+        Assert.assertEquals(IntStream.range(0, 40000).boxed().collect(Collectors.toList()), items);
+    }
+
+}
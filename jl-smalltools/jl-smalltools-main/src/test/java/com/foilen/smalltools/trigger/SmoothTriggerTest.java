@@ -10,6 +10,9 @@ package com.foilen.smalltools.trigger;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -108,6 +111,37 @@ public class SmoothTriggerTest {
         Assert.assertEquals(7, triggers.size());
     }
 
+    @Test(timeout = 30000)
+    public void testSharedScheduler() {
+        ExecutorService actionExecutor = Executors.newFixedThreadPool(2);
+        SmoothTriggerScheduler scheduler = new SmoothTriggerScheduler("test-triggers", actionExecutor);
+        try {
+
+            // Many triggers on the same scheduler
+            AtomicInteger executed = new AtomicInteger();
+            List<SmoothTrigger> smoothTriggers = new ArrayList<>();
+            for (int i = 0; i < 200; ++i) {
+                smoothTriggers.add(new SmoothTrigger(() -> executed.incrementAndGet()) //
+                        .setDelayAfterLastTriggerMs(QUICK) //
+                        .setMaxDelayAfterFirstRequestMs(MAX_DELAY) //
+                        .setScheduler(scheduler) //
+                        .start());
+            }
+
+            // Request multiple times each
+            for (int j = 0; j < 3; ++j) {
+                smoothTriggers.forEach(SmoothTrigger::request);
+            }
+            ThreadTools.sleep(DELAY);
+            Assert.assertEquals(200, executed.get());
+
+            smoothTriggers.forEach(it -> it.stop(false));
+        } finally {
+            scheduler.shutdown();
+            actionExecutor.shutdown();
+        }
+    }
+
     @Test(timeout = 30000)
     public void testWarmup() {
         SmoothTrigger smoothTrigger = new SmoothTrigger(action) //
@@ -9,10 +9,16 @@
 package com.foilen.smalltools.upgrader;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.foilen.smalltools.exception.SmallToolsException;
+import com.foilen.smalltools.tools.ThreadTools;
 import com.foilen.smalltools.upgrader.tasks.UpgradeTask;
 import com.foilen.smalltools.upgrader.trackers.JsonFileUpgraderTracker;
 import com.foilen.smalltools.upgrader.trackers.UpgraderTracker;
@@ -63,6 +69,52 @@ public class UpgraderToolsTest {
 
     }
 
+    private static class StubParallelUpgradeTask implements UpgradeTask {
+
+        private List<String> executed;
+        private List<String> dependsOnTasks;
+
+        public StubParallelUpgradeTask(List<String> executed, String... dependsOnTasks) {
+            this.executed = executed;
+            this.dependsOnTasks = Arrays.asList(dependsOnTasks);
+        }
+
+        @Override
+        public List<String> dependsOnTasks() {
+            return dependsOnTasks;
+        }
+
+        @Override
+        public void execute() {
+            ThreadTools.sleep(200);
+            executed.add(getClass().getSimpleName());
+        }
+
+        @Override
+        public String useTracker() {
+            return UpgradeTask.DEFAULT_TRACKER;
+        }
+
+    }
+
+    private static class StubParallelAUpgradeTask extends StubParallelUpgradeTask {
+        public StubParallelAUpgradeTask(List<String> executed) {
+            super(executed);
+        }
+    }
+
+    private static class StubParallelBUpgradeTask extends StubParallelUpgradeTask {
+        public StubParallelBUpgradeTask(List<String> executed) {
+            super(executed);
+        }
+    }
+
+    private static class StubParallelCUpgradeTask extends StubParallelUpgradeTask {
+        public StubParallelCUpgradeTask(List<String> executed) {
+            super(executed, "StubParallelAUpgradeTask", "StubParallelBUpgradeTask", "StubOneUpgradeTask");
+        }
+    }
+
     @Test
     public void testExecute() throws Exception {
         // Prepare tracker
@@ -90,4 +142,78 @@ public class UpgraderToolsTest {
 
     }
 
+    @Test(timeout = 10000)
+    public void testExecute_InOrderWithDependencies() throws Exception {
+        // Prepare tracker
+        File file = File.createTempFile("upgrader", null);
+        file.delete();
+        UpgraderTracker upgraderTracker = new JsonFileUpgraderTracker(file.getAbsolutePath());
+
+        UpgraderTools upgraderTools = new UpgraderTools();
+        upgraderTools.setDefaultUpgraderTracker(upgraderTracker);
+        upgraderTools.setSortByClassName(false);
+
+        // Already executed
+        StubOneUpgradeTask taskOne = new StubOneUpgradeTask();
+        upgraderTools.getTasks().add(taskOne);
+        upgraderTools.execute();
+        taskOne.assertCalled();
+
+        // C waits for B and A
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        upgraderTools.getTasks().add(new StubParallelCUpgradeTask(executed));
+        upgraderTools.getTasks().add(new StubParallelBUpgradeTask(executed));
+        upgraderTools.getTasks().add(new StubParallelAUpgradeTask(executed));
+        upgraderTools.execute();
+
+        Assert.assertEquals(Arrays.asList("StubParallelBUpgradeTask", "StubParallelAUpgradeTask", "StubParallelCUpgradeTask"), executed);
+    }
+
+    @Test(expected = SmallToolsException.class)
+    public void testExecute_InOrderUnknownDependency() throws Exception {
+        File file = File.createTempFile("upgrader", null);
+        file.delete();
+
+        UpgraderTools upgraderTools = new UpgraderTools();
+        upgraderTools.setDefaultUpgraderTracker(new JsonFileUpgraderTracker(file.getAbsolutePath()));
+        upgraderTools.getTasks().add(new StubParallelUpgradeTask(new ArrayList<>(), "UnknownUpgradeTask"));
+        upgraderTools.execute();
+    }
+
+    @Test(timeout = 10000)
+    public void testExecute_Parallel() throws Exception {
+        // Prepare tracker
+        File file = File.createTempFile("upgrader", null);
+        file.delete();
+        UpgraderTracker upgraderTracker = new JsonFileUpgraderTracker(file.getAbsolutePath());
+
+        UpgraderTools upgraderTools = new UpgraderTools();
+        upgraderTools.setDefaultUpgraderTracker(upgraderTracker);
+        upgraderTools.setParallelThreads(4);
+
+        // Already executed
+        StubOneUpgradeTask taskOne = new StubOneUpgradeTask();
+        upgraderTools.getTasks().add(taskOne);
+        upgraderTools.execute();
+        taskOne.assertCalled();
+
+        // A and B together, then C
+        List<String> executed = Collections.synchronizedList(new ArrayList<>());
+        upgraderTools.getTasks().add(new StubParallelCUpgradeTask(executed));
+        upgraderTools.getTasks().add(new StubParallelBUpgradeTask(executed));
+        upgraderTools.getTasks().add(new StubParallelAUpgradeTask(executed));
+        long start = System.currentTimeMillis();
+        upgraderTools.execute();
+        long durationMs = System.currentTimeMillis() - start;
+
+        Assert.assertEquals(3, executed.size());
+        Assert.assertEquals("StubParallelCUpgradeTask", executed.get(2));
+        Assert.assertTrue("Took " + durationMs, durationMs < 550);
+
+        // Nothing more to execute
+        executed.clear();
+        upgraderTools.execute();
+        Assert.assertTrue(executed.isEmpty());
+    }
+
 }
@@ -0,0 +1,120 @@
+/*
+    Java Libraries https://github.com/foilen/java-libraries
+    Copyright (c) 2015-2021 Foilen (https://foilen.com)
+
+    The MIT License
+    http://opensource.org/licenses/MIT
+
+ */
+package com.foilen.smalltools.upgrader.tasks;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.foilen.smalltools.tools.ThreadTools;
+import com.foilen.smalltools.upgrader.UpgraderTools;
+import com.foilen.smalltools.upgrader.trackers.JsonFileUpgraderTracker;
+
+public class AbstractChunkedUpgradeTaskTest {
+
+    private static class StubChunkedUpgradeTask extends AbstractChunkedUpgradeTask {
+
+        private List<Long> processedFromKeys = Collections.synchronizedList(new ArrayList<>());
+        private long failAtKey = -1;
+        private long firstKey = 5;
+        private long lastKey = 104;
+
+        @Override
+        protected long getFirstKey() {
+            return firstKey;
+        }
+
+        @Override
+        protected long getLastKey() {
+            return lastKey;
+        }
+
+        @Override
+        protected void processChunk(long fromKey, long toKey) {
+            if (fromKey == failAtKey) {
+                throw new IllegalStateException("Failing");
+            }
+            ThreadTools.sleep(5);
+            processedFromKeys.add(fromKey);
+        }
+
+    }
+
+    @Test(timeout = 20000)
+    public void testNearMaxKey() {
+        StubChunkedUpgradeTask task = new StubChunkedUpgradeTask();
+        task.firstKey = Long.MAX_VALUE - 25;
+        task.lastKey = Long.MAX_VALUE - 1;
+        task.setChunkSize(10);
+
+        task.execute();
+
+        Collections.sort(task.processedFromKeys);
+        Assert.assertEquals(Arrays.asList(Long.MAX_VALUE - 25, Long.MAX_VALUE - 15, Long.MAX_VALUE - 5), task.processedFromKeys);
+    }
+
+    @Test(timeout = 20000)
+    public void testResume() throws Exception {
+        File file = File.createTempFile("upgrader", null);
+        file.delete();
+        JsonFileUpgraderTracker upgraderTracker = new JsonFileUpgraderTracker(file.getAbsolutePath());
+
+        StubChunkedUpgradeTask task = new StubChunkedUpgradeTask();
+        task.setChunkSize(10);
+        task.setWorkers(3);
+        task.failAtKey = 55;
+
+        UpgraderTools upgraderTools = new UpgraderTools();
+        upgraderTools.addUpgraderTracker("db", upgraderTracker);
+        upgraderTools.getTasks().add(task);
+
+        // Fail in the middle
+        try {
+            upgraderTools.execute();
+            Assert.fail("Expecting an exception");
+        } catch (Exception e) {
+        }
+        Assert.assertEquals("55", upgraderTracker.loadProgress("StubChunkedUpgradeTask"));
+        Assert.assertFalse(task.processedFromKeys.contains(55L));
+        for (long fromKey = 5; fromKey < 55; fromKey += 10) {
+            Assert.assertTrue(task.processedFromKeys.contains(fromKey));
+        }
+
+        // Resume
+        task.failAtKey = -1;
+        task.processedFromKeys.clear();
+        upgraderTools.execute();
+        Collections.sort(task.processedFromKeys);
+        Assert.assertEquals(55L, (long) task.processedFromKeys.get(0));
+        Assert.assertEquals(95L, (long) task.processedFromKeys.get(task.processedFromKeys.size() - 1));
+        Assert.assertNull(upgraderTracker.loadProgress("StubChunkedUpgradeTask"));
+        Assert.assertTrue(upgraderTracker.wasExecutedSuccessfully("StubChunkedUpgradeTask"));
+    }
+
+    @Test(timeout = 20000)
+    public void testThrottle() {
+        StubChunkedUpgradeTask task = new StubChunkedUpgradeTask();
+        task.setChunkSize(20);
+        task.setWorkers(5);
+        task.setMaxChunksPerSecond(10);
+
+        long start = System.currentTimeMillis();
+        task.execute();
+        long durationMs = System.currentTimeMillis() - start;
+
+        Assert.assertEquals(5, task.processedFromKeys.size());
+        Assert.assertTrue("Took " + durationMs, durationMs >= 390);
+    }
+
+}
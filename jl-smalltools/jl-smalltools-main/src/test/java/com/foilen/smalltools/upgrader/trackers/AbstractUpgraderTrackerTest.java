@@ -8,6 +8,9 @@
  */
 package com.foilen.smalltools.upgrader.trackers;
 
+import java.util.Arrays;
+import java.util.HashSet;
+
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -42,6 +45,17 @@ public abstract class AbstractUpgraderTrackerTest {
         upgraderTracker.executionEnd("task2", true);
         Assert.assertTrue(upgraderTracker.wasExecutedSuccessfully("task2"));
 
+        // Load all
+        Assert.assertEquals(new HashSet<>(Arrays.asList("task1", "task2")), upgraderTracker.loadAllExecutedSuccessfully());
+
+        // Progress
+        Assert.assertNull(upgraderTracker.loadProgress("task3"));
+        upgraderTracker.saveProgress("task3", "10");
+        upgraderTracker.saveProgress("task3", "20");
+        Assert.assertEquals("20", upgraderTracker.loadProgress("task3"));
+        upgraderTracker.saveProgress("task3", null);
+        Assert.assertNull(upgraderTracker.loadProgress("task3"));
+
         upgraderTracker.trackerEnd();
 
     }